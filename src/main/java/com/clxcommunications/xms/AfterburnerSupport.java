@@ -0,0 +1,61 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+
+/**
+ * Registers the Jackson Afterburner module, which replaces the reflective
+ * property accessors and builder calls of Jackson with generated bytecode.
+ * <p>
+ * The Afterburner module is an optional dependency of this SDK. This class is
+ * the only one referring to it so that the rest of the SDK loads also when the
+ * module is missing from the class path.
+ */
+@ParametersAreNonnullByDefault
+final class AfterburnerSupport {
+
+	private AfterburnerSupport() {
+		// Intentionally left empty.
+	}
+
+	/**
+	 * Registers the Afterburner module in the given object mapper.
+	 * 
+	 * @param json
+	 *            the object mapper to modify
+	 * @throws IllegalStateException
+	 *             if the Afterburner module is not available on the class path
+	 */
+	static void register(ObjectMapper json) {
+		try {
+			json.registerModule(new AfterburnerModule());
+		} catch (NoClassDefFoundError e) {
+			throw new IllegalStateException(
+			        "Afterburner requested but jackson-module-afterburner"
+			                + " is not available",
+			        e);
+		}
+	}
+
+}
@@ -0,0 +1,611 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A single API call, which consists of one or more attempts of sending a
+ * request to XMS. Failed attempts are repeated according to the retry policy
+ * and retry budget of the connection. Every attempt must also be permitted by
+ * the rate limiter, circuit breaker, and concurrency limiter of the
+ * connection, if any. The delay before attempts is handled by the
+ * {@link DelayScheduler} so no thread is blocked while waiting.
+ * <p>
+ * If the connection has a load balancer then each attempt is sent to the
+ * endpoint it chooses, preferably another endpoint than that of the previous
+ * attempt.
+ * <p>
+ * If the connection has a hedging policy then a slow GET attempt may be
+ * accompanied by hedged attempts. The first attempt to succeed gives the
+ * result of the call and the others are cancelled.
+ * <p>
+ * The call is itself the future of its result. Cancelling it cancels the
+ * attempts in flight and any pending retry.
+ * 
+ * @param <T>
+ *            the call result type
+ */
+@ParametersAreNonnullByDefault
+final class ApiCall<T> implements Future<T> {
+
+	/**
+	 * A single attempt of sending the request.
+	 */
+	private final class Attempt implements FutureCallback<T> {
+
+		private final URI endpoint;
+
+		private final long sentNanos = System.nanoTime();
+
+		@Nullable
+		private volatile Future<T> future;
+
+		Attempt(URI endpoint) {
+			this.endpoint = endpoint;
+		}
+
+		@Override
+		public void completed(T value) {
+			finished(this, null);
+
+			if (conn.hedgingPolicy() != null) {
+				conn.hedgingPolicy().record(operation,
+				        System.nanoTime() - sentNanos);
+			}
+
+			remove(this);
+
+			if (result.completed(value)) {
+				cancelAttempts();
+			}
+		}
+
+		@Override
+		public void failed(Exception ex) {
+			finished(this, ex);
+
+			// Leave the call to the remaining attempts, if any.
+			if (!remove(this) || result.isDone()) {
+				return;
+			}
+
+			cancelHedge();
+
+			if (!maybeRetry(ex)) {
+				result.failed(ex);
+			}
+		}
+
+		@Override
+		public void cancelled() {
+			abandoned(this);
+
+			if (remove(this)) {
+				result.cancel(true);
+			}
+		}
+
+		void cancel() {
+			Future<T> f = future;
+			if (f != null) {
+				f.cancel(true);
+			}
+		}
+
+	}
+
+	private static final Logger log = LoggerFactory.getLogger(ApiCall.class);
+
+	private final ApiConnection conn;
+	private final ApiOperation operation;
+	private final HttpRequestBase request;
+	private final AsyncConsumerFactory<T> consumers;
+
+	@Nullable
+	private final Deadline deadline;
+
+	private final BasicFuture<T> result;
+
+	/**
+	 * The number of attempts started so far, not counting hedged attempts.
+	 * Such attempts are strictly sequential so this field is never updated
+	 * concurrently.
+	 */
+	private volatile int attempts = 0;
+
+	/**
+	 * The attempts currently in flight. Guarded by <code>this</code>.
+	 */
+	private final List<Attempt> inFlight = new ArrayList<Attempt>(2);
+
+	/**
+	 * The number of hedged attempts started so far. Guarded by
+	 * <code>this</code>.
+	 */
+	private int hedges = 0;
+
+	/**
+	 * The endpoint of the latest attempt.
+	 */
+	@Nullable
+	private volatile URI lastEndpoint;
+
+	/**
+	 * The timer of the next attempt, if one is pending.
+	 */
+	@Nullable
+	private volatile ScheduledFuture<?> pending;
+
+	/**
+	 * The timer of the next hedged attempt, if one is pending.
+	 */
+	@Nullable
+	private volatile ScheduledFuture<?> pendingHedge;
+
+	/**
+	 * Creates a new API call. The call is not sent until {@link #start()} is
+	 * called.
+	 * 
+	 * @param conn
+	 *            the connection performing the call
+	 * @param operation
+	 *            the operation that is performed
+	 * @param request
+	 *            the request to send in each attempt
+	 * @param consumers
+	 *            the factory of response consumers
+	 * @param deadline
+	 *            the deadline of the call, may be <code>null</code>
+	 * @param callback
+	 *            the callback to invoke when the call is finished, may be
+	 *            <code>null</code>
+	 */
+	ApiCall(ApiConnection conn, ApiOperation operation,
+	        HttpRequestBase request, AsyncConsumerFactory<T> consumers,
+	        @Nullable Deadline deadline, @Nullable FutureCallback<T> callback) {
+		this.conn = conn;
+		this.operation = operation;
+		this.request = request;
+		this.consumers = consumers;
+		this.deadline = deadline;
+		this.result = new BasicFuture<T>(callback);
+	}
+
+	/**
+	 * Sends the first attempt of this call.
+	 * 
+	 * @return this call
+	 */
+	ApiCall<T> start() {
+		conn.retryBudget().deposit();
+
+		dispatch(consumers.create());
+
+		return this;
+	}
+
+	/**
+	 * Sends an attempt of this call once permitted by the rate limiter.
+	 * 
+	 * @param consumer
+	 *            the consumer of the attempt response
+	 */
+	private void dispatch(HttpAsyncResponseConsumer<T> consumer) {
+		RateLimiter limiter = conn.rateLimiter();
+
+		if (limiter == null) {
+			sendOrFail(consumer);
+			return;
+		}
+
+		long maxWait = (deadline == null)
+		        ? Long.MAX_VALUE
+		        : deadline.remaining(TimeUnit.NANOSECONDS);
+		long wait = limiter.reserve(conn.servicePlanId(), operation, maxWait);
+
+		if (wait < 0) {
+			result.failed(new RateLimitExceededException(operation));
+		} else if (wait == 0) {
+			sendOrFail(consumer);
+		} else {
+			log.debug("Rate limited {}, waiting {} ns", operation, wait);
+			schedule(consumer, wait, TimeUnit.NANOSECONDS, false);
+		}
+	}
+
+	/**
+	 * Sends an attempt of this call and fails the call if the attempt is
+	 * rejected.
+	 * 
+	 * @param consumer
+	 *            the consumer of the attempt response
+	 */
+	private void sendOrFail(HttpAsyncResponseConsumer<T> consumer) {
+		ApiException rejection = send(consumer, false);
+
+		if (rejection != null) {
+			result.failed(rejection);
+		}
+	}
+
+	/**
+	 * Sends an attempt of this call.
+	 * 
+	 * @param consumer
+	 *            the consumer of the attempt response
+	 * @param hedge
+	 *            whether the attempt is a hedged attempt
+	 * @return <code>null</code> if the attempt was sent, otherwise the reason
+	 *         it was rejected
+	 */
+	@Nullable
+	private ApiException send(HttpAsyncResponseConsumer<T> consumer,
+	        boolean hedge) {
+		if (result.isDone()) {
+			return null;
+		}
+
+		URI endpoint;
+
+		try {
+			endpoint = Attempts.acquire(conn, operation, lastEndpoint);
+		} catch (ApiException e) {
+			return e;
+		}
+
+		if (!hedge) {
+			attempts++;
+		}
+
+		if (deadline != null) {
+			/*
+			 * Limit the low-level timeouts to the deadline so that a stalled
+			 * connection does not outlive the call.
+			 */
+			request.setConfig(
+			        Utils.limitTimeouts(conn.requestConfig(), deadline));
+		}
+
+		Attempt attempt = new Attempt(endpoint);
+
+		synchronized (this) {
+			inFlight.add(attempt);
+		}
+
+		lastEndpoint = endpoint;
+
+		try {
+			ApiTransport transport = (conn.transport() == null)
+			        ? HttpAsyncClientTransport.of(conn.httpClient())
+			        : conn.transport();
+
+			attempt.future = transport.execute(
+			        Attempts.host(conn, endpoint),
+			        Attempts.request(conn, endpoint, request), consumer,
+			        attempt);
+		} catch (RuntimeException e) {
+			remove(attempt);
+			abandoned(attempt);
+			throw e;
+		}
+
+		// The call may have finished while the attempt was started.
+		if (result.isDone()) {
+			attempt.cancel();
+		} else if (!hedge) {
+			scheduleHedge();
+		}
+
+		return null;
+	}
+
+	/**
+	 * Removes the given attempt from the attempts in flight.
+	 * 
+	 * @param attempt
+	 *            the attempt to remove
+	 * @return <code>true</code> if no attempt remains in flight
+	 */
+	private synchronized boolean remove(Attempt attempt) {
+		inFlight.remove(attempt);
+
+		return inFlight.isEmpty();
+	}
+
+	/**
+	 * Cancels all attempts in flight and any pending hedged attempt.
+	 */
+	private void cancelAttempts() {
+		List<Attempt> snapshot;
+
+		synchronized (this) {
+			snapshot = new ArrayList<Attempt>(inFlight);
+		}
+
+		for (Attempt attempt : snapshot) {
+			attempt.cancel();
+		}
+
+		cancelHedge();
+	}
+
+	/**
+	 * Schedules an attempt of this call on the delay scheduler.
+	 * 
+	 * @param consumer
+	 *            the consumer of the attempt response
+	 * @param delay
+	 *            the delay before the attempt
+	 * @param unit
+	 *            the unit of the delay
+	 * @param throttle
+	 *            whether the attempt must be permitted by the rate limiter
+	 *            when the delay has passed
+	 */
+	private void schedule(final HttpAsyncResponseConsumer<T> consumer,
+	        long delay, TimeUnit unit, final boolean throttle) {
+		pending = DelayScheduler.schedule(new Runnable() {
+
+			@Override
+			public void run() {
+				pending = null;
+
+				try {
+					if (throttle) {
+						dispatch(consumer);
+					} else {
+						sendOrFail(consumer);
+					}
+				} catch (RuntimeException e) {
+					// For example, if the HTTP client was shut down.
+					result.failed(e);
+				}
+			}
+
+		}, delay, unit);
+
+		// The call may have been cancelled while the attempt was scheduled.
+		if (result.isCancelled()) {
+			DelayScheduler.cancel(pending);
+		}
+	}
+
+	/**
+	 * Schedules a hedged attempt if permitted by the hedging policy.
+	 */
+	private void scheduleHedge() {
+		HedgingPolicy hedging = conn.hedgingPolicy();
+
+		if (hedging == null
+		        || !HttpGet.METHOD_NAME.equals(request.getMethod())
+		        || !hedging.hedges(operation)
+		        || !consumers.concurrent()) {
+			return;
+		}
+
+		synchronized (this) {
+			if (hedges >= hedging.maxHedges()) {
+				return;
+			}
+		}
+
+		long delay = hedging.hedgeDelay(operation);
+
+		if (delay < 0) {
+			return;
+		}
+
+		if (deadline != null
+		        && deadline.remaining(TimeUnit.NANOSECONDS) <= delay) {
+			return;
+		}
+
+		pendingHedge = DelayScheduler.schedule(new Runnable() {
+
+			@Override
+			public void run() {
+				pendingHedge = null;
+
+				try {
+					hedge();
+				} catch (RuntimeException e) {
+					// The other attempts decide the outcome of the call.
+					log.debug("Failed to send hedged {}: {}", operation,
+					        e.toString());
+				}
+			}
+
+		}, delay, TimeUnit.NANOSECONDS);
+
+		// The call may have finished while the hedge was scheduled.
+		if (result.isDone()) {
+			cancelHedge();
+		}
+	}
+
+	/**
+	 * Sends a hedged attempt of this call if it is still in flight.
+	 */
+	private void hedge() {
+		synchronized (this) {
+			if (result.isDone() || inFlight.isEmpty()) {
+				return;
+			}
+
+			hedges++;
+		}
+
+		RateLimiter limiter = conn.rateLimiter();
+
+		// A hedged attempt is only sent if it would not have to wait.
+		if (limiter != null
+		        && limiter.reserve(conn.servicePlanId(), operation, 0) != 0) {
+			return;
+		}
+
+		HttpAsyncResponseConsumer<T> consumer = consumers.create();
+
+		if (consumer == null) {
+			return;
+		}
+
+		ApiException rejection = send(consumer, true);
+
+		if (rejection != null) {
+			log.debug("Hedged {} rejected: {}", operation, rejection);
+			return;
+		}
+
+		log.debug("Sent hedged {}", operation);
+
+		scheduleHedge();
+	}
+
+	/**
+	 * Cancels the pending hedged attempt, if any.
+	 */
+	private void cancelHedge() {
+		ScheduledFuture<?> h = pendingHedge;
+		if (h != null) {
+			DelayScheduler.cancel(h);
+		}
+	}
+
+	/**
+	 * Schedules another attempt if permitted.
+	 * 
+	 * @param failure
+	 *            the failure of the latest attempt
+	 * @return <code>true</code> if another attempt was scheduled,
+	 *         <code>false</code> otherwise
+	 */
+	private boolean maybeRetry(Exception failure) {
+		long delay = conn.retryPolicy().retryDelay(operation, attempts,
+		        failure);
+
+		if (delay < 0) {
+			return false;
+		}
+
+		if (deadline != null
+		        && deadline.remaining(TimeUnit.MILLISECONDS) <= delay) {
+			return false;
+		}
+
+		HttpAsyncResponseConsumer<T> consumer = consumers.create();
+
+		if (consumer == null) {
+			return false;
+		}
+
+		if (!conn.retryBudget().tryWithdraw()) {
+			log.debug("Retry budget exhausted, not retrying {}", operation);
+			return false;
+		}
+
+		log.debug("Retrying {} in {} ms after attempt {} failed: {}",
+		        operation, delay, attempts, failure.toString());
+
+		schedule(consumer, delay, TimeUnit.MILLISECONDS, true);
+
+		return true;
+	}
+
+	/**
+	 * Records the outcome of an attempt.
+	 * 
+	 * @param attempt
+	 *            the finished attempt
+	 * @param failure
+	 *            the failure of the attempt or <code>null</code> if the
+	 *            attempt succeeded
+	 */
+	private void finished(Attempt attempt, @Nullable Exception failure) {
+		Attempts.finished(conn, attempt.endpoint, failure,
+		        System.nanoTime() - attempt.sentNanos);
+	}
+
+	/**
+	 * Releases the permits of an attempt without recording an outcome.
+	 * 
+	 * @param attempt
+	 *            the abandoned attempt
+	 */
+	private void abandoned(Attempt attempt) {
+		Attempts.abandoned(conn, attempt.endpoint);
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		if (!result.cancel(mayInterruptIfRunning)) {
+			return false;
+		}
+
+		cancelAttempts();
+
+		ScheduledFuture<?> p = pending;
+		if (p != null) {
+			DelayScheduler.cancel(p);
+		}
+
+		return true;
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return result.isCancelled();
+	}
+
+	@Override
+	public boolean isDone() {
+		return result.isDone();
+	}
+
+	@Override
+	public T get() throws InterruptedException, ExecutionException {
+		return result.get();
+	}
+
+	@Override
+	public T get(long timeout, TimeUnit unit) throws InterruptedException,
+	        ExecutionException, TimeoutException {
+		return result.get(timeout, unit);
+	}
+
+}
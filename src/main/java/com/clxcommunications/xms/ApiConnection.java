@@ -19,6 +19,7 @@
  */
 package com.clxcommunications.xms;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
@@ -27,35 +28,45 @@ import java.net.URISyntaxException;
 import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPOutputStream;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import org.apache.http.HttpEntityEnclosingRequest;
 import org.apache.http.HttpHeaders;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpRequest;
 import org.apache.http.NameValuePair;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.concurrent.BasicFuture;
 import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.nio.client.HttpAsyncClient;
 import org.apache.http.nio.protocol.BasicAsyncRequestProducer;
-import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
 import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
 import org.immutables.value.Value;
+import org.threeten.bp.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.clxcommunications.xms.api.ApiError;
 import com.clxcommunications.xms.api.BatchDeliveryReport;
 import com.clxcommunications.xms.api.BatchId;
 import com.clxcommunications.xms.api.GroupCreate;
@@ -80,6 +91,7 @@ import com.clxcommunications.xms.api.RecipientDeliveryReport;
 import com.clxcommunications.xms.api.Tags;
 import com.clxcommunications.xms.api.TagsUpdate;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.SerializationFeature;
 
 /**
@@ -163,7 +175,24 @@ public abstract class ApiConnection implements Closeable {
 	/**
 	 * A Jackson object mapper.
 	 */
-	private final ApiObjectMapper json;
+	private ApiObjectMapper json;
+
+	/**
+	 * Typed readers and writers created from {@link #json}.
+	 */
+	private JsonCodecs codecs;
+
+	/**
+	 * A pool of response buffers shared by all requests of this connection.
+	 */
+	private ByteArrayPool responseBuffers;
+
+	/**
+	 * The deadline of all calls made through this connection, this is only
+	 * set in connections created by {@link #withDeadline(Deadline)}.
+	 */
+	@Nullable
+	private Deadline callDeadline;
 
 	/**
 	 * Constructor of API connections. This only has package visibility since
@@ -171,6 +200,8 @@ public abstract class ApiConnection implements Closeable {
 	 */
 	ApiConnection() {
 		json = new ApiObjectMapper();
+		codecs = new JsonCodecs(json);
+		responseBuffers = new ByteArrayPool();
 	}
 
 	/**
@@ -188,16 +219,122 @@ public abstract class ApiConnection implements Closeable {
 	 * API calls.
 	 */
 	public void start() {
+		if (callDeadline != null) {
+			log.debug("Not starting deadline view of API connection");
+			return;
+		}
+
 		log.debug("Starting API connection: {}", this);
 
-		if (httpClient() instanceof ApiHttpAsyncClient) {
-			((ApiHttpAsyncClient) httpClient()).start();
+		if (transport() != null) {
+			log.debug("Not starting HTTP client since a transport was given");
+		} else if (httpClient() instanceof ApiHttpAsyncClient) {
+			ApiHttpAsyncClient client = (ApiHttpAsyncClient) httpClient();
+			client.start();
+			prewarm(client);
 		} else {
 			log.debug("Not starting HTTP client since it"
 			        + " was given externally");
 		}
 	}
 
+	/**
+	 * Opens the number of connections given by
+	 * {@link HttpClientConfig#prewarmConnections()}. Without a load balancer
+	 * all connections are opened to the endpoint host. With a load balancer
+	 * they are split evenly over the distinct hosts of its endpoints, in
+	 * endpoint order, and the first hosts open one extra connection each if
+	 * the number does not divide evenly. Waits at most the connect timeout for
+	 * the connections to open, failure to open them is logged but otherwise
+	 * ignored.
+	 * 
+	 * @param client
+	 *            the started HTTP client
+	 */
+	private void prewarm(ApiHttpAsyncClient client) {
+		HttpClientConfig config = client.config();
+		int connections = config.prewarmConnections();
+
+		if (connections == 0) {
+			return;
+		}
+
+		List<HttpHost> hosts = prewarmHosts();
+		List<Future<Integer>> opened =
+		        new ArrayList<Future<Integer>>(hosts.size());
+
+		for (int i = 0; i < hosts.size(); i++) {
+			int n = prewarmShare(connections, hosts.size(), i);
+
+			if (n > 0) {
+				opened.add(client.prewarm(hosts.get(i), n));
+			}
+		}
+
+		Deadline deadline = config.connectTimeout().isZero()
+		        ? null
+		        : Deadline.after(config.connectTimeout());
+
+		try {
+			int n = 0;
+
+			for (Future<Integer> f : opened) {
+				n += (deadline == null)
+				        ? f.get()
+				        : f.get(deadline.remaining(TimeUnit.NANOSECONDS),
+				                TimeUnit.NANOSECONDS);
+			}
+
+			log.debug("Prewarmed {} of {} connections to {}",
+			        n, connections, hosts);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			log.warn("Failed to prewarm connections", e.getCause());
+		} catch (TimeoutException e) {
+			log.warn("Timed out while prewarming connections");
+		}
+	}
+
+	/**
+	 * The hosts to prewarm connections to. This is the endpoint host or, if a
+	 * load balancer is given, the distinct hosts of its endpoints.
+	 * 
+	 * @return a non-empty list of hosts
+	 */
+	private List<HttpHost> prewarmHosts() {
+		LoadBalancer balancer = loadBalancer();
+
+		if (balancer == null) {
+			return Collections.singletonList(endpointHost());
+		}
+
+		Set<HttpHost> hosts = new LinkedHashSet<HttpHost>();
+
+		for (URI endpoint : balancer.endpoints()) {
+			hosts.add(balancer.host(endpoint));
+		}
+
+		return new ArrayList<HttpHost>(hosts);
+	}
+
+	/**
+	 * The number of connections to prewarm to one of several hosts. The
+	 * connections are split evenly and the remainder is given to the first
+	 * hosts.
+	 * 
+	 * @param connections
+	 *            the total number of connections
+	 * @param hosts
+	 *            the number of hosts
+	 * @param index
+	 *            the index of the host
+	 * @return a non-negative number of connections
+	 */
+	static int prewarmShare(int connections, int hosts, int index) {
+		return connections / hosts + (index < connections % hosts ? 1 : 0);
+	}
+
 	/**
 	 * Closes this API connection and releases associated resources.
 	 * <p>
@@ -209,6 +346,11 @@ public abstract class ApiConnection implements Closeable {
 	 */
 	@Override
 	public void close() throws IOException {
+		if (callDeadline != null) {
+			log.debug("Not closing deadline view of API connection");
+			return;
+		}
+
 		log.debug("Closing API connection: {}", this);
 
 		HttpAsyncClient c = httpClient();
@@ -220,6 +362,50 @@ public abstract class ApiConnection implements Closeable {
 		}
 	}
 
+	/**
+	 * Returns a view of this connection whose calls must finish by the given
+	 * deadline. A call that has not finished when the deadline passes is
+	 * cancelled and its future is cancelled, which for the blocking methods
+	 * results in a {@link java.util.concurrent.CancellationException}. The
+	 * deadline replaces any timeout of {@link #timeoutPolicy()}.
+	 * <p>
+	 * The view is a copy of this connection that shares the HTTP client and
+	 * all other state with this connection. It need not be started or closed,
+	 * doing so has no effect. Like any connection it can be wrapped, e.g.,
+	 * using {@link CompletableApiConnection#of(ApiConnection)}.
+	 * <p>
+	 * Since the deadline is absolute it applies to all calls performed through
+	 * the view. For example, it is possible to limit the time spent fetching
+	 * all pages of a paged result:
+	 * 
+	 * <pre>
+	 * Deadline deadline = Deadline.after(10, TimeUnit.SECONDS);
+	 * 
+	 * for (MtBatchSmsResult batch : conn.withDeadline(deadline)
+	 *         .fetchBatches(filter).elements()) {
+	 *     // …
+	 * }
+	 * </pre>
+	 * 
+	 * @param deadline
+	 *            the deadline of all calls made through the view
+	 * @return a non-null API connection view
+	 */
+	@Nonnull
+	public ApiConnection withDeadline(Deadline deadline) {
+		Utils.requireNonNull(deadline, "deadline");
+
+		ApiConnection view = builder().using(this).build();
+
+		// Not final since a view shares the internal state of its parent.
+		view.json = json;
+		view.codecs = codecs;
+		view.responseBuffers = responseBuffers;
+		view.callDeadline = deadline;
+
+		return view;
+	}
+
 	/**
 	 * The XMS authentication token.
 	 * 
@@ -245,6 +431,24 @@ public abstract class ApiConnection implements Closeable {
 		return false;
 	}
 
+	/**
+	 * Whether JSON should be serialized and deserialized using bytecode
+	 * generated by the Jackson Afterburner module rather than through
+	 * reflection. This mainly speeds up the handling of large batches and
+	 * pages. Default is to <i>not</i> use Afterburner.
+	 * <p>
+	 * Note, the Afterburner module is an optional dependency of this SDK. To
+	 * enable this option the
+	 * <code>com.fasterxml.jackson.module:jackson-module-afterburner</code>
+	 * artifact must be available on the class path.
+	 * 
+	 * @return true if Afterburner is enabled; false otherwise
+	 */
+	@Value.Default
+	public boolean afterburnerJson() {
+		return false;
+	}
+
 	/**
 	 * The HTTP client used by this connection. The default client is a minimal
 	 * one that does not support, for example, authentication or redirects.
@@ -254,12 +458,43 @@ public abstract class ApiConnection implements Closeable {
 	 * {@link Builder#httpClient(HttpAsyncClient)} was used to initialize using
 	 * an external {@link HttpAsyncClient} then this client must also be started
 	 * up and shut down externally.
+	 * <p>
+	 * The HTTP client is not used if a {@link #transport() transport} is
+	 * given.
 	 * 
 	 * @return a non-null HTTP client
 	 */
 	@Value.Default
 	public HttpAsyncClient httpClient() {
-		return new ApiHttpAsyncClient(true);
+		return new ApiHttpAsyncClient(true, httpClientConfig());
+	}
+
+	/**
+	 * The transport sending the requests of this connection. If
+	 * <code>null</code>, the default, then requests are sent using the
+	 * {@link #httpClient() HTTP client} through an
+	 * {@link HttpAsyncClientTransport}.
+	 * <p>
+	 * If a transport is given then the HTTP client of this connection is not
+	 * started. A given transport is never started or closed by this
+	 * connection, its life cycle must be managed externally.
+	 * 
+	 * @return a transport or <code>null</code>
+	 */
+	@Nullable
+	public abstract ApiTransport transport();
+
+	/**
+	 * The configuration of the default HTTP client. This can be used to, for
+	 * example, size the connection pool to the expected load. It is ignored if
+	 * an external HTTP client is given using
+	 * {@link Builder#httpClient(HttpAsyncClient)}.
+	 * 
+	 * @return a non-null HTTP client configuration
+	 */
+	@Value.Default
+	public HttpClientConfig httpClientConfig() {
+		return HttpClientConfig.builder().build();
 	}
 
 	/**
@@ -274,6 +509,114 @@ public abstract class ApiConnection implements Closeable {
 		return CallbackWrapper.exceptionDropper;
 	}
 
+	/**
+	 * The executor invoking the callbacks given to the asynchronous methods.
+	 * By default callbacks are invoked directly on the I/O dispatcher threads
+	 * of the HTTP client, which is efficient for quick callbacks but lets a
+	 * slow callback delay all requests handled by the same thread.
+	 * <p>
+	 * The callbacks are first wrapped using the {@link #callbackWrapper()} and
+	 * then using an {@link ExecutorCallbackWrapper} for this executor.
+	 * 
+	 * @return an executor or <code>null</code>
+	 */
+	@Nullable
+	public abstract Executor callbackExecutor();
+
+	/**
+	 * The timeouts of the operations performed by this connection. By default
+	 * no operation has a timeout beyond the connect and socket timeouts of the
+	 * HTTP client. Note, the timeouts are not applied when a deadline is given
+	 * using {@link #withDeadline(Deadline)}.
+	 * 
+	 * @return a non-null timeout policy
+	 */
+	@Value.Default
+	public TimeoutPolicy timeoutPolicy() {
+		return TimeoutPolicy.builder().build();
+	}
+
+	/**
+	 * The policy deciding whether failed calls are attempted again. By default
+	 * calls are never retried, see {@link ExponentialBackoff} for a suitable
+	 * policy.
+	 * 
+	 * @return a non-null retry policy
+	 */
+	@Value.Default
+	public RetryPolicy retryPolicy() {
+		return RetryPolicy.never;
+	}
+
+	/**
+	 * The budget limiting the number of retries made by this connection. By
+	 * default one retry is allowed for every ten calls, with a reserve of ten
+	 * retries.
+	 * 
+	 * @return a non-null retry budget
+	 */
+	@Value.Default
+	public RetryBudget retryBudget() {
+		return RetryBudget.of(0.1);
+	}
+
+	/**
+	 * The rate limiter of the calls made by this connection. By default calls
+	 * are not rate limited.
+	 * 
+	 * @return a rate limiter or <code>null</code>
+	 */
+	@Nullable
+	public abstract RateLimiter rateLimiter();
+
+	/**
+	 * The adaptive limiter of concurrent requests made by this connection. By
+	 * default only the connection pool of the HTTP client limits concurrent
+	 * requests.
+	 * 
+	 * @return a concurrency limiter or <code>null</code>
+	 */
+	@Nullable
+	public abstract ConcurrencyLimiter concurrencyLimiter();
+
+	/**
+	 * The circuit breaker stopping requests to a failing endpoint. By default
+	 * requests are always sent.
+	 * 
+	 * @return a circuit breaker or <code>null</code>
+	 */
+	@Nullable
+	public abstract CircuitBreaker circuitBreaker();
+
+	/**
+	 * The policy for sending hedged requests when a fetch is slow. By default
+	 * requests are not hedged.
+	 * 
+	 * @return a hedging policy or <code>null</code>
+	 */
+	@Nullable
+	public abstract HedgingPolicy hedgingPolicy();
+
+	/**
+	 * The load balancer spreading requests over several endpoints. Requests
+	 * are always built for {@link #endpoint()} and then moved to the endpoint
+	 * chosen by the load balancer. By default all requests are sent to
+	 * {@link #endpoint()}.
+	 * 
+	 * @return a load balancer or <code>null</code>
+	 */
+	@Nullable
+	public abstract LoadBalancer loadBalancer();
+
+	/**
+	 * The policy for compressing request bodies and asking for compressed
+	 * responses. By default nothing is compressed.
+	 * 
+	 * @return a compression policy or <code>null</code>
+	 */
+	@Nullable
+	public abstract CompressionPolicy compressionPolicy();
+
 	/**
 	 * The base endpoint of the XMS API. This specifies the HTTP host and base
 	 * path that will be used in sending requests to XMS. The URL should not
@@ -304,6 +647,10 @@ public abstract class ApiConnection implements Closeable {
 	protected void check() {
 		json.configure(SerializationFeature.INDENT_OUTPUT, prettyPrintJson());
 
+		if (afterburnerJson()) {
+			AfterburnerSupport.register(json);
+		}
+
 		if (endpoint().getQuery() != null) {
 			throw new IllegalStateException(
 			        "base endpoint has query component");
@@ -335,7 +682,7 @@ public abstract class ApiConnection implements Closeable {
 	 * @return a non-null endpoint URL
 	 */
 	@Nonnull
-	private URI endpoint(@Nonnull String subPath,
+	URI endpoint(@Nonnull String subPath,
 	        @Nonnull List<NameValuePair> params) {
 		try {
 			String spid = URLEncoder.encode(servicePlanId(), "UTF-8");
@@ -366,7 +713,7 @@ public abstract class ApiConnection implements Closeable {
 	 *             {@link URISyntaxException}
 	 */
 	@Nonnull
-	private URI endpoint(String subPath) {
+	URI endpoint(String subPath) {
 		return endpoint(subPath, Collections.<NameValuePair> emptyList());
 	}
 
@@ -376,30 +723,30 @@ public abstract class ApiConnection implements Closeable {
 	}
 
 	@Nonnull
-	private URI batchEndpoint(BatchId batchId) {
+	URI batchEndpoint(BatchId batchId) {
 		return endpoint("/batches/" + batchId);
 	}
 
 	@Nonnull
-	private URI batchDeliveryReportEndpoint(BatchId batchId,
+	URI batchDeliveryReportEndpoint(BatchId batchId,
 	        List<NameValuePair> params) {
 		return endpoint("/batches/" + batchId + "/delivery_report", params);
 	}
 
 	@Nonnull
-	private URI batchDryRunEndpoint(List<NameValuePair> params) {
+	URI batchDryRunEndpoint(List<NameValuePair> params) {
 		return endpoint("/batches/dry_run", params);
 	}
 
 	@Nonnull
-	private URI batchRecipientDeliveryReportEndpoint(BatchId batchId,
+	URI batchRecipientDeliveryReportEndpoint(BatchId batchId,
 	        String recipient) {
 		return endpoint(
 		        "/batches/" + batchId + "/delivery_report/" + recipient);
 	}
 
 	@Nonnull
-	private URI batchTagsEndpoint(BatchId batchId) {
+	URI batchTagsEndpoint(BatchId batchId) {
 		return endpoint("/batches/" + batchId + "/tags");
 	}
 
@@ -409,37 +756,71 @@ public abstract class ApiConnection implements Closeable {
 	}
 
 	@Nonnull
-	private URI groupsEndpoint(List<NameValuePair> params) {
+	URI groupsEndpoint(List<NameValuePair> params) {
 		return endpoint("/groups", params);
 	}
 
 	@Nonnull
-	private URI groupEndpoint(GroupId id) {
+	URI groupEndpoint(GroupId id) {
 		return endpoint("/groups/" + id);
 	}
 
 	@Nonnull
-	private URI groupMembersEndpoint(GroupId id) {
+	URI groupMembersEndpoint(GroupId id) {
 		return endpoint("/groups/" + id + "/members");
 	}
 
 	@Nonnull
-	private URI groupTagsEndpoint(GroupId id) {
+	URI groupTagsEndpoint(GroupId id) {
 		return endpoint("/groups/" + id + "/tags");
 	}
 
 	@Nonnull
-	private URI inboundsEndpoint(List<NameValuePair> params) {
+	URI inboundsEndpoint(List<NameValuePair> params) {
 		return endpoint("/inbounds", params);
 	}
 
 	@Nonnull
-	private URI inboundEndpoint(String id) {
+	URI inboundEndpoint(String id) {
 		return endpoint("/inbounds/" + id);
 	}
 
 	/**
-	 * Helper that produces a HTTP consumer that consumes the given class as a
+	 * Returns the default request configuration of the HTTP client, as far as
+	 * it is known. For a client created by this connection the configuration
+	 * follows the {@link #httpClientConfig() HTTP client configuration}, for
+	 * other clients and for transports nothing is known and all timeouts are
+	 * left unset.
+	 * 
+	 * @return a non-null request configuration
+	 */
+	@Nonnull
+	RequestConfig requestConfig() {
+		HttpAsyncClient c = httpClient();
+
+		if (transport() == null && c instanceof ApiHttpAsyncClient) {
+			return ApiHttpAsyncClient
+			        .requestConfig(((ApiHttpAsyncClient) c).config());
+		}
+
+		return RequestConfig.DEFAULT;
+	}
+
+	/**
+	 * Returns a reader of the JSON representation of the given class. The
+	 * reader is configured like the readers used by this connection.
+	 * 
+	 * @param clazz
+	 *            the class to read
+	 * @return a non-null object reader
+	 */
+	@Nonnull
+	ObjectReader jsonReader(Class<?> clazz) {
+		return codecs.reader(clazz);
+	}
+
+	/**
+	 * Helper that produces HTTP consumers that consume the given class as a
 	 * JSON object. The generics stuff here is to get a form of covariant
 	 * relation between the type of JSON input and the return type of this
 	 * class. Basically, if `P extends T` then it should be possible to read a
@@ -448,17 +829,179 @@ public abstract class ApiConnection implements Closeable {
 	 * 
 	 * @param clazz
 	 *            the class whose JSON representation is consumed
-	 * @return an HTTP consumer
+	 * @return a factory of HTTP consumers
 	 * @param <T>
-	 *            the result class of the consumer
+	 *            the result class of the consumers
 	 * @param <P>
-	 *            the class actually consumed by the consumer
+	 *            the class actually consumed by the consumers
 	 */
-	@SuppressWarnings("unchecked")
-	private <T, P extends T> JsonApiAsyncConsumer<T> jsonAsyncConsumer(
+	private <T, P extends T> AsyncConsumerFactory<T> jsonConsumers(
 	        Class<P> clazz) {
-		return (JsonApiAsyncConsumer<T>) new JsonApiAsyncConsumer<P>(json,
-		        clazz);
+		final ObjectReader reader = codecs.reader(clazz);
+		final ObjectReader errorReader = codecs.reader(ApiError.class);
+
+		return new AsyncConsumerFactory<T>() {
+
+			@SuppressWarnings("unchecked")
+			@Override
+			public HttpAsyncResponseConsumer<T> create() {
+				return decompressing(
+				        (JsonApiAsyncConsumer<T>) new JsonApiAsyncConsumer<P>(
+				                reader, errorReader, responseBuffers));
+			}
+
+			@Override
+			public boolean concurrent() {
+				return true;
+			}
+
+		};
+	}
+
+	/**
+	 * Helper that produces HTTP consumers that stream the elements of a page
+	 * to the given listener. Since elements cannot be taken back from the
+	 * listener, a call is only attempted again if the previous attempt did not
+	 * hand out any element and it is never hedged.
+	 * 
+	 * @param clazz
+	 *            the class of the page elements
+	 * @param contentField
+	 *            the name of the JSON field holding the page elements
+	 * @param listener
+	 *            the listener receiving the page elements
+	 * @return a factory of HTTP consumers
+	 */
+	private <E> AsyncConsumerFactory<Page<E>> streamingConsumers(
+	        Class<E> clazz, final String contentField,
+	        final PageElementListener<? super E> listener) {
+		final ObjectReader reader = codecs.reader(clazz);
+
+		return new AsyncConsumerFactory<Page<E>>() {
+
+			private StreamingPageAsyncConsumer<E> latest;
+
+			@Override
+			public HttpAsyncResponseConsumer<Page<E>> create() {
+				if (latest != null && latest.elementsDelivered() > 0) {
+					return null;
+				}
+
+				latest = new StreamingPageAsyncConsumer<E>(json, reader,
+				        contentField, listener);
+
+				return decompressing(latest);
+			}
+
+			@Override
+			public boolean concurrent() {
+				return false;
+			}
+
+		};
+	}
+
+	/**
+	 * Helper that produces HTTP consumers for responses without content.
+	 * 
+	 * @return a factory of HTTP consumers
+	 */
+	private AsyncConsumerFactory<Void> emptyConsumers() {
+		final ObjectReader errorReader = codecs.reader(ApiError.class);
+
+		return new AsyncConsumerFactory<Void>() {
+
+			@Override
+			public HttpAsyncResponseConsumer<Void> create() {
+				return decompressing(new EmptyAsyncConsumer(errorReader));
+			}
+
+			@Override
+			public boolean concurrent() {
+				return true;
+			}
+
+		};
+	}
+
+	/**
+	 * Wraps the given consumer to decompress responses if the compression
+	 * policy asks for compressed responses.
+	 * 
+	 * @param consumer
+	 *            the consumer of uncompressed responses
+	 * @return a consumer
+	 */
+	private <T> HttpAsyncResponseConsumer<T> decompressing(
+	        HttpAsyncResponseConsumer<T> consumer) {
+		CompressionPolicy policy = compressionPolicy();
+
+		if (policy == null || !policy.compressResponses()) {
+			return consumer;
+		}
+
+		return new GzipAsyncConsumer<T>(consumer);
+	}
+
+	/**
+	 * Returns the deadline of the given operation if started now.
+	 * 
+	 * @param operation
+	 *            the operation about to be performed
+	 * @return the deadline or <code>null</code> if the operation has none
+	 */
+	@Nullable
+	Deadline deadline(ApiOperation operation) {
+		if (callDeadline != null) {
+			return callDeadline;
+		}
+
+		Duration timeout = timeoutPolicy().timeout(operation);
+
+		return timeout == null ? null : Deadline.after(timeout);
+	}
+
+	/**
+	 * Sends the given request to XMS. All API calls pass through this method.
+	 * 
+	 * @param operation
+	 *            the operation that is performed
+	 * @param req
+	 *            the request to send
+	 * @param consumers
+	 *            the factory of response consumers, one per attempt
+	 * @param callback
+	 *            the callback to invoke when the call is finished, it is
+	 *            wrapped using the {@link #callbackWrapper()} and
+	 *            {@link #callbackExecutor()}
+	 * @return a future result
+	 */
+	private <T> Future<T> execute(ApiOperation operation, HttpRequestBase req,
+	        AsyncConsumerFactory<T> consumers, FutureCallback<T> callback) {
+		FutureCallback<T> wrapped = callbackWrapper().wrap(callback);
+
+		if (callbackExecutor() != null) {
+			wrapped = ExecutorCallbackWrapper.of(callbackExecutor())
+			        .wrap(wrapped);
+		}
+
+		Deadline deadline = deadline(operation);
+
+		if (deadline == null) {
+			return new ApiCall<T>(this, operation, req, consumers, null,
+			        wrapped).start();
+		}
+
+		if (deadline.isExpired()) {
+			BasicFuture<T> future = new BasicFuture<T>(wrapped);
+			future.cancel(true);
+			return future;
+		}
+
+		DeadlineEnforcer<T> enforcer = new DeadlineEnforcer<T>(wrapped);
+
+		return enforcer.watch(new ApiCall<T>(this, operation, req, consumers,
+		        deadline, enforcer).start(), deadline);
 	}
 
 	/**
@@ -470,7 +1013,7 @@ public abstract class ApiConnection implements Closeable {
 	 *            the object whose JSON representation is sent
 	 * @return a HTTP post request
 	 */
-	private <T> HttpPost post(URI endpoint, T object) {
+	<T> HttpPost post(URI endpoint, T object) {
 		return withJsonContent(object,
 		        withStandardHeaders(new HttpPost(endpoint)));
 	}
@@ -484,7 +1027,7 @@ public abstract class ApiConnection implements Closeable {
 	 *            the object whose JSON representation is sent
 	 * @return a HTTP put request
 	 */
-	private <T> HttpPut put(URI endpoint, T object) {
+	<T> HttpPut put(URI endpoint, T object) {
 		return withJsonContent(object,
 		        withStandardHeaders(new HttpPut(endpoint)));
 	}
@@ -496,7 +1039,7 @@ public abstract class ApiConnection implements Closeable {
 	 *            the target endpoint
 	 * @return a HTTP get request
 	 */
-	private HttpGet get(URI endpoint) {
+	HttpGet get(URI endpoint) {
 		return withStandardHeaders(new HttpGet(endpoint));
 	}
 
@@ -507,7 +1050,7 @@ public abstract class ApiConnection implements Closeable {
 	 *            the target endpoint
 	 * @return a HTTP delete request
 	 */
-	private HttpDelete delete(URI endpoint) {
+	HttpDelete delete(URI endpoint) {
 		return withStandardHeaders(new HttpDelete(endpoint));
 	}
 
@@ -524,6 +1067,11 @@ public abstract class ApiConnection implements Closeable {
 		        ContentType.APPLICATION_JSON.toString());
 		req.setHeader("X-CLX-SDK-Version", Version.VERSION);
 
+		CompressionPolicy policy = compressionPolicy();
+		if (policy != null && policy.compressResponses()) {
+			req.setHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+		}
+
 		return req;
 	}
 
@@ -548,19 +1096,59 @@ public abstract class ApiConnection implements Closeable {
 		 * severe bug in internal state management.
 		 */
 		try {
-			content = json.writeValueAsBytes(object);
+			content = codecs.writer(object.getClass())
+			        .writeValueAsBytes(object);
 		} catch (JsonProcessingException e) {
 			throw new IllegalStateException(e);
 		}
 
-		ByteArrayEntity entity =
-		        new ByteArrayEntity(content, ContentType.APPLICATION_JSON);
+		CompressionPolicy policy = compressionPolicy();
+		ByteArrayEntity entity;
+
+		if (policy != null && policy.compressRequest(content.length)) {
+			entity = new ByteArrayEntity(
+			        gzip(content, policy.compressionLevel()),
+			        ContentType.APPLICATION_JSON);
+			entity.setContentEncoding("gzip");
+		} else {
+			entity = new ByteArrayEntity(content, ContentType.APPLICATION_JSON);
+		}
 
 		req.setEntity(entity);
 
 		return req;
 	}
 
+	/**
+	 * Compresses the given content using gzip.
+	 * 
+	 * @param content
+	 *            the content to compress
+	 * @param level
+	 *            the compression level
+	 * @return the compressed content
+	 */
+	private static byte[] gzip(byte[] content, final int level) {
+		ByteArrayOutputStream bos =
+		        new ByteArrayOutputStream(content.length / 4 + 64);
+
+		try {
+			GZIPOutputStream gos = new GZIPOutputStream(bos, 8192) {
+				{
+					def.setLevel(level);
+				}
+			};
+
+			gos.write(content);
+			gos.close();
+		} catch (IOException e) {
+			// Cannot happen when writing to a byte array.
+			throw new IllegalStateException(e);
+		}
+
+		return bos.toByteArray();
+	}
+
 	/**
 	 * Creates the given batch and schedules it for submission. If
 	 * {@link MtBatchTextSmsCreate#sendAt()} returns <code>null</code> then the
@@ -603,13 +1191,10 @@ public abstract class ApiConnection implements Closeable {
 	        FutureCallback<MtBatchTextSmsResult> callback) {
 		HttpPost req = post(batchesEndpoint(), sms);
 
-		HttpAsyncRequestProducer requestProducer =
-		        new BasicAsyncRequestProducer(endpointHost(), req);
-		HttpAsyncResponseConsumer<MtBatchTextSmsResult> responseConsumer =
-		        jsonAsyncConsumer(MtBatchTextSmsResult.class);
+		AsyncConsumerFactory<MtBatchTextSmsResult> consumers =
+		        jsonConsumers(MtBatchTextSmsResult.class);
 
-		return httpClient().execute(requestProducer, responseConsumer,
-		        callbackWrapper().wrap(callback));
+		return execute(ApiOperation.CREATE_BATCH, req, consumers, callback);
 	}
 
 	/**
@@ -655,13 +1240,10 @@ public abstract class ApiConnection implements Closeable {
 	        FutureCallback<MtBatchBinarySmsResult> callback) {
 		HttpPost req = post(batchesEndpoint(), sms);
 
-		HttpAsyncRequestProducer requestProducer =
-		        new BasicAsyncRequestProducer(endpointHost(), req);
-		HttpAsyncResponseConsumer<MtBatchBinarySmsResult> responseConsumer =
-		        jsonAsyncConsumer(MtBatchBinarySmsResult.class);
+		AsyncConsumerFactory<MtBatchBinarySmsResult> consumers =
+		        jsonConsumers(MtBatchBinarySmsResult.class);
 
-		return httpClient().execute(requestProducer, responseConsumer,
-		        callbackWrapper().wrap(callback));
+		return execute(ApiOperation.CREATE_BATCH, req, consumers, callback);
 	}
 
 	/**
@@ -710,13 +1292,10 @@ public abstract class ApiConnection implements Closeable {
 	        FutureCallback<MtBatchTextSmsResult> callback) {
 		HttpPut req = put(batchEndpoint(id), sms);
 
-		HttpAsyncRequestProducer requestProducer =
-		        new BasicAsyncRequestProducer(endpointHost(), req);
-		HttpAsyncResponseConsumer<MtBatchTextSmsResult> responseConsumer =
-		        jsonAsyncConsumer(MtBatchTextSmsResult.class);
+		AsyncConsumerFactory<MtBatchTextSmsResult> consumers =
+		        jsonConsumers(MtBatchTextSmsResult.class);
 
-		return httpClient().execute(requestProducer, responseConsumer,
-		        callbackWrapper().wrap(callback));
+		return execute(ApiOperation.REPLACE_BATCH, req, consumers, callback);
 	}
 
 	/**
@@ -765,13 +1344,10 @@ public abstract class ApiConnection implements Closeable {
 	        FutureCallback<MtBatchBinarySmsResult> callback) {
 		HttpPut req = put(batchEndpoint(id), sms);
 
-		HttpAsyncRequestProducer requestProducer =
-		        new BasicAsyncRequestProducer(endpointHost(), req);
-		HttpAsyncResponseConsumer<MtBatchBinarySmsResult> responseConsumer =
-		        jsonAsyncConsumer(MtBatchBinarySmsResult.class);
+		AsyncConsumerFactory<MtBatchBinarySmsResult> consumers =
+		        jsonConsumers(MtBatchBinarySmsResult.class);
 
-		return httpClient().execute(requestProducer, responseConsumer,
-		        callbackWrapper().wrap(callback));
+		return execute(ApiOperation.REPLACE_BATCH, req, consumers, callback);
 	}
 
 	/**
@@ -819,13 +1395,10 @@ public abstract class ApiConnection implements Closeable {
 	        FutureCallback<MtBatchTextSmsResult> callback) {
 		HttpPost req = post(batchEndpoint(batchId), sms);
 
-		HttpAsyncRequestProducer producer =
-		        new BasicAsyncRequestProducer(endpointHost(), req);
-		HttpAsyncResponseConsumer<MtBatchTextSmsResult> consumer =
-		        jsonAsyncConsumer(MtBatchTextSmsResult.class);
+		AsyncConsumerFactory<MtBatchTextSmsResult> consumers =
+		        jsonConsumers(MtBatchTextSmsResult.class);
 
-		return httpClient().execute(producer, consumer,
-		        callbackWrapper().wrap(callback));
+		return execute(ApiOperation.UPDATE_BATCH, req, consumers, callback);
 	}
 
 	/**
@@ -873,13 +1446,10 @@ public abstract class ApiConnection implements Closeable {
 	        FutureCallback<MtBatchBinarySmsResult> callback) {
 		HttpPost req = post(batchEndpoint(batchId), sms);
 
-		HttpAsyncRequestProducer producer =
-		        new BasicAsyncRequestProducer(endpointHost(), req);
-		HttpAsyncResponseConsumer<MtBatchBinarySmsResult> consumer =
-		        jsonAsyncConsumer(MtBatchBinarySmsResult.class);
+		AsyncConsumerFactory<MtBatchBinarySmsResult> consumers =
+		        jsonConsumers(MtBatchBinarySmsResult.class);
 
-		return httpClient().execute(producer, consumer,
-		        callbackWrapper().wrap(callback));
+		return execute(ApiOperation.UPDATE_BATCH, req, consumers, callback);
 	}
 
 	/**
@@ -919,14 +1489,10 @@ public abstract class ApiConnection implements Closeable {
 	        FutureCallback<MtBatchSmsResult> callback) {
 		HttpGet req = get(batchEndpoint(batchId));
 
-		HttpAsyncRequestProducer producer =
-		        new BasicAsyncRequestProducer(endpointHost(), req);
-
-		HttpAsyncResponseConsumer<MtBatchSmsResult> consumer =
-		        jsonAsyncConsumer(MtBatchSmsResult.class);
+		AsyncConsumerFactory<MtBatchSmsResult> consumers =
+		        jsonConsumers(MtBatchSmsResult.class);
 
-		return httpClient().execute(producer, consumer,
-		        callbackWrapper().wrap(callback));
+		return execute(ApiOperation.FETCH_BATCH, req, consumers, callback);
 	}
 
 	/**
@@ -944,8 +1510,21 @@ public abstract class ApiConnection implements Closeable {
 			@Override
 			Future<Page<MtBatchSmsResult>> fetchAsync(int page,
 			        FutureCallback<Page<MtBatchSmsResult>> callback) {
-				return fetchBatches(page, filter,
-				        callbackWrapper().wrap(callback));
+				AsyncConsumerFactory<Page<MtBatchSmsResult>> consumers =
+				        jsonConsumers(PagedBatchResult.class);
+
+				return fetchBatches(page, filter, consumers, callback);
+			}
+
+			@Override
+			public Future<Page<MtBatchSmsResult>> streamAsync(int page,
+			        PageElementListener<? super MtBatchSmsResult> listener,
+			        FutureCallback<Page<MtBatchSmsResult>> callback) {
+				AsyncConsumerFactory<Page<MtBatchSmsResult>> consumers =
+				        streamingConsumers(MtBatchSmsResult.class,
+				                "batches", listener);
+
+				return fetchBatches(page, filter, consumers, callback);
 			}
 
 		};
@@ -958,26 +1537,22 @@ public abstract class ApiConnection implements Closeable {
 	 *            the page to fetch
 	 * @param filter
 	 *            the batch filter
+	 * @param consumers
+	 *            the factory of page response consumers
 	 * @param callback
 	 *            the callback to invoke when call is finished
 	 * @return a future page
 	 */
 	private Future<Page<MtBatchSmsResult>> fetchBatches(int page,
 	        BatchFilter filter,
+	        AsyncConsumerFactory<Page<MtBatchSmsResult>> consumers,
 	        FutureCallback<Page<MtBatchSmsResult>> callback) {
 		List<NameValuePair> params = filter.toQueryParams(page);
 		URI url = endpoint("/batches", params);
 
 		HttpGet req = get(url);
 
-		HttpAsyncRequestProducer producer =
-		        new BasicAsyncRequestProducer(endpointHost(), req);
-
-		HttpAsyncResponseConsumer<Page<MtBatchSmsResult>> consumer =
-		        jsonAsyncConsumer(PagedBatchResult.class);
-
-		return httpClient().execute(producer, consumer,
-		        callbackWrapper().wrap(callback));
+		return execute(ApiOperation.FETCH_BATCHES, req, consumers, callback);
 	}
 
 	/**
@@ -1017,14 +1592,10 @@ public abstract class ApiConnection implements Closeable {
 	        FutureCallback<MtBatchSmsResult> callback) {
 		HttpDelete req = delete(batchEndpoint(batchId));
 
-		HttpAsyncRequestProducer producer =
-		        new BasicAsyncRequestProducer(endpointHost(), req);
-
-		HttpAsyncResponseConsumer<MtBatchSmsResult> consumer =
-		        jsonAsyncConsumer(MtBatchSmsResult.class);
+		AsyncConsumerFactory<MtBatchSmsResult> consumers =
+		        jsonConsumers(MtBatchSmsResult.class);
 
-		return httpClient().execute(producer, consumer,
-		        callbackWrapper().wrap(callback));
+		return execute(ApiOperation.CANCEL_BATCH, req, consumers, callback);
 	}
 
 	/**
@@ -1088,13 +1659,11 @@ public abstract class ApiConnection implements Closeable {
 
 		HttpPost req = post(batchDryRunEndpoint(params), sms);
 
-		HttpAsyncRequestProducer requestProducer =
-		        new BasicAsyncRequestProducer(endpointHost(), req);
-		HttpAsyncResponseConsumer<MtBatchDryRunResult> responseConsumer =
-		        jsonAsyncConsumer(MtBatchDryRunResult.class);
+		AsyncConsumerFactory<MtBatchDryRunResult> consumers =
+		        jsonConsumers(MtBatchDryRunResult.class);
 
-		return httpClient().execute(requestProducer, responseConsumer,
-		        callbackWrapper().wrap(callback));
+		return execute(ApiOperation.CREATE_BATCH_DRY_RUN, req, consumers,
+		        callback);
 	}
 
 	/**
@@ -1142,14 +1711,11 @@ public abstract class ApiConnection implements Closeable {
 		List<NameValuePair> params = filter.toQueryParams();
 		HttpGet req = get(batchDeliveryReportEndpoint(id, params));
 
-		HttpAsyncRequestProducer producer =
-		        new BasicAsyncRequestProducer(endpointHost(), req);
+		AsyncConsumerFactory<BatchDeliveryReport> consumers =
+		        jsonConsumers(BatchDeliveryReport.class);
 
-		HttpAsyncResponseConsumer<BatchDeliveryReport> consumer =
-		        jsonAsyncConsumer(BatchDeliveryReport.class);
-
-		return httpClient().execute(producer, consumer,
-		        callbackWrapper().wrap(callback));
+		return execute(ApiOperation.FETCH_DELIVERY_REPORT, req, consumers,
+		        callback);
 	}
 
 	/**
@@ -1197,14 +1763,11 @@ public abstract class ApiConnection implements Closeable {
 	        FutureCallback<RecipientDeliveryReport> callback) {
 		HttpGet req = get(batchRecipientDeliveryReportEndpoint(id, recipient));
 
-		HttpAsyncRequestProducer producer =
-		        new BasicAsyncRequestProducer(endpointHost(), req);
-
-		HttpAsyncResponseConsumer<RecipientDeliveryReport> consumer =
-		        jsonAsyncConsumer(RecipientDeliveryReport.class);
+		AsyncConsumerFactory<RecipientDeliveryReport> consumers =
+		        jsonConsumers(RecipientDeliveryReport.class);
 
-		return httpClient().execute(producer, consumer,
-		        callbackWrapper().wrap(callback));
+		return execute(ApiOperation.FETCH_RECIPIENT_DELIVERY_REPORT, req,
+		        consumers, callback);
 	}
 
 	/**
@@ -1248,14 +1811,11 @@ public abstract class ApiConnection implements Closeable {
 	        FutureCallback<Tags> callback) {
 		HttpPost req = post(batchTagsEndpoint(id), tags);
 
-		HttpAsyncRequestProducer producer =
-		        new BasicAsyncRequestProducer(endpointHost(), req);
+		AsyncConsumerFactory<Tags> consumers =
+		        jsonConsumers(Tags.class);
 
-		HttpAsyncResponseConsumer<Tags> consumer =
-		        jsonAsyncConsumer(Tags.class);
-
-		return httpClient().execute(producer, consumer,
-		        callbackWrapper().wrap(callback));
+		return execute(ApiOperation.UPDATE_BATCH_TAGS, req, consumers,
+		        callback);
 	}
 
 	/**
@@ -1299,14 +1859,11 @@ public abstract class ApiConnection implements Closeable {
 	        FutureCallback<Tags> callback) {
 		HttpPut req = put(batchTagsEndpoint(id), tags);
 
-		HttpAsyncRequestProducer producer =
-		        new BasicAsyncRequestProducer(endpointHost(), req);
-
-		HttpAsyncResponseConsumer<Tags> consumer =
-		        jsonAsyncConsumer(Tags.class);
+		AsyncConsumerFactory<Tags> consumers =
+		        jsonConsumers(Tags.class);
 
-		return httpClient().execute(producer, consumer,
-		        callbackWrapper().wrap(callback));
+		return execute(ApiOperation.REPLACE_BATCH_TAGS, req, consumers,
+		        callback);
 	}
 
 	/**
@@ -1346,14 +1903,10 @@ public abstract class ApiConnection implements Closeable {
 	        FutureCallback<Tags> callback) {
 		HttpGet req = get(batchTagsEndpoint(id));
 
-		HttpAsyncRequestProducer producer =
-		        new BasicAsyncRequestProducer(endpointHost(), req);
+		AsyncConsumerFactory<Tags> consumers =
+		        jsonConsumers(Tags.class);
 
-		HttpAsyncResponseConsumer<Tags> consumer =
-		        jsonAsyncConsumer(Tags.class);
-
-		return httpClient().execute(producer, consumer,
-		        callbackWrapper().wrap(callback));
+		return execute(ApiOperation.FETCH_BATCH_TAGS, req, consumers, callback);
 	}
 
 	/**
@@ -1393,13 +1946,10 @@ public abstract class ApiConnection implements Closeable {
 	        FutureCallback<GroupResult> callback) {
 		HttpPost req = post(groupsEndpoint(), group);
 
-		HttpAsyncRequestProducer requestProducer =
-		        new BasicAsyncRequestProducer(endpointHost(), req);
-		HttpAsyncResponseConsumer<GroupResult> responseConsumer =
-		        jsonAsyncConsumer(GroupResult.class);
+		AsyncConsumerFactory<GroupResult> consumers =
+		        jsonConsumers(GroupResult.class);
 
-		return httpClient().execute(requestProducer, responseConsumer,
-		        callbackWrapper().wrap(callback));
+		return execute(ApiOperation.CREATE_GROUP, req, consumers, callback);
 	}
 
 	/**
@@ -1439,13 +1989,10 @@ public abstract class ApiConnection implements Closeable {
 	        FutureCallback<GroupResult> callback) {
 		HttpGet req = get(groupEndpoint(id));
 
-		HttpAsyncRequestProducer requestProducer =
-		        new BasicAsyncRequestProducer(endpointHost(), req);
-		HttpAsyncResponseConsumer<GroupResult> responseConsumer =
-		        jsonAsyncConsumer(GroupResult.class);
+		AsyncConsumerFactory<GroupResult> consumers =
+		        jsonConsumers(GroupResult.class);
 
-		return httpClient().execute(requestProducer, responseConsumer,
-		        callbackWrapper().wrap(callback));
+		return execute(ApiOperation.FETCH_GROUP, req, consumers, callback);
 	}
 
 	/**
@@ -1485,15 +2032,12 @@ public abstract class ApiConnection implements Closeable {
 	        FutureCallback<Set<String>> callback) {
 		HttpGet req = get(groupMembersEndpoint(id));
 
-		HttpAsyncRequestProducer requestProducer =
-		        new BasicAsyncRequestProducer(endpointHost(), req);
-
 		@SuppressWarnings("unchecked")
-		HttpAsyncResponseConsumer<Set<String>> responseConsumer =
-		        jsonAsyncConsumer(Set.class);
+		AsyncConsumerFactory<Set<String>> consumers =
+		        jsonConsumers(Set.class);
 
-		return httpClient().execute(requestProducer, responseConsumer,
-		        callbackWrapper().wrap(callback));
+		return execute(ApiOperation.FETCH_GROUP_MEMBERS, req, consumers,
+		        callback);
 	}
 
 	/**
@@ -1511,8 +2055,21 @@ public abstract class ApiConnection implements Closeable {
 			@Override
 			Future<Page<GroupResult>> fetchAsync(int page,
 			        FutureCallback<Page<GroupResult>> callback) {
-				return fetchGroups(page, filter,
-				        callbackWrapper().wrap(callback));
+				AsyncConsumerFactory<Page<GroupResult>> consumers =
+				        jsonConsumers(PagedGroupResult.class);
+
+				return fetchGroups(page, filter, consumers, callback);
+			}
+
+			@Override
+			public Future<Page<GroupResult>> streamAsync(int page,
+			        PageElementListener<? super GroupResult> listener,
+			        FutureCallback<Page<GroupResult>> callback) {
+				AsyncConsumerFactory<Page<GroupResult>> consumers =
+				        streamingConsumers(GroupResult.class,
+				                "groups", listener);
+
+				return fetchGroups(page, filter, consumers, callback);
 			}
 
 		};
@@ -1525,24 +2082,20 @@ public abstract class ApiConnection implements Closeable {
 	 *            the page to fetch
 	 * @param filter
 	 *            the group filter
+	 * @param consumers
+	 *            the factory of page response consumers
 	 * @param callback
 	 *            the callback to invoke when call is finished
 	 * @return a future page
 	 */
 	private Future<Page<GroupResult>> fetchGroups(int page,
 	        GroupFilter filter,
+	        AsyncConsumerFactory<Page<GroupResult>> consumers,
 	        FutureCallback<Page<GroupResult>> callback) {
 		List<NameValuePair> params = filter.toQueryParams(page);
 		HttpGet req = get(groupsEndpoint(params));
 
-		HttpAsyncRequestProducer producer =
-		        new BasicAsyncRequestProducer(endpointHost(), req);
-
-		HttpAsyncResponseConsumer<Page<GroupResult>> consumer =
-		        jsonAsyncConsumer(PagedGroupResult.class);
-
-		return httpClient().execute(producer, consumer,
-		        callbackWrapper().wrap(callback));
+		return execute(ApiOperation.FETCH_GROUPS, req, consumers, callback);
 	}
 
 	/**
@@ -1587,13 +2140,10 @@ public abstract class ApiConnection implements Closeable {
 	        FutureCallback<GroupResult> callback) {
 		HttpPost req = post(groupEndpoint(id), group);
 
-		HttpAsyncRequestProducer producer =
-		        new BasicAsyncRequestProducer(endpointHost(), req);
-		HttpAsyncResponseConsumer<GroupResult> consumer =
-		        jsonAsyncConsumer(GroupResult.class);
+		AsyncConsumerFactory<GroupResult> consumers =
+		        jsonConsumers(GroupResult.class);
 
-		return httpClient().execute(producer, consumer,
-		        callbackWrapper().wrap(callback));
+		return execute(ApiOperation.UPDATE_GROUP, req, consumers, callback);
 	}
 
 	/**
@@ -1638,13 +2188,10 @@ public abstract class ApiConnection implements Closeable {
 	        GroupCreate group, FutureCallback<GroupResult> callback) {
 		HttpPut req = put(groupEndpoint(id), group);
 
-		HttpAsyncRequestProducer producer =
-		        new BasicAsyncRequestProducer(endpointHost(), req);
-		HttpAsyncResponseConsumer<GroupResult> consumer =
-		        jsonAsyncConsumer(GroupResult.class);
+		AsyncConsumerFactory<GroupResult> consumers =
+		        jsonConsumers(GroupResult.class);
 
-		return httpClient().execute(producer, consumer,
-		        callbackWrapper().wrap(callback));
+		return execute(ApiOperation.REPLACE_GROUP, req, consumers, callback);
 	}
 
 	/**
@@ -1683,13 +2230,9 @@ public abstract class ApiConnection implements Closeable {
 	        FutureCallback<Void> callback) {
 		HttpDelete req = delete(groupEndpoint(id));
 
-		HttpAsyncRequestProducer producer =
-		        new BasicAsyncRequestProducer(endpointHost(), req);
-		HttpAsyncResponseConsumer<Void> consumer =
-		        new EmptyAsyncConsumer(json);
+		AsyncConsumerFactory<Void> consumers = emptyConsumers();
 
-		return httpClient().execute(producer, consumer,
-		        callbackWrapper().wrap(callback));
+		return execute(ApiOperation.DELETE_GROUP, req, consumers, callback);
 	}
 
 	/**
@@ -1733,14 +2276,11 @@ public abstract class ApiConnection implements Closeable {
 	        FutureCallback<Tags> callback) {
 		HttpPost req = post(groupTagsEndpoint(id), tags);
 
-		HttpAsyncRequestProducer producer =
-		        new BasicAsyncRequestProducer(endpointHost(), req);
+		AsyncConsumerFactory<Tags> consumers =
+		        jsonConsumers(Tags.class);
 
-		HttpAsyncResponseConsumer<Tags> consumer =
-		        jsonAsyncConsumer(Tags.class);
-
-		return httpClient().execute(producer, consumer,
-		        callbackWrapper().wrap(callback));
+		return execute(ApiOperation.UPDATE_GROUP_TAGS, req, consumers,
+		        callback);
 	}
 
 	/**
@@ -1784,14 +2324,11 @@ public abstract class ApiConnection implements Closeable {
 	        FutureCallback<Tags> callback) {
 		HttpPut req = put(groupTagsEndpoint(id), tags);
 
-		HttpAsyncRequestProducer producer =
-		        new BasicAsyncRequestProducer(endpointHost(), req);
-
-		HttpAsyncResponseConsumer<Tags> consumer =
-		        jsonAsyncConsumer(Tags.class);
+		AsyncConsumerFactory<Tags> consumers =
+		        jsonConsumers(Tags.class);
 
-		return httpClient().execute(producer, consumer,
-		        callbackWrapper().wrap(callback));
+		return execute(ApiOperation.REPLACE_GROUP_TAGS, req, consumers,
+		        callback);
 	}
 
 	/**
@@ -1831,14 +2368,10 @@ public abstract class ApiConnection implements Closeable {
 	        FutureCallback<Tags> callback) {
 		HttpGet req = get(groupTagsEndpoint(id));
 
-		HttpAsyncRequestProducer producer =
-		        new BasicAsyncRequestProducer(endpointHost(), req);
+		AsyncConsumerFactory<Tags> consumers =
+		        jsonConsumers(Tags.class);
 
-		HttpAsyncResponseConsumer<Tags> consumer =
-		        jsonAsyncConsumer(Tags.class);
-
-		return httpClient().execute(producer, consumer,
-		        callbackWrapper().wrap(callback));
+		return execute(ApiOperation.FETCH_GROUP_TAGS, req, consumers, callback);
 	}
 
 	/**
@@ -1856,8 +2389,21 @@ public abstract class ApiConnection implements Closeable {
 			@Override
 			Future<Page<MoSms>> fetchAsync(int page,
 			        FutureCallback<Page<MoSms>> callback) {
-				return fetchInbounds(page, filter,
-				        callbackWrapper().wrap(callback));
+				AsyncConsumerFactory<Page<MoSms>> consumers =
+				        jsonConsumers(PagedInboundsResult.class);
+
+				return fetchInbounds(page, filter, consumers, callback);
+			}
+
+			@Override
+			public Future<Page<MoSms>> streamAsync(int page,
+			        PageElementListener<? super MoSms> listener,
+			        FutureCallback<Page<MoSms>> callback) {
+				AsyncConsumerFactory<Page<MoSms>> consumers =
+				        streamingConsumers(MoSms.class,
+				                "inbounds", listener);
+
+				return fetchInbounds(page, filter, consumers, callback);
 			}
 
 		};
@@ -1870,24 +2416,20 @@ public abstract class ApiConnection implements Closeable {
 	 *            the page to fetch
 	 * @param filter
 	 *            the inbounds filter
+	 * @param consumers
+	 *            the factory of page response consumers
 	 * @param callback
 	 *            the callback to invoke when call is finished
 	 * @return a future page
 	 */
 	private Future<Page<MoSms>> fetchInbounds(int page,
 	        InboundsFilter filter,
+	        AsyncConsumerFactory<Page<MoSms>> consumers,
 	        FutureCallback<Page<MoSms>> callback) {
 		List<NameValuePair> params = filter.toQueryParams(page);
 		HttpGet req = get(inboundsEndpoint(params));
 
-		HttpAsyncRequestProducer producer =
-		        new BasicAsyncRequestProducer(endpointHost(), req);
-
-		HttpAsyncResponseConsumer<Page<MoSms>> consumer =
-		        jsonAsyncConsumer(PagedInboundsResult.class);
-
-		return httpClient().execute(producer, consumer,
-		        callbackWrapper().wrap(callback));
+		return execute(ApiOperation.FETCH_INBOUNDS, req, consumers, callback);
 	}
 
 	/**
@@ -1927,14 +2469,10 @@ public abstract class ApiConnection implements Closeable {
 	        FutureCallback<MoSms> callback) {
 		HttpGet req = get(inboundEndpoint(id));
 
-		HttpAsyncRequestProducer producer =
-		        new BasicAsyncRequestProducer(endpointHost(), req);
-
-		HttpAsyncResponseConsumer<MoSms> consumer =
-		        jsonAsyncConsumer(MoSms.class);
+		AsyncConsumerFactory<MoSms> consumers =
+		        jsonConsumers(MoSms.class);
 
-		return httpClient().execute(producer, consumer,
-		        callbackWrapper().wrap(callback));
+		return execute(ApiOperation.FETCH_INBOUND, req, consumers, callback);
 	}
 
 }
@@ -20,25 +20,58 @@
 package com.clxcommunications.xms;
 
 import java.io.Closeable;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.TrustManagerFactory;
 
 import org.apache.http.HttpHost;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.concurrent.BasicFuture;
 import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.UnsupportedSchemeException;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.DefaultSchemePortResolver;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
 import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
 import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.ManagedNHttpClientConnectionFactory;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.NHttpClientConnection;
 import org.apache.http.nio.client.HttpAsyncClient;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
 import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
 import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
 import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.nio.reactor.ConnectingIOReactor;
+import org.apache.http.nio.reactor.IOReactorException;
 import org.apache.http.protocol.HttpContext;
-import org.apache.http.ssl.SSLContexts;
+import org.apache.http.ssl.SSLInitializationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.threeten.bp.Duration;
 
 /**
@@ -52,27 +85,35 @@ import org.threeten.bp.Duration;
  */
 public class ApiHttpAsyncClient implements HttpAsyncClient, Closeable {
 
+	private static final Logger log =
+	        LoggerFactory.getLogger(ApiHttpAsyncClient.class);
+
 	/**
-	 * The default limit for the socket and connect timeout.
+	 * Whether this client was started internally by {@link ApiConnection}.
 	 */
-	private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+	private boolean startedInternally;
 
 	/**
-	 * The default maximum number of simultaneous connections to open towards
-	 * the XMS endpoint.
+	 * The configuration of this client.
 	 */
-	private static final int DEFAULT_MAX_CONN = 10;
+	private final HttpClientConfig config;
 
 	/**
-	 * Whether this client was started internally by {@link ApiConnection}.
+	 * The connection pool of {@link #client}.
 	 */
-	private boolean startedInternally;
+	private final PoolingNHttpClientConnectionManager connManager;
 
 	/**
 	 * The underlying actual HTTP client.
 	 */
 	private final CloseableHttpAsyncClient client;
 
+	/**
+	 * Periodically evicts idle connections from the pool, only used when
+	 * {@link HttpClientConfig#maxIdleTime()} is set.
+	 */
+	private ScheduledExecutorService idleEvictor;
+
 	/**
 	 * Creates a new HTTP asynchronous client suitable for communicating with
 	 * XMS.
@@ -81,30 +122,73 @@ public class ApiHttpAsyncClient implements HttpAsyncClient, Closeable {
 	 *            whether this object was created inside this SDK
 	 */
 	ApiHttpAsyncClient(boolean startedInternally) {
+		this(startedInternally, HttpClientConfig.builder().build());
+	}
+
+	/**
+	 * Creates a new HTTP asynchronous client suitable for communicating with
+	 * XMS.
+	 * 
+	 * @param startedInternally
+	 *            whether this object was created inside this SDK
+	 * @param config
+	 *            the client configuration
+	 */
+	ApiHttpAsyncClient(boolean startedInternally, HttpClientConfig config) {
 		this.startedInternally = startedInternally;
+		this.config = config;
 
 		// Allow TLSv1.2 protocol only
 		SSLIOSessionStrategy sslSessionStrategy =
 		        new SSLIOSessionStrategy(
-		                SSLContexts.createSystemDefault(),
+		                createSslContext(config),
 		                new String[] { "TLSv1.2" },
 		                null,
 		                SSLIOSessionStrategy.getDefaultHostnameVerifier());
 
-		RequestConfig requestConfig =
-		        RequestConfig.custom()
-		                .setConnectTimeout((int) DEFAULT_TIMEOUT.toMillis())
-		                .setSocketTimeout((int) DEFAULT_TIMEOUT.toMillis())
+		Registry<SchemeIOSessionStrategy> sessionStrategies =
+		        RegistryBuilder.<SchemeIOSessionStrategy> create()
+		                .register("http", NoopIOSessionStrategy.INSTANCE)
+		                .register("https", sslSessionStrategy)
+		                .build();
+
+		IOReactorConfig ioReactorConfig =
+		        IOReactorConfig.custom()
+		                .setIoThreadCount(config.ioThreadCount())
+		                .setConnectTimeout(
+		                        toMillis(config.connectTimeout()))
+		                .setSoTimeout(toMillis(config.socketTimeout()))
+		                .setSndBufSize(config.sendBufferSize())
+		                .setRcvBufSize(config.receiveBufferSize())
+		                .setTcpNoDelay(config.tcpNoDelay())
 		                .build();
 
-		// TODO: Is this a good default setup?
+		ConnectingIOReactor ioReactor;
+		try {
+			ioReactor = new DefaultConnectingIOReactor(ioReactorConfig);
+		} catch (IOReactorException e) {
+			throw new IllegalStateException("could not create I/O reactor", e);
+		}
+
+		long timeToLive = config.connectionTimeToLive() == null
+		        ? -1 : config.connectionTimeToLive().toMillis();
+
+		this.connManager =
+		        new PoolingNHttpClientConnectionManager(
+		                ioReactor,
+		                ManagedNHttpClientConnectionFactory.INSTANCE,
+		                sessionStrategies,
+		                DefaultSchemePortResolver.INSTANCE,
+		                SystemDefaultDnsResolver.INSTANCE,
+		                timeToLive, TimeUnit.MILLISECONDS);
+		connManager.setMaxTotal(config.maxConnections());
+		connManager.setDefaultMaxPerRoute(config.maxConnections());
+
 		this.client =
 		        HttpAsyncClients.custom()
-		                .setSSLStrategy(sslSessionStrategy)
+		                .setConnectionManager(connManager)
 		                .disableCookieManagement()
-		                .setMaxConnPerRoute(DEFAULT_MAX_CONN)
-		                .setMaxConnTotal(DEFAULT_MAX_CONN)
-		                .setDefaultRequestConfig(requestConfig)
+		                .setDefaultRequestConfig(requestConfig(config))
 		                .build();
 	}
 
@@ -119,6 +203,156 @@ public class ApiHttpAsyncClient implements HttpAsyncClient, Closeable {
 		return new ApiHttpAsyncClient(false);
 	}
 
+	/**
+	 * Creates a new asynchronous HTTP client suitable for communicating with
+	 * XMS using the given configuration.
+	 * 
+	 * @param config
+	 *            the client configuration
+	 * @return a newly constructed HTTP client
+	 */
+	@Nonnull
+	public static ApiHttpAsyncClient of(HttpClientConfig config) {
+		return new ApiHttpAsyncClient(false, config);
+	}
+
+	/**
+	 * Creates the default request configuration of a client having the given
+	 * configuration.
+	 * 
+	 * @param config
+	 *            the client configuration
+	 * @return a non-null request configuration
+	 */
+	@Nonnull
+	static RequestConfig requestConfig(HttpClientConfig config) {
+		return RequestConfig.custom()
+		        .setConnectTimeout(toMillis(config.connectTimeout()))
+		        .setSocketTimeout(toMillis(config.socketTimeout()))
+		        .build();
+	}
+
+	/**
+	 * Creates an SSL context for a client having the given configuration. The
+	 * sessions available for resumption are cached in the context, each
+	 * client therefore gets a context of its own rather than changing the
+	 * cache of the system default context.
+	 * <p>
+	 * Like the system default context, the context uses the default trust
+	 * material of the JVM and presents a client certificate from the key store
+	 * given by the <code>javax.net.ssl.keyStore</code> system properties, if
+	 * any.
+	 * 
+	 * @param config
+	 *            the client configuration
+	 * @return a new SSL context
+	 * @throws SSLInitializationException
+	 *             if the key or trust material could not be loaded
+	 */
+	static SSLContext createSslContext(HttpClientConfig config) {
+		SSLContext sslContext;
+
+		try {
+			char[] password = systemKeyStorePassword();
+
+			KeyManagerFactory kmf = KeyManagerFactory.getInstance(
+			        KeyManagerFactory.getDefaultAlgorithm());
+			kmf.init(systemKeyStore(password), password);
+
+			TrustManagerFactory tmf = TrustManagerFactory.getInstance(
+			        TrustManagerFactory.getDefaultAlgorithm());
+			tmf.init((KeyStore) null);
+
+			sslContext = SSLContext.getInstance("TLS");
+			sslContext.init(kmf.getKeyManagers(), tmf.getTrustManagers(),
+			        null);
+		} catch (GeneralSecurityException e) {
+			throw new SSLInitializationException(e.getMessage(), e);
+		} catch (IOException e) {
+			throw new SSLInitializationException(e.getMessage(), e);
+		}
+
+		SSLSessionContext sessions = sslContext.getClientSessionContext();
+
+		if (sessions != null) {
+			sessions.setSessionCacheSize(config.tlsSessionCacheSize());
+			sessions.setSessionTimeout(
+			        (int) config.tlsSessionTimeout().getSeconds());
+		}
+
+		return sslContext;
+	}
+
+	/**
+	 * Loads the key store given by the <code>javax.net.ssl.keyStore</code> and
+	 * <code>javax.net.ssl.keyStoreType</code> system properties.
+	 * 
+	 * @param password
+	 *            the password of the key store, may be null
+	 * @return the key store, or <code>null</code> if none is given
+	 * @throws GeneralSecurityException
+	 *             if the key store could not be loaded
+	 * @throws IOException
+	 *             if the key store could not be read
+	 */
+	@Nullable
+	private static KeyStore systemKeyStore(@Nullable char[] password)
+	        throws GeneralSecurityException, IOException {
+		String path = System.getProperty("javax.net.ssl.keyStore", "");
+
+		if (path.isEmpty()) {
+			return null;
+		}
+
+		KeyStore keyStore = KeyStore.getInstance(System.getProperty(
+		        "javax.net.ssl.keyStoreType", KeyStore.getDefaultType()));
+
+		// A key store of "NONE" is not backed by a file, e.g., PKCS #11.
+		if ("NONE".equals(path)) {
+			keyStore.load(null, password);
+			return keyStore;
+		}
+
+		InputStream is = new FileInputStream(path);
+
+		try {
+			keyStore.load(is, password);
+		} finally {
+			is.close();
+		}
+
+		return keyStore;
+	}
+
+	@Nullable
+	private static char[] systemKeyStorePassword() {
+		String password = System.getProperty("javax.net.ssl.keyStorePassword");
+
+		return (password == null) ? null : password.toCharArray();
+	}
+
+	/**
+	 * Converts the given duration to a number of milliseconds suitable for the
+	 * HTTP client configuration.
+	 * 
+	 * @param duration
+	 *            the duration to convert
+	 * @return a non-negative number of milliseconds
+	 */
+	private static int toMillis(Duration duration) {
+		return (int) Math.min(duration.toMillis(), Integer.MAX_VALUE);
+	}
+
+	/**
+	 * The configuration of this client.
+	 * 
+	 * @return a non-null client configuration
+	 */
+	@Nonnull
+	public HttpClientConfig config() {
+		return config;
+	}
+
 	/**
 	 * Whether this object was created inside the SDK.
 	 * 
@@ -141,8 +375,35 @@ public class ApiHttpAsyncClient implements HttpAsyncClient, Closeable {
 	/**
 	 * Starts this client.
 	 */
-	public void start() {
+	public synchronized void start() {
 		client.start();
+
+		if (config.maxIdleTime() != null && idleEvictor == null) {
+			final long maxIdle = config.maxIdleTime().toMillis();
+
+			idleEvictor = Executors.newSingleThreadScheduledExecutor(
+			        new ThreadFactory() {
+
+				        @Override
+				        public Thread newThread(Runnable r) {
+					        Thread t = new Thread(r, "xms-idle-evictor");
+					        t.setDaemon(true);
+					        return t;
+				        }
+
+			        });
+
+			idleEvictor.scheduleWithFixedDelay(new Runnable() {
+
+				@Override
+				public void run() {
+					connManager.closeExpiredConnections();
+					connManager.closeIdleConnections(maxIdle,
+					        TimeUnit.MILLISECONDS);
+				}
+
+			}, maxIdle, maxIdle, TimeUnit.MILLISECONDS);
+		}
 	}
 
 	/**
@@ -152,10 +413,147 @@ public class ApiHttpAsyncClient implements HttpAsyncClient, Closeable {
 	 *             if an I/O error occurs
 	 */
 	@Override
-	public void close() throws IOException {
+	public synchronized void close() throws IOException {
+		if (idleEvictor != null) {
+			idleEvictor.shutdownNow();
+			idleEvictor = null;
+		}
+
 		client.close();
 	}
 
+	/**
+	 * Opens connections to the given host and returns them to the connection
+	 * pool, ready to be used by the following requests. For HTTPS hosts the
+	 * TLS handshake is started as well, it completes in the background.
+	 * Connections that cannot be opened are skipped.
+	 * <p>
+	 * This client must be started before calling this method.
+	 * 
+	 * @param host
+	 *            the host to connect to
+	 * @param connections
+	 *            the number of connections to open, no more than the
+	 *            maximum number of connections are opened
+	 * @return a future number of opened connections
+	 */
+	@Nonnull
+	public Future<Integer> prewarm(HttpHost host, int connections) {
+		final BasicFuture<Integer> result = new BasicFuture<Integer>(null);
+		final HttpRoute route = route(host);
+		final int n = Math.min(connections, config.maxConnections());
+
+		if (n <= 0) {
+			result.completed(0);
+			return result;
+		}
+
+		final AtomicInteger remaining = new AtomicInteger(n);
+		final AtomicInteger opened = new AtomicInteger();
+
+		FutureCallback<NHttpClientConnection> callback =
+		        new FutureCallback<NHttpClientConnection>() {
+
+			        @Override
+			        public void completed(NHttpClientConnection conn) {
+				        if (warmUp(conn, route)) {
+					        opened.incrementAndGet();
+				        }
+				        done();
+			        }
+
+			        @Override
+			        public void failed(Exception e) {
+				        log.debug("Failed to prewarm connection to {}",
+				                route, e);
+				        done();
+			        }
+
+			        @Override
+			        public void cancelled() {
+				        done();
+			        }
+
+			        private void done() {
+				        if (remaining.decrementAndGet() == 0) {
+					        result.completed(opened.get());
+				        }
+			        }
+
+		        };
+
+		// All connections are requested before any is released, so each
+		// request gets a connection of its own.
+		for (int i = 0; i < n; i++) {
+			connManager.requestConnection(route, null,
+			        toMillis(config.connectTimeout()), 0,
+			        TimeUnit.MILLISECONDS, callback);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the route the HTTP client takes to the given host. This must
+	 * match the route planned for requests for the prewarmed connections to
+	 * be reused.
+	 * 
+	 * @param host
+	 *            the target host
+	 * @return a direct route
+	 */
+	private static HttpRoute route(HttpHost host) {
+		int port;
+		try {
+			port = DefaultSchemePortResolver.INSTANCE.resolve(host);
+		} catch (UnsupportedSchemeException e) {
+			throw new IllegalArgumentException(e.getMessage(), e);
+		}
+
+		HttpHost target =
+		        new HttpHost(host.getHostName(), port, host.getSchemeName());
+
+		return new HttpRoute(target, null,
+		        "https".equalsIgnoreCase(target.getSchemeName()));
+	}
+
+	/**
+	 * Completes the route of the given newly opened connection and returns
+	 * it to the pool.
+	 * 
+	 * @param conn
+	 *            the leased connection
+	 * @param route
+	 *            the route of the connection
+	 * @return whether the connection was returned in a reusable state
+	 */
+	private boolean warmUp(NHttpClientConnection conn, HttpRoute route) {
+		boolean reusable = false;
+
+		try {
+			if (!connManager.isRouteComplete(conn)) {
+				HttpContext context = HttpClientContext.create();
+				connManager.startRoute(conn, route, context);
+				connManager.routeComplete(conn, route, context);
+			}
+
+			reusable = true;
+		} catch (IOException e) {
+			log.debug("Failed to prewarm connection to {}", route, e);
+
+			try {
+				conn.shutdown();
+			} catch (IOException e1) {
+				// Ignore, the connection is discarded anyway.
+			}
+		} finally {
+			connManager.releaseConnection(conn, null, 0,
+			        TimeUnit.MILLISECONDS);
+		}
+
+		return reusable;
+	}
+
 	@Override
 	public <T> Future<T> execute(HttpAsyncRequestProducer requestProducer,
 	        HttpAsyncResponseConsumer<T> responseConsumer, HttpContext context,
@@ -0,0 +1,168 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+/**
+ * The operations that an {@link ApiConnection} performs against XMS. Each
+ * operation corresponds to one kind of REST request and is used to configure
+ * per-operation behavior such as timeouts and retries, see
+ * {@link TimeoutPolicy} and {@link RetryPolicy}.
+ */
+public enum ApiOperation {
+
+	/**
+	 * Creation of a batch.
+	 */
+	CREATE_BATCH(false),
+
+	/**
+	 * Dry run of a batch.
+	 */
+	CREATE_BATCH_DRY_RUN(false),
+
+	/**
+	 * Replacement of a batch.
+	 */
+	REPLACE_BATCH(true),
+
+	/**
+	 * Update of a batch.
+	 */
+	UPDATE_BATCH(false),
+
+	/**
+	 * Fetch of a single batch.
+	 */
+	FETCH_BATCH(true),
+
+	/**
+	 * Fetch of a page of batches.
+	 */
+	FETCH_BATCHES(true),
+
+	/**
+	 * Cancellation of a batch.
+	 */
+	CANCEL_BATCH(true),
+
+	/**
+	 * Fetch of a batch delivery report.
+	 */
+	FETCH_DELIVERY_REPORT(true),
+
+	/**
+	 * Fetch of a recipient delivery report.
+	 */
+	FETCH_RECIPIENT_DELIVERY_REPORT(true),
+
+	/**
+	 * Update of the tags of a batch.
+	 */
+	UPDATE_BATCH_TAGS(false),
+
+	/**
+	 * Replacement of the tags of a batch.
+	 */
+	REPLACE_BATCH_TAGS(true),
+
+	/**
+	 * Fetch of the tags of a batch.
+	 */
+	FETCH_BATCH_TAGS(true),
+
+	/**
+	 * Creation of a group.
+	 */
+	CREATE_GROUP(false),
+
+	/**
+	 * Fetch of a single group.
+	 */
+	FETCH_GROUP(true),
+
+	/**
+	 * Fetch of the members of a group.
+	 */
+	FETCH_GROUP_MEMBERS(true),
+
+	/**
+	 * Fetch of a page of groups.
+	 */
+	FETCH_GROUPS(true),
+
+	/**
+	 * Update of a group.
+	 */
+	UPDATE_GROUP(false),
+
+	/**
+	 * Replacement of a group.
+	 */
+	REPLACE_GROUP(true),
+
+	/**
+	 * Deletion of a group.
+	 */
+	DELETE_GROUP(true),
+
+	/**
+	 * Update of the tags of a group.
+	 */
+	UPDATE_GROUP_TAGS(false),
+
+	/**
+	 * Replacement of the tags of a group.
+	 */
+	REPLACE_GROUP_TAGS(true),
+
+	/**
+	 * Fetch of the tags of a group.
+	 */
+	FETCH_GROUP_TAGS(true),
+
+	/**
+	 * Fetch of a page of inbound messages.
+	 */
+	FETCH_INBOUNDS(true),
+
+	/**
+	 * Fetch of a single inbound message.
+	 */
+	FETCH_INBOUND(true);
+
+	private final boolean idempotent;
+
+	private ApiOperation(boolean idempotent) {
+		this.idempotent = idempotent;
+	}
+
+	/**
+	 * Whether repeating this operation has the same effect as performing it
+	 * once. This is the case for all operations except those sent as HTTP
+	 * POST requests, for example, repeating a batch creation may create a
+	 * duplicate batch.
+	 * 
+	 * @return <code>true</code> if idempotent, <code>false</code> otherwise
+	 */
+	public boolean isIdempotent() {
+		return idempotent;
+	}
+
+}
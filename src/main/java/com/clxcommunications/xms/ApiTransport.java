@@ -0,0 +1,72 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import java.util.concurrent.Future;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+
+/**
+ * Sends the HTTP requests of an API connection. A transport is given to an API
+ * connection using {@link ApiConnection.Builder#transport(ApiTransport)}, if
+ * none is given then requests are sent using the
+ * {@link ApiConnection#httpClient() HTTP client} of the connection through an
+ * {@link HttpAsyncClientTransport}.
+ * <p>
+ * The request and response are described using the HttpCore types of the
+ * Apache HTTP components. The response is delivered to the given consumer in
+ * the same way as by an asynchronous Apache HTTP client: first the response
+ * head, then its content, and finally the completion of the response. The
+ * consumer decodes the response and produces the result of the exchange.
+ * <p>
+ * Implementations must be thread safe. The SDK provides the
+ * {@link HttpAsyncClientTransport}, {@link Http2Transport}, and
+ * {@link UrlConnectionTransport} implementations.
+ */
+public interface ApiTransport {
+
+	/**
+	 * Sends the given request to the given host and feeds the response to the
+	 * given consumer.
+	 * <p>
+	 * The returned future must be completed with the result of the consumer
+	 * or with the failure of the exchange. Cancelling the future should abort
+	 * the exchange and release the resources it holds.
+	 * 
+	 * @param target
+	 *            the host to send the request to
+	 * @param request
+	 *            the request to send, its URI may be absolute
+	 * @param consumer
+	 *            the consumer of the response
+	 * @param callback
+	 *            the callback to invoke when the exchange is finished, may be
+	 *            <code>null</code>
+	 * @param <T>
+	 *            the result type of the consumer
+	 * @return a future result
+	 */
+	<T> Future<T> execute(HttpHost target, HttpRequest request,
+	        HttpAsyncResponseConsumer<T> consumer, FutureCallback<T> callback);
+
+}
@@ -0,0 +1,54 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import javax.annotation.Nullable;
+
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+
+/**
+ * Creates the response consumers of an API call. A response consumer can only
+ * be used once so a fresh one is needed for each attempt of a call.
+ * 
+ * @param <T>
+ *            the result type of the consumers
+ */
+interface AsyncConsumerFactory<T> {
+
+	/**
+	 * Creates a response consumer for the next attempt of a call.
+	 * 
+	 * @return a response consumer or <code>null</code> if the call must not be
+	 *         attempted again, for example because the previous attempt has
+	 *         already handed out part of its result
+	 */
+	@Nullable
+	HttpAsyncResponseConsumer<T> create();
+
+	/**
+	 * Whether consumers of several attempts of a call may be in use at the
+	 * same time, as required by hedged attempts.
+	 * 
+	 * @return <code>true</code> if concurrent attempts are allowed,
+	 *         <code>false</code> otherwise
+	 */
+	boolean concurrent();
+
+}
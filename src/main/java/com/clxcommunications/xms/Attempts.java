@@ -0,0 +1,257 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import java.net.URI;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.methods.HttpRequestBase;
+
+/**
+ * Bookkeeping of the individual attempts of an API call that is shared by the
+ * asynchronous {@link ApiCall} and the {@link BlockingApiConnection}. This
+ * covers choosing the endpoint of an attempt, acquiring and releasing the
+ * permits of the circuit breaker and concurrency limiter, recording the
+ * outcome in the load balancer, and moving the request to the chosen
+ * endpoint.
+ * <p>
+ * An attempt whose endpoint was acquired using
+ * {@link #acquire(ApiConnection, ApiOperation, URI)} must be ended by exactly
+ * one of {@link #finished(ApiConnection, URI, Exception, long)} and
+ * {@link #abandoned(ApiConnection, URI)}.
+ */
+@ParametersAreNonnullByDefault
+final class Attempts {
+
+	private Attempts() {
+	}
+
+	/**
+	 * Selects the endpoint of an attempt and acquires the permits of the
+	 * circuit breaker and concurrency limiter of the given connection, if
+	 * any.
+	 * 
+	 * @param conn
+	 *            the connection of the call
+	 * @param operation
+	 *            the operation about to be attempted
+	 * @param lastEndpoint
+	 *            the endpoint of the previous attempt, may be
+	 *            <code>null</code>
+	 * @return the endpoint to send the attempt to
+	 * @throws CircuitBreakerOpenException
+	 *             if the circuits of all endpoints are open
+	 * @throws ConcurrencyLimitExceededException
+	 *             if the concurrency limiter rejected the attempt
+	 */
+	static URI acquire(ApiConnection conn, ApiOperation operation,
+	        @Nullable URI lastEndpoint) throws CircuitBreakerOpenException,
+	        ConcurrencyLimitExceededException {
+		LoadBalancer balancer = conn.loadBalancer();
+		CircuitBreaker breaker = conn.circuitBreaker();
+		URI endpoint;
+
+		if (balancer == null) {
+			endpoint = conn.endpoint();
+
+			if (breaker != null && !breaker.tryAcquire(endpoint)) {
+				throw new CircuitBreakerOpenException(endpoint);
+			}
+		} else if (breaker == null) {
+			endpoint = balancer.select(lastEndpoint);
+		} else {
+			endpoint = balancer.select(lastEndpoint, breaker);
+		}
+
+		ConcurrencyLimiter limiter = conn.concurrencyLimiter();
+
+		if (limiter != null && !limiter.tryAcquire()) {
+			if (breaker != null) {
+				breaker.ignored(endpoint);
+			}
+			if (balancer != null) {
+				balancer.ignored(endpoint);
+			}
+			throw new ConcurrencyLimitExceededException(operation);
+		}
+
+		return endpoint;
+	}
+
+	/**
+	 * Records the outcome of an attempt in the concurrency limiter, circuit
+	 * breaker, and load balancer of the given connection.
+	 * 
+	 * @param conn
+	 *            the connection of the call
+	 * @param endpoint
+	 *            the endpoint of the attempt
+	 * @param failure
+	 *            the failure of the attempt or <code>null</code> if the
+	 *            attempt succeeded
+	 * @param rtt
+	 *            the round-trip time of the attempt in nanoseconds
+	 */
+	static void finished(ApiConnection conn, URI endpoint,
+	        @Nullable Exception failure, long rtt) {
+		ConcurrencyLimiter limiter = conn.concurrencyLimiter();
+		if (limiter != null) {
+			if (failure != null && Utils.isOverload(failure)) {
+				limiter.dropped();
+			} else {
+				limiter.success(rtt);
+			}
+		}
+
+		CircuitBreaker breaker = conn.circuitBreaker();
+		if (breaker != null) {
+			if (failure != null) {
+				breaker.failure(endpoint, failure, rtt);
+			} else {
+				breaker.success(endpoint, rtt);
+			}
+		}
+
+		LoadBalancer balancer = conn.loadBalancer();
+		if (balancer != null) {
+			if (failure != null) {
+				balancer.failure(endpoint, failure, rtt);
+			} else {
+				balancer.success(endpoint, rtt);
+			}
+		}
+	}
+
+	/**
+	 * Releases the permits of an attempt without recording an outcome.
+	 * 
+	 * @param conn
+	 *            the connection of the call
+	 * @param endpoint
+	 *            the endpoint of the abandoned attempt
+	 */
+	static void abandoned(ApiConnection conn, URI endpoint) {
+		ConcurrencyLimiter limiter = conn.concurrencyLimiter();
+		if (limiter != null) {
+			limiter.ignored();
+		}
+
+		CircuitBreaker breaker = conn.circuitBreaker();
+		if (breaker != null) {
+			breaker.ignored(endpoint);
+		}
+
+		LoadBalancer balancer = conn.loadBalancer();
+		if (balancer != null) {
+			balancer.ignored(endpoint);
+		}
+	}
+
+	/**
+	 * Returns the HTTP host of the given endpoint.
+	 * 
+	 * @param conn
+	 *            the connection of the call
+	 * @param endpoint
+	 *            the endpoint of the attempt
+	 * @return a non-null host
+	 */
+	static HttpHost host(ApiConnection conn, URI endpoint) {
+		LoadBalancer balancer = conn.loadBalancer();
+
+		return (balancer == null)
+		        ? conn.endpointHost()
+		        : balancer.host(endpoint);
+	}
+
+	/**
+	 * Returns the request to send to the given endpoint. This is the given
+	 * request itself if the endpoint is the endpoint of the connection,
+	 * otherwise a copy targeting the same path below the given endpoint.
+	 * 
+	 * @param conn
+	 *            the connection of the call
+	 * @param endpoint
+	 *            the endpoint of the attempt
+	 * @param request
+	 *            the request targeting the connection endpoint
+	 * @return a non-null request
+	 */
+	static HttpRequestBase request(ApiConnection conn, URI endpoint,
+	        HttpRequestBase request) {
+		if (endpoint.equals(conn.endpoint())) {
+			return request;
+		}
+
+		HttpRequestBase copy;
+
+		try {
+			copy = (HttpRequestBase) request.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+
+		copy.setURI(rebase(request.getURI(), conn.endpoint(), endpoint));
+
+		return copy;
+	}
+
+	/**
+	 * Moves the given URI from one base endpoint to another.
+	 * 
+	 * @param uri
+	 *            the URI to move
+	 * @param from
+	 *            the base endpoint of the URI
+	 * @param to
+	 *            the new base endpoint
+	 * @return the moved URI
+	 */
+	static URI rebase(URI uri, URI from, URI to) {
+		String path = rawPath(uri);
+		String fromPath = rawPath(from);
+		String toPath = rawPath(to);
+
+		StringBuilder sb = new StringBuilder()
+		        .append(to.getScheme())
+		        .append("://")
+		        .append(to.getRawAuthority());
+
+		if (path.startsWith(fromPath)) {
+			sb.append(toPath).append(path.substring(fromPath.length()));
+		} else {
+			sb.append(path);
+		}
+
+		if (uri.getRawQuery() != null) {
+			sb.append('?').append(uri.getRawQuery());
+		}
+
+		return URI.create(sb.toString());
+	}
+
+	private static String rawPath(URI uri) {
+		return uri.getRawPath() == null ? "" : uri.getRawPath();
+	}
+
+}
@@ -0,0 +1,1085 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.entity.BufferedHttpEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.threeten.bp.Duration;
+
+import com.clxcommunications.xms.api.ApiError;
+import com.clxcommunications.xms.api.BatchDeliveryReport;
+import com.clxcommunications.xms.api.BatchId;
+import com.clxcommunications.xms.api.GroupCreate;
+import com.clxcommunications.xms.api.GroupId;
+import com.clxcommunications.xms.api.GroupResult;
+import com.clxcommunications.xms.api.GroupUpdate;
+import com.clxcommunications.xms.api.MoSms;
+import com.clxcommunications.xms.api.MtBatchBinarySmsCreate;
+import com.clxcommunications.xms.api.MtBatchBinarySmsResult;
+import com.clxcommunications.xms.api.MtBatchBinarySmsUpdate;
+import com.clxcommunications.xms.api.MtBatchDryRunResult;
+import com.clxcommunications.xms.api.MtBatchSmsCreate;
+import com.clxcommunications.xms.api.MtBatchSmsResult;
+import com.clxcommunications.xms.api.MtBatchTextSmsCreate;
+import com.clxcommunications.xms.api.MtBatchTextSmsResult;
+import com.clxcommunications.xms.api.MtBatchTextSmsUpdate;
+import com.clxcommunications.xms.api.Page;
+import com.clxcommunications.xms.api.PagedBatchResult;
+import com.clxcommunications.xms.api.PagedGroupResult;
+import com.clxcommunications.xms.api.PagedInboundsResult;
+import com.clxcommunications.xms.api.RecipientDeliveryReport;
+import com.clxcommunications.xms.api.Tags;
+import com.clxcommunications.xms.api.TagsUpdate;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * A sibling of an API connection whose calls are performed using blocking I/O
+ * directly on the calling thread. Unlike the blocking methods of
+ * {@link ApiConnection}, which wait for an asynchronous call handled by the
+ * I/O reactor threads, no thread other than the caller is involved in a call.
+ * This makes the connection well suited for use from a large number of cheap
+ * threads, e.g., virtual threads, where parking the calling thread costs
+ * little and the hand-off to and from the I/O reactor dominates.
+ * <p>
+ * The connection uses the service plan, token, endpoint, timeout policy, retry
+ * policy, and retry budget of the given API connection. Its rate limiter,
+ * concurrency limiter, circuit breaker, and load balancer are also applied. A
+ * wait imposed by the retry policy or the rate limiter is spent sleeping on
+ * the calling thread. Hedging is never performed since it requires concurrent
+ * attempts.
+ * <p>
+ * Since blocking I/O cannot be cancelled, the deadline of a call limits the
+ * connect and socket timeouts of each attempt and no new attempt is made once
+ * the deadline has passed. A call whose deadline has passed fails with a
+ * {@link CancellationException}, as do the blocking methods of
+ * {@link ApiConnection}.
+ * <p>
+ * Unless an HTTP client is given, the connection creates a blocking HTTP
+ * client configured by the {@link ApiConnection#httpClientConfig() HTTP client
+ * configuration} of the API connection. Note, the maximum number of
+ * connections of the configuration also limits the number of calls that can
+ * be in flight, further callers wait for a pooled connection. The connection
+ * must be closed after use to release the client.
+ */
+public final class BlockingApiConnection implements Closeable {
+
+	private static final Logger log =
+	        LoggerFactory.getLogger(BlockingApiConnection.class);
+
+	private final ApiConnection conn;
+
+	private final HttpClient client;
+
+	/**
+	 * Whether {@link #client} was created by this connection and should be
+	 * closed with it.
+	 */
+	private final boolean ownsClient;
+
+	/**
+	 * The default request configuration of {@link #client}, as far as known.
+	 */
+	private final RequestConfig requestConfig;
+
+	private final ObjectReader errorReader;
+
+	private BlockingApiConnection(ApiConnection conn, HttpClient client,
+	        boolean ownsClient) {
+		this.conn = conn;
+		this.client = client;
+		this.ownsClient = ownsClient;
+		this.requestConfig = ownsClient
+		        ? ApiHttpAsyncClient.requestConfig(conn.httpClientConfig())
+		        : RequestConfig.DEFAULT;
+		this.errorReader = conn.jsonReader(ApiError.class);
+	}
+
+	/**
+	 * Creates a blocking sibling of the given API connection. A blocking HTTP
+	 * client is created from the HTTP client configuration of the connection.
+	 * <p>
+	 * The API connection itself need not be started.
+	 * 
+	 * @param conn
+	 *            the API connection whose configuration to use
+	 * @return a non-null blocking API connection
+	 */
+	@Nonnull
+	public static BlockingApiConnection of(ApiConnection conn) {
+		Utils.requireNonNull(conn, "conn");
+
+		return new BlockingApiConnection(conn,
+		        createHttpClient(conn.httpClientConfig()), true);
+	}
+
+	/**
+	 * Creates a blocking sibling of the given API connection that performs
+	 * its calls using the given HTTP client. The client is not closed when
+	 * this connection is closed.
+	 * 
+	 * @param conn
+	 *            the API connection whose configuration to use
+	 * @param client
+	 *            the blocking HTTP client
+	 * @return a non-null blocking API connection
+	 */
+	@Nonnull
+	public static BlockingApiConnection of(ApiConnection conn,
+	        HttpClient client) {
+		return new BlockingApiConnection(Utils.requireNonNull(conn, "conn"),
+		        Utils.requireNonNull(client, "client"), false);
+	}
+
+	/**
+	 * Creates a blocking HTTP client suitable for communicating with XMS.
+	 * 
+	 * @param config
+	 *            the client configuration
+	 * @return a non-null HTTP client
+	 */
+	static CloseableHttpClient createHttpClient(HttpClientConfig config) {
+		// Allow TLSv1.2 protocol only
+		SSLConnectionSocketFactory sslSocketFactory =
+		        new SSLConnectionSocketFactory(
+		                ApiHttpAsyncClient.createSslContext(config),
+		                new String[] { "TLSv1.2" },
+		                null,
+		                SSLConnectionSocketFactory
+		                        .getDefaultHostnameVerifier());
+
+		Registry<ConnectionSocketFactory> socketFactories =
+		        RegistryBuilder.<ConnectionSocketFactory> create()
+		                .register("http",
+		                        PlainConnectionSocketFactory.getSocketFactory())
+		                .register("https", sslSocketFactory)
+		                .build();
+
+		long timeToLive = config.connectionTimeToLive() == null
+		        ? -1 : config.connectionTimeToLive().toMillis();
+
+		PoolingHttpClientConnectionManager connManager =
+		        new PoolingHttpClientConnectionManager(socketFactories, null,
+		                null, null, timeToLive, TimeUnit.MILLISECONDS);
+		connManager.setMaxTotal(config.maxConnections());
+		connManager.setDefaultMaxPerRoute(config.maxConnections());
+		connManager.setDefaultSocketConfig(
+		        SocketConfig.custom()
+		                .setSoTimeout(toMillis(config.socketTimeout()))
+		                .setSndBufSize(config.sendBufferSize())
+		                .setRcvBufSize(config.receiveBufferSize())
+		                .setTcpNoDelay(config.tcpNoDelay())
+		                .build());
+
+		RequestConfig requestConfig = ApiHttpAsyncClient.requestConfig(config);
+
+		// Retries are handled by the retry policy of the API connection.
+		HttpClientBuilder builder =
+		        HttpClients.custom()
+		                .setConnectionManager(connManager)
+		                .disableCookieManagement()
+		                .disableAutomaticRetries()
+		                .setDefaultRequestConfig(requestConfig);
+
+		if (config.maxIdleTime() != null) {
+			builder.evictExpiredConnections().evictIdleConnections(
+			        config.maxIdleTime().toMillis(), TimeUnit.MILLISECONDS);
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * Converts the given duration to a number of milliseconds suitable for the
+	 * HTTP client configuration.
+	 * 
+	 * @param duration
+	 *            the duration to convert
+	 * @return a non-negative number of milliseconds
+	 */
+	private static int toMillis(Duration duration) {
+		return (int) Math.min(duration.toMillis(), Integer.MAX_VALUE);
+	}
+
+	/**
+	 * The API connection whose configuration is used.
+	 * 
+	 * @return a non-null API connection
+	 */
+	@Nonnull
+	public ApiConnection connection() {
+		return conn;
+	}
+
+	/**
+	 * Closes this connection and releases associated resources.
+	 * <p>
+	 * Note, this will <em>not</em> close the HTTP client if it was given
+	 * externally.
+	 * 
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		if (ownsClient) {
+			((Closeable) client).close();
+		} else {
+			log.debug("Not closing HTTP client since it was given externally");
+		}
+	}
+
+	/**
+	 * Performs the given request, attempting it again according to the retry
+	 * policy of the API connection. All calls pass through this method.
+	 * 
+	 * @param operation
+	 *            the operation that is performed
+	 * @param request
+	 *            the request to send
+	 * @param reader
+	 *            the reader of the response, <code>null</code> if the response
+	 *            is expected to be empty
+	 * @return the call result
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted while waiting
+	 * @throws ApiException
+	 *             if an error occurred while communicating with XMS
+	 */
+	private <T> T execute(ApiOperation operation, HttpRequestBase request,
+	        @Nullable ObjectReader reader)
+	        throws InterruptedException, ApiException {
+		Deadline deadline = conn.deadline(operation);
+		URI lastEndpoint = null;
+
+		conn.retryBudget().deposit();
+
+		for (int attempt = 1;; attempt++) {
+			awaitRateLimit(operation, deadline);
+
+			URI endpoint = Attempts.acquire(conn, operation, lastEndpoint);
+			lastEndpoint = endpoint;
+
+			Exception failure;
+			long sentNanos = System.nanoTime();
+
+			try {
+				T result = send(endpoint, request, deadline, reader);
+				Attempts.finished(conn, endpoint, null,
+				        System.nanoTime() - sentNanos);
+				return result;
+			} catch (IOException e) {
+				failure = e;
+			} catch (ApiException e) {
+				failure = e;
+			} catch (RuntimeException e) {
+				Attempts.abandoned(conn, endpoint);
+				throw e;
+			}
+
+			Attempts.finished(conn, endpoint, failure,
+			        System.nanoTime() - sentNanos);
+
+			long delay = retryDelay(operation, attempt, failure, deadline);
+
+			if (delay < 0) {
+				throw toApiException(failure, deadline);
+			}
+
+			log.debug("Retrying {} in {} ms after attempt {} failed: {}",
+			        operation, delay, attempt, failure.toString());
+
+			Thread.sleep(delay);
+		}
+	}
+
+	/**
+	 * Waits until the rate limiter of the API connection, if any, permits
+	 * another attempt.
+	 * 
+	 * @param operation
+	 *            the operation about to be attempted
+	 * @param deadline
+	 *            the call deadline, may be <code>null</code>
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted while waiting
+	 * @throws RateLimitExceededException
+	 *             if the rate limiter rejected the attempt
+	 */
+	private void awaitRateLimit(ApiOperation operation,
+	        @Nullable Deadline deadline)
+	        throws InterruptedException, RateLimitExceededException {
+		RateLimiter limiter = conn.rateLimiter();
+
+		if (limiter == null) {
+			return;
+		}
+
+		long maxWait = (deadline == null)
+		        ? Long.MAX_VALUE
+		        : deadline.remaining(TimeUnit.NANOSECONDS);
+		long wait = limiter.reserve(conn.servicePlanId(), operation, maxWait);
+
+		if (wait < 0) {
+			throw new RateLimitExceededException(operation);
+		} else if (wait > 0) {
+			log.debug("Rate limited {}, waiting {} ns", operation, wait);
+			TimeUnit.NANOSECONDS.sleep(wait);
+		}
+	}
+
+	/**
+	 * Sends a single attempt of a request and reads its response.
+	 * 
+	 * @param endpoint
+	 *            the endpoint to send the attempt to
+	 * @param request
+	 *            the request to send
+	 * @param deadline
+	 *            the call deadline, may be <code>null</code>
+	 * @param reader
+	 *            the reader of the response, may be <code>null</code>
+	 * @return the response value
+	 * @throws IOException
+	 *             if the attempt failed at the HTTP level
+	 * @throws ApiException
+	 *             if XMS responded with an error
+	 */
+	private <T> T send(URI endpoint, HttpRequestBase request,
+	        @Nullable Deadline deadline, @Nullable ObjectReader reader)
+	        throws IOException, ApiException {
+		if (deadline != null) {
+			if (deadline.isExpired()) {
+				throw new CancellationException("deadline exceeded");
+			}
+
+			/*
+			 * Limit the low-level timeouts to the deadline so that a stalled
+			 * connection does not outlive the call.
+			 */
+			request.setConfig(
+			        Utils.limitTimeouts(requestConfig, deadline));
+		}
+
+		HttpRequestBase req = Attempts.request(conn, endpoint, request);
+
+		HttpResponse response =
+		        client.execute(Attempts.host(conn, endpoint), req);
+
+		return this.<T> read(req, response, reader);
+	}
+
+	/**
+	 * Reads the given response. The response entity is always consumed such
+	 * that the connection can be reused.
+	 * 
+	 * @param req
+	 *            the request that was sent
+	 * @param response
+	 *            the received response
+	 * @param reader
+	 *            the reader of a success response, <code>null</code> if the
+	 *            response is expected to be empty
+	 * @return the response value or <code>null</code> if the response is
+	 *         empty
+	 * @throws IOException
+	 *             if the response could not be read
+	 * @throws ApiException
+	 *             if XMS responded with an error
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> T read(HttpRequestBase req, HttpResponse response,
+	        @Nullable ObjectReader reader) throws IOException, ApiException {
+		HttpEntity entity = response.getEntity();
+		int code = response.getStatusLine().getStatusCode();
+
+		try {
+			switch (code) {
+			case HttpStatus.SC_OK:
+			case HttpStatus.SC_CREATED:
+			case HttpStatus.SC_NO_CONTENT:
+				if (reader == null) {
+					if (entity != null && entity.getContentLength() > 0) {
+						log.warn("Expected empty body but got {} bytes",
+						        entity.getContentLength());
+					}
+					return null;
+				} else if (code != HttpStatus.SC_NO_CONTENT
+				        && entity != null) {
+					return (T) reader.readValue(entity.getContent());
+				}
+				break;
+			case HttpStatus.SC_BAD_REQUEST:
+			case HttpStatus.SC_FORBIDDEN:
+				ApiError error = errorReader.readValue(entity.getContent());
+				throw new ErrorResponseException(error);
+			case HttpStatus.SC_NOT_FOUND:
+				throw new NotFoundException(req.getRequestLine().getUri());
+			case HttpStatus.SC_UNAUTHORIZED:
+				throw new UnauthorizedException();
+			default:
+				break;
+			}
+
+			if (entity != null) {
+				response.setEntity(new BufferedHttpEntity(entity));
+			}
+
+			throw new UnexpectedResponseException(response);
+		} finally {
+			EntityUtils.consumeQuietly(entity);
+		}
+	}
+
+	/**
+	 * Returns the time to wait before attempting a failed call again.
+	 * 
+	 * @param operation
+	 *            the operation that failed
+	 * @param attempt
+	 *            the number of attempts made so far
+	 * @param failure
+	 *            the failure of the latest attempt
+	 * @param deadline
+	 *            the call deadline, may be <code>null</code>
+	 * @return the delay in milliseconds or a negative number if the call
+	 *         should not be attempted again
+	 */
+	private long retryDelay(ApiOperation operation, int attempt,
+	        Exception failure, @Nullable Deadline deadline) {
+		long delay = conn.retryPolicy().retryDelay(operation, attempt,
+		        failure);
+
+		if (delay < 0) {
+			return -1;
+		}
+
+		if (deadline != null
+		        && deadline.remaining(TimeUnit.MILLISECONDS) <= delay) {
+			return -1;
+		}
+
+		if (!conn.retryBudget().tryWithdraw()) {
+			log.debug("Retry budget exhausted, not retrying {}", operation);
+			return -1;
+		}
+
+		return delay;
+	}
+
+	/**
+	 * Converts the failure of the last attempt of a call into the exception
+	 * thrown by the call.
+	 * 
+	 * @param failure
+	 *            the failure of the last attempt
+	 * @param deadline
+	 *            the call deadline, may be <code>null</code>
+	 * @return an API exception
+	 * @throws CancellationException
+	 *             if the call failed because its deadline passed
+	 */
+	private static ApiException toApiException(Exception failure,
+	        @Nullable Deadline deadline) {
+		if (failure instanceof ApiException) {
+			return (ApiException) failure;
+		}
+
+		if (deadline != null && deadline.isExpired()) {
+			CancellationException e =
+			        new CancellationException("deadline exceeded");
+			e.initCause(failure);
+			throw e;
+		}
+
+		return new ConcurrentException(failure);
+	}
+
+	/**
+	 * Creates the given text batch.
+	 * 
+	 * @param sms
+	 *            the batch to create
+	 * @return a batch creation result
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted while waiting
+	 * @throws ApiException
+	 *             if an error occurred while communicating with XMS
+	 */
+	public MtBatchTextSmsResult createBatch(MtBatchTextSmsCreate sms)
+	        throws InterruptedException, ApiException {
+		return execute(ApiOperation.CREATE_BATCH,
+		        conn.post(conn.endpoint("/batches"), sms),
+		        conn.jsonReader(MtBatchTextSmsResult.class));
+	}
+
+	/**
+	 * Creates the given binary batch.
+	 * 
+	 * @param sms
+	 *            the batch to create
+	 * @return a batch creation result
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted while waiting
+	 * @throws ApiException
+	 *             if an error occurred while communicating with XMS
+	 */
+	public MtBatchBinarySmsResult createBatch(MtBatchBinarySmsCreate sms)
+	        throws InterruptedException, ApiException {
+		return execute(ApiOperation.CREATE_BATCH,
+		        conn.post(conn.endpoint("/batches"), sms),
+		        conn.jsonReader(MtBatchBinarySmsResult.class));
+	}
+
+	/**
+	 * Replaces the batch with the given identifier.
+	 * 
+	 * @param id
+	 *            identifier of the batch
+	 * @param sms
+	 *            the replacement batch
+	 * @return the batch with the replacement applied
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted while waiting
+	 * @throws ApiException
+	 *             if an error occurred while communicating with XMS
+	 */
+	public MtBatchTextSmsResult replaceBatch(BatchId id,
+	        MtBatchTextSmsCreate sms)
+	        throws InterruptedException, ApiException {
+		return execute(ApiOperation.REPLACE_BATCH,
+		        conn.put(conn.batchEndpoint(id), sms),
+		        conn.jsonReader(MtBatchTextSmsResult.class));
+	}
+
+	/**
+	 * Replaces the batch with the given identifier.
+	 * 
+	 * @param id
+	 *            identifier of the batch
+	 * @param sms
+	 *            the replacement batch
+	 * @return the batch with the replacement applied
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted while waiting
+	 * @throws ApiException
+	 *             if an error occurred while communicating with XMS
+	 */
+	public MtBatchBinarySmsResult replaceBatch(BatchId id,
+	        MtBatchBinarySmsCreate sms)
+	        throws InterruptedException, ApiException {
+		return execute(ApiOperation.REPLACE_BATCH,
+		        conn.put(conn.batchEndpoint(id), sms),
+		        conn.jsonReader(MtBatchBinarySmsResult.class));
+	}
+
+	/**
+	 * Updates the batch with the given identifier.
+	 * 
+	 * @param id
+	 *            identifier of the batch
+	 * @param sms
+	 *            a description of the desired updated
+	 * @return the batch with the updates applied
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted while waiting
+	 * @throws ApiException
+	 *             if an error occurred while communicating with XMS
+	 */
+	public MtBatchTextSmsResult updateBatch(BatchId id,
+	        MtBatchTextSmsUpdate sms)
+	        throws InterruptedException, ApiException {
+		return execute(ApiOperation.UPDATE_BATCH,
+		        conn.post(conn.batchEndpoint(id), sms),
+		        conn.jsonReader(MtBatchTextSmsResult.class));
+	}
+
+	/**
+	 * Updates the batch with the given identifier.
+	 * 
+	 * @param id
+	 *            identifier of the batch
+	 * @param sms
+	 *            a description of the desired updated
+	 * @return the batch with the updates applied
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted while waiting
+	 * @throws ApiException
+	 *             if an error occurred while communicating with XMS
+	 */
+	public MtBatchBinarySmsResult updateBatch(BatchId id,
+	        MtBatchBinarySmsUpdate sms)
+	        throws InterruptedException, ApiException {
+		return execute(ApiOperation.UPDATE_BATCH,
+		        conn.post(conn.batchEndpoint(id), sms),
+		        conn.jsonReader(MtBatchBinarySmsResult.class));
+	}
+
+	/**
+	 * Fetches the batch with the given identifier.
+	 * 
+	 * @param id
+	 *            identifier of the batch to fetch
+	 * @return the desired batch
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted while waiting
+	 * @throws ApiException
+	 *             if an error occurred while communicating with XMS
+	 */
+	public MtBatchSmsResult fetchBatch(BatchId id)
+	        throws InterruptedException, ApiException {
+		return execute(ApiOperation.FETCH_BATCH,
+		        conn.get(conn.batchEndpoint(id)),
+		        conn.jsonReader(MtBatchSmsResult.class));
+	}
+
+	/**
+	 * Fetches the given page of batches.
+	 * 
+	 * @param filter
+	 *            the batch filter
+	 * @param page
+	 *            the page to fetch
+	 * @return the desired page
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted while waiting
+	 * @throws ApiException
+	 *             if an error occurred while communicating with XMS
+	 */
+	public Page<MtBatchSmsResult> fetchBatches(BatchFilter filter, int page)
+	        throws InterruptedException, ApiException {
+		return execute(ApiOperation.FETCH_BATCHES,
+		        conn.get(conn.endpoint("/batches",
+		                filter.toQueryParams(page))),
+		        conn.jsonReader(PagedBatchResult.class));
+	}
+
+	/**
+	 * Cancels the batch with the given identifier.
+	 * 
+	 * @param id
+	 *            identifier of the batch to cancel
+	 * @return the cancelled batch
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted while waiting
+	 * @throws ApiException
+	 *             if an error occurred while communicating with XMS
+	 */
+	public MtBatchSmsResult cancelBatch(BatchId id)
+	        throws InterruptedException, ApiException {
+		return execute(ApiOperation.CANCEL_BATCH,
+		        conn.delete(conn.batchEndpoint(id)),
+		        conn.jsonReader(MtBatchSmsResult.class));
+	}
+
+	/**
+	 * Performs a dry run of the given batch.
+	 * 
+	 * @param sms
+	 *            the batch to dry run
+	 * @param perRecipient
+	 *            whether the per-recipient result should be populated
+	 * @param numRecipients
+	 *            the number of recipients to populate
+	 * @return a dry run result
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted while waiting
+	 * @throws ApiException
+	 *             if an error occurred while communicating with XMS
+	 */
+	public MtBatchDryRunResult createBatchDryRun(MtBatchSmsCreate sms,
+	        Boolean perRecipient, Integer numRecipients)
+	        throws InterruptedException, ApiException {
+		List<NameValuePair> params = new ArrayList<NameValuePair>(2);
+
+		if (perRecipient != null) {
+			params.add(new BasicNameValuePair("per_recipient",
+			        perRecipient.toString()));
+		}
+
+		if (numRecipients != null) {
+			params.add(new BasicNameValuePair("number_of_recipients",
+			        numRecipients.toString()));
+		}
+
+		return execute(ApiOperation.CREATE_BATCH_DRY_RUN,
+		        conn.post(conn.batchDryRunEndpoint(params), sms),
+		        conn.jsonReader(MtBatchDryRunResult.class));
+	}
+
+	/**
+	 * Fetches the delivery report of the batch with the given identifier.
+	 * 
+	 * @param id
+	 *            identifier of the batch
+	 * @param filter
+	 *            parameters controlling the response content
+	 * @return the desired delivery report
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted while waiting
+	 * @throws ApiException
+	 *             if an error occurred while communicating with XMS
+	 */
+	public BatchDeliveryReport fetchDeliveryReport(BatchId id,
+	        BatchDeliveryReportParams filter)
+	        throws InterruptedException, ApiException {
+		return execute(ApiOperation.FETCH_DELIVERY_REPORT,
+		        conn.get(conn.batchDeliveryReportEndpoint(id,
+		                filter.toQueryParams())),
+		        conn.jsonReader(BatchDeliveryReport.class));
+	}
+
+	/**
+	 * Fetches the delivery report of the given recipient of the batch with the
+	 * given identifier.
+	 * 
+	 * @param id
+	 *            identifier of the batch
+	 * @param recipient
+	 *            MSISDN of recipient
+	 * @return the desired delivery report
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted while waiting
+	 * @throws ApiException
+	 *             if an error occurred while communicating with XMS
+	 */
+	public RecipientDeliveryReport fetchDeliveryReport(BatchId id,
+	        String recipient) throws InterruptedException, ApiException {
+		return execute(ApiOperation.FETCH_RECIPIENT_DELIVERY_REPORT,
+		        conn.get(conn.batchRecipientDeliveryReportEndpoint(id,
+		                recipient)),
+		        conn.jsonReader(RecipientDeliveryReport.class));
+	}
+
+	/**
+	 * Updates the tags of the batch with the given identifier.
+	 * 
+	 * @param id
+	 *            identifier of the batch
+	 * @param tags
+	 *            the tag update
+	 * @return the updated tags
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted while waiting
+	 * @throws ApiException
+	 *             if an error occurred while communicating with XMS
+	 */
+	public Tags updateTags(BatchId id, TagsUpdate tags)
+	        throws InterruptedException, ApiException {
+		return execute(ApiOperation.UPDATE_BATCH_TAGS,
+		        conn.post(conn.batchTagsEndpoint(id), tags),
+		        conn.jsonReader(Tags.class));
+	}
+
+	/**
+	 * Replaces the tags of the batch with the given identifier.
+	 * 
+	 * @param id
+	 *            identifier of the batch
+	 * @param tags
+	 *            the replacement tags
+	 * @return the new tags
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted while waiting
+	 * @throws ApiException
+	 *             if an error occurred while communicating with XMS
+	 */
+	public Tags replaceTags(BatchId id, Tags tags)
+	        throws InterruptedException, ApiException {
+		return execute(ApiOperation.REPLACE_BATCH_TAGS,
+		        conn.put(conn.batchTagsEndpoint(id), tags),
+		        conn.jsonReader(Tags.class));
+	}
+
+	/**
+	 * Fetches the tags of the batch with the given identifier.
+	 * 
+	 * @param id
+	 *            identifier of the batch
+	 * @return the batch tags
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted while waiting
+	 * @throws ApiException
+	 *             if an error occurred while communicating with XMS
+	 */
+	public Tags fetchTags(BatchId id)
+	        throws InterruptedException, ApiException {
+		return execute(ApiOperation.FETCH_BATCH_TAGS,
+		        conn.get(conn.batchTagsEndpoint(id)),
+		        conn.jsonReader(Tags.class));
+	}
+
+	/**
+	 * Creates the given group.
+	 * 
+	 * @param group
+	 *            the group to create
+	 * @return the created group
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted while waiting
+	 * @throws ApiException
+	 *             if an error occurred while communicating with XMS
+	 */
+	public GroupResult createGroup(GroupCreate group)
+	        throws InterruptedException, ApiException {
+		return execute(ApiOperation.CREATE_GROUP,
+		        conn.post(conn.endpoint("/groups"), group),
+		        conn.jsonReader(GroupResult.class));
+	}
+
+	/**
+	 * Fetches the group with the given identifier.
+	 * 
+	 * @param id
+	 *            identifier of the group
+	 * @return the desired group
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted while waiting
+	 * @throws ApiException
+	 *             if an error occurred while communicating with XMS
+	 */
+	public GroupResult fetchGroup(GroupId id)
+	        throws InterruptedException, ApiException {
+		return execute(ApiOperation.FETCH_GROUP,
+		        conn.get(conn.groupEndpoint(id)),
+		        conn.jsonReader(GroupResult.class));
+	}
+
+	/**
+	 * Fetches the members of the group with the given identifier.
+	 * 
+	 * @param id
+	 *            identifier of the group
+	 * @return the group members
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted while waiting
+	 * @throws ApiException
+	 *             if an error occurred while communicating with XMS
+	 */
+	public Set<String> fetchGroupMembers(GroupId id)
+	        throws InterruptedException, ApiException {
+		return execute(ApiOperation.FETCH_GROUP_MEMBERS,
+		        conn.get(conn.groupMembersEndpoint(id)),
+		        conn.jsonReader(Set.class));
+	}
+
+	/**
+	 * Fetches the given page of groups.
+	 * 
+	 * @param filter
+	 *            the group filter
+	 * @param page
+	 *            the page to fetch
+	 * @return the desired page
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted while waiting
+	 * @throws ApiException
+	 *             if an error occurred while communicating with XMS
+	 */
+	public Page<GroupResult> fetchGroups(GroupFilter filter, int page)
+	        throws InterruptedException, ApiException {
+		return execute(ApiOperation.FETCH_GROUPS,
+		        conn.get(conn.groupsEndpoint(filter.toQueryParams(page))),
+		        conn.jsonReader(PagedGroupResult.class));
+	}
+
+	/**
+	 * Updates the group with the given identifier.
+	 * 
+	 * @param id
+	 *            identifier of the group
+	 * @param group
+	 *            a description of the desired update
+	 * @return the updated group
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted while waiting
+	 * @throws ApiException
+	 *             if an error occurred while communicating with XMS
+	 */
+	public GroupResult updateGroup(GroupId id, GroupUpdate group)
+	        throws InterruptedException, ApiException {
+		return execute(ApiOperation.UPDATE_GROUP,
+		        conn.post(conn.groupEndpoint(id), group),
+		        conn.jsonReader(GroupResult.class));
+	}
+
+	/**
+	 * Replaces the group with the given identifier.
+	 * 
+	 * @param id
+	 *            identifier of the group
+	 * @param group
+	 *            the replacement group
+	 * @return the new group
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted while waiting
+	 * @throws ApiException
+	 *             if an error occurred while communicating with XMS
+	 */
+	public GroupResult replaceGroup(GroupId id, GroupCreate group)
+	        throws InterruptedException, ApiException {
+		return execute(ApiOperation.REPLACE_GROUP,
+		        conn.put(conn.groupEndpoint(id), group),
+		        conn.jsonReader(GroupResult.class));
+	}
+
+	/**
+	 * Deletes the group with the given identifier.
+	 * 
+	 * @param id
+	 *            identifier of the group
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted while waiting
+	 * @throws ApiException
+	 *             if an error occurred while communicating with XMS
+	 */
+	public void deleteGroup(GroupId id)
+	        throws InterruptedException, ApiException {
+		execute(ApiOperation.DELETE_GROUP,
+		        conn.delete(conn.groupEndpoint(id)), null);
+	}
+
+	/**
+	 * Updates the tags of the group with the given identifier.
+	 * 
+	 * @param id
+	 *            identifier of the group
+	 * @param tags
+	 *            the tag update
+	 * @return the updated tags
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted while waiting
+	 * @throws ApiException
+	 *             if an error occurred while communicating with XMS
+	 */
+	public Tags updateTags(GroupId id, TagsUpdate tags)
+	        throws InterruptedException, ApiException {
+		return execute(ApiOperation.UPDATE_GROUP_TAGS,
+		        conn.post(conn.groupTagsEndpoint(id), tags),
+		        conn.jsonReader(Tags.class));
+	}
+
+	/**
+	 * Replaces the tags of the group with the given identifier.
+	 * 
+	 * @param id
+	 *            identifier of the group
+	 * @param tags
+	 *            the replacement tags
+	 * @return the new tags
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted while waiting
+	 * @throws ApiException
+	 *             if an error occurred while communicating with XMS
+	 */
+	public Tags replaceTags(GroupId id, Tags tags)
+	        throws InterruptedException, ApiException {
+		return execute(ApiOperation.REPLACE_GROUP_TAGS,
+		        conn.put(conn.groupTagsEndpoint(id), tags),
+		        conn.jsonReader(Tags.class));
+	}
+
+	/**
+	 * Fetches the tags of the group with the given identifier.
+	 * 
+	 * @param id
+	 *            identifier of the group
+	 * @return the group tags
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted while waiting
+	 * @throws ApiException
+	 *             if an error occurred while communicating with XMS
+	 */
+	public Tags fetchTags(GroupId id)
+	        throws InterruptedException, ApiException {
+		return execute(ApiOperation.FETCH_GROUP_TAGS,
+		        conn.get(conn.groupTagsEndpoint(id)),
+		        conn.jsonReader(Tags.class));
+	}
+
+	/**
+	 * Fetches the given page of inbound messages.
+	 * 
+	 * @param filter
+	 *            the inbounds filter
+	 * @param page
+	 *            the page to fetch
+	 * @return the desired page
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted while waiting
+	 * @throws ApiException
+	 *             if an error occurred while communicating with XMS
+	 */
+	public Page<MoSms> fetchInbounds(InboundsFilter filter, int page)
+	        throws InterruptedException, ApiException {
+		return execute(ApiOperation.FETCH_INBOUNDS,
+		        conn.get(conn.inboundsEndpoint(filter.toQueryParams(page))),
+		        conn.jsonReader(PagedInboundsResult.class));
+	}
+
+	/**
+	 * Fetches the inbound message with the given identifier.
+	 * 
+	 * @param id
+	 *            identifier of the inbound message
+	 * @return the desired inbound message
+	 * @throws InterruptedException
+	 *             if the current thread was interrupted while waiting
+	 * @throws ApiException
+	 *             if an error occurred while communicating with XMS
+	 */
+	public MoSms fetchInbound(String id)
+	        throws InterruptedException, ApiException {
+		return execute(ApiOperation.FETCH_INBOUND,
+		        conn.get(conn.inboundEndpoint(id)),
+		        conn.jsonReader(MoSms.class));
+	}
+
+}
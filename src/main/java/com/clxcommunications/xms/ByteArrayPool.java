@@ -0,0 +1,149 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * A bounded, lock-free pool of byte arrays. Used to reuse response buffers
+ * between requests instead of allocating fresh buffers for each response.
+ * <p>
+ * The pool holds at most a fixed number of arrays and does not keep arrays
+ * larger than a fixed size. Arrays that do not fit in the pool are simply left
+ * to the garbage collector.
+ */
+@ParametersAreNonnullByDefault
+final class ByteArrayPool {
+
+	/**
+	 * The default size of freshly allocated arrays. We'll assume that most
+	 * responses fit within 1KiB.
+	 */
+	static final int DEFAULT_ARRAY_SIZE = 1024;
+
+	/**
+	 * The default maximum number of pooled arrays.
+	 */
+	static final int DEFAULT_MAX_ARRAYS = 64;
+
+	/**
+	 * The default size of the largest array that will be pooled.
+	 */
+	static final int DEFAULT_MAX_ARRAY_SIZE = 256 * 1024;
+
+	/**
+	 * A pool that never keeps any arrays, it simply allocates a fresh array of
+	 * the hinted size for each borrow. Used when no pool is given.
+	 */
+	static final ByteArrayPool NONE = new ByteArrayPool(0,
+	        DEFAULT_MAX_ARRAY_SIZE);
+
+	private final int maxArrays;
+	private final int maxArraySize;
+	private final Queue<byte[]> arrays = new ConcurrentLinkedQueue<byte[]>();
+	private final AtomicInteger pooled = new AtomicInteger();
+
+	/**
+	 * Creates a new pool using the default limits.
+	 */
+	ByteArrayPool() {
+		this(DEFAULT_MAX_ARRAYS, DEFAULT_MAX_ARRAY_SIZE);
+	}
+
+	/**
+	 * Creates a new pool.
+	 * 
+	 * @param maxArrays
+	 *            the maximum number of arrays to keep, zero disables pooling
+	 * @param maxArraySize
+	 *            the size of the largest array to keep, also the largest size
+	 *            hint that is honored when borrowing
+	 */
+	ByteArrayPool(int maxArrays, int maxArraySize) {
+		this.maxArrays = maxArrays;
+		this.maxArraySize = maxArraySize;
+	}
+
+	/**
+	 * Borrows an array of at least the given size. The array content is
+	 * undefined.
+	 * 
+	 * @param minSize
+	 *            the minimum array size, a negative value or one above the
+	 *            maximum array size means that the default array size should
+	 *            be used
+	 * @return a non-null array
+	 */
+	@Nonnull
+	byte[] borrow(long minSize) {
+		int size = (minSize < 0 || minSize > maxArraySize)
+		        ? DEFAULT_ARRAY_SIZE : (int) minSize;
+
+		byte[] array = arrays.poll();
+
+		if (array == null) {
+			return new byte[Math.max(size, DEFAULT_ARRAY_SIZE)];
+		}
+
+		pooled.decrementAndGet();
+
+		// Keeping a too small array would only make later borrows miss again.
+		if (array.length < size) {
+			return new byte[size];
+		}
+
+		return array;
+	}
+
+	/**
+	 * Returns the given array to this pool. The array must not be used by the
+	 * caller after this method is called.
+	 * 
+	 * @param array
+	 *            the array to return
+	 */
+	void release(byte[] array) {
+		if (array.length > maxArraySize) {
+			return;
+		}
+
+		if (pooled.incrementAndGet() > maxArrays) {
+			pooled.decrementAndGet();
+			return;
+		}
+
+		arrays.offer(array);
+	}
+
+	/**
+	 * The number of arrays currently held by this pool.
+	 * 
+	 * @return a non-negative number
+	 */
+	int size() {
+		return pooled.get();
+	}
+
+}
@@ -0,0 +1,105 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+
+/**
+ * A content decoder that hands out the content of a byte buffer. It lets
+ * content that is already in memory, such as inflated or HTTP/2 data, be fed
+ * to a response consumer as if it was read from a connection.
+ */
+final class ByteBufferDecoder implements ContentDecoder {
+
+	private ByteBuffer src = ByteBuffer.allocate(0);
+
+	private boolean completed;
+
+	@Override
+	public int read(ByteBuffer dst) throws IOException {
+		if (!src.hasRemaining()) {
+			return completed ? -1 : 0;
+		}
+
+		int n = Math.min(dst.remaining(), src.remaining());
+		ByteBuffer chunk = src.duplicate();
+		chunk.limit(chunk.position() + n);
+		dst.put(chunk);
+		src.position(src.position() + n);
+
+		return n;
+	}
+
+	@Override
+	public boolean isCompleted() {
+		return completed;
+	}
+
+	/**
+	 * Feeds the remaining content of the given buffer to the given consumer.
+	 * Content that the consumer does not read is discarded.
+	 * 
+	 * @param buf
+	 *            the content to feed
+	 * @param consumer
+	 *            the consumer of the content
+	 * @param ioctrl
+	 *            the I/O control to pass on to the consumer
+	 * @throws IOException
+	 *             if the consumer failed
+	 */
+	void feed(ByteBuffer buf, HttpAsyncResponseConsumer<?> consumer,
+	        IOControl ioctrl) throws IOException {
+		src = buf;
+
+		while (buf.hasRemaining()) {
+			int position = buf.position();
+
+			consumer.consumeContent(this, ioctrl);
+
+			// Discard whatever the consumer did not want.
+			if (buf.position() == position) {
+				buf.position(buf.limit());
+			}
+		}
+	}
+
+	/**
+	 * Marks the content as completed and tells the given consumer about it.
+	 * 
+	 * @param consumer
+	 *            the consumer of the content
+	 * @param ioctrl
+	 *            the I/O control to pass on to the consumer
+	 * @throws IOException
+	 *             if the consumer failed
+	 */
+	void complete(HttpAsyncResponseConsumer<?> consumer, IOControl ioctrl)
+	        throws IOException {
+		completed = true;
+		consumer.consumeContent(this, ioctrl);
+	}
+
+}
@@ -19,31 +19,178 @@
  */
 package com.clxcommunications.xms;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.annotation.Nonnull;
 import javax.annotation.ParametersAreNonnullByDefault;
 
+import com.fasterxml.jackson.databind.ObjectReader;
+
 /**
  * An output stream that reads and buffers bytes. It is capable of later
  * creating an input stream for the read bytes without copying the bytes again.
  * <p>
- * Internally this relies on {@link ByteArrayOutputStream} and
- * {@link ByteArrayInputStream}, which unfortunately are riddled with
- * <code>synchronized</code> keywords possibly making performance suffer.
+ * The bytes are kept in a chain of segments. When a segment is full a new
+ * segment is added, the already written bytes are never moved. Segments are
+ * borrowed from a {@link ByteArrayPool} and should be returned to it using
+ * {@link #release()} once the bytes are no longer needed.
+ * <p>
+ * Unlike {@link java.io.ByteArrayOutputStream} this class is not thread safe.
  */
 @ParametersAreNonnullByDefault
-final class ByteInOutStream extends ByteArrayOutputStream {
+final class ByteInOutStream extends OutputStream {
+
+	/**
+	 * The largest segment size that will be requested when growing.
+	 */
+	private static final int MAX_SEGMENT_SIZE = 64 * 1024;
+
+	/**
+	 * An input stream over the segments of a {@link ByteInOutStream}.
+	 */
+	private static final class SegmentInputStream extends InputStream {
+
+		private final List<byte[]> segments;
+		private final int lastCount;
+		private int segment = 0;
+		private int pos = 0;
+
+		SegmentInputStream(List<byte[]> segments, int lastCount) {
+			this.segments = segments;
+			this.lastCount = lastCount;
+		}
+
+		/**
+		 * The number of readable bytes in the current segment.
+		 */
+		private int limit() {
+			return (segment == segments.size() - 1)
+			        ? lastCount : segments.get(segment).length;
+		}
+
+		/**
+		 * Moves to the next segment if the current one is exhausted.
+		 * 
+		 * @return whether there are more bytes to read
+		 */
+		private boolean advance() {
+			while (segment < segments.size() && pos >= limit()) {
+				segment++;
+				pos = 0;
+			}
+
+			return segment < segments.size();
+		}
+
+		@Override
+		public int read() {
+			if (!advance()) {
+				return -1;
+			}
+
+			return segments.get(segment)[pos++] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+
+			if (!advance()) {
+				return -1;
+			}
+
+			int read = 0;
+
+			while (read < len && advance()) {
+				int n = Math.min(len - read, limit() - pos);
+				System.arraycopy(segments.get(segment), pos, b, off + read, n);
+				pos += n;
+				read += n;
+			}
+
+			return read;
+		}
+
+		@Override
+		public int available() {
+			if (!advance()) {
+				return 0;
+			}
+
+			return limit() - pos;
+		}
+
+	}
+
+	private final ByteArrayPool pool;
+	private final List<byte[]> segments = new ArrayList<byte[]>(4);
+	private byte[] current;
+	private int currentCount = 0;
+	private int size = 0;
 
+	/**
+	 * Creates a stream with an initial segment of the given size. The segments
+	 * of this stream are not pooled.
+	 * 
+	 * @param initialSize
+	 *            the size of the first segment
+	 */
 	public ByteInOutStream(int initialSize) {
-		super(initialSize);
+		this.pool = ByteArrayPool.NONE;
+		this.current = new byte[initialSize];
+		this.segments.add(current);
 	}
 
 	/**
-	 * Writes the given byte buffer to this stream.
+	 * Creates a stream whose segments are borrowed from the given pool.
+	 * 
+	 * @param pool
+	 *            the pool of segments
+	 * @param expectedSize
+	 *            the expected number of bytes, if known, otherwise negative
+	 */
+	public ByteInOutStream(ByteArrayPool pool, long expectedSize) {
+		this.pool = pool;
+		this.current = pool.borrow(expectedSize);
+		this.segments.add(current);
+	}
+
+	@Override
+	public void write(int b) {
+		if (currentCount == current.length) {
+			addSegment();
+		}
+
+		current[currentCount++] = (byte) b;
+		size++;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		while (len > 0) {
+			if (currentCount == current.length) {
+				addSegment();
+			}
+
+			int n = Math.min(len, current.length - currentCount);
+			System.arraycopy(b, off, current, currentCount, n);
+			currentCount += n;
+			size += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Writes the given byte buffer to this stream. The position of the given
+	 * buffer is not modified.
 	 * 
 	 * @param buf
 	 *            the byte buffer to write
@@ -52,19 +199,66 @@ final class ByteInOutStream extends ByteArrayOutputStream {
 		/*
 		 * The HTTP client library currently always uses a backing array but in
 		 * case this changes in the future we also support byte buffers without
-		 * backing array.
+		 * backing array. These are transferred in bulk using a duplicate to
+		 * leave the position of the given buffer untouched.
 		 */
 		if (buf.hasArray()) {
 			write(buf.array(),
 			        buf.arrayOffset() + buf.position(),
 			        buf.remaining());
 		} else {
-			for (int i = buf.position(); i < buf.limit(); i++) {
-				write(buf.get(i));
+			ByteBuffer src = buf.duplicate();
+
+			while (src.hasRemaining()) {
+				if (currentCount == current.length) {
+					addSegment();
+				}
+
+				int n = Math.min(src.remaining(),
+				        current.length - currentCount);
+				src.get(current, currentCount, n);
+				currentCount += n;
+				size += n;
 			}
 		}
 	}
 
+	private void addSegment() {
+		current = pool.borrow(
+		        Math.min(Math.max(size, current.length), MAX_SEGMENT_SIZE));
+		currentCount = 0;
+		segments.add(current);
+	}
+
+	/**
+	 * The number of bytes written to this stream.
+	 * 
+	 * @return a non-negative number
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns a copy of the written bytes.
+	 * 
+	 * @return a newly allocated array
+	 */
+	@Nonnull
+	public byte[] toByteArray() {
+		byte[] result = new byte[size];
+		int pos = 0;
+
+		for (int i = 0; i < segments.size(); i++) {
+			byte[] segment = segments.get(i);
+			int n = (i == segments.size() - 1) ? currentCount : segment.length;
+			System.arraycopy(segment, 0, result, pos, n);
+			pos += n;
+		}
+
+		return result;
+	}
+
 	/**
 	 * Creates an input stream from which the written data can be read. Note,
 	 * the returned input stream shares its data buffer with this class. It is
@@ -75,7 +269,41 @@ final class ByteInOutStream extends ByteArrayOutputStream {
 	 */
 	@Nonnull
 	public InputStream toInputStream() {
-		return new ByteArrayInputStream(buf, 0, count);
+		return new SegmentInputStream(segments, currentCount);
+	}
+
+	/**
+	 * Deserializes the written bytes as JSON. If the bytes are held in a single
+	 * segment then they are handed to Jackson directly, otherwise Jackson
+	 * reads them through {@link #toInputStream()}.
+	 * 
+	 * @param reader
+	 *            the reader of the deserialized type
+	 * @param <T>
+	 *            the deserialized type
+	 * @return the deserialized object
+	 * @throws IOException
+	 *             if the bytes could not be deserialized
+	 */
+	public <T> T readJson(ObjectReader reader) throws IOException {
+		if (segments.size() == 1) {
+			return reader.readValue(current, 0, currentCount);
+		} else {
+			return reader.readValue(toInputStream());
+		}
+	}
+
+	/**
+	 * Returns the segments of this stream to the pool. This stream must not be
+	 * used after this method is called.
+	 */
+	public void release() {
+		for (byte[] segment : segments) {
+			pool.release(segment);
+		}
+
+		segments.clear();
+		current = null;
 	}
 
 }
@@ -28,7 +28,8 @@ import org.apache.http.concurrent.FutureCallback;
  * that additional logic can be introduced to the callback.
  * <p>
  * This class also contains the predefined wrappers {@link #exceptionDropper}
- * and {@link #identity}.
+ * and {@link #identity}. Callbacks can be moved to an executor using
+ * {@link ExecutorCallbackWrapper}.
  */
 public interface CallbackWrapper {
 
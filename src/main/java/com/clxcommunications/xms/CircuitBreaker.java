@@ -0,0 +1,581 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.threeten.bp.Duration;
+
+/**
+ * A circuit breaker that stops requests to an XMS endpoint that is failing.
+ * Each endpoint has a circuit of its own that is in one of the following
+ * states:
+ * <dl>
+ * <dt>{@link State#CLOSED}</dt>
+ * <dd>Requests are sent and their outcome recorded in a sliding window of the
+ * latest {@link #windowSize()} requests. When the window holds at least
+ * {@link #minimumCalls()} requests and the rate of failed or slow requests
+ * reaches its threshold, the circuit opens.</dd>
+ * <dt>{@link State#OPEN}</dt>
+ * <dd>Requests are sent to another endpoint of the {@link LoadBalancer}, if
+ * any has a circuit that admits them. Otherwise they fail immediately with a
+ * {@link CircuitBreakerOpenException}. After {@link #openDuration()} the
+ * circuit becomes half-open.</dd>
+ * <dt>{@link State#HALF_OPEN}</dt>
+ * <dd>Up to {@link #halfOpenCalls()} probe requests are sent. If all succeed
+ * then the circuit closes, if any fails then it opens again.</dd>
+ * </dl>
+ * A request is failed if it ends in an I/O error or a response with status
+ * 429 or 5xx. A request is slow if its round-trip time exceeds
+ * {@link #slowCallDuration()}.
+ * <p>
+ * A single circuit breaker may be shared by several API connections, circuit
+ * breakers are therefore compared by identity rather than by their
+ * configuration. It is given to an API connection using
+ * {@link ApiConnection.Builder#circuitBreaker(CircuitBreaker)}.
+ */
+public final class CircuitBreaker {
+
+	/**
+	 * A builder of circuit breakers.
+	 */
+	public static final class Builder {
+
+		private double failureRateThreshold = 0.5;
+		private double slowCallRateThreshold = 1.0;
+		private Duration slowCallDuration = Duration.ofSeconds(10);
+		private int windowSize = 20;
+		private int minimumCalls = 10;
+		private Duration openDuration = Duration.ofSeconds(30);
+		private int halfOpenCalls = 3;
+		private CircuitBreakerListener listener;
+
+		Builder() {
+		}
+
+		/**
+		 * Sets the rate of failed requests at which the circuit opens.
+		 * 
+		 * @param failureRateThreshold
+		 *            a rate in (0, 1]
+		 * @return this builder
+		 * @see CircuitBreaker#failureRateThreshold()
+		 */
+		@Nonnull
+		public Builder failureRateThreshold(double failureRateThreshold) {
+			this.failureRateThreshold = failureRateThreshold;
+			return this;
+		}
+
+		/**
+		 * Sets the rate of slow requests at which the circuit opens.
+		 * 
+		 * @param slowCallRateThreshold
+		 *            a rate in (0, 1]
+		 * @return this builder
+		 * @see CircuitBreaker#slowCallRateThreshold()
+		 */
+		@Nonnull
+		public Builder slowCallRateThreshold(double slowCallRateThreshold) {
+			this.slowCallRateThreshold = slowCallRateThreshold;
+			return this;
+		}
+
+		/**
+		 * Sets the round-trip time above which a request is slow.
+		 * 
+		 * @param slowCallDuration
+		 *            a non-null positive duration
+		 * @return this builder
+		 * @see CircuitBreaker#slowCallDuration()
+		 */
+		@Nonnull
+		public Builder slowCallDuration(Duration slowCallDuration) {
+			this.slowCallDuration =
+			        Utils.requireNonNull(slowCallDuration, "slowCallDuration");
+			return this;
+		}
+
+		/**
+		 * Sets the number of latest requests whose outcome is considered in the
+		 * closed state.
+		 * 
+		 * @param windowSize
+		 *            a positive number of requests
+		 * @return this builder
+		 * @see CircuitBreaker#windowSize()
+		 */
+		@Nonnull
+		public Builder windowSize(int windowSize) {
+			this.windowSize = windowSize;
+			return this;
+		}
+
+		/**
+		 * Sets the number of requests that must be in the window before the
+		 * circuit may open.
+		 * 
+		 * @param minimumCalls
+		 *            a positive number of requests, at most the window size
+		 * @return this builder
+		 * @see CircuitBreaker#minimumCalls()
+		 */
+		@Nonnull
+		public Builder minimumCalls(int minimumCalls) {
+			this.minimumCalls = minimumCalls;
+			return this;
+		}
+
+		/**
+		 * Sets the time the circuit stays open before probe requests are let
+		 * through.
+		 * 
+		 * @param openDuration
+		 *            a non-null non-negative duration
+		 * @return this builder
+		 * @see CircuitBreaker#openDuration()
+		 */
+		@Nonnull
+		public Builder openDuration(Duration openDuration) {
+			this.openDuration =
+			        Utils.requireNonNull(openDuration, "openDuration");
+			return this;
+		}
+
+		/**
+		 * Sets the number of probe requests sent in the half-open state.
+		 * 
+		 * @param halfOpenCalls
+		 *            a positive number of requests
+		 * @return this builder
+		 * @see CircuitBreaker#halfOpenCalls()
+		 */
+		@Nonnull
+		public Builder halfOpenCalls(int halfOpenCalls) {
+			this.halfOpenCalls = halfOpenCalls;
+			return this;
+		}
+
+		/**
+		 * Sets the listener to notify about state changes.
+		 * 
+		 * @param listener
+		 *            a listener or <code>null</code>
+		 * @return this builder
+		 * @see CircuitBreaker#listener()
+		 */
+		@Nonnull
+		public Builder listener(@Nullable CircuitBreakerListener listener) {
+			this.listener = listener;
+			return this;
+		}
+
+		/**
+		 * Builds a circuit breaker with all circuits closed.
+		 * 
+		 * @return a new circuit breaker
+		 * @throws IllegalStateException
+		 *             if an attribute is invalid
+		 */
+		@Nonnull
+		public CircuitBreaker build() {
+			return new CircuitBreaker(this);
+		}
+
+	}
+
+	/**
+	 * The states of a circuit.
+	 */
+	public enum State {
+
+		/**
+		 * Requests are sent normally.
+		 */
+		CLOSED,
+
+		/**
+		 * Requests are rejected.
+		 */
+		OPEN,
+
+		/**
+		 * A limited number of probe requests are sent.
+		 */
+		HALF_OPEN
+
+	}
+
+	/**
+	 * The circuit of a single endpoint.
+	 */
+	private final class Circuit {
+
+		private final URI endpoint;
+
+		/**
+		 * The outcomes in the sliding window, as a bit set of
+		 * {@link CircuitBreaker#FAILED} and {@link CircuitBreaker#SLOW}.
+		 */
+		private final byte[] window = new byte[windowSize()];
+
+		private State state = State.CLOSED;
+		private int calls = 0;
+		private int next = 0;
+		private int failures = 0;
+		private int slows = 0;
+		private long openedNanos;
+		private int probes = 0;
+		private int probeSuccesses = 0;
+
+		Circuit(URI endpoint) {
+			this.endpoint = endpoint;
+		}
+
+		synchronized State state() {
+			long openFor = System.nanoTime() - openedNanos;
+
+			if (state == State.OPEN
+			        && openFor >= Utils.toNanos(openDuration())) {
+				transition(State.HALF_OPEN);
+			}
+
+			return state;
+		}
+
+		synchronized boolean tryAcquire() {
+			switch (state()) {
+			case CLOSED:
+				return true;
+			case HALF_OPEN:
+				if (probes < halfOpenCalls()) {
+					probes++;
+					return true;
+				}
+				return false;
+			default:
+				return false;
+			}
+		}
+
+		synchronized void record(boolean failed, boolean slow) {
+			switch (state) {
+			case CLOSED:
+				recordClosed(failed, slow);
+				break;
+			case HALF_OPEN:
+				if (failed || slow) {
+					transition(State.OPEN);
+				} else if (++probeSuccesses >= halfOpenCalls()) {
+					transition(State.CLOSED);
+				}
+				break;
+			default:
+				// Request sent before the circuit opened, ignore.
+				break;
+			}
+		}
+
+		synchronized void ignore() {
+			if (state == State.HALF_OPEN && probes > probeSuccesses) {
+				probes--;
+			}
+		}
+
+		private void recordClosed(boolean failed, boolean slow) {
+			if (calls == window.length) {
+				byte old = window[next];
+				failures -= old & FAILED;
+				slows -= (old & SLOW) >> 1;
+			} else {
+				calls++;
+			}
+
+			window[next] = (byte) ((failed ? FAILED : 0) | (slow ? SLOW : 0));
+			next = (next + 1) % window.length;
+			failures += failed ? 1 : 0;
+			slows += slow ? 1 : 0;
+
+			if (calls >= minimumCalls()
+			        && (failures >= failureRateThreshold() * calls
+			                || slows >= slowCallRateThreshold() * calls)) {
+				transition(State.OPEN);
+			}
+		}
+
+		private void transition(State to) {
+			State from = state;
+
+			state = to;
+			calls = 0;
+			next = 0;
+			failures = 0;
+			slows = 0;
+			probes = 0;
+			probeSuccesses = 0;
+
+			if (to == State.OPEN) {
+				openedNanos = System.nanoTime();
+			}
+
+			if (listener() != null) {
+				listener().stateChanged(endpoint, from, to);
+			}
+		}
+
+	}
+
+	private static final int FAILED = 1;
+	private static final int SLOW = 2;
+
+	private final ConcurrentMap<URI, Circuit> circuits =
+	        new ConcurrentHashMap<URI, Circuit>();
+
+	private final double failureRateThreshold;
+	private final double slowCallRateThreshold;
+	private final Duration slowCallDuration;
+	private final int windowSize;
+	private final int minimumCalls;
+	private final Duration openDuration;
+	private final int halfOpenCalls;
+	private final CircuitBreakerListener listener;
+
+	/**
+	 * Creates a builder of {@link CircuitBreaker} instances.
+	 * 
+	 * @return a builder
+	 */
+	@Nonnull
+	public static final CircuitBreaker.Builder builder() {
+		return new Builder();
+	}
+
+	private CircuitBreaker(Builder builder) {
+		this.failureRateThreshold = builder.failureRateThreshold;
+		this.slowCallRateThreshold = builder.slowCallRateThreshold;
+		this.slowCallDuration = builder.slowCallDuration;
+		this.windowSize = builder.windowSize;
+		this.minimumCalls = builder.minimumCalls;
+		this.openDuration = builder.openDuration;
+		this.halfOpenCalls = builder.halfOpenCalls;
+		this.listener = builder.listener;
+
+		if (!(failureRateThreshold() > 0 && failureRateThreshold() <= 1)) {
+			throw new IllegalStateException(
+			        "failureRateThreshold outside (0, 1]");
+		}
+
+		if (!(slowCallRateThreshold() > 0 && slowCallRateThreshold() <= 1)) {
+			throw new IllegalStateException(
+			        "slowCallRateThreshold outside (0, 1]");
+		}
+
+		if (slowCallDuration().isNegative() || slowCallDuration().isZero()) {
+			throw new IllegalStateException("non-positive slowCallDuration");
+		}
+
+		if (windowSize() < 1) {
+			throw new IllegalStateException("non-positive windowSize");
+		}
+
+		if (minimumCalls() < 1 || minimumCalls() > windowSize()) {
+			throw new IllegalStateException(
+			        "minimumCalls outside [1, windowSize]");
+		}
+
+		if (openDuration().isNegative()) {
+			throw new IllegalStateException("negative openDuration");
+		}
+
+		if (halfOpenCalls() < 1) {
+			throw new IllegalStateException("non-positive halfOpenCalls");
+		}
+	}
+
+	/**
+	 * The rate of failed requests at which the circuit opens. Default is 0.5.
+	 * 
+	 * @return a rate in (0, 1]
+	 */
+	public double failureRateThreshold() {
+		return failureRateThreshold;
+	}
+
+	/**
+	 * The rate of slow requests at which the circuit opens. Default is 1.0,
+	 * that is, the circuit opens if all requests in the window are slow.
+	 * 
+	 * @return a rate in (0, 1]
+	 */
+	public double slowCallRateThreshold() {
+		return slowCallRateThreshold;
+	}
+
+	/**
+	 * The round-trip time above which a request is slow. Default is 10
+	 * seconds.
+	 * 
+	 * @return a non-null positive duration
+	 */
+	public Duration slowCallDuration() {
+		return slowCallDuration;
+	}
+
+	/**
+	 * The number of latest requests whose outcome is considered in the closed
+	 * state. Default is 20.
+	 * 
+	 * @return a positive number of requests
+	 */
+	public int windowSize() {
+		return windowSize;
+	}
+
+	/**
+	 * The number of requests that must be in the window before the circuit
+	 * may open. Default is 10.
+	 * 
+	 * @return a positive number of requests, at most {@link #windowSize()}
+	 */
+	public int minimumCalls() {
+		return minimumCalls;
+	}
+
+	/**
+	 * The time the circuit stays open before probe requests are let through.
+	 * Default is 30 seconds.
+	 * 
+	 * @return a non-null non-negative duration
+	 */
+	public Duration openDuration() {
+		return openDuration;
+	}
+
+	/**
+	 * The number of probe requests sent in the half-open state. Default is 3.
+	 * 
+	 * @return a positive number of requests
+	 */
+	public int halfOpenCalls() {
+		return halfOpenCalls;
+	}
+
+	/**
+	 * A listener to notify about state changes.
+	 * 
+	 * @return a listener or <code>null</code>
+	 */
+	@Nullable
+	public CircuitBreakerListener listener() {
+		return listener;
+	}
+
+	/**
+	 * The current state of the circuit of the given endpoint.
+	 * 
+	 * @param endpoint
+	 *            the endpoint to examine
+	 * @return a non-null state
+	 */
+	@Nonnull
+	public State state(URI endpoint) {
+		return circuit(endpoint).state();
+	}
+
+	/**
+	 * Attempts to acquire a permit to send a request to the given endpoint. An
+	 * acquired permit must be released using exactly one of
+	 * {@link #success(URI, long)}, {@link #failure(URI, Exception, long)}, or
+	 * {@link #ignored(URI)}.
+	 * 
+	 * @param endpoint
+	 *            the endpoint of the request
+	 * @return <code>true</code> if the request may be sent, <code>false</code>
+	 *         if the circuit is open
+	 */
+	boolean tryAcquire(URI endpoint) {
+		return circuit(endpoint).tryAcquire();
+	}
+
+	/**
+	 * Records a request that succeeded after the given round-trip time.
+	 * 
+	 * @param endpoint
+	 *            the endpoint of the request
+	 * @param rttNanos
+	 *            the round-trip time in nanoseconds
+	 */
+	void success(URI endpoint, long rttNanos) {
+		circuit(endpoint).record(false, isSlow(rttNanos));
+	}
+
+	/**
+	 * Records a request that failed after the given round-trip time. Failures
+	 * that do not indicate a problem with the endpoint, such as a 404
+	 * response, are recorded as successes.
+	 * 
+	 * @param endpoint
+	 *            the endpoint of the request
+	 * @param failure
+	 *            the failure of the request
+	 * @param rttNanos
+	 *            the round-trip time in nanoseconds
+	 */
+	void failure(URI endpoint, Exception failure, long rttNanos) {
+		boolean failed = Utils.isEndpointFailure(failure);
+
+		circuit(endpoint).record(failed, isSlow(rttNanos));
+	}
+
+	/**
+	 * Releases a permit of a request that gave no information about the
+	 * endpoint, e.g., because it was cancelled.
+	 * 
+	 * @param endpoint
+	 *            the endpoint of the request
+	 */
+	void ignored(URI endpoint) {
+		circuit(endpoint).ignore();
+	}
+
+	private Circuit circuit(URI endpoint) {
+		Circuit circuit = circuits.get(endpoint);
+
+		if (circuit == null) {
+			Circuit fresh = new Circuit(endpoint);
+			circuit = circuits.putIfAbsent(endpoint, fresh);
+			if (circuit == null) {
+				circuit = fresh;
+			}
+		}
+
+		return circuit;
+	}
+
+	private boolean isSlow(long rttNanos) {
+		return rttNanos > Utils.toNanos(slowCallDuration());
+	}
+
+}
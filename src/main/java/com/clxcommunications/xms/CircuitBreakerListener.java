@@ -0,0 +1,46 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import java.net.URI;
+
+/**
+ * Receives notifications about the state changes of a {@link CircuitBreaker}.
+ * <p>
+ * Note, the methods of this interface are called while the circuit of the
+ * endpoint is locked, on the thread making the call or on the I/O threads of
+ * the HTTP client. They must therefore return quickly.
+ */
+public interface CircuitBreakerListener {
+
+	/**
+	 * Invoked when the circuit of an endpoint changes state.
+	 * 
+	 * @param endpoint
+	 *            the endpoint whose circuit changed
+	 * @param from
+	 *            the previous state
+	 * @param to
+	 *            the new state
+	 */
+	void stateChanged(URI endpoint, CircuitBreaker.State from,
+	        CircuitBreaker.State to);
+
+}
@@ -0,0 +1,55 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import java.net.URI;
+
+/**
+ * Exception indicating that a request was not sent since the
+ * {@link CircuitBreaker} of the endpoint is open.
+ */
+public class CircuitBreakerOpenException extends ApiException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final URI endpoint;
+
+	/**
+	 * Creates a new circuit breaker exception.
+	 * 
+	 * @param endpoint
+	 *            the endpoint whose circuit is open
+	 */
+	public CircuitBreakerOpenException(URI endpoint) {
+		super("circuit breaker open for " + endpoint);
+
+		this.endpoint = endpoint;
+	}
+
+	/**
+	 * The endpoint whose circuit is open.
+	 * 
+	 * @return a non-null endpoint
+	 */
+	public URI getEndpoint() {
+		return endpoint;
+	}
+
+}
@@ -0,0 +1,531 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nonnull;
+
+import org.apache.http.concurrent.FutureCallback;
+import org.codehaus.mojo.animal_sniffer.IgnoreJRERequirement;
+
+import com.clxcommunications.xms.api.BatchDeliveryReport;
+import com.clxcommunications.xms.api.BatchId;
+import com.clxcommunications.xms.api.GroupCreate;
+import com.clxcommunications.xms.api.GroupId;
+import com.clxcommunications.xms.api.GroupResult;
+import com.clxcommunications.xms.api.GroupUpdate;
+import com.clxcommunications.xms.api.MoSms;
+import com.clxcommunications.xms.api.MtBatchBinarySmsCreate;
+import com.clxcommunications.xms.api.MtBatchBinarySmsResult;
+import com.clxcommunications.xms.api.MtBatchBinarySmsUpdate;
+import com.clxcommunications.xms.api.MtBatchDryRunResult;
+import com.clxcommunications.xms.api.MtBatchSmsCreate;
+import com.clxcommunications.xms.api.MtBatchSmsResult;
+import com.clxcommunications.xms.api.MtBatchTextSmsCreate;
+import com.clxcommunications.xms.api.MtBatchTextSmsResult;
+import com.clxcommunications.xms.api.MtBatchTextSmsUpdate;
+import com.clxcommunications.xms.api.Page;
+import com.clxcommunications.xms.api.RecipientDeliveryReport;
+import com.clxcommunications.xms.api.Tags;
+import com.clxcommunications.xms.api.TagsUpdate;
+
+/**
+ * A view of an API connection whose asynchronous operations return
+ * {@link CompletableFuture} instances. The futures are completed directly from
+ * the HTTP client callbacks so composing calls, e.g., creating a batch and
+ * then fetching its delivery report, does not occupy any additional thread.
+ * <p>
+ * Cancelling a returned future cancels the underlying call.
+ * <p>
+ * Note, this class requires Java 8 or later while the rest of the library
+ * only requires Java 6.
+ */
+@IgnoreJRERequirement
+public final class CompletableApiConnection {
+
+	/**
+	 * A completable future that is completed by the callback of an API call.
+	 */
+	@IgnoreJRERequirement
+	private static final class ApiCompletableFuture<T>
+	        extends CompletableFuture<T> implements FutureCallback<T> {
+
+		private volatile Future<T> call;
+
+		/**
+		 * Starts watching the given call such that cancelling this future
+		 * cancels the call.
+		 * 
+		 * @param call
+		 *            the call completing this future
+		 * @return this future
+		 */
+		ApiCompletableFuture<T> watch(Future<T> call) {
+			this.call = call;
+
+			// This future may have been cancelled before the call was known.
+			if (isCancelled()) {
+				call.cancel(true);
+			}
+
+			return this;
+		}
+
+		@Override
+		public void completed(T result) {
+			complete(result);
+		}
+
+		@Override
+		public void failed(Exception ex) {
+			completeExceptionally(ex);
+		}
+
+		@Override
+		public void cancelled() {
+			super.cancel(true);
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+
+			Future<T> c = call;
+			if (cancelled && c != null) {
+				c.cancel(mayInterruptIfRunning);
+			}
+
+			return cancelled;
+		}
+
+	}
+
+	private final ApiConnection conn;
+
+	private CompletableApiConnection(ApiConnection conn) {
+		this.conn = conn;
+	}
+
+	/**
+	 * Creates a completable view of the given API connection. The connection
+	 * must be started before any call is made through the view.
+	 * 
+	 * @param conn
+	 *            the API connection performing the calls
+	 * @return a non-null completable API connection
+	 */
+	@Nonnull
+	public static CompletableApiConnection of(ApiConnection conn) {
+		return new CompletableApiConnection(
+		        Utils.requireNonNull(conn, "conn"));
+	}
+
+	/**
+	 * The API connection performing the calls.
+	 * 
+	 * @return a non-null API connection
+	 */
+	@Nonnull
+	public ApiConnection connection() {
+		return conn;
+	}
+
+	private static <T> ApiCompletableFuture<T> future() {
+		return new ApiCompletableFuture<T>();
+	}
+
+	/**
+	 * Creates the given text batch.
+	 * 
+	 * @param sms
+	 *            the batch
+	 * @return a future completed with the result
+	 */
+	public CompletableFuture<MtBatchTextSmsResult> createBatch(
+	        MtBatchTextSmsCreate sms) {
+		ApiCompletableFuture<MtBatchTextSmsResult> f = future();
+		return f.watch(conn.createBatchAsync(sms, f));
+	}
+
+	/**
+	 * Creates the given binary batch.
+	 * 
+	 * @param sms
+	 *            the batch
+	 * @return a future completed with the result
+	 */
+	public CompletableFuture<MtBatchBinarySmsResult> createBatch(
+	        MtBatchBinarySmsCreate sms) {
+		ApiCompletableFuture<MtBatchBinarySmsResult> f = future();
+		return f.watch(conn.createBatchAsync(sms, f));
+	}
+
+	/**
+	 * Replaces the batch with the given identifier.
+	 * 
+	 * @param id
+	 *            the identifier
+	 * @param sms
+	 *            the batch
+	 * @return a future completed with the result
+	 */
+	public CompletableFuture<MtBatchTextSmsResult> replaceBatch(BatchId id,
+	        MtBatchTextSmsCreate sms) {
+		ApiCompletableFuture<MtBatchTextSmsResult> f = future();
+		return f.watch(conn.replaceBatchAsync(id, sms, f));
+	}
+
+	/**
+	 * Replaces the batch with the given identifier.
+	 * 
+	 * @param id
+	 *            the identifier
+	 * @param sms
+	 *            the batch
+	 * @return a future completed with the result
+	 */
+	public CompletableFuture<MtBatchBinarySmsResult> replaceBatch(BatchId id,
+	        MtBatchBinarySmsCreate sms) {
+		ApiCompletableFuture<MtBatchBinarySmsResult> f = future();
+		return f.watch(conn.replaceBatchAsync(id, sms, f));
+	}
+
+	/**
+	 * Updates the batch with the given identifier.
+	 * 
+	 * @param id
+	 *            the identifier
+	 * @param sms
+	 *            the batch
+	 * @return a future completed with the result
+	 */
+	public CompletableFuture<MtBatchTextSmsResult> updateBatch(BatchId id,
+	        MtBatchTextSmsUpdate sms) {
+		ApiCompletableFuture<MtBatchTextSmsResult> f = future();
+		return f.watch(conn.updateBatchAsync(id, sms, f));
+	}
+
+	/**
+	 * Updates the batch with the given identifier.
+	 * 
+	 * @param id
+	 *            the identifier
+	 * @param sms
+	 *            the batch
+	 * @return a future completed with the result
+	 */
+	public CompletableFuture<MtBatchBinarySmsResult> updateBatch(BatchId id,
+	        MtBatchBinarySmsUpdate sms) {
+		ApiCompletableFuture<MtBatchBinarySmsResult> f = future();
+		return f.watch(conn.updateBatchAsync(id, sms, f));
+	}
+
+	/**
+	 * Fetches the batch with the given identifier.
+	 * 
+	 * @param id
+	 *            the identifier
+	 * @return a future completed with the result
+	 */
+	public CompletableFuture<MtBatchSmsResult> fetchBatch(BatchId id) {
+		ApiCompletableFuture<MtBatchSmsResult> f = future();
+		return f.watch(conn.fetchBatchAsync(id, f));
+	}
+
+	/**
+	 * Fetches a page of batches matching the given filter.
+	 * 
+	 * @param filter
+	 *            the filter
+	 * @param page
+	 *            the page to fetch, starting at 0
+	 * @return a future completed with the result
+	 */
+	public CompletableFuture<Page<MtBatchSmsResult>> fetchBatches(
+	        BatchFilter filter, int page) {
+		ApiCompletableFuture<Page<MtBatchSmsResult>> f = future();
+		return f.watch(conn.fetchBatches(filter).fetchAsync(page, f));
+	}
+
+	/**
+	 * Cancels the batch with the given identifier.
+	 * 
+	 * @param id
+	 *            the identifier
+	 * @return a future completed with the result
+	 */
+	public CompletableFuture<MtBatchSmsResult> cancelBatch(BatchId id) {
+		ApiCompletableFuture<MtBatchSmsResult> f = future();
+		return f.watch(conn.cancelBatchAsync(id, f));
+	}
+
+	/**
+	 * Performs a dry run of the given batch.
+	 * 
+	 * @param sms
+	 *            the batch
+	 * @param perRecipient
+	 *            whether to include per-recipient details, may be
+	 *            <code>null</code>
+	 * @param numRecipients
+	 *            the number of recipients to include, may be <code>null</code>
+	 * @return a future completed with the result
+	 */
+	public CompletableFuture<MtBatchDryRunResult> createBatchDryRun(
+	        MtBatchSmsCreate sms, Boolean perRecipient, Integer numRecipients) {
+		ApiCompletableFuture<MtBatchDryRunResult> f = future();
+		return f.watch(conn.createBatchDryRunAsync(sms, perRecipient,
+		        numRecipients, f));
+	}
+
+	/**
+	 * Fetches the delivery report of the batch with the given identifier.
+	 * 
+	 * @param id
+	 *            the identifier
+	 * @param filter
+	 *            the filter
+	 * @return a future completed with the result
+	 */
+	public CompletableFuture<BatchDeliveryReport> fetchDeliveryReport(
+	        BatchId id, BatchDeliveryReportParams filter) {
+		ApiCompletableFuture<BatchDeliveryReport> f = future();
+		return f.watch(conn.fetchDeliveryReportAsync(id, filter, f));
+	}
+
+	/**
+	 * Fetches the delivery report of a single recipient of a batch.
+	 * 
+	 * @param id
+	 *            the identifier
+	 * @param recipient
+	 *            the recipient
+	 * @return a future completed with the result
+	 */
+	public CompletableFuture<RecipientDeliveryReport> fetchDeliveryReport(
+	        BatchId id, String recipient) {
+		ApiCompletableFuture<RecipientDeliveryReport> f = future();
+		return f.watch(conn.fetchDeliveryReportAsync(id, recipient, f));
+	}
+
+	/**
+	 * Updates the tags of the batch with the given identifier.
+	 * 
+	 * @param id
+	 *            the identifier
+	 * @param tags
+	 *            the tags
+	 * @return a future completed with the result
+	 */
+	public CompletableFuture<Tags> updateTags(BatchId id, TagsUpdate tags) {
+		ApiCompletableFuture<Tags> f = future();
+		return f.watch(conn.updateTagsAsync(id, tags, f));
+	}
+
+	/**
+	 * Replaces the tags of the batch with the given identifier.
+	 * 
+	 * @param id
+	 *            the identifier
+	 * @param tags
+	 *            the tags
+	 * @return a future completed with the result
+	 */
+	public CompletableFuture<Tags> replaceTags(BatchId id, Tags tags) {
+		ApiCompletableFuture<Tags> f = future();
+		return f.watch(conn.replaceTagsAsync(id, tags, f));
+	}
+
+	/**
+	 * Fetches the tags of the batch with the given identifier.
+	 * 
+	 * @param id
+	 *            the identifier
+	 * @return a future completed with the result
+	 */
+	public CompletableFuture<Tags> fetchTags(BatchId id) {
+		ApiCompletableFuture<Tags> f = future();
+		return f.watch(conn.fetchTagsAsync(id, f));
+	}
+
+	/**
+	 * Creates the given group.
+	 * 
+	 * @param group
+	 *            the group
+	 * @return a future completed with the result
+	 */
+	public CompletableFuture<GroupResult> createGroup(GroupCreate group) {
+		ApiCompletableFuture<GroupResult> f = future();
+		return f.watch(conn.createGroupAsync(group, f));
+	}
+
+	/**
+	 * Fetches the group with the given identifier.
+	 * 
+	 * @param id
+	 *            the identifier
+	 * @return a future completed with the result
+	 */
+	public CompletableFuture<GroupResult> fetchGroup(GroupId id) {
+		ApiCompletableFuture<GroupResult> f = future();
+		return f.watch(conn.fetchGroupAsync(id, f));
+	}
+
+	/**
+	 * Fetches the members of the group with the given identifier.
+	 * 
+	 * @param id
+	 *            the identifier
+	 * @return a future completed with the result
+	 */
+	public CompletableFuture<Set<String>> fetchGroupMembers(GroupId id) {
+		ApiCompletableFuture<Set<String>> f = future();
+		return f.watch(conn.fetchGroupMembersAsync(id, f));
+	}
+
+	/**
+	 * Fetches a page of groups matching the given filter.
+	 * 
+	 * @param filter
+	 *            the filter
+	 * @param page
+	 *            the page to fetch, starting at 0
+	 * @return a future completed with the result
+	 */
+	public CompletableFuture<Page<GroupResult>> fetchGroups(GroupFilter filter,
+	        int page) {
+		ApiCompletableFuture<Page<GroupResult>> f = future();
+		return f.watch(conn.fetchGroups(filter).fetchAsync(page, f));
+	}
+
+	/**
+	 * Updates the group with the given identifier.
+	 * 
+	 * @param id
+	 *            the identifier
+	 * @param group
+	 *            the group
+	 * @return a future completed with the result
+	 */
+	public CompletableFuture<GroupResult> updateGroup(GroupId id,
+	        GroupUpdate group) {
+		ApiCompletableFuture<GroupResult> f = future();
+		return f.watch(conn.updateGroupAsync(id, group, f));
+	}
+
+	/**
+	 * Replaces the group with the given identifier.
+	 * 
+	 * @param id
+	 *            the identifier
+	 * @param group
+	 *            the group
+	 * @return a future completed with the result
+	 */
+	public CompletableFuture<GroupResult> replaceGroup(GroupId id,
+	        GroupCreate group) {
+		ApiCompletableFuture<GroupResult> f = future();
+		return f.watch(conn.replaceGroupAsync(id, group, f));
+	}
+
+	/**
+	 * Deletes the group with the given identifier.
+	 * 
+	 * @param id
+	 *            the identifier
+	 * @return a future completed with the result
+	 */
+	public CompletableFuture<Void> deleteGroup(GroupId id) {
+		ApiCompletableFuture<Void> f = future();
+		return f.watch(conn.deleteGroupAsync(id, f));
+	}
+
+	/**
+	 * Updates the tags of the group with the given identifier.
+	 * 
+	 * @param id
+	 *            the identifier
+	 * @param tags
+	 *            the tags
+	 * @return a future completed with the result
+	 */
+	public CompletableFuture<Tags> updateTags(GroupId id, TagsUpdate tags) {
+		ApiCompletableFuture<Tags> f = future();
+		return f.watch(conn.updateTagsAsync(id, tags, f));
+	}
+
+	/**
+	 * Replaces the tags of the group with the given identifier.
+	 * 
+	 * @param id
+	 *            the identifier
+	 * @param tags
+	 *            the tags
+	 * @return a future completed with the result
+	 */
+	public CompletableFuture<Tags> replaceTags(GroupId id, Tags tags) {
+		ApiCompletableFuture<Tags> f = future();
+		return f.watch(conn.replaceTagsAsync(id, tags, f));
+	}
+
+	/**
+	 * Fetches the tags of the group with the given identifier.
+	 * 
+	 * @param id
+	 *            the identifier
+	 * @return a future completed with the result
+	 */
+	public CompletableFuture<Tags> fetchTags(GroupId id) {
+		ApiCompletableFuture<Tags> f = future();
+		return f.watch(conn.fetchTagsAsync(id, f));
+	}
+
+	/**
+	 * Fetches a page of inbound messages matching the given filter.
+	 * 
+	 * @param filter
+	 *            the filter
+	 * @param page
+	 *            the page to fetch, starting at 0
+	 * @return a future completed with the result
+	 */
+	public CompletableFuture<Page<MoSms>> fetchInbounds(InboundsFilter filter,
+	        int page) {
+		ApiCompletableFuture<Page<MoSms>> f = future();
+		return f.watch(conn.fetchInbounds(filter).fetchAsync(page, f));
+	}
+
+	/**
+	 * Fetches the inbound message with the given identifier.
+	 * 
+	 * @param id
+	 *            the identifier
+	 * @return a future completed with the result
+	 */
+	public CompletableFuture<MoSms> fetchInbound(String id) {
+		ApiCompletableFuture<MoSms> f = future();
+		return f.watch(conn.fetchInboundAsync(id, f));
+	}
+
+}
@@ -0,0 +1,122 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import java.util.zip.Deflater;
+
+import javax.annotation.Nonnull;
+
+import org.immutables.value.Value;
+
+/**
+ * Describes how an API connection compresses request bodies and whether it
+ * asks XMS for compressed responses. Only the gzip content coding is used.
+ * <p>
+ * Compression trades CPU time for bandwidth, it pays off mainly for large
+ * batches, for example, those having many recipients or parameters, and for
+ * large pages of inbound messages. Small bodies are therefore sent as is.
+ */
+@Value.Immutable
+@ValueStylePackage
+public abstract class CompressionPolicy {
+
+	/**
+	 * A builder of compression policies.
+	 */
+	public static class Builder extends CompressionPolicyImpl.Builder {
+
+		Builder() {
+		}
+
+	}
+
+	/**
+	 * Creates a builder of {@link CompressionPolicy} instances.
+	 * 
+	 * @return a builder
+	 */
+	@Nonnull
+	public static final CompressionPolicy.Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * The smallest size in bytes of a JSON request body that is compressed.
+	 * Smaller bodies are sent uncompressed. Default is 16384 bytes.
+	 * 
+	 * @return a non-negative number of bytes
+	 */
+	@Value.Default
+	public int requestThreshold() {
+		return 16384;
+	}
+
+	/**
+	 * The compression level of request bodies, from 1 (fastest) to 9 (best
+	 * compression). Default is {@link Deflater#DEFAULT_COMPRESSION}, which
+	 * currently corresponds to level 6.
+	 * 
+	 * @return a compression level
+	 */
+	@Value.Default
+	public int compressionLevel() {
+		return Deflater.DEFAULT_COMPRESSION;
+	}
+
+	/**
+	 * Whether XMS should be asked to compress the responses. Compressed
+	 * responses are decompressed as they are received. Default is
+	 * <code>true</code>.
+	 * 
+	 * @return whether responses may be compressed
+	 */
+	@Value.Default
+	public boolean compressResponses() {
+		return true;
+	}
+
+	/**
+	 * Whether the given request body should be compressed.
+	 * 
+	 * @param length
+	 *            the uncompressed length of the body
+	 * @return whether the body should be compressed
+	 */
+	boolean compressRequest(int length) {
+		return length >= requestThreshold();
+	}
+
+	/**
+	 * Verifies that the object is in a reasonable state.
+	 */
+	@Value.Check
+	protected void check() {
+		if (requestThreshold() < 0) {
+			throw new IllegalStateException("negative requestThreshold");
+		}
+
+		if (compressionLevel() != Deflater.DEFAULT_COMPRESSION
+		        && (compressionLevel() < Deflater.BEST_SPEED
+		                || compressionLevel() > Deflater.BEST_COMPRESSION)) {
+			throw new IllegalStateException("invalid compressionLevel");
+		}
+	}
+
+}
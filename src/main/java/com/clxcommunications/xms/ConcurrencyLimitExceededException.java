@@ -0,0 +1,54 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+/**
+ * Exception indicating that a request was rejected by the client-side
+ * {@link ConcurrencyLimiter} before being sent to XMS since the limit of
+ * concurrent requests was reached.
+ */
+public class ConcurrencyLimitExceededException extends ApiException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final ApiOperation operation;
+
+	/**
+	 * Creates a new concurrency limit exception.
+	 * 
+	 * @param operation
+	 *            the operation that was rejected
+	 */
+	public ConcurrencyLimitExceededException(ApiOperation operation) {
+		super("concurrency limit exceeded for " + operation);
+
+		this.operation = operation;
+	}
+
+	/**
+	 * The operation that was rejected.
+	 * 
+	 * @return a non-null operation
+	 */
+	public ApiOperation getOperation() {
+		return operation;
+	}
+
+}
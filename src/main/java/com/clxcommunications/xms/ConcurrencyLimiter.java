@@ -0,0 +1,330 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import javax.annotation.Nonnull;
+
+import org.threeten.bp.Duration;
+
+/**
+ * An adaptive limit of the number of requests that are concurrently in flight
+ * to XMS. The limit is adjusted using additive increase and multiplicative
+ * decrease (AIMD) based on the observed round-trip time of each request:
+ * <ul>
+ * <li>a request that finishes within the {@link #latencyThreshold() latency
+ * threshold} grows the limit by roughly one for every limit worth of
+ * requests,</li>
+ * <li>a request that is slower than the latency threshold, fails with an I/O
+ * error, or is answered with status 429, 503, or 504 shrinks the limit by the
+ * {@link #backoffRatio() backoff ratio}.</li>
+ * </ul>
+ * A request made while the limit is reached is rejected immediately with a
+ * {@link ConcurrencyLimitExceededException} instead of waiting for a pooled
+ * connection.
+ * <p>
+ * A single concurrency limiter may be shared by several API connections in
+ * order to limit their combined traffic. For this reason concurrency limiters
+ * are compared by identity rather than by their configuration. It is given to
+ * an API connection using
+ * {@link ApiConnection.Builder#concurrencyLimiter(ConcurrencyLimiter)}.
+ */
+public final class ConcurrencyLimiter {
+
+	/**
+	 * A builder of concurrency limiters.
+	 */
+	public static final class Builder {
+
+		private int initialLimit = 20;
+		private int minLimit = 1;
+		private int maxLimit = 200;
+		private double backoffRatio = 0.9;
+		private Duration latencyThreshold = Duration.ofSeconds(2);
+
+		Builder() {
+		}
+
+		/**
+		 * Sets the limit used before any request has finished.
+		 * 
+		 * @param initialLimit
+		 *            a positive limit
+		 * @return this builder
+		 * @see ConcurrencyLimiter#initialLimit()
+		 */
+		@Nonnull
+		public Builder initialLimit(int initialLimit) {
+			this.initialLimit = initialLimit;
+			return this;
+		}
+
+		/**
+		 * Sets the lowest limit.
+		 * 
+		 * @param minLimit
+		 *            a positive limit
+		 * @return this builder
+		 * @see ConcurrencyLimiter#minLimit()
+		 */
+		@Nonnull
+		public Builder minLimit(int minLimit) {
+			this.minLimit = minLimit;
+			return this;
+		}
+
+		/**
+		 * Sets the highest limit.
+		 * 
+		 * @param maxLimit
+		 *            a positive limit
+		 * @return this builder
+		 * @see ConcurrencyLimiter#maxLimit()
+		 */
+		@Nonnull
+		public Builder maxLimit(int maxLimit) {
+			this.maxLimit = maxLimit;
+			return this;
+		}
+
+		/**
+		 * Sets the factor applied to the limit when a request indicates
+		 * overload.
+		 * 
+		 * @param backoffRatio
+		 *            a ratio strictly between 0 and 1
+		 * @return this builder
+		 * @see ConcurrencyLimiter#backoffRatio()
+		 */
+		@Nonnull
+		public Builder backoffRatio(double backoffRatio) {
+			this.backoffRatio = backoffRatio;
+			return this;
+		}
+
+		/**
+		 * Sets the round-trip time above which a request is taken as a sign
+		 * of overload.
+		 * 
+		 * @param latencyThreshold
+		 *            a positive duration
+		 * @return this builder
+		 * @see ConcurrencyLimiter#latencyThreshold()
+		 */
+		@Nonnull
+		public Builder latencyThreshold(Duration latencyThreshold) {
+			this.latencyThreshold =
+			        Utils.requireNonNull(latencyThreshold, "latencyThreshold");
+			return this;
+		}
+
+		/**
+		 * Builds a concurrency limiter with no requests in flight.
+		 * 
+		 * @return a new concurrency limiter
+		 * @throws IllegalStateException
+		 *             if an attribute is invalid
+		 */
+		@Nonnull
+		public ConcurrencyLimiter build() {
+			return new ConcurrencyLimiter(this);
+		}
+
+	}
+
+	private final int initialLimit;
+	private final int minLimit;
+	private final int maxLimit;
+	private final double backoffRatio;
+	private final Duration latencyThreshold;
+
+	private double limit;
+	private int inFlight = 0;
+	private long rejections = 0;
+
+	/**
+	 * Creates a builder of {@link ConcurrencyLimiter} instances.
+	 * 
+	 * @return a builder
+	 */
+	@Nonnull
+	public static final ConcurrencyLimiter.Builder builder() {
+		return new Builder();
+	}
+
+	private ConcurrencyLimiter(Builder builder) {
+		this.initialLimit = builder.initialLimit;
+		this.minLimit = builder.minLimit;
+		this.maxLimit = builder.maxLimit;
+		this.backoffRatio = builder.backoffRatio;
+		this.latencyThreshold = builder.latencyThreshold;
+		this.limit = initialLimit;
+
+		if (minLimit < 1) {
+			throw new IllegalStateException("non-positive minLimit");
+		}
+
+		if (maxLimit < minLimit) {
+			throw new IllegalStateException("maxLimit less than minLimit");
+		}
+
+		if (initialLimit < minLimit || initialLimit > maxLimit) {
+			throw new IllegalStateException(
+			        "initialLimit outside [minLimit, maxLimit]");
+		}
+
+		if (!(backoffRatio > 0 && backoffRatio < 1)) {
+			throw new IllegalStateException("backoffRatio outside (0, 1)");
+		}
+
+		if (latencyThreshold.isNegative() || latencyThreshold.isZero()) {
+			throw new IllegalStateException("non-positive latencyThreshold");
+		}
+	}
+
+	/**
+	 * The limit used before any request has finished. Default is 20.
+	 * 
+	 * @return a positive limit
+	 */
+	public int initialLimit() {
+		return initialLimit;
+	}
+
+	/**
+	 * The lowest limit. Default is 1.
+	 * 
+	 * @return a positive limit
+	 */
+	public int minLimit() {
+		return minLimit;
+	}
+
+	/**
+	 * The highest limit. Default is 200.
+	 * 
+	 * @return a positive limit
+	 */
+	public int maxLimit() {
+		return maxLimit;
+	}
+
+	/**
+	 * The factor applied to the limit when a request indicates overload.
+	 * Default is 0.9.
+	 * 
+	 * @return a ratio strictly between 0 and 1
+	 */
+	public double backoffRatio() {
+		return backoffRatio;
+	}
+
+	/**
+	 * The round-trip time above which a request is taken as a sign of
+	 * overload. Default is 2 seconds.
+	 * 
+	 * @return a non-null positive duration
+	 */
+	public Duration latencyThreshold() {
+		return latencyThreshold;
+	}
+
+	/**
+	 * The current limit of concurrent requests.
+	 * 
+	 * @return a positive limit
+	 */
+	public synchronized int limit() {
+		return (int) limit;
+	}
+
+	/**
+	 * The number of requests currently in flight.
+	 * 
+	 * @return a non-negative number of requests
+	 */
+	public synchronized int inFlight() {
+		return inFlight;
+	}
+
+	/**
+	 * The number of requests that have been rejected.
+	 * 
+	 * @return a non-negative number of requests
+	 */
+	public synchronized long rejectedCalls() {
+		return rejections;
+	}
+
+	/**
+	 * Attempts to acquire a permit to send a request. A successfully acquired
+	 * permit must be released using exactly one of
+	 * {@link #success(long)}, {@link #dropped()}, or {@link #ignored()}.
+	 * 
+	 * @return <code>true</code> if a permit was acquired, <code>false</code>
+	 *         if the limit is reached
+	 */
+	synchronized boolean tryAcquire() {
+		if (inFlight >= (int) limit) {
+			rejections++;
+			return false;
+		}
+
+		inFlight++;
+		return true;
+	}
+
+	/**
+	 * Releases a permit of a request that finished after the given round-trip
+	 * time.
+	 * 
+	 * @param rttNanos
+	 *            the round-trip time in nanoseconds
+	 */
+	synchronized void success(long rttNanos) {
+		if (rttNanos > Utils.toNanos(latencyThreshold)) {
+			dropped();
+			return;
+		}
+
+		// Only grow when the limit is actually being used.
+		if (inFlight * 2 >= limit) {
+			limit = Math.min(maxLimit, limit + 1 / limit);
+		}
+
+		inFlight--;
+	}
+
+	/**
+	 * Releases a permit of a request that indicated overload.
+	 */
+	synchronized void dropped() {
+		limit = Math.max(minLimit, limit * backoffRatio);
+		inFlight--;
+	}
+
+	/**
+	 * Releases a permit of a request that gave no information about the load,
+	 * e.g., because it was cancelled.
+	 */
+	synchronized void ignored() {
+		inFlight--;
+	}
+
+}
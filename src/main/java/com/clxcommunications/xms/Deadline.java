@@ -0,0 +1,150 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import org.threeten.bp.Duration;
+
+/**
+ * A point in time by which an operation must have finished. Deadlines are
+ * measured using {@link System#nanoTime()} and are therefore not affected by
+ * changes to the system clock.
+ * <p>
+ * A deadline is given to API calls using
+ * {@link ApiConnection#withDeadline(Deadline)}. Since a deadline is absolute it
+ * can be shared by several calls, for example, by all page fetches of a paged
+ * result, thus limiting the total time spent on the calls.
+ */
+public final class Deadline implements Comparable<Deadline> {
+
+	/**
+	 * The longest supported timeout, about 100 years. Longer timeouts are
+	 * truncated to this value to avoid overflow.
+	 */
+	private static final long MAX_TIMEOUT_NANOS =
+	        TimeUnit.DAYS.toNanos(365 * 100);
+
+	/**
+	 * The value of {@link System#nanoTime()} at which this deadline expires.
+	 */
+	private final long deadlineNanos;
+
+	private Deadline(long deadlineNanos) {
+		this.deadlineNanos = deadlineNanos;
+	}
+
+	/**
+	 * Creates a deadline that expires after the given amount of time.
+	 * 
+	 * @param timeout
+	 *            the time until the deadline expires
+	 * @param unit
+	 *            the unit of <code>timeout</code>
+	 * @return a non-null deadline
+	 */
+	@Nonnull
+	public static Deadline after(long timeout, TimeUnit unit) {
+		long nanos = Math.max(0,
+		        Math.min(unit.toNanos(timeout), MAX_TIMEOUT_NANOS));
+
+		return new Deadline(System.nanoTime() + nanos);
+	}
+
+	/**
+	 * Creates a deadline that expires after the given duration.
+	 * 
+	 * @param timeout
+	 *            the time until the deadline expires
+	 * @return a non-null deadline
+	 */
+	@Nonnull
+	public static Deadline after(Duration timeout) {
+		return after(Utils.toNanos(timeout), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Whether this deadline has expired.
+	 * 
+	 * @return <code>true</code> if expired, <code>false</code> otherwise
+	 */
+	public boolean isExpired() {
+		return remaining(TimeUnit.NANOSECONDS) <= 0;
+	}
+
+	/**
+	 * The time remaining until this deadline expires.
+	 * 
+	 * @param unit
+	 *            the unit of the returned value
+	 * @return the remaining time, zero if this deadline has expired
+	 */
+	public long remaining(TimeUnit unit) {
+		long nanos = deadlineNanos - System.nanoTime();
+
+		return unit.convert(Math.max(nanos, 0), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Returns the earliest of this deadline and the given deadline.
+	 * 
+	 * @param other
+	 *            the deadline to compare with
+	 * @return the earliest deadline
+	 */
+	@Nonnull
+	public Deadline earliest(Deadline other) {
+		return compareTo(other) <= 0 ? this : other;
+	}
+
+	@Override
+	public int compareTo(Deadline o) {
+		long diff = deadlineNanos - o.deadlineNanos;
+
+		return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+
+		if (!(obj instanceof Deadline)) {
+			return false;
+		}
+
+		return deadlineNanos == ((Deadline) obj).deadlineNanos;
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (deadlineNanos ^ (deadlineNanos >>> 32));
+	}
+
+	@Override
+	public String toString() {
+		return "Deadline{remaining=" + remaining(TimeUnit.MILLISECONDS)
+		        + "ms}";
+	}
+
+}
@@ -0,0 +1,133 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+
+import org.apache.http.concurrent.FutureCallback;
+
+/**
+ * A future callback that cancels a request once its deadline has passed. The
+ * timer is stopped as soon as the request finishes.
+ * 
+ * @param <T>
+ *            the request result type
+ */
+@ParametersAreNonnullByDefault
+final class DeadlineEnforcer<T> implements FutureCallback<T> {
+
+	private final FutureCallback<T> callback;
+
+	/**
+	 * The timer of the deadline, <code>null</code> until
+	 * {@link #watch(Future, Deadline)} is called.
+	 */
+	@Nullable
+	private volatile ScheduledFuture<?> timer;
+
+	/**
+	 * Whether the request has finished.
+	 */
+	private volatile boolean done;
+
+	/**
+	 * Creates a new enforcer that delegates to the given callback.
+	 * 
+	 * @param callback
+	 *            the callback to delegate to, may be <code>null</code>
+	 */
+	DeadlineEnforcer(@Nullable FutureCallback<T> callback) {
+		this.callback = callback;
+	}
+
+	/**
+	 * Starts watching the given request future, which is cancelled if it has
+	 * not finished by the given deadline.
+	 * 
+	 * @param future
+	 *            the request future
+	 * @param deadline
+	 *            the request deadline
+	 * @return the given future
+	 */
+	@Nonnull
+	Future<T> watch(final Future<T> future, Deadline deadline) {
+		timer = DelayScheduler.schedule(new Runnable() {
+
+			@Override
+			public void run() {
+				future.cancel(true);
+			}
+
+		}, deadline.remaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+
+		// The request may have finished before the timer was set.
+		if (done) {
+			stopTimer();
+		}
+
+		return future;
+	}
+
+	private void stopTimer() {
+		ScheduledFuture<?> t = timer;
+
+		if (t != null) {
+			DelayScheduler.cancel(t);
+		}
+	}
+
+	@Override
+	public void completed(T result) {
+		done = true;
+		stopTimer();
+
+		if (callback != null) {
+			callback.completed(result);
+		}
+	}
+
+	@Override
+	public void failed(Exception ex) {
+		done = true;
+		stopTimer();
+
+		if (callback != null) {
+			callback.failed(ex);
+		}
+	}
+
+	@Override
+	public void cancelled() {
+		done = true;
+		stopTimer();
+
+		if (callback != null) {
+			callback.cancelled();
+		}
+	}
+
+}
@@ -0,0 +1,93 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+
+/**
+ * Runs delayed tasks of the SDK, such as deadline enforcement, on a single
+ * shared daemon thread. The tasks must be short and must not block.
+ */
+@ParametersAreNonnullByDefault
+final class DelayScheduler {
+
+	/**
+	 * The number of cancellations after which the task queue is purged.
+	 * Cancelled tasks otherwise remain in the queue until their delay has
+	 * passed.
+	 */
+	private static final int PURGE_INTERVAL = 1024;
+
+	private static final ScheduledThreadPoolExecutor executor =
+	        new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+
+		        @Override
+		        public Thread newThread(Runnable r) {
+			        Thread t = new Thread(r, "xms-delay-scheduler");
+			        t.setDaemon(true);
+			        return t;
+		        }
+
+	        });
+
+	private static final AtomicInteger cancellations = new AtomicInteger();
+
+	private DelayScheduler() {
+		// Intentionally left empty.
+	}
+
+	/**
+	 * Schedules the given task to run after the given delay.
+	 * 
+	 * @param task
+	 *            the task to run
+	 * @param delay
+	 *            the delay before running the task
+	 * @param unit
+	 *            the unit of <code>delay</code>
+	 * @return a future that can be used to cancel the task
+	 */
+	@Nonnull
+	static ScheduledFuture<?> schedule(Runnable task, long delay,
+	        TimeUnit unit) {
+		return executor.schedule(task, delay, unit);
+	}
+
+	/**
+	 * Cancels the given scheduled task.
+	 * 
+	 * @param future
+	 *            the future of the task to cancel
+	 */
+	static void cancel(ScheduledFuture<?> future) {
+		if (future.cancel(false)
+		        && cancellations.incrementAndGet() % PURGE_INTERVAL == 0) {
+			executor.purge();
+		}
+	}
+
+}
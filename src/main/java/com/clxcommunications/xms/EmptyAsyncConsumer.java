@@ -20,76 +20,112 @@
 package com.clxcommunications.xms;
 
 import java.io.IOException;
-import java.nio.CharBuffer;
+import java.nio.ByteBuffer;
 
+import org.apache.http.Consts;
 import org.apache.http.HttpException;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.RequestLine;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
-import org.apache.http.entity.StringEntity;
 import org.apache.http.nio.IOControl;
-import org.apache.http.nio.client.methods.AsyncCharConsumer;
+import org.apache.http.nio.client.methods.AsyncByteConsumer;
 import org.apache.http.protocol.HttpContext;
 import org.apache.http.protocol.HttpCoreContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.clxcommunications.xms.api.ApiError;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 
 /**
  * An asynchronous consumer that consumes empty responses. If a non-empty
- * response is received with a success status code (2xx), then a warning is
- * logged.
+ * response is received with one of the expected success status codes (200, 201
+ * or 204), then a warning including a prefix of the body is logged.
+ * <p>
+ * The body is buffered as raw bytes up to a bound. For the expected success
+ * status codes only a short prefix is kept for logging, for other status codes
+ * a larger prefix is kept for error reporting. Bytes beyond the bound are
+ * counted but discarded.
  */
-class EmptyAsyncConsumer extends AsyncCharConsumer<Void> {
+class EmptyAsyncConsumer extends AsyncByteConsumer<Void> {
 
 	private static final Logger log =
 	        LoggerFactory.getLogger(EmptyAsyncConsumer.class);
 
-	private final ObjectMapper json;
+	/**
+	 * The number of body bytes kept for logging of unexpectedly non-empty
+	 * success responses.
+	 */
+	static final int LOGGED_PREFIX_SIZE = 256;
+
+	/**
+	 * The number of body bytes kept for error reporting.
+	 */
+	static final int MAX_ERROR_BODY_SIZE = 64 * 1024;
+
+	private final ObjectReader errorReader;
 	private HttpResponse response;
-	private StringBuilder sb;
+	private int maxBuffered;
+	private long received;
+	private ByteInOutStream bios;
 
 	/**
 	 * Builds a new empty body consumer.
 	 * 
-	 * @param json
-	 *            the object mapper
+	 * @param errorReader
+	 *            the reader of {@link ApiError}
 	 */
-	public EmptyAsyncConsumer(ObjectMapper json) {
-		this.json = json;
+	public EmptyAsyncConsumer(ObjectReader errorReader) {
+		this.errorReader = errorReader;
 	}
 
 	@Override
-	protected void onCharReceived(CharBuffer buf, IOControl ioctrl)
+	protected void onByteReceived(ByteBuffer buf, IOControl ioctrl)
 	        throws IOException {
-		sb.append(buf.toString());
+		int n = buf.remaining();
+		int room = maxBuffered - bios.size();
+
+		received += n;
+
+		if (room > 0) {
+			ByteBuffer kept = buf.duplicate();
+			kept.limit(kept.position() + Math.min(n, room));
+			bios.write(kept);
+		}
+
+		buf.position(buf.limit());
 	}
 
 	@Override
 	protected void onResponseReceived(HttpResponse response)
 	        throws HttpException, IOException {
 		this.response = response;
-		this.sb = new StringBuilder();
+		this.received = 0;
+		this.maxBuffered = isExpected(response.getStatusLine().getStatusCode())
+		        ? LOGGED_PREFIX_SIZE
+		        : MAX_ERROR_BODY_SIZE;
+		this.bios = new ByteInOutStream(256);
 	}
 
 	@Override
 	protected Void buildResult(HttpContext context) throws Exception {
 		int code = response.getStatusLine().getStatusCode();
-		String content = sb.toString();
 
 		switch (code) {
 		case HttpStatus.SC_OK:
 		case HttpStatus.SC_CREATED:
-			if (!content.isEmpty()) {
-				log.warn("Expected empty body but got '{}'", content);
+		case HttpStatus.SC_NO_CONTENT:
+			if (received > 0) {
+				String prefix = new String(bios.toByteArray(), Consts.UTF_8);
+				log.warn("Expected empty body but got {} bytes: {}", received,
+				        prefix);
 			}
 			return null;
 		case HttpStatus.SC_BAD_REQUEST:
 		case HttpStatus.SC_FORBIDDEN:
-			ApiError error = json.readValue(content, ApiError.class);
+			ApiError error = bios.readJson(errorReader);
 			throw new ErrorResponseException(error);
 		case HttpStatus.SC_NOT_FOUND:
 			HttpCoreContext coreContext = HttpCoreContext.adapt(context);
@@ -101,9 +137,22 @@ class EmptyAsyncConsumer extends AsyncCharConsumer<Void> {
 			ContentType contentType =
 			        ContentType.getLenient(response.getEntity());
 			response.setEntity(
-			        new StringEntity(content, contentType));
+			        new ByteArrayEntity(bios.toByteArray(), contentType));
 			throw new UnexpectedResponseException(response);
 		}
 	}
 
+	/**
+	 * Whether the given status code is one of the success codes that this
+	 * consumer accepts.
+	 * 
+	 * @param code
+	 *            the HTTP status code
+	 * @return true if the code is 200, 201, or 204
+	 */
+	private static boolean isExpected(int code) {
+		return code == HttpStatus.SC_OK || code == HttpStatus.SC_CREATED
+		        || code == HttpStatus.SC_NO_CONTENT;
+	}
+
 }
@@ -0,0 +1,146 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.annotation.Nonnull;
+
+import org.apache.http.concurrent.FutureCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A callback wrapper that invokes the wrapped callback using an executor. This
+ * moves the callbacks off the I/O dispatcher threads of the HTTP client such
+ * that a slow callback does not delay other requests handled by the same
+ * thread.
+ * <p>
+ * Exceptions thrown within the wrapped callback are caught and logged at the
+ * ERROR level, as in {@link CallbackWrapper#exceptionDropper}. If the executor
+ * rejects a callback then it is invoked directly on the calling thread.
+ */
+public final class ExecutorCallbackWrapper implements CallbackWrapper {
+
+	private static final class WrappedCallback<T>
+	        implements FutureCallback<T> {
+
+		private final Executor executor;
+		private final FutureCallback<T> callback;
+
+		private WrappedCallback(Executor executor,
+		        FutureCallback<T> callback) {
+			this.executor = executor;
+			this.callback = callback;
+		}
+
+		@Override
+		public void completed(final T result) {
+			execute(new Runnable() {
+
+				@Override
+				public void run() {
+					callback.completed(result);
+				}
+
+			});
+		}
+
+		@Override
+		public void failed(final Exception ex) {
+			execute(new Runnable() {
+
+				@Override
+				public void run() {
+					callback.failed(ex);
+				}
+
+			});
+		}
+
+		@Override
+		public void cancelled() {
+			execute(new Runnable() {
+
+				@Override
+				public void run() {
+					callback.cancelled();
+				}
+
+			});
+		}
+
+		private void execute(Runnable task) {
+			try {
+				executor.execute(task);
+			} catch (RejectedExecutionException e) {
+				log.warn("callback executor rejected callback, "
+				        + "running it directly", e);
+				task.run();
+			}
+		}
+
+	}
+
+	private static final Logger log =
+	        LoggerFactory.getLogger(ExecutorCallbackWrapper.class);
+
+	private final Executor executor;
+
+	private ExecutorCallbackWrapper(Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Creates a callback wrapper that invokes callbacks using the given
+	 * executor.
+	 * 
+	 * @param executor
+	 *            the executor running the callbacks
+	 * @return a non-null callback wrapper
+	 */
+	@Nonnull
+	public static ExecutorCallbackWrapper of(Executor executor) {
+		return new ExecutorCallbackWrapper(
+		        Utils.requireNonNull(executor, "executor"));
+	}
+
+	/**
+	 * The executor running the callbacks.
+	 * 
+	 * @return a non-null executor
+	 */
+	@Nonnull
+	public Executor executor() {
+		return executor;
+	}
+
+	@Override
+	public <T> FutureCallback<T> wrap(FutureCallback<T> callback) {
+		if (callback == null) {
+			return null;
+		}
+
+		return new WrappedCallback<T>(executor,
+		        CallbackWrapper.exceptionDropper.wrap(callback));
+	}
+
+}
@@ -0,0 +1,237 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import java.io.IOException;
+import java.util.Random;
+
+import javax.annotation.Nonnull;
+
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.immutables.value.Value;
+import org.threeten.bp.Duration;
+
+/**
+ * A retry policy that waits exponentially longer between attempts. The delays
+ * are randomized using "full jitter", that is, the delay before attempt
+ * <i>n</i> + 1 is a random duration between zero and
+ * <code>min(maxDelay, initialDelay * multiplier<sup>n - 1</sup>)</code>. This
+ * spreads out the retries of many clients that failed at the same time.
+ * <p>
+ * Calls are retried after I/O errors and after responses having status 429,
+ * 500, 502, 503, or 504. If the response contains a <code>Retry-After</code>
+ * header given in seconds then the delay is at least that long, bounded by the
+ * maximum delay.
+ * <p>
+ * Operations that are not {@link ApiOperation#isIdempotent() idempotent} are
+ * only retried if explicitly allowed using {@link #retryNonIdempotent()}.
+ */
+@Value.Immutable
+@ValueStylePackage
+public abstract class ExponentialBackoff implements RetryPolicy {
+
+	/**
+	 * A builder of exponential backoff retry policies.
+	 */
+	public static class Builder extends ExponentialBackoffImpl.Builder {
+
+		Builder() {
+		}
+
+	}
+
+	private static final Random random = new Random();
+
+	/**
+	 * Creates a builder of {@link ExponentialBackoff} instances.
+	 * 
+	 * @return a builder
+	 */
+	@Nonnull
+	public static final ExponentialBackoff.Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * The maximum number of attempts, including the first one. Default is 3.
+	 * 
+	 * @return a positive number of attempts
+	 */
+	@Value.Default
+	public int maxAttempts() {
+		return 3;
+	}
+
+	/**
+	 * The upper bound of the delay before the first retry. Default is 100
+	 * milliseconds.
+	 * 
+	 * @return a non-null duration
+	 */
+	@Value.Default
+	public Duration initialDelay() {
+		return Duration.ofMillis(100);
+	}
+
+	/**
+	 * The upper bound of the delay before any retry. Default is 10 seconds.
+	 * 
+	 * @return a non-null duration
+	 */
+	@Value.Default
+	public Duration maxDelay() {
+		return Duration.ofSeconds(10);
+	}
+
+	/**
+	 * The factor by which the delay bound grows after each attempt. Default is
+	 * 2.
+	 * 
+	 * @return a multiplier of at least 1
+	 */
+	@Value.Default
+	public double multiplier() {
+		return 2.0;
+	}
+
+	/**
+	 * Whether operations that are not idempotent, such as batch creation, may
+	 * be retried. Note, if a request reached XMS but the response was lost
+	 * then a retry may result in, for example, a duplicate batch. Default is
+	 * <code>false</code>.
+	 * 
+	 * @return <code>true</code> if non-idempotent operations may be retried,
+	 *         <code>false</code> otherwise
+	 */
+	@Value.Default
+	public boolean retryNonIdempotent() {
+		return false;
+	}
+
+	/**
+	 * Verifies that the object is in a reasonable state.
+	 */
+	@Value.Check
+	protected void check() {
+		if (maxAttempts() < 1) {
+			throw new IllegalStateException("non-positive maxAttempts");
+		}
+
+		if (initialDelay().isNegative()) {
+			throw new IllegalStateException("negative initialDelay");
+		}
+
+		if (maxDelay().compareTo(initialDelay()) < 0) {
+			throw new IllegalStateException("maxDelay below initialDelay");
+		}
+
+		if (!(multiplier() >= 1.0)) {
+			throw new IllegalStateException("multiplier below 1");
+		}
+	}
+
+	@Override
+	public long retryDelay(ApiOperation operation, int attempt,
+	        Exception failure) {
+		if (attempt >= maxAttempts()) {
+			return -1;
+		}
+
+		if (!operation.isIdempotent() && !retryNonIdempotent()) {
+			return -1;
+		}
+
+		if (!isRetryable(failure)) {
+			return -1;
+		}
+
+		long maxDelayMillis = maxDelay().toMillis();
+		double growth = Math.pow(multiplier(), attempt - 1);
+		double bound =
+		        Math.min(maxDelayMillis, initialDelay().toMillis() * growth);
+		long delay = (long) (random.nextDouble() * bound);
+
+		return Math.min(maxDelayMillis,
+		        Math.max(delay, retryAfterMillis(failure)));
+	}
+
+	/**
+	 * Whether the given failure may be temporary.
+	 * 
+	 * @param failure
+	 *            the failure to examine
+	 * @return <code>true</code> if the failure may be temporary,
+	 *         <code>false</code> otherwise
+	 */
+	private static boolean isRetryable(Exception failure) {
+		if (failure instanceof IOException) {
+			return true;
+		}
+
+		if (!(failure instanceof UnexpectedResponseException)) {
+			return false;
+		}
+
+		HttpResponse response =
+		        ((UnexpectedResponseException) failure).getResponse();
+
+		switch (response.getStatusLine().getStatusCode()) {
+		case 429: // Too Many Requests
+		case HttpStatus.SC_INTERNAL_SERVER_ERROR:
+		case HttpStatus.SC_BAD_GATEWAY:
+		case HttpStatus.SC_SERVICE_UNAVAILABLE:
+		case HttpStatus.SC_GATEWAY_TIMEOUT:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Returns the delay requested by the <code>Retry-After</code> header of the
+	 * failed response, if any. Only delays given in seconds are supported.
+	 * 
+	 * @param failure
+	 *            the failure to examine
+	 * @return the requested delay in milliseconds, zero if none
+	 */
+	private static long retryAfterMillis(Exception failure) {
+		if (!(failure instanceof UnexpectedResponseException)) {
+			return 0;
+		}
+
+		Header header = ((UnexpectedResponseException) failure).getResponse()
+		        .getFirstHeader(HttpHeaders.RETRY_AFTER);
+
+		if (header == null) {
+			return 0;
+		}
+
+		try {
+			return Math.max(0, Long.parseLong(header.getValue().trim()) * 1000);
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+}
@@ -0,0 +1,371 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * A response consumer that decompresses gzip encoded content before passing
+ * it on to another consumer. The content is inflated as it arrives, it is
+ * never buffered in its compressed form. Responses without the gzip content
+ * coding are passed on untouched.
+ * <p>
+ * The wrapped consumer sees the response as if it had not been encoded, the
+ * content encoding and length are removed from the response.
+ * 
+ * @param <T>
+ *            the result type of the consumer
+ */
+final class GzipAsyncConsumer<T> implements HttpAsyncResponseConsumer<T> {
+
+	/**
+	 * The parts of a gzip member, see RFC 1952.
+	 */
+	private enum State {
+		HEADER, DEFLATED, TRAILER
+	}
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private static final int FHCRC = 2;
+	private static final int FEXTRA = 4;
+	private static final int FNAME = 8;
+	private static final int FCOMMENT = 16;
+
+	private final HttpAsyncResponseConsumer<T> consumer;
+
+	private boolean gzip;
+
+	private Inflater inflater;
+
+	private CRC32 crc;
+
+	private ByteBuffer in;
+
+	private byte[] out;
+
+	private ByteBufferDecoder inflated;
+
+	private State state;
+
+	private boolean memberCompleted;
+
+	GzipAsyncConsumer(HttpAsyncResponseConsumer<T> consumer) {
+		this.consumer = consumer;
+	}
+
+	@Override
+	public void responseReceived(HttpResponse response)
+	        throws IOException, HttpException {
+		HttpEntity entity = response.getEntity();
+		Header encoding = (entity == null) ? null : entity.getContentEncoding();
+
+		if (encoding != null && isGzip(encoding.getValue())) {
+			gzip = true;
+			inflater = new Inflater(true);
+			crc = new CRC32();
+			in = ByteBuffer.allocate(BUFFER_SIZE);
+			out = new byte[BUFFER_SIZE];
+			inflated = new ByteBufferDecoder();
+			state = State.HEADER;
+
+			BasicHttpEntity decoded = new BasicHttpEntity();
+			decoded.setContentLength(-1);
+			decoded.setContentType(entity.getContentType());
+			response.setEntity(decoded);
+			response.removeHeaders(HttpHeaders.CONTENT_ENCODING);
+			response.removeHeaders(HttpHeaders.CONTENT_LENGTH);
+		}
+
+		consumer.responseReceived(response);
+	}
+
+	@Override
+	public void consumeContent(ContentDecoder decoder, IOControl ioctrl)
+	        throws IOException {
+		if (!gzip) {
+			consumer.consumeContent(decoder, ioctrl);
+			return;
+		}
+
+		while (decoder.read(in) > 0) {
+			in.flip();
+			inflate(ioctrl);
+			in.compact();
+
+			if (!in.hasRemaining()) {
+				throw new ZipException("gzip header too large");
+			}
+		}
+
+		if (decoder.isCompleted()) {
+			// An empty body or trailing garbage is tolerated.
+			if (state != State.HEADER
+			        || (!memberCompleted && in.position() > 0)) {
+				throw new EOFException("unexpected end of gzip content");
+			}
+
+			inflated.complete(consumer, ioctrl);
+		}
+	}
+
+	@Override
+	public void responseCompleted(HttpContext context) {
+		consumer.responseCompleted(context);
+	}
+
+	@Override
+	public void failed(Exception ex) {
+		consumer.failed(ex);
+	}
+
+	@Override
+	public Exception getException() {
+		return consumer.getException();
+	}
+
+	@Override
+	public T getResult() {
+		return consumer.getResult();
+	}
+
+	@Override
+	public boolean isDone() {
+		return consumer.isDone();
+	}
+
+	@Override
+	public boolean cancel() {
+		return consumer.cancel();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			consumer.close();
+		} finally {
+			if (inflater != null) {
+				inflater.end();
+				inflater = null;
+			}
+		}
+	}
+
+	/**
+	 * Inflates the available input and passes the result on to the wrapped
+	 * consumer. Input that cannot be used yet is left in the input buffer.
+	 * 
+	 * @param ioctrl
+	 *            the I/O control of the connection
+	 * @throws IOException
+	 *             if the content is not valid gzip
+	 */
+	private void inflate(IOControl ioctrl) throws IOException {
+		while (true) {
+			switch (state) {
+			case HEADER:
+				if (!in.hasRemaining() || !skipHeader()) {
+					return;
+				}
+
+				state = State.DEFLATED;
+				memberCompleted = false;
+				break;
+			case DEFLATED:
+				if (inflater.needsInput()) {
+					if (!in.hasRemaining()) {
+						return;
+					}
+
+					inflater.setInput(in.array(),
+					        in.arrayOffset() + in.position(), in.remaining());
+					in.position(in.limit());
+				}
+
+				int n;
+				try {
+					n = inflater.inflate(out);
+				} catch (DataFormatException e) {
+					throw new ZipException(e.getMessage());
+				}
+
+				if (n > 0) {
+					crc.update(out, 0, n);
+					deliver(n, ioctrl);
+				}
+
+				if (inflater.finished()) {
+					// Give back the input following the deflated data.
+					in.position(in.limit() - inflater.getRemaining());
+					state = State.TRAILER;
+				} else if (n == 0 && !inflater.needsInput()) {
+					throw new ZipException("gzip content needs dictionary");
+				}
+				break;
+			case TRAILER:
+				if (in.remaining() < 8) {
+					return;
+				}
+
+				long expectedCrc = readInt(in) & 0xffffffffL;
+				long expectedSize = readInt(in) & 0xffffffffL;
+
+				if (expectedCrc != crc.getValue()) {
+					throw new ZipException("corrupt gzip content");
+				}
+
+				long actualSize = inflater.getBytesWritten() & 0xffffffffL;
+
+				if (expectedSize != actualSize) {
+					throw new ZipException("corrupt gzip content size");
+				}
+
+				// Further members may follow, see RFC 1952, section 2.2.
+				inflater.reset();
+				crc.reset();
+				state = State.HEADER;
+				memberCompleted = true;
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Passes the given number of inflated bytes on to the wrapped consumer.
+	 * 
+	 * @param n
+	 *            the number of bytes at the start of the output buffer
+	 * @param ioctrl
+	 *            the I/O control of the connection
+	 * @throws IOException
+	 *             if the wrapped consumer failed
+	 */
+	private void deliver(int n, IOControl ioctrl) throws IOException {
+		inflated.feed(ByteBuffer.wrap(out, 0, n), consumer, ioctrl);
+	}
+
+	/**
+	 * Skips past a gzip member header if it is fully available in the input
+	 * buffer.
+	 * 
+	 * @return whether the header was skipped
+	 * @throws IOException
+	 *             if the header is invalid
+	 */
+	private boolean skipHeader() throws IOException {
+		ByteBuffer b = in.duplicate();
+
+		if (b.remaining() < 10) {
+			return false;
+		}
+
+		if ((b.get() & 0xff) != 0x1f || (b.get() & 0xff) != 0x8b) {
+			throw new ZipException("not in gzip format");
+		}
+
+		if (b.get() != 8) {
+			throw new ZipException("unsupported gzip compression method");
+		}
+
+		int flags = b.get() & 0xff;
+
+		// Skip modification time, extra flags, and operating system.
+		b.position(b.position() + 6);
+
+		if ((flags & FEXTRA) != 0) {
+			if (b.remaining() < 2) {
+				return false;
+			}
+
+			int length = (b.get() & 0xff) | ((b.get() & 0xff) << 8);
+
+			if (b.remaining() < length) {
+				return false;
+			}
+
+			b.position(b.position() + length);
+		}
+
+		if ((flags & FNAME) != 0 && !skipZeroTerminated(b)) {
+			return false;
+		}
+
+		if ((flags & FCOMMENT) != 0 && !skipZeroTerminated(b)) {
+			return false;
+		}
+
+		if ((flags & FHCRC) != 0) {
+			if (b.remaining() < 2) {
+				return false;
+			}
+
+			b.position(b.position() + 2);
+		}
+
+		in.position(b.position());
+
+		return true;
+	}
+
+	private static boolean skipZeroTerminated(ByteBuffer b) {
+		while (b.hasRemaining()) {
+			if (b.get() == 0) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Reads a little-endian 32 bit integer.
+	 * 
+	 * @param b
+	 *            the buffer to read from
+	 * @return the integer
+	 */
+	private static int readInt(ByteBuffer b) {
+		return (b.get() & 0xff) | ((b.get() & 0xff) << 8)
+		        | ((b.get() & 0xff) << 16) | ((b.get() & 0xff) << 24);
+	}
+
+	private static boolean isGzip(String coding) {
+		return "gzip".equalsIgnoreCase(coding.trim())
+		        || "x-gzip".equalsIgnoreCase(coding.trim());
+	}
+
+}
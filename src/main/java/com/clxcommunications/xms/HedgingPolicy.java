@@ -0,0 +1,403 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nonnull;
+
+import org.threeten.bp.Duration;
+
+/**
+ * A policy for hedging slow read requests. If a GET request has not finished
+ * within a percentile of the recent latency of its operation then a duplicate
+ * request is sent. The first request to succeed gives the result and the
+ * others are cancelled.
+ * <p>
+ * The latency of each operation is tracked over its latest
+ * {@link #windowSize()} successful requests. No request is hedged until at
+ * least {@link #minimumSamples()} requests of the operation have been
+ * observed.
+ * <p>
+ * Paged fetches that stream elements to a {@link PageElementListener} are
+ * never hedged since elements handed to the listener cannot be taken back.
+ * <p>
+ * The latencies are kept inside the policy, hedging policies are therefore
+ * compared by identity rather than by their configuration. A hedging policy
+ * is given to an API connection using
+ * {@link ApiConnection.Builder#hedgingPolicy(HedgingPolicy)}.
+ */
+public final class HedgingPolicy {
+
+	/**
+	 * A builder of hedging policies.
+	 */
+	public static final class Builder {
+
+		private double percentile = 0.95;
+		private Duration minDelay = Duration.ofMillis(10);
+		private int maxHedges = 1;
+		private int windowSize = 100;
+		private int minimumSamples = 20;
+		private final Set<ApiOperation> operations =
+		        EnumSet.noneOf(ApiOperation.class);
+
+		Builder() {
+		}
+
+		/**
+		 * Sets the latency percentile after which a request is hedged.
+		 * 
+		 * @param percentile
+		 *            a percentile in (0, 1]
+		 * @return this builder
+		 * @see HedgingPolicy#percentile()
+		 */
+		@Nonnull
+		public Builder percentile(double percentile) {
+			this.percentile = percentile;
+			return this;
+		}
+
+		/**
+		 * Sets the shortest time to wait before hedging a request.
+		 * 
+		 * @param minDelay
+		 *            a non-null non-negative duration
+		 * @return this builder
+		 * @see HedgingPolicy#minDelay()
+		 */
+		@Nonnull
+		public Builder minDelay(Duration minDelay) {
+			this.minDelay = Utils.requireNonNull(minDelay, "minDelay");
+			return this;
+		}
+
+		/**
+		 * Sets the largest number of hedged requests sent for a single call.
+		 * 
+		 * @param maxHedges
+		 *            a positive number of requests
+		 * @return this builder
+		 * @see HedgingPolicy#maxHedges()
+		 */
+		@Nonnull
+		public Builder maxHedges(int maxHedges) {
+			this.maxHedges = maxHedges;
+			return this;
+		}
+
+		/**
+		 * Sets the number of latest requests per operation whose latency is
+		 * tracked.
+		 * 
+		 * @param windowSize
+		 *            a positive number of requests
+		 * @return this builder
+		 * @see HedgingPolicy#windowSize()
+		 */
+		@Nonnull
+		public Builder windowSize(int windowSize) {
+			this.windowSize = windowSize;
+			return this;
+		}
+
+		/**
+		 * Sets the number of requests of an operation that must be observed
+		 * before its requests are hedged.
+		 * 
+		 * @param minimumSamples
+		 *            a positive number of requests, at most the window size
+		 * @return this builder
+		 * @see HedgingPolicy#minimumSamples()
+		 */
+		@Nonnull
+		public Builder minimumSamples(int minimumSamples) {
+			this.minimumSamples = minimumSamples;
+			return this;
+		}
+
+		/**
+		 * Adds an operation to hedge.
+		 * 
+		 * @param operation
+		 *            the operation to add
+		 * @return this builder
+		 * @see HedgingPolicy#operations()
+		 */
+		@Nonnull
+		public Builder addOperation(ApiOperation operation) {
+			operations.add(Utils.requireNonNull(operation, "operation"));
+			return this;
+		}
+
+		/**
+		 * Adds operations to hedge.
+		 * 
+		 * @param operations
+		 *            the operations to add
+		 * @return this builder
+		 * @see HedgingPolicy#operations()
+		 */
+		@Nonnull
+		public Builder addOperation(ApiOperation... operations) {
+			return addAllOperations(Arrays.asList(operations));
+		}
+
+		/**
+		 * Adds operations to hedge.
+		 * 
+		 * @param operations
+		 *            the operations to add
+		 * @return this builder
+		 * @see HedgingPolicy#operations()
+		 */
+		@Nonnull
+		public Builder addAllOperations(
+		        Iterable<? extends ApiOperation> operations) {
+			for (ApiOperation operation : operations) {
+				addOperation(operation);
+			}
+
+			return this;
+		}
+
+		/**
+		 * Builds a hedging policy that has observed no requests.
+		 * 
+		 * @return a new hedging policy
+		 * @throws IllegalStateException
+		 *             if an attribute is invalid
+		 */
+		@Nonnull
+		public HedgingPolicy build() {
+			return new HedgingPolicy(this);
+		}
+
+	}
+
+	/**
+	 * The latest latencies of an operation.
+	 */
+	private static final class LatencyWindow {
+
+		private final long[] samples;
+		private int count = 0;
+		private int next = 0;
+
+		LatencyWindow(int size) {
+			this.samples = new long[size];
+		}
+
+		synchronized void add(long nanos) {
+			samples[next] = nanos;
+			next = (next + 1) % samples.length;
+			count = Math.min(count + 1, samples.length);
+		}
+
+		synchronized long percentile(double p, int minimumSamples) {
+			if (count < minimumSamples) {
+				return -1;
+			}
+
+			long[] sorted = Arrays.copyOf(samples, count);
+			Arrays.sort(sorted);
+
+			int index = (int) Math.ceil(p * count) - 1;
+
+			return sorted[Math.max(0, Math.min(count - 1, index))];
+		}
+
+	}
+
+	private final ConcurrentMap<ApiOperation, LatencyWindow> windows =
+	        new ConcurrentHashMap<ApiOperation, LatencyWindow>();
+
+	private final double percentile;
+	private final Duration minDelay;
+	private final int maxHedges;
+	private final int windowSize;
+	private final int minimumSamples;
+	private final Set<ApiOperation> operations;
+
+	/**
+	 * Creates a builder of {@link HedgingPolicy} instances.
+	 * 
+	 * @return a builder
+	 */
+	@Nonnull
+	public static final HedgingPolicy.Builder builder() {
+		return new Builder();
+	}
+
+	private HedgingPolicy(Builder builder) {
+		this.percentile = builder.percentile;
+		this.minDelay = builder.minDelay;
+		this.maxHedges = builder.maxHedges;
+		this.windowSize = builder.windowSize;
+		this.minimumSamples = builder.minimumSamples;
+		this.operations = Collections.unmodifiableSet(
+		        EnumSet.copyOf(builder.operations));
+
+		if (!(percentile() > 0 && percentile() <= 1)) {
+			throw new IllegalStateException("percentile outside (0, 1]");
+		}
+
+		if (minDelay().isNegative()) {
+			throw new IllegalStateException("negative minDelay");
+		}
+
+		if (maxHedges() < 1) {
+			throw new IllegalStateException("non-positive maxHedges");
+		}
+
+		if (windowSize() < 1) {
+			throw new IllegalStateException("non-positive windowSize");
+		}
+
+		if (minimumSamples() < 1 || minimumSamples() > windowSize()) {
+			throw new IllegalStateException(
+			        "minimumSamples outside [1, windowSize]");
+		}
+	}
+
+	/**
+	 * The latency percentile after which a request is hedged. Default is
+	 * 0.95, that is, requests slower than 95 % of recent requests are hedged.
+	 * 
+	 * @return a percentile in (0, 1]
+	 */
+	public double percentile() {
+		return percentile;
+	}
+
+	/**
+	 * The shortest time to wait before hedging a request. Default is 10
+	 * milliseconds.
+	 * 
+	 * @return a non-null non-negative duration
+	 */
+	public Duration minDelay() {
+		return minDelay;
+	}
+
+	/**
+	 * The largest number of hedged requests sent for a single call. Default
+	 * is 1.
+	 * 
+	 * @return a positive number of requests
+	 */
+	public int maxHedges() {
+		return maxHedges;
+	}
+
+	/**
+	 * The number of latest requests per operation whose latency is tracked.
+	 * Default is 100.
+	 * 
+	 * @return a positive number of requests
+	 */
+	public int windowSize() {
+		return windowSize;
+	}
+
+	/**
+	 * The number of requests of an operation that must be observed before its
+	 * requests are hedged. Default is 20.
+	 * 
+	 * @return a positive number of requests, at most {@link #windowSize()}
+	 */
+	public int minimumSamples() {
+		return minimumSamples;
+	}
+
+	/**
+	 * The operations to hedge. If empty, the default, then all fetch
+	 * operations are hedged.
+	 * 
+	 * @return a non-null set of operations
+	 */
+	public Set<ApiOperation> operations() {
+		return operations;
+	}
+
+	/**
+	 * Whether requests of the given operation may be hedged.
+	 * 
+	 * @param operation
+	 *            the operation to examine
+	 * @return <code>true</code> if hedged, <code>false</code> otherwise
+	 */
+	boolean hedges(ApiOperation operation) {
+		return operations().isEmpty() || operations().contains(operation);
+	}
+
+	/**
+	 * Records the latency of a successful request.
+	 * 
+	 * @param operation
+	 *            the operation of the request
+	 * @param nanos
+	 *            the latency in nanoseconds
+	 */
+	void record(ApiOperation operation, long nanos) {
+		LatencyWindow window = windows.get(operation);
+
+		if (window == null) {
+			LatencyWindow fresh = new LatencyWindow(windowSize());
+			window = windows.putIfAbsent(operation, fresh);
+			if (window == null) {
+				window = fresh;
+			}
+		}
+
+		window.add(nanos);
+	}
+
+	/**
+	 * The time to wait before hedging a request of the given operation.
+	 * 
+	 * @param operation
+	 *            the operation of the request
+	 * @return the delay in nanoseconds or -1 if too few requests have been
+	 *         observed
+	 */
+	long hedgeDelay(ApiOperation operation) {
+		LatencyWindow window = windows.get(operation);
+
+		if (window == null) {
+			return -1;
+		}
+
+		long delay = window.percentile(percentile(), minimumSamples());
+
+		if (delay < 0) {
+			return -1;
+		}
+
+		return Math.max(delay, Utils.toNanos(minDelay()));
+	}
+
+}
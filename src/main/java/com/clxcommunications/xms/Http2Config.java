@@ -0,0 +1,126 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import javax.annotation.Nonnull;
+
+import org.immutables.value.Value;
+
+/**
+ * Describes the HTTP/2 settings of an {@link Http2Transport}. The defaults
+ * suit moderate concurrency, for submitting many large batches at once it may
+ * help to raise the window size.
+ */
+@Value.Immutable
+@ValueStylePackage
+public abstract class Http2Config {
+
+	/**
+	 * The largest allowed flow-control window, as given by the HTTP/2
+	 * specification.
+	 */
+	private static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE;
+
+	/**
+	 * The smallest allowed frame size, as given by the HTTP/2 specification.
+	 */
+	private static final int MIN_FRAME_SIZE = 16384;
+
+	/**
+	 * The largest allowed frame size, as given by the HTTP/2 specification.
+	 */
+	private static final int MAX_FRAME_SIZE = 16777215;
+
+	/**
+	 * A builder of HTTP/2 configurations.
+	 */
+	public static class Builder extends Http2ConfigImpl.Builder {
+
+		Builder() {
+		}
+
+	}
+
+	/**
+	 * Creates a builder of {@link Http2Config} instances.
+	 * 
+	 * @return a builder
+	 */
+	@Nonnull
+	public static final Http2Config.Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * The maximum number of concurrent streams, that is, requests in flight,
+	 * that the client allows on each connection. Note, the server may impose
+	 * a lower limit. Default is 100.
+	 * 
+	 * @return a positive number of streams
+	 */
+	@Value.Default
+	public int maxConcurrentStreams() {
+		return 100;
+	}
+
+	/**
+	 * The initial flow-control window size in bytes of each stream. This
+	 * bounds how much of a response the server may send before the client
+	 * acknowledges it. Default is 65535 bytes, the protocol default.
+	 * 
+	 * @return a positive window size
+	 */
+	@Value.Default
+	public int initialWindowSize() {
+		return 65535;
+	}
+
+	/**
+	 * The largest frame payload in bytes that the client is willing to
+	 * receive. Default is 16384 bytes, the protocol default.
+	 * 
+	 * @return a frame size between 16384 and 16777215 bytes
+	 */
+	@Value.Default
+	public int maxFrameSize() {
+		return MIN_FRAME_SIZE;
+	}
+
+	/**
+	 * Verifies that the object is in a reasonable state.
+	 */
+	@Value.Check
+	protected void check() {
+		if (maxConcurrentStreams() < 1) {
+			throw new IllegalStateException(
+			        "non-positive maxConcurrentStreams");
+		}
+
+		if (initialWindowSize() < 1 || initialWindowSize() > MAX_WINDOW_SIZE) {
+			throw new IllegalStateException("invalid initialWindowSize");
+		}
+
+		if (maxFrameSize() < MIN_FRAME_SIZE
+		        || maxFrameSize() > MAX_FRAME_SIZE) {
+			throw new IllegalStateException("invalid maxFrameSize");
+		}
+	}
+
+}
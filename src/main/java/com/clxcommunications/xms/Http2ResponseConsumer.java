@@ -0,0 +1,162 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpCoreContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Adapts an HTTP/2 response consumer of HttpCore 5 to a response consumer of
+ * HttpCore 4. This lets the {@link Http2Transport} reuse the response
+ * consumers of the API connection.
+ * 
+ * @param <T>
+ *            the result type of the consumer
+ */
+final class Http2ResponseConsumer<T> implements AsyncResponseConsumer<T> {
+
+	private static final Logger log =
+	        LoggerFactory.getLogger(Http2ResponseConsumer.class);
+
+	private final HttpAsyncResponseConsumer<T> consumer;
+
+	private final ByteBufferDecoder decoder = new ByteBufferDecoder();
+
+	private final org.apache.http.protocol.HttpContext context =
+	        new BasicHttpContext();
+
+	@Nullable
+	private FutureCallback<T> resultCallback;
+
+	Http2ResponseConsumer(HttpRequest request,
+	        HttpAsyncResponseConsumer<T> consumer) {
+		this.consumer = consumer;
+		this.context.setAttribute(HttpCoreContext.HTTP_REQUEST, request);
+	}
+
+	@Override
+	public void consumeResponse(HttpResponse response,
+	        @Nullable EntityDetails entityDetails, HttpContext ctx,
+	        FutureCallback<T> resultCallback) throws IOException {
+		this.resultCallback = resultCallback;
+
+		BasicHttpResponse r = new BasicHttpResponse(HttpVersion.HTTP_1_1,
+		        response.getCode(), response.getReasonPhrase());
+
+		for (Header header : response.getHeaders()) {
+			r.addHeader(header.getName(), header.getValue());
+		}
+
+		if (entityDetails != null) {
+			BasicHttpEntity entity = new BasicHttpEntity();
+			entity.setContentLength(entityDetails.getContentLength());
+			entity.setContentType(entityDetails.getContentType());
+			entity.setContentEncoding(entityDetails.getContentEncoding());
+			r.setEntity(entity);
+		}
+
+		context.setAttribute(HttpCoreContext.HTTP_RESPONSE, r);
+
+		try {
+			consumer.responseReceived(r);
+		} catch (Exception e) {
+			consumer.failed(e);
+			resultCallback.failed(e);
+			return;
+		}
+
+		if (entityDetails == null) {
+			complete();
+		}
+	}
+
+	@Override
+	public void informationResponse(HttpResponse response, HttpContext ctx) {
+		// Intentionally left empty.
+	}
+
+	@Override
+	public void updateCapacity(CapacityChannel capacityChannel)
+	        throws IOException {
+		capacityChannel.update(Integer.MAX_VALUE);
+	}
+
+	@Override
+	public void consume(ByteBuffer src) throws IOException {
+		decoder.feed(src, consumer, NoopIOControl.INSTANCE);
+	}
+
+	@Override
+	public void streamEnd(List<? extends Header> trailers) throws IOException {
+		decoder.complete(consumer, NoopIOControl.INSTANCE);
+		complete();
+	}
+
+	@Override
+	public void failed(Exception cause) {
+		consumer.failed(cause);
+	}
+
+	@Override
+	public void releaseResources() {
+		try {
+			consumer.close();
+		} catch (IOException e) {
+			log.debug("Failed to close response consumer", e);
+		}
+	}
+
+	/**
+	 * Completes the wrapped consumer and passes its outcome to the result
+	 * callback.
+	 */
+	private void complete() {
+		consumer.responseCompleted(context);
+
+		Exception failure = consumer.getException();
+
+		if (failure != null) {
+			resultCallback.failed(failure);
+		} else {
+			resultCallback.completed(consumer.getResult());
+		}
+	}
+
+}
@@ -0,0 +1,414 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.H2AsyncClientBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.message.BasicHttpRequest;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.entity.BasicAsyncEntityProducer;
+import org.apache.hc.core5.http.nio.support.BasicRequestProducer;
+import org.apache.hc.core5.http.ssl.TLS;
+import org.apache.hc.core5.http2.config.H2Config;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.Timeout;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.methods.Configurable;
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.util.EntityUtils;
+import org.threeten.bp.Duration;
+
+/**
+ * A transport that sends requests over HTTP/2 using the Apache HTTP client 5.
+ * All requests to an endpoint are multiplexed as concurrent streams over a
+ * single connection, which avoids the head-of-line blocking and the
+ * connection churn of a pool of HTTP/1.1 connections when many requests are
+ * in flight.
+ * <p>
+ * This transport requires Java 8 or later and the
+ * <code>org.apache.httpcomponents.client5:httpclient5</code> library on the
+ * class path, this library is an optional dependency of the SDK. HTTP/2 over
+ * TLS is negotiated using ALPN, which is available from Java 9 and Java 8
+ * update 252. Against a plain HTTP endpoint the transport speaks HTTP/2
+ * directly, without upgrade.
+ * <p>
+ * Of the given {@link HttpClientConfig} the I/O thread count, the connect and
+ * socket timeouts, the socket buffer sizes, the TCP no delay flag, and the
+ * TLS session cache settings are used. The timeouts are overridden by the
+ * timeouts of the request configuration, if any. The transport must be
+ * started before use and closed when no longer needed, note that it is not
+ * started or closed by the API connection.
+ */
+public final class Http2Transport implements ApiTransport, Closeable {
+
+	/**
+	 * The exchange of a single request and its response.
+	 * 
+	 * @param <T>
+	 *            the result type of the consumer
+	 */
+	private static final class Exchange<T> extends BasicFuture<T> {
+
+		private final HttpAsyncResponseConsumer<T> consumer;
+
+		@Nullable
+		private volatile Future<T> future;
+
+		Exchange(HttpAsyncResponseConsumer<T> consumer,
+		        @Nullable FutureCallback<T> callback) {
+			super(callback);
+			this.consumer = consumer;
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			if (!super.cancel(mayInterruptIfRunning)) {
+				return false;
+			}
+
+			consumer.cancel();
+
+			// Resets the stream in progress, if any.
+			Future<T> f = future;
+			if (f != null) {
+				f.cancel(mayInterruptIfRunning);
+			}
+
+			return true;
+		}
+
+		/**
+		 * A callback of the HTTP client that completes this exchange.
+		 * 
+		 * @return a non-null callback
+		 */
+		org.apache.hc.core5.concurrent.FutureCallback<T> asCallback() {
+			return new org.apache.hc.core5.concurrent.FutureCallback<T>() {
+
+				@Override
+				public void completed(T result) {
+					Exchange.this.completed(result);
+				}
+
+				@Override
+				public void failed(Exception e) {
+					Exchange.this.failed(e);
+				}
+
+				@Override
+				public void cancelled() {
+					Exchange.this.cancel(true);
+				}
+
+			};
+		}
+
+	}
+
+	/**
+	 * Headers that are specific to an HTTP/1.1 connection or are produced by
+	 * the client itself and must therefore not be copied to an HTTP/2
+	 * request. The names are in lower case.
+	 */
+	private static final Set<String> EXCLUDED_HEADERS =
+	        new HashSet<String>(Arrays.asList(
+	                "connection", "content-length", "host", "keep-alive",
+	                "proxy-connection", "te", "transfer-encoding", "upgrade"));
+
+	private final HttpClientConfig config;
+
+	private final Http2Config http2Config;
+
+	private final CloseableHttpAsyncClient client;
+
+	private Http2Transport(HttpClientConfig config, Http2Config http2Config) {
+		this.config = config;
+		this.http2Config = http2Config;
+
+		H2Config h2Config = H2Config.custom()
+		        .setMaxConcurrentStreams(http2Config.maxConcurrentStreams())
+		        .setInitialWindowSize(http2Config.initialWindowSize())
+		        .setMaxFrameSize(http2Config.maxFrameSize())
+		        .setPushEnabled(false)
+		        .build();
+
+		IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+		        .setIoThreadCount(config.ioThreadCount())
+		        .setSndBufSize(config.sendBufferSize())
+		        .setRcvBufSize(config.receiveBufferSize())
+		        .setTcpNoDelay(config.tcpNoDelay())
+		        .build();
+
+		RequestConfig requestConfig = RequestConfig.custom()
+		        .setConnectTimeout(toTimeout(config.connectTimeout()))
+		        .setResponseTimeout(toTimeout(config.socketTimeout()))
+		        .build();
+
+		// Allow TLSv1.2 protocol only
+		this.client = H2AsyncClientBuilder.create()
+		        .setH2Config(h2Config)
+		        .setIOReactorConfig(ioReactorConfig)
+		        .setTlsStrategy(ClientTlsStrategyBuilder.create()
+		                .setSslContext(
+		                        ApiHttpAsyncClient.createSslContext(config))
+		                .setTlsVersions(TLS.V_1_2)
+		                .build())
+		        .setDefaultRequestConfig(requestConfig)
+		        .disableAutomaticRetries()
+		        .disableCookieManagement()
+		        .build();
+	}
+
+	/**
+	 * Creates an HTTP/2 transport using the given HTTP/2 configuration and
+	 * the default HTTP client configuration.
+	 * 
+	 * @param http2Config
+	 *            the HTTP/2 configuration
+	 * @return a non-null, unstarted transport
+	 */
+	@Nonnull
+	public static Http2Transport of(Http2Config http2Config) {
+		return of(HttpClientConfig.builder().build(), http2Config);
+	}
+
+	/**
+	 * Creates an HTTP/2 transport using the given configurations.
+	 * 
+	 * @param config
+	 *            the HTTP client configuration
+	 * @param http2Config
+	 *            the HTTP/2 configuration
+	 * @return a non-null, unstarted transport
+	 */
+	@Nonnull
+	public static Http2Transport of(HttpClientConfig config,
+	        Http2Config http2Config) {
+		return new Http2Transport(
+		        Utils.requireNonNull(config, "config"),
+		        Utils.requireNonNull(http2Config, "http2Config"));
+	}
+
+	/**
+	 * The HTTP client configuration of this transport.
+	 * 
+	 * @return a non-null HTTP client configuration
+	 */
+	@Nonnull
+	public HttpClientConfig config() {
+		return config;
+	}
+
+	/**
+	 * The HTTP/2 configuration of this transport.
+	 * 
+	 * @return a non-null HTTP/2 configuration
+	 */
+	@Nonnull
+	public Http2Config http2Config() {
+		return http2Config;
+	}
+
+	/**
+	 * Starts the I/O reactor of this transport.
+	 */
+	public void start() {
+		client.start();
+	}
+
+	/**
+	 * Shuts down this transport, any connections are closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		client.close();
+	}
+
+	@Override
+	public <T> Future<T> execute(HttpHost target, HttpRequest request,
+	        HttpAsyncResponseConsumer<T> consumer, FutureCallback<T> callback) {
+		Exchange<T> exchange = new Exchange<T>(consumer, callback);
+
+		try {
+			HttpClientContext context = HttpClientContext.create();
+
+			if (request instanceof Configurable) {
+				context.setRequestConfig(
+				        requestConfig(((Configurable) request).getConfig()));
+			}
+
+			BasicHttpRequest r = toHttp2Request(target, request);
+			AsyncEntityProducer entityProducer = toEntityProducer(request, r);
+
+			exchange.future = client.execute(
+			        new BasicRequestProducer(r, entityProducer),
+			        new Http2ResponseConsumer<T>(request, consumer),
+			        context, exchange.asCallback());
+		} catch (Exception e) {
+			consumer.failed(e);
+			exchange.failed(e);
+		}
+
+		return exchange;
+	}
+
+	/**
+	 * Converts the given request to an HTTP/2 request without entity.
+	 * 
+	 * @param target
+	 *            the host to send the request to
+	 * @param request
+	 *            the request to convert
+	 * @return a request suitable for the HTTP client
+	 */
+	private static BasicHttpRequest toHttp2Request(HttpHost target,
+	        HttpRequest request) {
+		URI uri = URI.create(request.getRequestLine().getUri());
+		StringBuilder path = new StringBuilder();
+
+		if (uri.getRawPath() != null) {
+			path.append(uri.getRawPath());
+		}
+
+		if (uri.getRawQuery() != null) {
+			path.append('?').append(uri.getRawQuery());
+		}
+
+		BasicHttpRequest r = new BasicHttpRequest(
+		        request.getRequestLine().getMethod(),
+		        new org.apache.hc.core5.http.HttpHost(target.getSchemeName(),
+		                target.getHostName(), target.getPort()),
+		        path.toString());
+
+		for (Header header : request.getAllHeaders()) {
+			String name = header.getName().toLowerCase(Locale.ROOT);
+
+			if (!EXCLUDED_HEADERS.contains(name)) {
+				r.addHeader(header.getName(), header.getValue());
+			}
+		}
+
+		return r;
+	}
+
+	/**
+	 * Converts the entity of the given request, if any, to an entity
+	 * producer.
+	 * 
+	 * @param request
+	 *            the request being sent
+	 * @param r
+	 *            the converted request, receives the content encoding of
+	 *            the entity
+	 * @return an entity producer or <code>null</code> if the request has no
+	 *         entity
+	 * @throws IOException
+	 *             if the entity could not be read
+	 */
+	@Nullable
+	private static AsyncEntityProducer toEntityProducer(HttpRequest request,
+	        BasicHttpRequest r) throws IOException {
+		if (!(request instanceof HttpEntityEnclosingRequest)) {
+			return null;
+		}
+
+		HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+
+		if (entity == null) {
+			return null;
+		}
+
+		if (entity.getContentEncoding() != null
+		        && !r.containsHeader(HttpHeaders.CONTENT_ENCODING)) {
+			r.addHeader(HttpHeaders.CONTENT_ENCODING,
+			        entity.getContentEncoding().getValue());
+		}
+
+		ContentType contentType = (entity.getContentType() == null)
+		        ? null
+		        : ContentType.parse(entity.getContentType().getValue());
+
+		return new BasicAsyncEntityProducer(EntityUtils.toByteArray(entity),
+		        contentType);
+	}
+
+	/**
+	 * Converts the timeouts of the given request configuration to a request
+	 * configuration of the HTTP client. The timeouts of the HTTP client
+	 * configuration apply, timeouts set in the given configuration may only
+	 * shorten them.
+	 * 
+	 * @param rc
+	 *            the request configuration, may be <code>null</code>
+	 * @return a non-null request configuration
+	 */
+	private RequestConfig requestConfig(
+	        @Nullable org.apache.http.client.config.RequestConfig rc) {
+		int connectTimeout = toMillis(config.connectTimeout());
+		int responseTimeout = toMillis(config.socketTimeout());
+
+		if (rc != null && rc.getConnectTimeout() > 0) {
+			connectTimeout =
+			        Utils.limitTimeout(connectTimeout, rc.getConnectTimeout());
+		}
+
+		if (rc != null && rc.getSocketTimeout() > 0) {
+			responseTimeout =
+			        Utils.limitTimeout(responseTimeout, rc.getSocketTimeout());
+		}
+
+		return RequestConfig.custom()
+		        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeout))
+		        .setResponseTimeout(Timeout.ofMilliseconds(responseTimeout))
+		        .build();
+	}
+
+	private static Timeout toTimeout(Duration duration) {
+		return Timeout.ofMilliseconds(duration.toMillis());
+	}
+
+	private static int toMillis(Duration duration) {
+		return (int) Math.min(duration.toMillis(), Integer.MAX_VALUE);
+	}
+
+}
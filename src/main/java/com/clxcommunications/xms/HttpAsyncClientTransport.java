@@ -0,0 +1,79 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import java.util.concurrent.Future;
+
+import javax.annotation.Nonnull;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.nio.client.HttpAsyncClient;
+import org.apache.http.nio.protocol.BasicAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+
+/**
+ * A transport that sends requests using an asynchronous Apache HTTP client.
+ * This is the transport used by API connections that are not given another
+ * transport.
+ * <p>
+ * The transport does not manage the life cycle of the HTTP client, it must be
+ * started and closed by its owner.
+ */
+public final class HttpAsyncClientTransport implements ApiTransport {
+
+	private final HttpAsyncClient client;
+
+	private HttpAsyncClientTransport(HttpAsyncClient client) {
+		this.client = client;
+	}
+
+	/**
+	 * Creates a transport that sends requests using the given HTTP client.
+	 * 
+	 * @param client
+	 *            the HTTP client
+	 * @return a non-null transport
+	 */
+	@Nonnull
+	public static HttpAsyncClientTransport of(HttpAsyncClient client) {
+		return new HttpAsyncClientTransport(
+		        Utils.requireNonNull(client, "client"));
+	}
+
+	/**
+	 * The HTTP client sending the requests.
+	 * 
+	 * @return a non-null HTTP client
+	 */
+	@Nonnull
+	public HttpAsyncClient client() {
+		return client;
+	}
+
+	@Override
+	public <T> Future<T> execute(HttpHost target, HttpRequest request,
+	        HttpAsyncResponseConsumer<T> consumer, FutureCallback<T> callback) {
+		return client.execute(new BasicAsyncRequestProducer(target, request),
+		        consumer, callback);
+	}
+
+}
@@ -0,0 +1,260 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.immutables.value.Value;
+import org.threeten.bp.Duration;
+
+/**
+ * Describes how an {@link ApiHttpAsyncClient} should be set up. The defaults
+ * are suitable for light use, for high throughput it is typically necessary to
+ * raise the maximum number of connections.
+ * <p>
+ * A configuration is used either when creating a client directly using
+ * {@link ApiHttpAsyncClient#of(HttpClientConfig)} or when letting the API
+ * connection create its HTTP client, see
+ * {@link ApiConnection#httpClientConfig()}.
+ */
+@Value.Immutable
+@ValueStylePackage
+public abstract class HttpClientConfig {
+
+	/**
+	 * A builder of HTTP client configurations.
+	 */
+	public static class Builder extends HttpClientConfigImpl.Builder {
+
+		Builder() {
+		}
+
+	}
+
+	/**
+	 * Creates a builder of {@link HttpClientConfig} instances.
+	 * 
+	 * @return a builder
+	 */
+	@Nonnull
+	public static final HttpClientConfig.Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * The maximum number of simultaneous connections to open towards the XMS
+	 * endpoint. This also limits the number of requests that can be in flight
+	 * at the same time. Default is 10.
+	 * 
+	 * @return a positive number of connections
+	 */
+	@Value.Default
+	public int maxConnections() {
+		return 10;
+	}
+
+	/**
+	 * The number of threads used by the I/O reactor of the client. Default is
+	 * the number of available processors.
+	 * 
+	 * @return a positive number of threads
+	 */
+	@Value.Default
+	public int ioThreadCount() {
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	/**
+	 * The limit for establishing a connection. Default is 30 seconds.
+	 * 
+	 * @return a non-null duration
+	 */
+	@Value.Default
+	public Duration connectTimeout() {
+		return Duration.ofSeconds(30);
+	}
+
+	/**
+	 * The limit for inactivity while waiting for data from the server. Default
+	 * is 30 seconds.
+	 * 
+	 * @return a non-null duration
+	 */
+	@Value.Default
+	public Duration socketTimeout() {
+		return Duration.ofSeconds(30);
+	}
+
+	/**
+	 * The total time a connection may be kept for reuse after it was
+	 * established. Limiting this allows changes in the DNS records of the XMS
+	 * endpoint to be picked up. If <code>null</code>, the default, then
+	 * connections are kept indefinitely.
+	 * 
+	 * @return a duration or <code>null</code>
+	 */
+	@Nullable
+	public abstract Duration connectionTimeToLive();
+
+	/**
+	 * The time a pooled connection may remain idle before it is closed. If
+	 * <code>null</code>, the default, then idle connections are only closed
+	 * when the server closes them.
+	 * 
+	 * @return a duration or <code>null</code>
+	 */
+	@Nullable
+	public abstract Duration maxIdleTime();
+
+	/**
+	 * The size of the socket send buffer in bytes. If zero, the default, then
+	 * the system default is used.
+	 * 
+	 * @return a non-negative buffer size
+	 */
+	@Value.Default
+	public int sendBufferSize() {
+		return 0;
+	}
+
+	/**
+	 * The size of the socket receive buffer in bytes. If zero, the default,
+	 * then the system default is used.
+	 * 
+	 * @return a non-negative buffer size
+	 */
+	@Value.Default
+	public int receiveBufferSize() {
+		return 0;
+	}
+
+	/**
+	 * Whether Nagle's algorithm should be disabled on the connections, that
+	 * is, whether <code>TCP_NODELAY</code> should be set. Default is
+	 * <code>true</code>.
+	 * 
+	 * @return true if <code>TCP_NODELAY</code> is set; false otherwise
+	 */
+	@Value.Default
+	public boolean tcpNoDelay() {
+		return true;
+	}
+
+	/**
+	 * The number of connections to open to the XMS endpoint when the client
+	 * is started by the API connection. This avoids that the first requests
+	 * after start pay for the TCP and TLS handshakes. Default is zero, that
+	 * is, connections are only opened when needed.
+	 * <p>
+	 * If the API connection has a {@link LoadBalancer} then the connections
+	 * are split evenly over the distinct hosts of its endpoints, the first
+	 * hosts opening one extra connection each when the number does not divide
+	 * evenly. For example, 5 connections over 2 hosts opens 3 connections to
+	 * the first host and 2 to the second.
+	 * 
+	 * @return a number of connections no larger than
+	 *         {@link #maxConnections()}
+	 */
+	@Value.Default
+	public int prewarmConnections() {
+		return 0;
+	}
+
+	/**
+	 * The maximum number of TLS sessions kept for resumption. A resumed
+	 * session lets a new connection to the same host skip the full TLS
+	 * handshake, for example, after an idle connection was closed. If zero,
+	 * then the number is not limited. Default is 100.
+	 * 
+	 * @return a non-negative number of sessions
+	 */
+	@Value.Default
+	public int tlsSessionCacheSize() {
+		return 100;
+	}
+
+	/**
+	 * The time a TLS session is kept for resumption. The server may choose
+	 * to forget the session earlier, in which case a full handshake is made.
+	 * Default is 24 hours.
+	 * 
+	 * @return a positive duration
+	 */
+	@Value.Default
+	public Duration tlsSessionTimeout() {
+		return Duration.ofHours(24);
+	}
+
+	/**
+	 * Verifies that the object is in a reasonable state.
+	 */
+	@Value.Check
+	protected void check() {
+		if (maxConnections() < 1) {
+			throw new IllegalStateException("non-positive maxConnections");
+		}
+
+		if (ioThreadCount() < 1) {
+			throw new IllegalStateException("non-positive ioThreadCount");
+		}
+
+		if (connectTimeout().isNegative()) {
+			throw new IllegalStateException("negative connectTimeout");
+		}
+
+		if (socketTimeout().isNegative()) {
+			throw new IllegalStateException("negative socketTimeout");
+		}
+
+		if (connectionTimeToLive() != null
+		        && connectionTimeToLive().isNegative()) {
+			throw new IllegalStateException("negative connectionTimeToLive");
+		}
+
+		if (maxIdleTime() != null
+		        && (maxIdleTime().isNegative() || maxIdleTime().isZero())) {
+			throw new IllegalStateException("non-positive maxIdleTime");
+		}
+
+		if (sendBufferSize() < 0) {
+			throw new IllegalStateException("negative sendBufferSize");
+		}
+
+		if (receiveBufferSize() < 0) {
+			throw new IllegalStateException("negative receiveBufferSize");
+		}
+
+		if (prewarmConnections() < 0
+		        || prewarmConnections() > maxConnections()) {
+			throw new IllegalStateException("invalid prewarmConnections");
+		}
+
+		if (tlsSessionCacheSize() < 0) {
+			throw new IllegalStateException("negative tlsSessionCacheSize");
+		}
+
+		if (tlsSessionTimeout().isNegative() || tlsSessionTimeout().isZero()
+		        || tlsSessionTimeout().getSeconds() > Integer.MAX_VALUE) {
+			throw new IllegalStateException("invalid tlsSessionTimeout");
+		}
+	}
+
+}
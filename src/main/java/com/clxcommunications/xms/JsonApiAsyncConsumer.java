@@ -20,9 +20,9 @@
 package com.clxcommunications.xms;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.ByteBuffer;
 
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpException;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
@@ -36,6 +36,7 @@ import org.apache.http.protocol.HttpCoreContext;
 
 import com.clxcommunications.xms.api.ApiError;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 
 /**
  * An asynchronous consumer that consumes JSON objects.
@@ -45,13 +46,14 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  */
 class JsonApiAsyncConsumer<T> extends AsyncByteConsumer<T> {
 
-	private final ObjectMapper json;
-	private final Class<T> jsonClass;
+	private final ObjectReader reader;
+	private final ObjectReader errorReader;
+	private final ByteArrayPool buffers;
 	private HttpResponse response;
 	private ByteInOutStream bios;
 
 	/**
-	 * Builds a new JSON consumer.
+	 * Builds a new JSON consumer that allocates a fresh response buffer.
 	 * 
 	 * @param json
 	 *            the object mapper
@@ -59,8 +61,27 @@ class JsonApiAsyncConsumer<T> extends AsyncByteConsumer<T> {
 	 *            the class that will be deserialized
 	 */
 	public JsonApiAsyncConsumer(ObjectMapper json, Class<T> jsonClass) {
-		this.json = json;
-		this.jsonClass = jsonClass;
+		this(json.readerFor(jsonClass), json.readerFor(ApiError.class),
+		        ByteArrayPool.NONE);
+	}
+
+	/**
+	 * Builds a new JSON consumer that borrows its response buffer from the
+	 * given pool. The buffer is returned to the pool once the response has
+	 * been consumed.
+	 * 
+	 * @param reader
+	 *            the reader of the class that will be deserialized
+	 * @param errorReader
+	 *            the reader of {@link ApiError}
+	 * @param buffers
+	 *            the pool of response buffers
+	 */
+	public JsonApiAsyncConsumer(ObjectReader reader, ObjectReader errorReader,
+	        ByteArrayPool buffers) {
+		this.reader = reader;
+		this.errorReader = errorReader;
+		this.buffers = buffers;
 	}
 
 	@Override
@@ -75,24 +96,27 @@ class JsonApiAsyncConsumer<T> extends AsyncByteConsumer<T> {
 		this.response = response;
 
 		/*
-		 * We'll assume that most responses fit within 1KiB. For larger
-		 * responses the output stream will grow automatically.
+		 * Size the buffer from the content length, if given. Otherwise we'll
+		 * assume that most responses fit within the default buffer size. For
+		 * larger responses the output stream will grow automatically.
 		 */
-		this.bios = new ByteInOutStream(1024);
+		HttpEntity entity = response.getEntity();
+		long length = (entity == null) ? -1 : entity.getContentLength();
+
+		this.bios = new ByteInOutStream(buffers, length);
 	}
 
 	@Override
 	protected T buildResult(HttpContext context) throws Exception {
 		int code = response.getStatusLine().getStatusCode();
-		InputStream inputStream = bios.toInputStream();
 
 		switch (code) {
 		case HttpStatus.SC_OK:
 		case HttpStatus.SC_CREATED:
-			return json.readValue(inputStream, jsonClass);
+			return bios.readJson(reader);
 		case HttpStatus.SC_BAD_REQUEST:
 		case HttpStatus.SC_FORBIDDEN:
-			ApiError error = json.readValue(inputStream, ApiError.class);
+			ApiError error = bios.readJson(errorReader);
 			throw new ErrorResponseException(error);
 		case HttpStatus.SC_NOT_FOUND:
 			HttpCoreContext coreContext = HttpCoreContext.adapt(context);
@@ -103,11 +127,23 @@ class JsonApiAsyncConsumer<T> extends AsyncByteConsumer<T> {
 		default:
 			ContentType type =
 			        ContentType.getLenient(response.getEntity());
-			InputStreamEntity entity =
-			        new InputStreamEntity(inputStream, bios.size(), type);
+			InputStreamEntity entity = new InputStreamEntity(
+			        bios.toInputStream(), bios.size(), type);
 			response.setEntity(entity);
+
+			// The buffer now belongs to the response entity.
+			bios = null;
+
 			throw new UnexpectedResponseException(response);
 		}
 	}
 
+	@Override
+	protected void releaseResources() {
+		if (bios != null) {
+			bios.release();
+			bios = null;
+		}
+	}
+
 }
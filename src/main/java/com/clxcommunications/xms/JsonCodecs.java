@@ -0,0 +1,118 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * A cache of typed Jackson readers and writers. Resolving the serializer or
+ * deserializer of a type through an {@link ObjectMapper} has a cost on every
+ * call, a typed reader or writer resolves it once and can then be reused
+ * indefinitely since readers and writers are immutable and thread safe.
+ * <p>
+ * Note, the readers and writers capture the configuration of the object mapper
+ * at the time they are created. The object mapper should therefore be fully
+ * configured before this cache is used.
+ */
+@ParametersAreNonnullByDefault
+final class JsonCodecs {
+
+	private final ObjectMapper json;
+
+	private final ConcurrentMap<Class<?>, ObjectReader> readers =
+	        new ConcurrentHashMap<Class<?>, ObjectReader>();
+
+	private final ConcurrentMap<Class<?>, ObjectWriter> writers =
+	        new ConcurrentHashMap<Class<?>, ObjectWriter>();
+
+	/**
+	 * Creates a new cache of readers and writers for the given object mapper.
+	 * 
+	 * @param json
+	 *            the object mapper
+	 */
+	JsonCodecs(ObjectMapper json) {
+		this.json = json;
+	}
+
+	/**
+	 * The object mapper from which the readers and writers are created.
+	 * 
+	 * @return a non-null object mapper
+	 */
+	@Nonnull
+	ObjectMapper mapper() {
+		return json;
+	}
+
+	/**
+	 * Returns a reader of the given type.
+	 * 
+	 * @param clazz
+	 *            the type to read
+	 * @return a non-null object reader
+	 */
+	@Nonnull
+	ObjectReader reader(Class<?> clazz) {
+		ObjectReader reader = readers.get(clazz);
+
+		if (reader == null) {
+			ObjectReader fresh = json.readerFor(clazz);
+			reader = readers.putIfAbsent(clazz, fresh);
+			if (reader == null) {
+				reader = fresh;
+			}
+		}
+
+		return reader;
+	}
+
+	/**
+	 * Returns a writer of the given type. Since the writer is bound to the
+	 * given type, the type should be the runtime class of the written objects.
+	 * 
+	 * @param clazz
+	 *            the type to write
+	 * @return a non-null object writer
+	 */
+	@Nonnull
+	ObjectWriter writer(Class<?> clazz) {
+		ObjectWriter writer = writers.get(clazz);
+
+		if (writer == null) {
+			ObjectWriter fresh = json.writerFor(clazz);
+			writer = writers.putIfAbsent(clazz, fresh);
+			if (writer == null) {
+				writer = fresh;
+			}
+		}
+
+		return writer;
+	}
+
+}
@@ -0,0 +1,650 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.http.HttpHost;
+import org.threeten.bp.Duration;
+
+/**
+ * Spreads the requests of an API connection over several XMS endpoints, for
+ * example in different regions. Each request attempt is sent to an endpoint
+ * chosen by the {@link #strategy() strategy} among the healthy endpoints. A
+ * retried attempt is preferably sent to another endpoint than the failed one.
+ * <p>
+ * An endpoint whose latest {@link #ejectionThreshold()} requests have failed,
+ * or been slower than {@link #slowCallDuration()}, is ejected for
+ * {@link #ejectionDuration()}. An ejected endpoint only receives requests if
+ * all endpoints are ejected. A request is failed if it ends in an I/O error or
+ * a response with status 429 or 5xx.
+ * <p>
+ * The endpoints must have the same API, i.e., the paths below the endpoint
+ * URLs must be interchangeable. A load balancer is given to an API connection
+ * using {@link ApiConnection.Builder#loadBalancer(LoadBalancer)}.
+ * <p>
+ * Since the health of the endpoints is kept inside the load balancer, load
+ * balancers are compared by identity rather than by their configuration.
+ */
+public final class LoadBalancer {
+
+	/**
+	 * A builder of load balancers.
+	 */
+	public static final class Builder {
+
+		private final List<URI> endpoints = new ArrayList<URI>();
+		private Strategy strategy = Strategy.ROUND_ROBIN;
+		private int ejectionThreshold = 5;
+		private Duration slowCallDuration = Duration.ofSeconds(10);
+		private Duration ejectionDuration = Duration.ofSeconds(30);
+
+		Builder() {
+		}
+
+		/**
+		 * Adds an endpoint to spread requests over.
+		 * 
+		 * @param endpoint
+		 *            the endpoint to add
+		 * @return this builder
+		 * @see LoadBalancer#endpoints()
+		 */
+		@Nonnull
+		public Builder addEndpoint(URI endpoint) {
+			endpoints.add(Utils.requireNonNull(endpoint, "endpoint"));
+			return this;
+		}
+
+		/**
+		 * Adds endpoints to spread requests over.
+		 * 
+		 * @param endpoints
+		 *            the endpoints to add
+		 * @return this builder
+		 * @see LoadBalancer#endpoints()
+		 */
+		@Nonnull
+		public Builder addEndpoint(URI... endpoints) {
+			return addAllEndpoints(Arrays.asList(endpoints));
+		}
+
+		/**
+		 * Adds endpoints to spread requests over.
+		 * 
+		 * @param endpoints
+		 *            the endpoints to add
+		 * @return this builder
+		 * @see LoadBalancer#endpoints()
+		 */
+		@Nonnull
+		public Builder addAllEndpoints(Iterable<? extends URI> endpoints) {
+			for (URI endpoint : endpoints) {
+				addEndpoint(endpoint);
+			}
+
+			return this;
+		}
+
+		/**
+		 * Sets the strategy used to choose an endpoint.
+		 * 
+		 * @param strategy
+		 *            a non-null strategy
+		 * @return this builder
+		 * @see LoadBalancer#strategy()
+		 */
+		@Nonnull
+		public Builder strategy(Strategy strategy) {
+			this.strategy = Utils.requireNonNull(strategy, "strategy");
+			return this;
+		}
+
+		/**
+		 * Sets the number of consecutive failed or slow requests after which an
+		 * endpoint is ejected.
+		 * 
+		 * @param ejectionThreshold
+		 *            a positive number of requests
+		 * @return this builder
+		 * @see LoadBalancer#ejectionThreshold()
+		 */
+		@Nonnull
+		public Builder ejectionThreshold(int ejectionThreshold) {
+			this.ejectionThreshold = ejectionThreshold;
+			return this;
+		}
+
+		/**
+		 * Sets the round-trip time above which a request counts as failed.
+		 * 
+		 * @param slowCallDuration
+		 *            a non-null positive duration
+		 * @return this builder
+		 * @see LoadBalancer#slowCallDuration()
+		 */
+		@Nonnull
+		public Builder slowCallDuration(Duration slowCallDuration) {
+			this.slowCallDuration =
+			        Utils.requireNonNull(slowCallDuration, "slowCallDuration");
+			return this;
+		}
+
+		/**
+		 * Sets the time an endpoint stays ejected.
+		 * 
+		 * @param ejectionDuration
+		 *            a non-null non-negative duration
+		 * @return this builder
+		 * @see LoadBalancer#ejectionDuration()
+		 */
+		@Nonnull
+		public Builder ejectionDuration(Duration ejectionDuration) {
+			this.ejectionDuration =
+			        Utils.requireNonNull(ejectionDuration, "ejectionDuration");
+			return this;
+		}
+
+		/**
+		 * Builds a load balancer with all endpoints healthy.
+		 * 
+		 * @return a new load balancer
+		 * @throws IllegalStateException
+		 *             if no endpoint was added or an attribute is invalid
+		 */
+		@Nonnull
+		public LoadBalancer build() {
+			return new LoadBalancer(this);
+		}
+
+	}
+
+	/**
+	 * The strategies for choosing an endpoint.
+	 */
+	public enum Strategy {
+
+		/**
+		 * The endpoints are chosen in turn.
+		 */
+		ROUND_ROBIN,
+
+		/**
+		 * The endpoint with the fewest outstanding requests is chosen.
+		 */
+		LEAST_OUTSTANDING,
+
+		/**
+		 * An endpoint is chosen randomly with a probability inversely
+		 * proportional to its recent latency.
+		 */
+		LATENCY_WEIGHTED
+
+	}
+
+	/**
+	 * The state of a single endpoint.
+	 */
+	static final class Endpoint {
+
+		/**
+		 * The weight of the latest latency in the moving average.
+		 */
+		private static final double ALPHA = 0.3;
+
+		final URI uri;
+		final HttpHost host;
+		final AtomicInteger outstanding = new AtomicInteger();
+
+		private double latencyNanos = 0;
+		private int consecutiveFailures = 0;
+		private long ejectedUntilNanos = 0;
+		private boolean ejected = false;
+
+		Endpoint(URI uri) {
+			this.uri = uri;
+			this.host = new HttpHost(uri.getHost(), uri.getPort(),
+			        uri.getScheme());
+		}
+
+		synchronized boolean isEjected(long now) {
+			if (ejected && now - ejectedUntilNanos >= 0) {
+				ejected = false;
+				consecutiveFailures = 0;
+			}
+
+			return ejected;
+		}
+
+		synchronized double latency() {
+			return latencyNanos;
+		}
+
+		synchronized void record(boolean failed, long rttNanos,
+		        int threshold, long ejectionNanos) {
+			latencyNanos = (latencyNanos == 0)
+			        ? rttNanos
+			        : ALPHA * rttNanos + (1 - ALPHA) * latencyNanos;
+
+			if (!failed) {
+				consecutiveFailures = 0;
+			} else if (++consecutiveFailures >= threshold && !ejected) {
+				ejected = true;
+				ejectedUntilNanos = System.nanoTime() + ejectionNanos;
+			}
+		}
+
+	}
+
+	private final AtomicInteger nextIndex = new AtomicInteger();
+
+	private final Random random = new Random();
+
+	private final List<URI> endpoints;
+	private final Map<URI, Endpoint> states;
+	private final Strategy strategy;
+	private final int ejectionThreshold;
+	private final Duration slowCallDuration;
+	private final Duration ejectionDuration;
+
+	/**
+	 * Creates a builder of {@link LoadBalancer} instances.
+	 * 
+	 * @return a builder
+	 */
+	@Nonnull
+	public static final LoadBalancer.Builder builder() {
+		return new Builder();
+	}
+
+	private LoadBalancer(Builder builder) {
+		this.endpoints = Collections.unmodifiableList(
+		        new ArrayList<URI>(builder.endpoints));
+		this.strategy = builder.strategy;
+		this.ejectionThreshold = builder.ejectionThreshold;
+		this.slowCallDuration = builder.slowCallDuration;
+		this.ejectionDuration = builder.ejectionDuration;
+
+		if (endpoints().isEmpty()) {
+			throw new IllegalStateException("no endpoints");
+		}
+
+		for (URI endpoint : endpoints()) {
+			if (endpoint.getQuery() != null) {
+				throw new IllegalStateException(
+				        "endpoint has query component: " + endpoint);
+			}
+
+			if (endpoint.getFragment() != null) {
+				throw new IllegalStateException(
+				        "endpoint has fragment component: " + endpoint);
+			}
+		}
+
+		if (ejectionThreshold() < 1) {
+			throw new IllegalStateException("non-positive ejectionThreshold");
+		}
+
+		if (slowCallDuration().isNegative() || slowCallDuration().isZero()) {
+			throw new IllegalStateException("non-positive slowCallDuration");
+		}
+
+		if (ejectionDuration().isNegative()) {
+			throw new IllegalStateException("negative ejectionDuration");
+		}
+
+		this.states = new LinkedHashMap<URI, Endpoint>();
+
+		for (URI endpoint : endpoints) {
+			states.put(endpoint, new Endpoint(endpoint));
+		}
+	}
+
+	/**
+	 * The endpoints to spread requests over. Each endpoint is a base endpoint
+	 * in the same sense as {@link ApiConnection#endpoint()}.
+	 * 
+	 * @return a non-empty list of endpoints
+	 */
+	public List<URI> endpoints() {
+		return endpoints;
+	}
+
+	/**
+	 * The strategy used to choose an endpoint. Default is
+	 * {@link Strategy#ROUND_ROBIN}.
+	 * 
+	 * @return a non-null strategy
+	 */
+	public Strategy strategy() {
+		return strategy;
+	}
+
+	/**
+	 * The number of consecutive failed or slow requests after which an
+	 * endpoint is ejected. Default is 5.
+	 * 
+	 * @return a positive number of requests
+	 */
+	public int ejectionThreshold() {
+		return ejectionThreshold;
+	}
+
+	/**
+	 * The round-trip time above which a request counts as failed. Default is
+	 * 10 seconds.
+	 * 
+	 * @return a non-null positive duration
+	 */
+	public Duration slowCallDuration() {
+		return slowCallDuration;
+	}
+
+	/**
+	 * The time an endpoint stays ejected. Default is 30 seconds.
+	 * 
+	 * @return a non-null non-negative duration
+	 */
+	public Duration ejectionDuration() {
+		return ejectionDuration;
+	}
+
+	/**
+	 * Whether the given endpoint is currently ejected.
+	 * 
+	 * @param endpoint
+	 *            one of the endpoints of this load balancer
+	 * @return <code>true</code> if ejected, <code>false</code> otherwise
+	 */
+	public boolean isEjected(URI endpoint) {
+		return state(endpoint).isEjected(System.nanoTime());
+	}
+
+	/**
+	 * The number of requests currently outstanding to the given endpoint.
+	 * 
+	 * @param endpoint
+	 *            one of the endpoints of this load balancer
+	 * @return a non-negative number of requests
+	 */
+	public int outstanding(URI endpoint) {
+		return state(endpoint).outstanding.get();
+	}
+
+	private Endpoint state(URI endpoint) {
+		Endpoint state = states.get(endpoint);
+
+		if (state == null) {
+			throw new IllegalArgumentException("unknown endpoint " + endpoint);
+		}
+
+		return state;
+	}
+
+	/**
+	 * Chooses the endpoint of a request and counts the request as outstanding.
+	 * The request must be finished using exactly one of
+	 * {@link #success(URI, long)}, {@link #failure(URI, Exception, long)}, or
+	 * {@link #ignored(URI)}.
+	 * 
+	 * @param avoid
+	 *            an endpoint to avoid if there is another healthy endpoint,
+	 *            may be <code>null</code>
+	 * @return a non-null endpoint
+	 */
+	@Nonnull
+	URI select(@Nullable URI avoid) {
+		return select(avoid, Collections.<URI> emptySet());
+	}
+
+	/**
+	 * Like {@link #select(URI)} but only chooses an endpoint whose circuit in
+	 * the given circuit breaker admits the request. An endpoint whose circuit
+	 * is open is skipped in favor of another endpoint, each endpoint is tried
+	 * at most once. On success the request is counted as outstanding both
+	 * here and in the circuit breaker.
+	 * 
+	 * @param avoid
+	 *            an endpoint to avoid if there is another healthy endpoint,
+	 *            may be <code>null</code>
+	 * @param breaker
+	 *            the circuit breaker to consult
+	 * @return a non-null endpoint
+	 * @throws CircuitBreakerOpenException
+	 *             if the circuits of all endpoints are open, the exception
+	 *             names the first endpoint that was tried
+	 */
+	@Nonnull
+	URI select(@Nullable URI avoid, CircuitBreaker breaker)
+	        throws CircuitBreakerOpenException {
+		Set<URI> open = new HashSet<URI>();
+		URI firstOpen = null;
+
+		while (open.size() < states.size()) {
+			URI endpoint = select(avoid, open);
+
+			if (breaker.tryAcquire(endpoint)) {
+				return endpoint;
+			}
+
+			ignored(endpoint);
+			open.add(endpoint);
+
+			if (firstOpen == null) {
+				firstOpen = endpoint;
+			}
+		}
+
+		throw new CircuitBreakerOpenException(firstOpen);
+	}
+
+	/**
+	 * Chooses the endpoint of a request among the endpoints that are not
+	 * excluded and counts the request as outstanding.
+	 * 
+	 * @param avoid
+	 *            an endpoint to avoid if there is another healthy endpoint,
+	 *            may be <code>null</code>
+	 * @param excluded
+	 *            the endpoints that must not be chosen, not all endpoints
+	 * @return a non-null endpoint
+	 */
+	private URI select(@Nullable URI avoid, Set<URI> excluded) {
+		long now = System.nanoTime();
+		List<Endpoint> eligible = new ArrayList<Endpoint>(states.size());
+
+		for (Endpoint state : states.values()) {
+			if (!excluded.contains(state.uri)) {
+				eligible.add(state);
+			}
+		}
+
+		List<Endpoint> candidates = new ArrayList<Endpoint>(eligible.size());
+
+		for (Endpoint state : eligible) {
+			if (!state.isEjected(now) && !state.uri.equals(avoid)) {
+				candidates.add(state);
+			}
+		}
+
+		if (candidates.isEmpty()) {
+			for (Endpoint state : eligible) {
+				if (!state.isEjected(now)) {
+					candidates.add(state);
+				}
+			}
+		}
+
+		// All endpoints are ejected, better to try any than none.
+		if (candidates.isEmpty()) {
+			candidates.addAll(eligible);
+		}
+
+		Endpoint chosen = choose(candidates);
+
+		chosen.outstanding.incrementAndGet();
+
+		return chosen.uri;
+	}
+
+	private Endpoint choose(List<Endpoint> candidates) {
+		switch (strategy()) {
+		case LEAST_OUTSTANDING:
+			return leastOutstanding(candidates);
+		case LATENCY_WEIGHTED:
+			return latencyWeighted(candidates);
+		default:
+			return roundRobin(candidates);
+		}
+	}
+
+	private Endpoint roundRobin(List<Endpoint> candidates) {
+		int index = (nextIndex.getAndIncrement() & Integer.MAX_VALUE)
+		        % candidates.size();
+
+		return candidates.get(index);
+	}
+
+	private static Endpoint leastOutstanding(List<Endpoint> candidates) {
+		Endpoint best = candidates.get(0);
+
+		for (Endpoint candidate : candidates) {
+			if (candidate.outstanding.get() < best.outstanding.get()) {
+				best = candidate;
+			}
+		}
+
+		return best;
+	}
+
+	private Endpoint latencyWeighted(List<Endpoint> candidates) {
+		double[] weights = new double[candidates.size()];
+		double fastest = 0;
+
+		for (int i = 0; i < weights.length; i++) {
+			double latency = candidates.get(i).latency();
+
+			if (latency > 0) {
+				weights[i] = 1 / latency;
+				fastest = Math.max(fastest, weights[i]);
+			}
+		}
+
+		if (fastest == 0) {
+			return roundRobin(candidates);
+		}
+
+		// Unmeasured endpoints get the weight of the fastest endpoint.
+		double total = 0;
+		for (int i = 0; i < weights.length; i++) {
+			if (weights[i] == 0) {
+				weights[i] = fastest;
+			}
+			total += weights[i];
+		}
+
+		double r;
+		synchronized (random) {
+			r = random.nextDouble() * total;
+		}
+
+		for (int i = 0; i < weights.length - 1; i++) {
+			r -= weights[i];
+			if (r < 0) {
+				return candidates.get(i);
+			}
+		}
+
+		return candidates.get(weights.length - 1);
+	}
+
+	/**
+	 * The HTTP host of the given endpoint.
+	 * 
+	 * @param endpoint
+	 *            one of the endpoints of this load balancer
+	 * @return a non-null host specification
+	 */
+	HttpHost host(URI endpoint) {
+		return state(endpoint).host;
+	}
+
+	/**
+	 * Records a request that succeeded after the given round-trip time.
+	 * 
+	 * @param endpoint
+	 *            the endpoint of the request
+	 * @param rttNanos
+	 *            the round-trip time in nanoseconds
+	 */
+	void success(URI endpoint, long rttNanos) {
+		record(endpoint, false, rttNanos);
+	}
+
+	/**
+	 * Records a request that failed after the given round-trip time. Failures
+	 * that do not indicate a problem with the endpoint, such as a 404
+	 * response, are recorded as successes.
+	 * 
+	 * @param endpoint
+	 *            the endpoint of the request
+	 * @param failure
+	 *            the failure of the request
+	 * @param rttNanos
+	 *            the round-trip time in nanoseconds
+	 */
+	void failure(URI endpoint, Exception failure, long rttNanos) {
+		record(endpoint, Utils.isEndpointFailure(failure), rttNanos);
+	}
+
+	/**
+	 * Finishes a request that gave no information about the endpoint, e.g.,
+	 * because it was cancelled.
+	 * 
+	 * @param endpoint
+	 *            the endpoint of the request
+	 */
+	void ignored(URI endpoint) {
+		state(endpoint).outstanding.decrementAndGet();
+	}
+
+	private void record(URI endpoint, boolean failed, long rttNanos) {
+		Endpoint state = state(endpoint);
+		boolean slow = rttNanos > Utils.toNanos(slowCallDuration());
+
+		state.outstanding.decrementAndGet();
+		state.record(failed || slow, rttNanos, ejectionThreshold(),
+		        Utils.toNanos(ejectionDuration()));
+	}
+
+}
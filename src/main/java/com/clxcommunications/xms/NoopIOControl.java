@@ -0,0 +1,61 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import org.apache.http.nio.IOControl;
+
+/**
+ * An I/O control that ignores all requests. It is given to response consumers
+ * by transports that deliver the response content at the pace of the
+ * consumer anyway.
+ */
+final class NoopIOControl implements IOControl {
+
+	static final NoopIOControl INSTANCE = new NoopIOControl();
+
+	private NoopIOControl() {
+	}
+
+	@Override
+	public void requestInput() {
+		// Intentionally left empty.
+	}
+
+	@Override
+	public void suspendInput() {
+		// Intentionally left empty.
+	}
+
+	@Override
+	public void requestOutput() {
+		// Intentionally left empty.
+	}
+
+	@Override
+	public void suspendOutput() {
+		// Intentionally left empty.
+	}
+
+	@Override
+	public void shutdown() {
+		// Intentionally left empty.
+	}
+
+}
@@ -0,0 +1,43 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+/**
+ * A listener of page elements. Used when streaming a page, in which case each
+ * element is handed to the listener as soon as it has been received and
+ * deserialized.
+ * <p>
+ * Note, the listener is typically invoked from within an I/O thread of the HTTP
+ * client and should therefore not perform any lengthy operations.
+ * 
+ * @param <T>
+ *            the element type
+ */
+public interface PageElementListener<T> {
+
+	/**
+	 * Called for each element in the page, in page order.
+	 * 
+	 * @param element
+	 *            the received element
+	 */
+	void onElement(T element);
+
+}
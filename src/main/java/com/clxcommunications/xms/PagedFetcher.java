@@ -19,14 +19,30 @@
  */
 package com.clxcommunications.xms;
 
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import org.apache.http.concurrent.BasicFuture;
 import org.apache.http.concurrent.FutureCallback;
+import org.codehaus.mojo.animal_sniffer.IgnoreJRERequirement;
 
 import com.clxcommunications.xms.api.Page;
 
@@ -74,6 +90,63 @@ public abstract class PagedFetcher<T> {
 	abstract Future<Page<T>> fetchAsync(int page,
 	        @Nullable FutureCallback<Page<T>> callback);
 
+	/**
+	 * Asynchronously fetches the page having the given page number and hands
+	 * each page element to the given listener as soon as it is available. For
+	 * pages fetched from XMS the elements are deserialized while the response
+	 * is being received, so the first elements are available before the
+	 * complete page has arrived and the page content is never held in memory
+	 * as a whole.
+	 * <p>
+	 * The page provided by the returned future holds the page metadata but its
+	 * content may be empty. The future completes after the listener has
+	 * received all elements.
+	 * 
+	 * @param page
+	 *            page to fetch (starting from zero)
+	 * @param listener
+	 *            the listener receiving the page elements
+	 * @param callback
+	 *            request callback
+	 * @return a future providing the requested page
+	 */
+	@Nonnull
+	public Future<Page<T>> streamAsync(int page,
+	        final PageElementListener<? super T> listener,
+	        @Nullable FutureCallback<Page<T>> callback) {
+		final BasicFuture<Page<T>> future = new BasicFuture<Page<T>>(callback);
+
+		fetchAsync(page, new FutureCallback<Page<T>>() {
+
+			@Override
+			public void completed(Page<T> result) {
+				try {
+					for (T element : result) {
+						listener.onElement(element);
+					}
+				} catch (RuntimeException e) {
+					future.failed(e);
+					return;
+				}
+
+				future.completed(result);
+			}
+
+			@Override
+			public void failed(Exception ex) {
+				future.failed(ex);
+			}
+
+			@Override
+			public void cancelled() {
+				future.cancel();
+			}
+
+		});
+
+		return future;
+	}
+
 	/**
 	 * Returns an iterable object that traverses all fetched elements across all
 	 * associated pages. This is done by iterating over fetched pages and, when
@@ -94,13 +167,248 @@ public abstract class PagedFetcher<T> {
 	 */
 	@Nonnull
 	public Iterable<T> elements() {
+		return elementsOf(pages());
+	}
+
+	/**
+	 * Like {@link #elements()} but the pages are fetched using read-ahead as
+	 * described in {@link #pages(int)}.
+	 * 
+	 * @param readAhead
+	 *            the maximum number of pages to fetch ahead of the current page
+	 * @return a non-null iterable
+	 * @throws IllegalArgumentException
+	 *             if the read-ahead is negative
+	 * @throws RuntimeException
+	 *             if the background page fetching failed
+	 */
+	@Nonnull
+	public Iterable<T> elements(int readAhead) {
+		return elementsOf(pages(readAhead));
+	}
+
+	/**
+	 * Returns an iterable object that fetches and traverses all matching pages.
+	 * Each iteration will result in a network fetch.
+	 * <p>
+	 * This iterator will always yield at least one page, which might be empty.
+	 * <p>
+	 * Since the returned iterator will perform asynchronous network traffic it
+	 * is possible that the {@link Iterator#next()} method throws
+	 * {@link RuntimeException} having as cause an {@link ExecutionException}.
+	 * 
+	 * @return a non-null iterable
+	 * @throws RuntimeApiException
+	 *             if the background page fetching failed
+	 */
+	@Nonnull
+	public Iterable<Page<T>> pages() {
+		return pages(0);
+	}
+
+	/**
+	 * Returns an iterable object that fetches and traverses all matching pages
+	 * while keeping up to <code>readAhead</code> subsequent pages in flight.
+	 * That is, while the caller is processing the current page the following
+	 * pages are already being fetched in the background.
+	 * <p>
+	 * The first page is always fetched on its own since the total number of
+	 * pages is not known until it has arrived. After that, pages are requested
+	 * ahead of time but never beyond the last page indicated by the most
+	 * recently received page. A read-ahead of zero gives the same behavior as
+	 * {@link #pages()}.
+	 * <p>
+	 * Note, pages that have been requested ahead of time are not cancelled if
+	 * the iteration is abandoned before they are consumed.
+	 * <p>
+	 * Since the returned iterator will perform asynchronous network traffic it
+	 * is possible that the {@link Iterator#next()} method throws
+	 * {@link RuntimeException} having as cause an {@link ExecutionException}.
+	 * 
+	 * @param readAhead
+	 *            the maximum number of pages to fetch ahead of the current page
+	 * @return a non-null iterable
+	 * @throws IllegalArgumentException
+	 *             if the read-ahead is negative
+	 * @throws RuntimeApiException
+	 *             if the background page fetching failed
+	 */
+	@Nonnull
+	public Iterable<Page<T>> pages(final int readAhead) {
+		if (readAhead < 0) {
+			throw new IllegalArgumentException("negative read-ahead");
+		}
+
+		return new Iterable<Page<T>>() {
+
+			@Override
+			public Iterator<Page<T>> iterator() {
+				return new PageIterator(readAhead);
+			}
+
+		};
+	}
+
+	/**
+	 * Like {@link #elements()} but the pages are fetched concurrently as
+	 * described in {@link #parallelPages(int, boolean)}.
+	 * 
+	 * @param maxConcurrency
+	 *            the maximum number of simultaneous page requests
+	 * @param ordered
+	 *            whether pages must be delivered in page order
+	 * @return a non-null iterable
+	 * @throws IllegalArgumentException
+	 *             if the maximum concurrency is not positive
+	 * @throws RuntimeException
+	 *             if the background page fetching failed
+	 */
+	@Nonnull
+	public Iterable<T> parallelElements(int maxConcurrency, boolean ordered) {
+		return elementsOf(parallelPages(maxConcurrency, ordered));
+	}
+
+	/**
+	 * Returns an iterable object that fetches all matching pages using up to
+	 * <code>maxConcurrency</code> simultaneous requests. The first page is
+	 * fetched on its own, once it has arrived the remaining pages, as given by
+	 * its {@link Page#totalSize()} and {@link Page#size()}, are fetched
+	 * concurrently.
+	 * <p>
+	 * If <code>ordered</code> is <code>true</code> then the pages are delivered
+	 * in page order, this is identical to {@link #pages(int)} using
+	 * <code>maxConcurrency</code> as read-ahead. Otherwise pages are delivered
+	 * in the order they arrive and a new request is issued as soon as a
+	 * request completes, regardless of how quickly the pages are consumed. In
+	 * the unordered case the number of pages is determined by the first page,
+	 * changes on the server during the iteration are therefore not taken into
+	 * account.
+	 * <p>
+	 * Since the returned iterator will perform asynchronous network traffic it
+	 * is possible that the {@link Iterator#next()} method throws
+	 * {@link RuntimeException} having as cause an {@link ExecutionException}.
+	 * 
+	 * @param maxConcurrency
+	 *            the maximum number of simultaneous page requests
+	 * @param ordered
+	 *            whether pages must be delivered in page order
+	 * @return a non-null iterable
+	 * @throws IllegalArgumentException
+	 *             if the maximum concurrency is not positive
+	 * @throws RuntimeApiException
+	 *             if the background page fetching failed
+	 */
+	@Nonnull
+	public Iterable<Page<T>> parallelPages(final int maxConcurrency,
+	        boolean ordered) {
+		if (maxConcurrency < 1) {
+			throw new IllegalArgumentException("non-positive concurrency");
+		}
+
+		if (ordered) {
+			return pages(maxConcurrency);
+		}
+
+		return new Iterable<Page<T>>() {
+
+			@Override
+			public Iterator<Page<T>> iterator() {
+				return new UnorderedPageIterator(maxConcurrency);
+			}
+
+		};
+	}
+
+	/**
+	 * Returns a stream of the matching elements. The stream is backed by a
+	 * spliterator that splits on page ranges, so a parallel stream, e.g.,
+	 * <code>fetcher.stream().parallel()</code>, fetches and processes disjoint
+	 * ranges of pages on different threads. Each page is fetched on the
+	 * thread that traverses it.
+	 * <p>
+	 * To determine the number of elements the first page is fetched
+	 * immediately, this method therefore blocks until it is available. The
+	 * pages to fetch are determined by the first page, so pages added on the
+	 * server after this method returns are not traversed. The stream is not
+	 * sized, {@link Page#totalSize()} of the first page only serves as an
+	 * estimate since the actual number of elements may differ.
+	 * <p>
+	 * Note, this method requires Java 8 or later.
+	 * 
+	 * @return a non-null sequential stream
+	 * @throws RuntimeApiException
+	 *             if fetching the first page failed
+	 */
+	@Nonnull
+	@IgnoreJRERequirement
+	public Stream<T> stream() {
+		Page<T> first = await(fetchAsync(0, null));
+
+		return StreamSupport.stream(
+		        new PageSpliterator(first, 0, pageCount(first)), false);
+	}
+
+	/**
+	 * Determines the number of pages given the first page.
+	 * 
+	 * @param first
+	 *            the first page
+	 * @return the number of pages, at least one
+	 */
+	private static int pageCount(Page<?> first) {
+		if (first.isEmpty()) {
+			return 1;
+		} else {
+			return (first.totalSize() + first.size() - 1) / first.size();
+		}
+	}
+
+	/**
+	 * Waits for the given page future and returns the page. Failures are
+	 * wrapped in a {@link RuntimeApiException}.
+	 * 
+	 * @param future
+	 *            the page future
+	 * @return the fetched page
+	 */
+	private static <T> Page<T> await(Future<Page<T>> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			// Interrupt the thread to let upstream code know.
+			Thread.currentThread().interrupt();
+			throw new RuntimeApiException(new ConcurrentException(e));
+		} catch (CancellationException e) {
+			throw new RuntimeApiException(new ConcurrentException(e));
+		} catch (ExecutionException e) {
+			ApiException cause;
+
+			try {
+				cause = Utils.unwrapExecutionException(e);
+			} catch (ApiException einner) {
+				cause = einner;
+			}
+
+			throw new RuntimeApiException(cause);
+		}
+	}
+
+	/**
+	 * Returns an iterable that flattens the given pages into their elements.
+	 * 
+	 * @param pages
+	 *            the pages to flatten
+	 * @return a non-null iterable
+	 */
+	@Nonnull
+	private static <T> Iterable<T> elementsOf(final Iterable<Page<T>> pages) {
 
 		return new Iterable<T>() {
 
 			@Override
 			public Iterator<T> iterator() {
 
-				final Iterator<Page<T>> pageIt = pages().iterator();
+				final Iterator<Page<T>> pageIt = pages.iterator();
 
 				return new Iterator<T>() {
 
@@ -137,73 +445,320 @@ public abstract class PagedFetcher<T> {
 	}
 
 	/**
-	 * Returns an iterable object that fetches and traverses all matching pages.
-	 * Each iteration will result in a network fetch.
-	 * <p>
-	 * This iterator will always yield at least one page, which might be empty.
-	 * <p>
-	 * Since the returned iterator will perform asynchronous network traffic it
-	 * is possible that the {@link Iterator#next()} method throws
-	 * {@link RuntimeException} having as cause an {@link ExecutionException}.
-	 * 
-	 * @return a non-null iterable
-	 * @throws RuntimeApiException
-	 *             if the background page fetching failed
+	 * An iterator over pages that optionally keeps a number of page requests
+	 * in flight ahead of the current page.
 	 */
-	@Nonnull
-	public Iterable<Page<T>> pages() {
+	private final class PageIterator implements Iterator<Page<T>> {
+
+		private final int readAhead;
+		private final LinkedList<Future<Page<T>>> inFlight =
+		        new LinkedList<Future<Page<T>>>();
+		private Page<T> page = null;
+		private int seenElements = 0;
+		private int pageSize = 0;
+		private int nextPageToRequest = 0;
+
+		PageIterator(int readAhead) {
+			this.readAhead = readAhead;
+		}
 
-		return new Iterable<Page<T>>() {
+		@Override
+		public boolean hasNext() {
+			if (page == null) {
+				return true;
+			} else {
+				return seenElements < page.totalSize() && !page.isEmpty();
+			}
+		}
+
+		@Override
+		public Page<T> next() {
+			Future<Page<T>> future;
+
+			if (inFlight.isEmpty()) {
+				future = fetchAsync(nextPageToRequest++, null);
+			} else {
+				future = inFlight.removeFirst();
+			}
+
+			page = await(future);
+			seenElements += page.size();
+			pageSize = Math.max(pageSize, page.size());
+
+			requestAhead();
+
+			return page;
+		}
+
+		/**
+		 * Issues page requests until the read-ahead limit is reached or there
+		 * are no more pages to request.
+		 */
+		private void requestAhead() {
+			if (readAhead == 0 || !hasNext()) {
+				return;
+			}
+
+			// Index of the last page given the most recently seen total size.
+			int lastPage = (page.totalSize() + pageSize - 1) / pageSize - 1;
+
+			while (inFlight.size() < readAhead
+			        && nextPageToRequest <= lastPage) {
+				inFlight.addLast(fetchAsync(nextPageToRequest++, null));
+			}
+		}
+
+	}
+
+	/**
+	 * An iterator over pages that, once the first page is known, fetches the
+	 * remaining pages concurrently and delivers them in order of arrival. Once
+	 * a page fails, the requests in flight are cancelled, no further pages are
+	 * requested, and the iteration ends after the failure has been thrown.
+	 */
+	private final class UnorderedPageIterator implements Iterator<Page<T>> {
+
+		/**
+		 * A request of a single page, it removes itself from the requests in
+		 * flight when finished.
+		 */
+		private final class PageRequest implements FutureCallback<Page<T>> {
+
+			@Nullable
+			private volatile Future<Page<T>> future;
 
 			@Override
-			public Iterator<Page<T>> iterator() {
+			public void completed(Page<T> result) {
+				inFlight.remove(this);
+
+				BasicFuture<Page<T>> f = new BasicFuture<Page<T>>(null);
+				f.completed(result);
+				arrived.add(f);
+				requestNext();
+			}
 
-				return new Iterator<Page<T>>() {
+			@Override
+			public void failed(Exception ex) {
+				inFlight.remove(this);
 
-					private Page<T> page = null;
-					private int seenElements = 0;
+				BasicFuture<Page<T>> f = new BasicFuture<Page<T>>(null);
+				f.failed(ex);
+				arrived.add(f);
+				stop();
+			}
 
-					@Override
-					public boolean hasNext() {
-						if (page == null) {
-							return true;
-						} else {
-							return seenElements < page.totalSize()
-							        && !page.isEmpty();
-						}
-					}
+			@Override
+			public void cancelled() {
+				inFlight.remove(this);
 
-					@Override
-					public Page<T> next() {
-						int pageToFetch = (page == null) ? 0 : page.page() + 1;
-
-						try {
-							page = fetchAsync(pageToFetch, null).get();
-						} catch (InterruptedException e) {
-							// Interrupt the thread to let upstream code know.
-							Thread.currentThread().interrupt();
-						} catch (ExecutionException e) {
-							ApiException cause;
-
-							try {
-								cause = Utils.unwrapExecutionException(e);
-							} catch (ApiException einner) {
-								cause = einner;
-							}
+				BasicFuture<Page<T>> f = new BasicFuture<Page<T>>(null);
+				f.cancel();
+				arrived.add(f);
+				stop();
+			}
 
-							throw new RuntimeApiException(cause);
-						}
+		}
 
-						seenElements += page.size();
+		private final int maxConcurrency;
+		private final BlockingQueue<BasicFuture<Page<T>>> arrived =
+		        new LinkedBlockingQueue<BasicFuture<Page<T>>>();
+		private final Set<PageRequest> inFlight = Collections.newSetFromMap(
+		        new ConcurrentHashMap<PageRequest, Boolean>());
+		private final AtomicInteger nextPageToRequest = new AtomicInteger(1);
+		private volatile int pageCount = -1;
+		private volatile boolean stopped = false;
+		private boolean failed = false;
+		private int delivered = 0;
+
+		UnorderedPageIterator(int maxConcurrency) {
+			this.maxConcurrency = maxConcurrency;
+		}
 
-						return page;
-					}
+		@Override
+		public boolean hasNext() {
+			return !failed && (pageCount < 0 || delivered < pageCount);
+		}
 
-				};
+		@Override
+		public Page<T> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
 
+			Page<T> page;
+
+			if (pageCount < 0) {
+				try {
+					page = await(fetchAsync(0, null));
+				} catch (RuntimeException e) {
+					failed = true;
+					throw e;
+				}
+
+				pageCount = pageCount(page);
+
+				for (int i = 0; i < maxConcurrency; i++) {
+					requestNext();
+				}
+			} else {
+				try {
+					page = await(arrived.take());
+				} catch (InterruptedException e) {
+					failed = true;
+					stop();
+
+					// Interrupt the thread to let upstream code know.
+					Thread.currentThread().interrupt();
+					throw new RuntimeApiException(new ConcurrentException(e));
+				} catch (RuntimeException e) {
+					failed = true;
+					stop();
+					throw e;
+				}
 			}
 
-		};
+			delivered++;
+
+			return page;
+		}
+
+		/**
+		 * Requests the next unrequested page, if any. When the request
+		 * finishes its result is queued for delivery and another request is
+		 * issued.
+		 */
+		private void requestNext() {
+			if (stopped) {
+				return;
+			}
+
+			int pageNum = nextPageToRequest.getAndIncrement();
+
+			if (pageNum >= pageCount) {
+				return;
+			}
+
+			PageRequest request = new PageRequest();
+			inFlight.add(request);
+
+			Future<Page<T>> future = fetchAsync(pageNum, request);
+			request.future = future;
+
+			// The iterator may have been stopped while issuing the request.
+			if (stopped) {
+				future.cancel(true);
+			}
+		}
+
+		/**
+		 * Stops requesting pages and cancels the requests in flight.
+		 */
+		private void stop() {
+			stopped = true;
+
+			for (PageRequest request : inFlight) {
+				Future<Page<T>> future = request.future;
+				if (future != null) {
+					future.cancel(true);
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * A spliterator over the elements of a range of pages. Splitting hands the
+	 * leading half of the remaining pages to a new spliterator, together with
+	 * any partially traversed page.
+	 */
+	@IgnoreJRERequirement
+	private final class PageSpliterator implements Spliterator<T> {
+
+		private final Page<T> first;
+
+		/**
+		 * The elements of the page currently being traversed, or
+		 * <code>null</code> if no page is being traversed.
+		 */
+		@Nullable
+		private List<T> content;
+		private int index;
+
+		/**
+		 * The next page to fetch.
+		 */
+		private int start;
+
+		/**
+		 * The page following the last page of this spliterator.
+		 */
+		private final int end;
+
+		PageSpliterator(Page<T> first, int start, int end) {
+			this.first = first;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			while (content == null || index >= content.size()) {
+				if (start >= end) {
+					return false;
+				}
+
+				int pageNum = start++;
+				Page<T> page = (pageNum == 0)
+				        ? first
+				        : await(fetchAsync(pageNum, null));
+
+				content = page.content();
+				index = 0;
+			}
+
+			action.accept(content.get(index++));
+
+			return true;
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			int pages = end - start;
+
+			// A single page is only split off from a partially traversed page.
+			if (pages < 1 || (pages == 1 && content == null)) {
+				return null;
+			}
+
+			int mid = start + pages / 2;
+			PageSpliterator prefix = new PageSpliterator(first, start, mid);
+
+			prefix.content = content;
+			prefix.index = index;
+
+			content = null;
+			index = 0;
+			start = mid;
+
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			long pending = (content == null) ? 0 : content.size() - index;
+			long pageSize = first.size();
+			long total = first.totalSize();
+			long fetched = Math.min(start * pageSize, total);
+			long remaining = Math.min(end * pageSize, total) - fetched;
+
+			return pending + Math.max(remaining, 0);
+		}
+
+		@Override
+		public int characteristics() {
+			return ORDERED;
+		}
+
 	}
 
 }
@@ -0,0 +1,250 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+
+import org.apache.http.concurrent.FutureCallback;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import com.clxcommunications.xms.api.Page;
+
+/**
+ * A Reactive Streams publisher of the elements of a paged result. Pages are
+ * fetched asynchronously and only when the subscriber has signaled demand that
+ * cannot be satisfied by the already fetched page. At most one page request is
+ * in flight per subscription.
+ * <p>
+ * Each subscription fetches the pages anew, starting from the first page.
+ * Cancelling a subscription also cancels any ongoing page request.
+ * <p>
+ * Note, this class requires the Reactive Streams API to be available on the
+ * class path. This library declares it as an optional dependency.
+ * 
+ * @param <T>
+ *            the element type
+ */
+public final class PagedPublisher<T> implements Publisher<T> {
+
+	private final PagedFetcher<T> fetcher;
+
+	private PagedPublisher(PagedFetcher<T> fetcher) {
+		this.fetcher = fetcher;
+	}
+
+	/**
+	 * Creates a publisher of all elements available through the given page
+	 * fetcher.
+	 * 
+	 * @param fetcher
+	 *            the page fetcher
+	 * @param <T>
+	 *            the element type
+	 * @return a non-null publisher
+	 */
+	@Nonnull
+	public static <T> PagedPublisher<T> of(PagedFetcher<T> fetcher) {
+		return new PagedPublisher<T>(Utils.requireNonNull(fetcher, "fetcher"));
+	}
+
+	@Override
+	public void subscribe(Subscriber<? super T> subscriber) {
+		Utils.requireNonNull(subscriber, "subscriber");
+
+		subscriber.onSubscribe(
+		        new PageSubscription<T>(fetcher, subscriber));
+	}
+
+	/**
+	 * A subscription that emits page elements on demand. All signals to the
+	 * subscriber are emitted from {@link #drain()}, which is serialized using
+	 * a work-in-progress counter such that at most one thread emits at a time.
+	 */
+	private static final class PageSubscription<T>
+	        implements Subscription, FutureCallback<Page<T>> {
+
+		private final PagedFetcher<T> fetcher;
+		private final Subscriber<? super T> subscriber;
+		private final AtomicLong requested = new AtomicLong();
+		private final AtomicInteger wip = new AtomicInteger();
+
+		private volatile boolean cancelled = false;
+		private volatile Throwable error = null;
+		private volatile Page<T> arrived = null;
+		private volatile boolean inFlight = false;
+		private volatile Future<Page<T>> fetching = null;
+
+		// Only accessed from within the drain loop.
+		private Iterator<T> current = Collections.<T> emptyList().iterator();
+		private Page<T> lastPage = null;
+		private int seenElements = 0;
+
+		PageSubscription(PagedFetcher<T> fetcher,
+		        Subscriber<? super T> subscriber) {
+			this.fetcher = fetcher;
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				error = new IllegalArgumentException(
+				        "non-positive request: " + n);
+			} else {
+				long r;
+				long u;
+				do {
+					r = requested.get();
+					u = r + n < 0 ? Long.MAX_VALUE : r + n;
+				} while (!requested.compareAndSet(r, u));
+			}
+
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+
+			Future<Page<T>> f = fetching;
+			if (f != null) {
+				f.cancel(true);
+			}
+		}
+
+		@Override
+		public void completed(Page<T> result) {
+			arrived = result;
+			inFlight = false;
+			drain();
+		}
+
+		@Override
+		public void failed(Exception ex) {
+			error = ex;
+			inFlight = false;
+			drain();
+		}
+
+		@Override
+		public void cancelled() {
+			error = new CancellationException("page fetch cancelled");
+			inFlight = false;
+			drain();
+		}
+
+		/**
+		 * Emits as many elements as current demand and fetched pages allow
+		 * and starts fetching the next page when needed.
+		 */
+		private void drain() {
+			if (wip.getAndIncrement() != 0) {
+				return;
+			}
+
+			int missed = 1;
+
+			do {
+				if (!emit()) {
+					return;
+				}
+
+				missed = wip.addAndGet(-missed);
+			} while (missed != 0);
+		}
+
+		/**
+		 * Performs one pass of emission.
+		 * 
+		 * @return <code>false</code> if the subscription is terminated,
+		 *         <code>true</code> otherwise
+		 */
+		private boolean emit() {
+			for (;;) {
+				if (cancelled) {
+					return false;
+				}
+
+				/*
+				 * Note, the in-flight flag must be read before the arrived
+				 * page since the callbacks update them in the opposite order.
+				 */
+				boolean idle = !inFlight;
+
+				Throwable t = error;
+				if (t != null) {
+					cancelled = true;
+					subscriber.onError(t);
+					return false;
+				}
+
+				Page<T> page = arrived;
+				if (page != null) {
+					arrived = null;
+					lastPage = page;
+					seenElements += page.size();
+					current = page.iterator();
+				}
+
+				if (current.hasNext()) {
+					long r = requested.get();
+
+					if (r == 0) {
+						return true;
+					}
+
+					if (r != Long.MAX_VALUE) {
+						requested.decrementAndGet();
+					}
+
+					subscriber.onNext(current.next());
+					continue;
+				}
+
+				if (lastPage != null && (lastPage.isEmpty()
+				        || seenElements >= lastPage.totalSize())) {
+					cancelled = true;
+					subscriber.onComplete();
+					return false;
+				}
+
+				if (idle && requested.get() > 0) {
+					int pageToFetch =
+					        (lastPage == null) ? 0 : lastPage.page() + 1;
+					inFlight = true;
+					fetching = fetcher.fetchAsync(pageToFetch, this);
+				}
+
+				return true;
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,382 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.threeten.bp.Duration;
+
+/**
+ * A client-side token bucket rate limiter of API calls. Calls are limited per
+ * service plan and, optionally, per operation. A call that finds the bucket
+ * empty is delayed until a permit is available, without blocking any thread,
+ * or rejected with a {@link RateLimitExceededException} if the wait would be
+ * too long.
+ * <p>
+ * The buckets are kept inside the rate limiter so a single rate limiter may be
+ * shared by several API connections in order to limit their combined traffic.
+ * For the same reason rate limiters are compared by identity rather than by
+ * their configuration.
+ * <p>
+ * A rate limiter is given to an API connection using
+ * {@link ApiConnection.Builder#rateLimiter(RateLimiter)}.
+ */
+public final class RateLimiter {
+
+	/**
+	 * A builder of rate limiters.
+	 */
+	public static final class Builder {
+
+		private Double permitsPerSecond;
+		private Integer burst;
+		private boolean perOperation = false;
+		private Duration maxWait;
+		private RateLimiterListener listener;
+
+		Builder() {
+		}
+
+		/**
+		 * Sets the sustained number of calls per second that are permitted.
+		 * 
+		 * @param permitsPerSecond
+		 *            a positive rate
+		 * @return this builder
+		 * @see RateLimiter#permitsPerSecond()
+		 */
+		@Nonnull
+		public Builder permitsPerSecond(double permitsPerSecond) {
+			this.permitsPerSecond = permitsPerSecond;
+			return this;
+		}
+
+		/**
+		 * Sets the number of calls that may be made at once after a period of
+		 * no traffic.
+		 * 
+		 * @param burst
+		 *            a positive number of calls
+		 * @return this builder
+		 * @see RateLimiter#burst()
+		 */
+		@Nonnull
+		public Builder burst(int burst) {
+			this.burst = burst;
+			return this;
+		}
+
+		/**
+		 * Sets whether each operation has a bucket of its own.
+		 * 
+		 * @param perOperation
+		 *            whether to limit per operation
+		 * @return this builder
+		 * @see RateLimiter#perOperation()
+		 */
+		@Nonnull
+		public Builder perOperation(boolean perOperation) {
+			this.perOperation = perOperation;
+			return this;
+		}
+
+		/**
+		 * Sets the longest time a call may wait for a permit.
+		 * 
+		 * @param maxWait
+		 *            a duration or <code>null</code>
+		 * @return this builder
+		 * @see RateLimiter#maxWait()
+		 */
+		@Nonnull
+		public Builder maxWait(@Nullable Duration maxWait) {
+			this.maxWait = maxWait;
+			return this;
+		}
+
+		/**
+		 * Sets the listener to notify about permitted and rejected calls.
+		 * 
+		 * @param listener
+		 *            a listener or <code>null</code>
+		 * @return this builder
+		 * @see RateLimiter#listener()
+		 */
+		@Nonnull
+		public Builder listener(@Nullable RateLimiterListener listener) {
+			this.listener = listener;
+			return this;
+		}
+
+		/**
+		 * Builds a rate limiter with empty buckets.
+		 * 
+		 * @return a new rate limiter
+		 * @throws IllegalStateException
+		 *             if the rate is missing or an attribute is invalid
+		 */
+		@Nonnull
+		public RateLimiter build() {
+			if (permitsPerSecond == null) {
+				throw new IllegalStateException("missing permitsPerSecond");
+			}
+
+			return new RateLimiter(this);
+		}
+
+	}
+
+	/**
+	 * A token bucket. The number of tokens may be negative, this indicates
+	 * that permits have been reserved by calls that are waiting.
+	 */
+	private static final class TokenBucket {
+
+		private final double tokensPerNano;
+		private final double capacity;
+		private double tokens;
+		private long updatedNanos;
+
+		TokenBucket(double tokensPerSecond, int capacity) {
+			this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+			this.capacity = capacity;
+			this.tokens = capacity;
+			this.updatedNanos = System.nanoTime();
+		}
+
+		/**
+		 * Reserves a token.
+		 * 
+		 * @param maxWaitNanos
+		 *            the longest acceptable wait
+		 * @return the time until the reserved token is available or -1 if no
+		 *         token can be reserved within the given wait
+		 */
+		synchronized long reserve(long maxWaitNanos) {
+			long now = System.nanoTime();
+
+			tokens = Math.min(capacity,
+			        tokens + (now - updatedNanos) * tokensPerNano);
+			updatedNanos = now;
+
+			if (tokens >= 1) {
+				tokens -= 1;
+				return 0;
+			}
+
+			long wait = (long) Math.ceil((1 - tokens) / tokensPerNano);
+
+			if (wait > maxWaitNanos) {
+				return -1;
+			}
+
+			tokens -= 1;
+			return wait;
+		}
+
+	}
+
+	private final double permitsPerSecond;
+	private final int burst;
+	private final boolean perOperation;
+	private final Duration maxWait;
+	private final RateLimiterListener listener;
+
+	private final ConcurrentMap<String, TokenBucket> buckets =
+	        new ConcurrentHashMap<String, TokenBucket>();
+
+	private final AtomicLong permits = new AtomicLong();
+	private final AtomicLong rejections = new AtomicLong();
+	private final AtomicLong totalWaitNanos = new AtomicLong();
+
+	/**
+	 * Creates a builder of {@link RateLimiter} instances.
+	 * 
+	 * @return a builder
+	 */
+	@Nonnull
+	public static final RateLimiter.Builder builder() {
+		return new Builder();
+	}
+
+	private RateLimiter(Builder builder) {
+		this.permitsPerSecond = builder.permitsPerSecond;
+		this.burst = (builder.burst == null)
+		        ? Math.max(1, (int) Math.ceil(permitsPerSecond))
+		        : builder.burst;
+		this.perOperation = builder.perOperation;
+		this.maxWait = builder.maxWait;
+		this.listener = builder.listener;
+
+		if (!(permitsPerSecond > 0)) {
+			throw new IllegalStateException("non-positive permitsPerSecond");
+		}
+
+		if (burst < 1) {
+			throw new IllegalStateException("non-positive burst");
+		}
+
+		if (maxWait != null && maxWait.isNegative()) {
+			throw new IllegalStateException("negative maxWait");
+		}
+	}
+
+	/**
+	 * The sustained number of calls per second that are permitted.
+	 * 
+	 * @return a positive rate
+	 */
+	public double permitsPerSecond() {
+		return permitsPerSecond;
+	}
+
+	/**
+	 * The number of calls that may be made at once after a period of no
+	 * traffic. Default is the number of calls permitted per second, at least
+	 * one.
+	 * 
+	 * @return a positive number of calls
+	 */
+	public int burst() {
+		return burst;
+	}
+
+	/**
+	 * Whether each operation has a bucket of its own. If <code>false</code>,
+	 * the default, then all operations of a service plan share one bucket.
+	 * 
+	 * @return <code>true</code> if limited per operation, <code>false</code>
+	 *         otherwise
+	 */
+	public boolean perOperation() {
+		return perOperation;
+	}
+
+	/**
+	 * The longest time a call may wait for a permit. Calls that would have to
+	 * wait longer are rejected. If <code>null</code>, the default, then calls
+	 * are only rejected if the wait would exceed their deadline.
+	 * 
+	 * @return a duration or <code>null</code>
+	 */
+	@Nullable
+	public Duration maxWait() {
+		return maxWait;
+	}
+
+	/**
+	 * A listener to notify about permitted and rejected calls.
+	 * 
+	 * @return a listener or <code>null</code>
+	 */
+	@Nullable
+	public RateLimiterListener listener() {
+		return listener;
+	}
+
+	/**
+	 * The number of calls that have been given a permit.
+	 * 
+	 * @return a non-negative number of calls
+	 */
+	public long permittedCalls() {
+		return permits.get();
+	}
+
+	/**
+	 * The number of calls that have been rejected.
+	 * 
+	 * @return a non-negative number of calls
+	 */
+	public long rejectedCalls() {
+		return rejections.get();
+	}
+
+	/**
+	 * The total time that permitted calls have waited for their permits.
+	 * Together with {@link #permittedCalls()} this gives the average wait.
+	 * 
+	 * @param unit
+	 *            the unit of the returned value
+	 * @return the total wait time
+	 */
+	public long totalWait(TimeUnit unit) {
+		return unit.convert(totalWaitNanos.get(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Reserves a permit for a call.
+	 * 
+	 * @param servicePlanId
+	 *            the service plan of the call
+	 * @param operation
+	 *            the operation of the call
+	 * @param maxWaitNanos
+	 *            the longest wait acceptable to the call, in addition to
+	 *            {@link #maxWait()}
+	 * @return the time in nanoseconds the call must wait before being sent or
+	 *         -1 if the call is rejected
+	 */
+	long reserve(String servicePlanId, ApiOperation operation,
+	        long maxWaitNanos) {
+		String key = perOperation()
+		        ? servicePlanId + '/' + operation
+		        : servicePlanId;
+
+		TokenBucket bucket = buckets.get(key);
+		if (bucket == null) {
+			TokenBucket fresh = new TokenBucket(permitsPerSecond(), burst());
+			bucket = buckets.putIfAbsent(key, fresh);
+			if (bucket == null) {
+				bucket = fresh;
+			}
+		}
+
+		if (maxWait() != null) {
+			maxWaitNanos = Math.min(maxWaitNanos, Utils.toNanos(maxWait()));
+		}
+
+		long wait = bucket.reserve(maxWaitNanos);
+
+		if (wait < 0) {
+			rejections.incrementAndGet();
+
+			if (listener() != null) {
+				listener().rejected(servicePlanId, operation);
+			}
+		} else {
+			permits.incrementAndGet();
+			totalWaitNanos.addAndGet(wait);
+
+			if (listener() != null) {
+				listener().permitted(servicePlanId, operation, wait);
+			}
+		}
+
+		return wait;
+	}
+
+}
@@ -0,0 +1,57 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+/**
+ * Receives notifications about the decisions of a {@link RateLimiter}. This is
+ * typically used to feed the time calls spend waiting in the limiter into a
+ * metrics system.
+ * <p>
+ * Note, the methods of this interface are called on the thread making the
+ * call or on the I/O threads of the HTTP client. They must therefore return
+ * quickly.
+ */
+public interface RateLimiterListener {
+
+	/**
+	 * Invoked when a call has been given a permit.
+	 * 
+	 * @param servicePlanId
+	 *            the service plan of the call
+	 * @param operation
+	 *            the operation of the call
+	 * @param waitNanos
+	 *            the time the call will wait for its permit, in nanoseconds
+	 */
+	void permitted(String servicePlanId, ApiOperation operation,
+	        long waitNanos);
+
+	/**
+	 * Invoked when a call has been rejected since it would have had to wait
+	 * too long for a permit.
+	 * 
+	 * @param servicePlanId
+	 *            the service plan of the call
+	 * @param operation
+	 *            the operation of the call
+	 */
+	void rejected(String servicePlanId, ApiOperation operation);
+
+}
@@ -0,0 +1,162 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Limits the number of retries to a fraction of the calls made through an API
+ * connection. This prevents retries from multiplying the load on XMS when
+ * many calls fail, for example, during an outage.
+ * <p>
+ * Each call adds <code>ratio</code> to the budget and each retry withdraws one
+ * from it. The budget is capped at a reserve of retries, which are available
+ * also after a period of little traffic.
+ */
+public final class RetryBudget {
+
+	/**
+	 * The budget is kept in thousandths of a retry.
+	 */
+	private static final long UNIT = 1000;
+
+	private final double ratio;
+	private final int reserve;
+	private final long deposit;
+	private final long capacity;
+	private final AtomicLong balance;
+
+	private RetryBudget(double ratio, int reserve) {
+		if (!(ratio >= 0)) {
+			throw new IllegalArgumentException("negative ratio");
+		}
+
+		if (reserve < 0) {
+			throw new IllegalArgumentException("negative reserve");
+		}
+
+		this.ratio = ratio;
+		this.reserve = reserve;
+		this.deposit = (long) (ratio * UNIT);
+		this.capacity = Math.max(reserve, 1) * UNIT;
+		this.balance = new AtomicLong(reserve * UNIT);
+	}
+
+	/**
+	 * Creates a retry budget allowing the given fraction of calls to be
+	 * retried, with a reserve of 10 retries.
+	 * 
+	 * @param ratio
+	 *            the number of retries per call, for example, 0.1 allows one
+	 *            retry for every ten calls
+	 * @return a non-null retry budget
+	 */
+	@Nonnull
+	public static RetryBudget of(double ratio) {
+		return new RetryBudget(ratio, 10);
+	}
+
+	/**
+	 * Creates a retry budget allowing the given fraction of calls to be
+	 * retried.
+	 * 
+	 * @param ratio
+	 *            the number of retries per call, for example, 0.1 allows one
+	 *            retry for every ten calls
+	 * @param reserve
+	 *            the number of retries that can be made on top of the ratio
+	 * @return a non-null retry budget
+	 */
+	@Nonnull
+	public static RetryBudget of(double ratio, int reserve) {
+		return new RetryBudget(ratio, reserve);
+	}
+
+	/**
+	 * The number of retries per call.
+	 * 
+	 * @return a non-negative ratio
+	 */
+	public double ratio() {
+		return ratio;
+	}
+
+	/**
+	 * The number of retries that can be made on top of the ratio.
+	 * 
+	 * @return a non-negative number of retries
+	 */
+	public int reserve() {
+		return reserve;
+	}
+
+	/**
+	 * The number of retries currently available.
+	 * 
+	 * @return a non-negative number of retries
+	 */
+	public int availableRetries() {
+		return (int) (balance.get() / UNIT);
+	}
+
+	/**
+	 * Records that a call is made.
+	 */
+	void deposit() {
+		long b;
+
+		do {
+			b = balance.get();
+
+			if (b >= capacity) {
+				return;
+			}
+		} while (!balance.compareAndSet(b, Math.min(capacity, b + deposit)));
+	}
+
+	/**
+	 * Attempts to withdraw a retry from the budget.
+	 * 
+	 * @return <code>true</code> if a retry may be made, <code>false</code>
+	 *         otherwise
+	 */
+	boolean tryWithdraw() {
+		long b;
+
+		do {
+			b = balance.get();
+
+			if (b < UNIT) {
+				return false;
+			}
+		} while (!balance.compareAndSet(b, b - UNIT));
+
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "RetryBudget{ratio=" + ratio + ", reserve=" + reserve
+		        + ", availableRetries=" + availableRetries() + "}";
+	}
+
+}
@@ -0,0 +1,67 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+/**
+ * Decides whether and when a failed API call should be attempted again. A
+ * retry policy is given to an API connection using
+ * {@link ApiConnection.Builder#retryPolicy(RetryPolicy)}.
+ * <p>
+ * Retries are scheduled without blocking the calling thread or the I/O
+ * threads of the HTTP client. The number of retries is also limited by the
+ * {@link ApiConnection#retryBudget() retry budget} of the connection and the
+ * deadline of the call, if any.
+ * <p>
+ * This interface contains the predefined policy {@link #never}, see also
+ * {@link ExponentialBackoff}.
+ */
+public interface RetryPolicy {
+
+	/**
+	 * A retry policy that never retries.
+	 */
+	public static final RetryPolicy never = new RetryPolicy() {
+
+		@Override
+		public long retryDelay(ApiOperation operation, int attempt,
+		        Exception failure) {
+			return -1;
+		}
+
+	};
+
+	/**
+	 * Returns the time to wait before attempting the given operation again.
+	 * <p>
+	 * Note, this method is called from the I/O threads of the HTTP client and
+	 * must therefore return quickly.
+	 * 
+	 * @param operation
+	 *            the operation that failed
+	 * @param attempt
+	 *            the number of attempts made so far, starting at 1
+	 * @param failure
+	 *            the failure of the latest attempt
+	 * @return the delay in milliseconds or a negative number if the operation
+	 *         should not be attempted again
+	 */
+	long retryDelay(ApiOperation operation, int attempt, Exception failure);
+
+}
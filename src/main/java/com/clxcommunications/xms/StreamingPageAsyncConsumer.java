@@ -0,0 +1,300 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.http.HttpException;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.client.methods.AsyncByteConsumer;
+import org.apache.http.protocol.HttpContext;
+
+import com.clxcommunications.xms.api.Page;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * An asynchronous consumer that incrementally parses a JSON page and hands each
+ * page element to a listener as soon as it has been fully received. The bytes
+ * are fed to a non-blocking JSON parser as they arrive so neither the response
+ * body nor the complete element list is kept in memory.
+ * <p>
+ * The resulting page holds the page metadata but has empty content. Responses
+ * with non-success status are handled like in {@link JsonApiAsyncConsumer}.
+ * 
+ * @param <T>
+ *            the page element type
+ */
+class StreamingPageAsyncConsumer<T> extends AsyncByteConsumer<Page<T>> {
+
+	/**
+	 * A page holding only metadata.
+	 */
+	private static final class StreamedPage<T> extends Page<T> {
+
+		private final int page;
+		private final int size;
+		private final int totalSize;
+
+		StreamedPage(int page, int size, int totalSize) {
+			this.page = page;
+			this.size = size;
+			this.totalSize = totalSize;
+		}
+
+		@Override
+		public int page() {
+			return page;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public int totalSize() {
+			return totalSize;
+		}
+
+		@Override
+		public List<T> content() {
+			return Collections.emptyList();
+		}
+
+	}
+
+	private final ObjectMapper json;
+	private final ObjectReader elementReader;
+	private final String contentField;
+	private final PageElementListener<? super T> listener;
+	private final JsonApiAsyncConsumer<?> errorConsumer;
+
+	private boolean streaming;
+	private JsonParser parser;
+	private byte[] chunk;
+
+	// Parse state, only meaningful while streaming.
+	private int depth = 0;
+	private String field = null;
+	private boolean inContent = false;
+	private TokenBuffer element = null;
+	private int elementDepth = 0;
+	private int page = 0;
+	private int size = 0;
+	private int totalSize = 0;
+
+	/**
+	 * The number of elements handed to the listener so far.
+	 */
+	private volatile int delivered = 0;
+
+	/**
+	 * Builds a new streaming page consumer.
+	 * 
+	 * @param json
+	 *            the object mapper
+	 * @param elementReader
+	 *            the reader of the page elements
+	 * @param contentField
+	 *            the name of the JSON field holding the page elements
+	 * @param listener
+	 *            the listener that receives the page elements
+	 */
+	public StreamingPageAsyncConsumer(ObjectMapper json,
+	        ObjectReader elementReader, String contentField,
+	        PageElementListener<? super T> listener) {
+		this.json = json;
+		this.elementReader = elementReader;
+		this.contentField = contentField;
+		this.listener = listener;
+		this.errorConsumer = new JsonApiAsyncConsumer<Object>(json,
+		        Object.class);
+	}
+
+	@Override
+	protected void onResponseReceived(HttpResponse response)
+	        throws HttpException, IOException {
+		int code = response.getStatusLine().getStatusCode();
+
+		streaming = (code == HttpStatus.SC_OK);
+
+		if (streaming) {
+			parser = json.getFactory().createNonBlockingByteArrayParser();
+		} else {
+			errorConsumer.onResponseReceived(response);
+		}
+	}
+
+	@Override
+	protected void onByteReceived(ByteBuffer buf, IOControl ioctrl)
+	        throws IOException {
+		if (!streaming) {
+			errorConsumer.onByteReceived(buf, ioctrl);
+			return;
+		}
+
+		ByteArrayFeeder feeder =
+		        (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+
+		if (buf.hasArray()) {
+			int offset = buf.arrayOffset() + buf.position();
+			feeder.feedInput(buf.array(), offset, offset + buf.remaining());
+		} else {
+			if (chunk == null || chunk.length < buf.remaining()) {
+				chunk = new byte[buf.remaining()];
+			}
+
+			int length = buf.remaining();
+			buf.get(chunk, 0, length);
+			feeder.feedInput(chunk, 0, length);
+		}
+
+		parseAvailable();
+	}
+
+	@Override
+	protected Page<T> buildResult(HttpContext context) throws Exception {
+		if (!streaming) {
+			errorConsumer.buildResult(context);
+
+			/*
+			 * The error consumer only returns normally for success responses
+			 * and the only success response we expect is handled by streaming.
+			 */
+			throw new IllegalStateException("unexpected success response");
+		}
+
+		((ByteArrayFeeder) parser.getNonBlockingInputFeeder()).endOfInput();
+		parseAvailable();
+
+		if (depth != 0) {
+			throw new JsonParseException(parser, "truncated page");
+		}
+
+		return new StreamedPage<T>(page, size, totalSize);
+	}
+
+	/**
+	 * Consumes all tokens that can be parsed from the input fed so far.
+	 * 
+	 * @throws IOException
+	 *             if the input is not valid JSON or an element could not be
+	 *             deserialized
+	 */
+	private void parseAvailable() throws IOException {
+		JsonToken token;
+
+		while ((token = parser.nextToken()) != null
+		        && token != JsonToken.NOT_AVAILABLE) {
+			if (element != null) {
+				element.copyCurrentEvent(parser);
+
+				if (token.isStructStart()) {
+					elementDepth++;
+				} else if (token.isStructEnd()) {
+					elementDepth--;
+				}
+
+				if (elementDepth == 0) {
+					emitElement();
+				}
+
+				continue;
+			}
+
+			if (inContent) {
+				if (token == JsonToken.END_ARRAY) {
+					inContent = false;
+					depth--;
+				} else {
+					element = new TokenBuffer(json, false);
+					element.copyCurrentEvent(parser);
+					elementDepth = token.isStructStart() ? 1 : 0;
+
+					if (elementDepth == 0) {
+						emitElement();
+					}
+				}
+
+				continue;
+			}
+
+			if (token.isStructStart()) {
+				if (depth == 1 && token == JsonToken.START_ARRAY
+				        && contentField.equals(field)) {
+					inContent = true;
+				}
+				depth++;
+			} else if (token.isStructEnd()) {
+				depth--;
+			} else if (depth == 1 && token == JsonToken.FIELD_NAME) {
+				field = parser.getCurrentName();
+			} else if (depth == 1 && token == JsonToken.VALUE_NUMBER_INT) {
+				if ("page".equals(field)) {
+					page = parser.getIntValue();
+				} else if ("page_size".equals(field)) {
+					size = parser.getIntValue();
+				} else if ("count".equals(field)) {
+					totalSize = parser.getIntValue();
+				}
+			}
+		}
+	}
+
+	/**
+	 * The number of page elements handed to the listener so far.
+	 * 
+	 * @return a non-negative number of elements
+	 */
+	int elementsDelivered() {
+		return delivered;
+	}
+
+	/**
+	 * Deserializes the buffered element and hands it to the listener.
+	 * 
+	 * @throws IOException
+	 *             if the element could not be deserialized
+	 */
+	private void emitElement() throws IOException {
+		JsonParser elementParser = element.asParser(json);
+		element = null;
+
+		try {
+			T value = elementReader.readValue(elementParser);
+			delivered++;
+			listener.onElement(value);
+		} finally {
+			elementParser.close();
+		}
+	}
+
+}
@@ -0,0 +1,111 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.immutables.value.Value;
+import org.threeten.bp.Duration;
+
+/**
+ * Describes how long the operations of an API connection may take. An
+ * operation that has not finished when its timeout has passed is cancelled,
+ * which also releases the connection it was using.
+ * <p>
+ * The timeout of an operation covers the whole request, from waiting for a
+ * pooled connection until the response is fully received. Operations without
+ * a timeout are only limited by the connect and socket timeouts of the HTTP
+ * client.
+ */
+@Value.Immutable
+@ValueStylePackage
+public abstract class TimeoutPolicy {
+
+	/**
+	 * A builder of timeout policies.
+	 */
+	public static class Builder extends TimeoutPolicyImpl.Builder {
+
+		Builder() {
+		}
+
+	}
+
+	/**
+	 * Creates a builder of {@link TimeoutPolicy} instances.
+	 * 
+	 * @return a builder
+	 */
+	@Nonnull
+	public static final TimeoutPolicy.Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * The timeout of operations that have no specific timeout in
+	 * {@link #operationTimeouts()}. If <code>null</code>, the default, then
+	 * such operations have no timeout.
+	 * 
+	 * @return a duration or <code>null</code>
+	 */
+	@Nullable
+	public abstract Duration defaultTimeout();
+
+	/**
+	 * The timeouts of specific operations.
+	 * 
+	 * @return a non-null map from operation to timeout
+	 */
+	public abstract Map<ApiOperation, Duration> operationTimeouts();
+
+	/**
+	 * Returns the timeout of the given operation.
+	 * 
+	 * @param operation
+	 *            the operation whose timeout to return
+	 * @return a duration or <code>null</code> if the operation has no timeout
+	 */
+	@Nullable
+	public Duration timeout(ApiOperation operation) {
+		Duration timeout = operationTimeouts().get(operation);
+
+		return timeout == null ? defaultTimeout() : timeout;
+	}
+
+	/**
+	 * Verifies that the object is in a reasonable state.
+	 */
+	@Value.Check
+	protected void check() {
+		if (defaultTimeout() != null && defaultTimeout().isNegative()) {
+			throw new IllegalStateException("negative defaultTimeout");
+		}
+
+		for (Duration timeout : operationTimeouts().values()) {
+			if (timeout.isNegative()) {
+				throw new IllegalStateException("negative operation timeout");
+			}
+		}
+	}
+
+}
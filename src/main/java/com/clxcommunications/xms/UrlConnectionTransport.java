@@ -0,0 +1,484 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.Configurable;
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpCoreContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.threeten.bp.Duration;
+
+/**
+ * A transport that sends requests using the {@link HttpURLConnection} of the
+ * JDK. Each exchange is performed using blocking I/O on a thread of the given
+ * executor, which is occupied until the response is fully consumed. The
+ * executor should therefore be able to run as many tasks as there are
+ * requests in flight, for example, a cached thread pool or, on Java 21 and
+ * later, a virtual thread per task executor.
+ * <p>
+ * Connections are kept alive and reused by the JDK, the number of idle
+ * connections kept per host is controlled by the
+ * <code>http.maxConnections</code> system property. The JDK default TLS
+ * configuration is used for HTTPS.
+ * <p>
+ * Of the given {@link HttpClientConfig} only the connect and socket timeouts
+ * are used, and these are overridden by the timeouts of the request
+ * configuration, if any. Redirects are not followed.
+ */
+public final class UrlConnectionTransport implements ApiTransport {
+
+	/**
+	 * The exchange of a single request and its response.
+	 * 
+	 * @param <T>
+	 *            the result type of the consumer
+	 */
+	private final class Exchange<T> extends BasicFuture<T>
+	        implements Runnable {
+
+		private final HttpHost target;
+		private final HttpRequest request;
+		private final HttpAsyncResponseConsumer<T> consumer;
+
+		@Nullable
+		private volatile HttpURLConnection connection;
+
+		Exchange(HttpHost target, HttpRequest request,
+		        HttpAsyncResponseConsumer<T> consumer,
+		        @Nullable FutureCallback<T> callback) {
+			super(callback);
+			this.target = target;
+			this.request = request;
+			this.consumer = consumer;
+		}
+
+		@Override
+		public void run() {
+			try {
+				if (!isDone()) {
+					completed(exchange());
+				}
+			} catch (Exception e) {
+				if (isCancelled()) {
+					consumer.cancel();
+				} else {
+					consumer.failed(e);
+					failed(e);
+				}
+			} finally {
+				closeQuietly(consumer);
+			}
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			if (!super.cancel(mayInterruptIfRunning)) {
+				return false;
+			}
+
+			// Aborts the exchange in progress, if any.
+			HttpURLConnection c = connection;
+			if (c != null) {
+				c.disconnect();
+			}
+
+			return true;
+		}
+
+		private T exchange() throws Exception {
+			HttpURLConnection c = open(target, request);
+
+			connection = c;
+
+			// The exchange may have been cancelled while connecting.
+			if (isCancelled()) {
+				c.disconnect();
+				throw new IOException("exchange cancelled");
+			}
+
+			sendEntity(c, request);
+
+			BasicHttpResponse response = receiveHead(c);
+			InputStream in = (c.getResponseCode() >= 400)
+			        ? c.getErrorStream()
+			        : c.getInputStream();
+
+			if (in != null) {
+				BasicHttpEntity entity = new BasicHttpEntity();
+				entity.setContentLength(c.getContentLength());
+				entity.setContentType(
+				        response.getFirstHeader(HttpHeaders.CONTENT_TYPE));
+				entity.setContentEncoding(
+				        response.getFirstHeader(HttpHeaders.CONTENT_ENCODING));
+				response.setEntity(entity);
+			}
+
+			HttpContext context = new BasicHttpContext();
+			context.setAttribute(HttpCoreContext.HTTP_TARGET_HOST, target);
+			context.setAttribute(HttpCoreContext.HTTP_REQUEST, request);
+			context.setAttribute(HttpCoreContext.HTTP_RESPONSE, response);
+
+			consumer.responseReceived(response);
+
+			if (in != null) {
+				try {
+					StreamDecoder decoder = new StreamDecoder(in);
+					while (!decoder.isCompleted() && !isDone()) {
+						consumer.consumeContent(decoder,
+						        NoopIOControl.INSTANCE);
+					}
+				} finally {
+					in.close();
+				}
+			}
+
+			consumer.responseCompleted(context);
+
+			Exception failure = consumer.getException();
+			if (failure != null) {
+				throw failure;
+			}
+
+			return consumer.getResult();
+		}
+
+	}
+
+	/**
+	 * A content decoder that reads from a blocking input stream.
+	 */
+	private static final class StreamDecoder implements ContentDecoder {
+
+		private final InputStream in;
+
+		private boolean completed;
+
+		StreamDecoder(InputStream in) {
+			this.in = in;
+		}
+
+		@Override
+		public int read(ByteBuffer dst) throws IOException {
+			if (completed) {
+				return -1;
+			}
+
+			int n;
+
+			if (dst.hasArray()) {
+				n = in.read(dst.array(), dst.arrayOffset() + dst.position(),
+				        dst.remaining());
+				if (n > 0) {
+					dst.position(dst.position() + n);
+				}
+			} else {
+				byte[] buf = new byte[dst.remaining()];
+				n = in.read(buf);
+				if (n > 0) {
+					dst.put(buf, 0, n);
+				}
+			}
+
+			if (n < 0) {
+				completed = true;
+			}
+
+			return n;
+		}
+
+		@Override
+		public boolean isCompleted() {
+			return completed;
+		}
+
+	}
+
+	private static final Logger log =
+	        LoggerFactory.getLogger(UrlConnectionTransport.class);
+
+	private final Executor executor;
+
+	private final HttpClientConfig config;
+
+	private UrlConnectionTransport(Executor executor,
+	        HttpClientConfig config) {
+		this.executor = executor;
+		this.config = config;
+	}
+
+	/**
+	 * Creates a transport that performs its exchanges on the given executor
+	 * using the default HTTP client configuration.
+	 * 
+	 * @param executor
+	 *            the executor running the exchanges
+	 * @return a non-null transport
+	 */
+	@Nonnull
+	public static UrlConnectionTransport of(Executor executor) {
+		return of(executor, HttpClientConfig.builder().build());
+	}
+
+	/**
+	 * Creates a transport that performs its exchanges on the given executor
+	 * using the given HTTP client configuration.
+	 * 
+	 * @param executor
+	 *            the executor running the exchanges
+	 * @param config
+	 *            the HTTP client configuration
+	 * @return a non-null transport
+	 */
+	@Nonnull
+	public static UrlConnectionTransport of(Executor executor,
+	        HttpClientConfig config) {
+		return new UrlConnectionTransport(
+		        Utils.requireNonNull(executor, "executor"),
+		        Utils.requireNonNull(config, "config"));
+	}
+
+	/**
+	 * The executor running the exchanges.
+	 * 
+	 * @return a non-null executor
+	 */
+	@Nonnull
+	public Executor executor() {
+		return executor;
+	}
+
+	/**
+	 * The HTTP client configuration of this transport.
+	 * 
+	 * @return a non-null HTTP client configuration
+	 */
+	@Nonnull
+	public HttpClientConfig config() {
+		return config;
+	}
+
+	@Override
+	public <T> Future<T> execute(HttpHost target, HttpRequest request,
+	        HttpAsyncResponseConsumer<T> consumer, FutureCallback<T> callback) {
+		Exchange<T> exchange =
+		        new Exchange<T>(target, request, consumer, callback);
+
+		try {
+			executor.execute(exchange);
+		} catch (RejectedExecutionException e) {
+			consumer.failed(e);
+			exchange.failed(e);
+			closeQuietly(consumer);
+		}
+
+		return exchange;
+	}
+
+	/**
+	 * Opens a connection for the given request and sets its method, timeouts,
+	 * and headers.
+	 * 
+	 * @param target
+	 *            the host to send the request to
+	 * @param request
+	 *            the request to send
+	 * @return an unconnected URL connection
+	 * @throws IOException
+	 *             if the connection could not be opened
+	 */
+	private HttpURLConnection open(HttpHost target, HttpRequest request)
+	        throws IOException {
+		URI uri = URI.create(request.getRequestLine().getUri());
+		StringBuilder sb = new StringBuilder(target.toURI());
+
+		if (uri.getRawPath() != null) {
+			sb.append(uri.getRawPath());
+		}
+
+		if (uri.getRawQuery() != null) {
+			sb.append('?').append(uri.getRawQuery());
+		}
+
+		HttpURLConnection c =
+		        (HttpURLConnection) new URL(sb.toString()).openConnection();
+
+		c.setRequestMethod(request.getRequestLine().getMethod());
+		c.setInstanceFollowRedirects(false);
+		c.setUseCaches(false);
+
+		int connectTimeout = toMillis(config.connectTimeout());
+		int socketTimeout = toMillis(config.socketTimeout());
+
+		if (request instanceof Configurable) {
+			RequestConfig rc = ((Configurable) request).getConfig();
+
+			if (rc != null && rc.getConnectTimeout() >= 0) {
+				connectTimeout = rc.getConnectTimeout();
+			}
+
+			if (rc != null && rc.getSocketTimeout() >= 0) {
+				socketTimeout = rc.getSocketTimeout();
+			}
+		}
+
+		c.setConnectTimeout(connectTimeout);
+		c.setReadTimeout(socketTimeout);
+
+		for (Header header : request.getAllHeaders()) {
+			c.addRequestProperty(header.getName(), header.getValue());
+		}
+
+		return c;
+	}
+
+	/**
+	 * Writes the entity of the given request, if any, to the given
+	 * connection.
+	 * 
+	 * @param c
+	 *            the connection
+	 * @param request
+	 *            the request being sent
+	 * @throws IOException
+	 *             if the entity could not be written
+	 */
+	private static void sendEntity(HttpURLConnection c, HttpRequest request)
+	        throws IOException {
+		if (!(request instanceof HttpEntityEnclosingRequest)) {
+			return;
+		}
+
+		HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+
+		if (entity == null) {
+			return;
+		}
+
+		if (entity.getContentType() != null) {
+			c.setRequestProperty(HttpHeaders.CONTENT_TYPE,
+			        entity.getContentType().getValue());
+		}
+
+		if (entity.getContentEncoding() != null) {
+			c.setRequestProperty(HttpHeaders.CONTENT_ENCODING,
+			        entity.getContentEncoding().getValue());
+		}
+
+		long length = entity.getContentLength();
+
+		if (length >= 0 && length <= Integer.MAX_VALUE) {
+			c.setFixedLengthStreamingMode((int) length);
+		} else {
+			c.setChunkedStreamingMode(0);
+		}
+
+		c.setDoOutput(true);
+
+		OutputStream out = c.getOutputStream();
+		try {
+			entity.writeTo(out);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Receives the status line and headers of the response.
+	 * 
+	 * @param c
+	 *            the connection
+	 * @return a response without entity
+	 * @throws IOException
+	 *             if the response could not be received
+	 */
+	private static BasicHttpResponse receiveHead(HttpURLConnection c)
+	        throws IOException {
+		BasicHttpResponse response = new BasicHttpResponse(
+		        HttpVersion.HTTP_1_1, c.getResponseCode(),
+		        c.getResponseMessage());
+
+		for (Map.Entry<String, List<String>> e : c.getHeaderFields()
+		        .entrySet()) {
+			// The status line is given using a null key.
+			if (e.getKey() == null) {
+				continue;
+			}
+
+			for (String value : e.getValue()) {
+				response.addHeader(e.getKey(), value);
+			}
+		}
+
+		return response;
+	}
+
+	private static void closeQuietly(HttpAsyncResponseConsumer<?> consumer) {
+		try {
+			consumer.close();
+		} catch (IOException e) {
+			log.debug("Failed to close response consumer", e);
+		}
+	}
+
+	/**
+	 * Converts the given duration to a number of milliseconds suitable for
+	 * the URL connection timeouts.
+	 * 
+	 * @param duration
+	 *            the duration to convert
+	 * @return a non-negative number of milliseconds
+	 */
+	private static int toMillis(Duration duration) {
+		return (int) Math.min(duration.toMillis(), Integer.MAX_VALUE);
+	}
+
+}
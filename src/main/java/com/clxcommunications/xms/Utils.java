@@ -19,12 +19,17 @@
  */
 package com.clxcommunications.xms;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnull;
 
+import org.apache.http.client.config.RequestConfig;
+import org.threeten.bp.Duration;
+
 /**
  * This class holds a number of static convenience methods for use within the
  * SDK. That is, these methods are not considered part of the public API of this
@@ -118,10 +123,19 @@ public final class Utils {
 	 *             if the server refused access
 	 * @throws NotFoundException
 	 *             if the desired resource was not found
+	 * @throws RateLimitExceededException
+	 *             if the call was rejected by the client-side rate limiter
+	 * @throws ConcurrencyLimitExceededException
+	 *             if the call was rejected by the client-side concurrency
+	 *             limiter
+	 * @throws CircuitBreakerOpenException
+	 *             if the call was rejected by the circuit breaker
 	 */
 	static ConcurrentException unwrapExecutionException(ExecutionException e)
 	        throws ErrorResponseException, UnexpectedResponseException,
-	        UnauthorizedException, NotFoundException {
+	        UnauthorizedException, NotFoundException,
+	        RateLimitExceededException, ConcurrencyLimitExceededException,
+	        CircuitBreakerOpenException {
 		if (e.getCause() instanceof RuntimeException) {
 			throw (RuntimeException) e.getCause();
 		} else if (e.getCause() instanceof Error) {
@@ -134,9 +148,130 @@ public final class Utils {
 			throw (UnexpectedResponseException) e.getCause();
 		} else if (e.getCause() instanceof UnauthorizedException) {
 			throw (UnauthorizedException) e.getCause();
+		} else if (e.getCause() instanceof RateLimitExceededException) {
+			throw (RateLimitExceededException) e.getCause();
+		} else if (e.getCause() instanceof ConcurrencyLimitExceededException) {
+			throw (ConcurrencyLimitExceededException) e.getCause();
+		} else if (e.getCause() instanceof CircuitBreakerOpenException) {
+			throw (CircuitBreakerOpenException) e.getCause();
 		} else {
 			return new ConcurrentException(e.getCause());
 		}
 	}
 
+	/**
+	 * Limits the timeouts of the given request configuration to the time
+	 * remaining until the given deadline. A timeout that is not set or is
+	 * infinite becomes the remaining time, a shorter timeout is kept as is.
+	 * 
+	 * @param config
+	 *            the effective request configuration
+	 * @param deadline
+	 *            the deadline of the call
+	 * @return a copy of the configuration with limited timeouts
+	 */
+	@Nonnull
+	static RequestConfig limitTimeouts(RequestConfig config,
+	        Deadline deadline) {
+		int remaining = (int) Math.min(Integer.MAX_VALUE,
+		        Math.max(1, deadline.remaining(TimeUnit.MILLISECONDS)));
+
+		return RequestConfig.copy(config)
+		        .setConnectionRequestTimeout(limitTimeout(
+		                config.getConnectionRequestTimeout(), remaining))
+		        .setConnectTimeout(
+		                limitTimeout(config.getConnectTimeout(), remaining))
+		        .setSocketTimeout(
+		                limitTimeout(config.getSocketTimeout(), remaining))
+		        .build();
+	}
+
+	/**
+	 * Returns the smaller of the given timeouts, where a non-positive
+	 * configured timeout is considered infinite.
+	 * 
+	 * @param configured
+	 *            the configured timeout in milliseconds
+	 * @param remaining
+	 *            the remaining time in milliseconds, positive
+	 * @return the limited timeout in milliseconds
+	 */
+	static int limitTimeout(int configured, int remaining) {
+		return (configured <= 0) ? remaining : Math.min(configured, remaining);
+	}
+
+	/**
+	 * Converts the given duration to nanoseconds. Durations too long to be
+	 * represented in nanoseconds are saturated to {@link Long#MAX_VALUE}, or
+	 * {@link Long#MIN_VALUE} if negative.
+	 * 
+	 * @param duration
+	 *            the duration to convert
+	 * @return the duration in nanoseconds
+	 */
+	static long toNanos(Duration duration) {
+		try {
+			return duration.toNanos();
+		} catch (ArithmeticException e) {
+			return duration.isNegative() ? Long.MIN_VALUE : Long.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * Whether the given failure indicates a problem with the endpoint, i.e.,
+	 * an I/O error or a response with status 429 or 5xx. Failures such as a
+	 * 404 response say nothing about the health of the endpoint.
+	 * 
+	 * @param failure
+	 *            the failure of a request
+	 * @return <code>true</code> if an endpoint failure, <code>false</code>
+	 *         otherwise
+	 */
+	static boolean isEndpointFailure(Exception failure) {
+		if (failure instanceof IOException) {
+			return true;
+		}
+
+		int status = statusCode(failure);
+
+		return status == 429 || status >= 500;
+	}
+
+	/**
+	 * Whether the given failure indicates that XMS or the network is
+	 * overloaded, i.e., an I/O error or a response with status 429, 503, or
+	 * 504.
+	 * 
+	 * @param failure
+	 *            the failure of a request
+	 * @return <code>true</code> if an overload indication, <code>false</code>
+	 *         otherwise
+	 */
+	static boolean isOverload(Exception failure) {
+		if (failure instanceof IOException) {
+			return true;
+		}
+
+		int status = statusCode(failure);
+
+		return status == 429 || status == 503 || status == 504;
+	}
+
+	/**
+	 * The HTTP status code of the given failure.
+	 * 
+	 * @param failure
+	 *            the failure of a request
+	 * @return the status code of an unexpected response, -1 for other
+	 *         failures
+	 */
+	private static int statusCode(Exception failure) {
+		if (failure instanceof UnexpectedResponseException) {
+			return ((UnexpectedResponseException) failure).getResponse()
+			        .getStatusLine().getStatusCode();
+		}
+
+		return -1;
+	}
+
 }
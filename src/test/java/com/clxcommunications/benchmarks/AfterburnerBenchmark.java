@@ -0,0 +1,131 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.clxcommunications.xms.ApiObjectMapper;
+import com.clxcommunications.xms.api.BatchDeliveryReport;
+import com.clxcommunications.xms.api.MtBatchTextSmsCreate;
+import com.clxcommunications.xms.api.MtBatchTextSmsResult;
+import com.clxcommunications.xms.api.PagedBatchResult;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+
+/**
+ * Compares the JSON throughput of the main create and result types with and
+ * without the Afterburner module, as toggled by
+ * {@link com.clxcommunications.xms.ApiConnection#afterburnerJson()}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AfterburnerBenchmark {
+
+	@Param({ "false", "true" })
+	public boolean afterburner;
+
+	private MtBatchTextSmsCreate batchCreate;
+	private MtBatchTextSmsResult batchResult;
+	private byte[] batchCreateBytes;
+	private byte[] batchResultBytes;
+	private byte[] batchPageBytes;
+	private byte[] deliveryReportBytes;
+
+	private ObjectWriter batchCreateWriter;
+	private ObjectWriter batchResultWriter;
+	private ObjectReader batchCreateReader;
+	private ObjectReader batchResultReader;
+	private ObjectReader batchPageReader;
+	private ObjectReader deliveryReportReader;
+
+	@Setup
+	public void setup() throws IOException {
+		ApiObjectMapper json = new ApiObjectMapper(false);
+
+		if (afterburner) {
+			json.registerModule(new AfterburnerModule());
+		}
+
+		batchCreate = BenchmarkPayloads.batchCreate(100);
+		batchResult = BenchmarkPayloads.batchResult(0);
+		batchCreateBytes = json.writeValueAsBytes(batchCreate);
+		batchResultBytes = json.writeValueAsBytes(batchResult);
+		batchPageBytes =
+		        json.writeValueAsBytes(BenchmarkPayloads.batchPage(30));
+		deliveryReportBytes = json.writeValueAsBytes(
+		        BenchmarkPayloads.deliveryReport(100));
+
+		batchCreateWriter = json.writerFor(batchCreate.getClass());
+		batchResultWriter = json.writerFor(batchResult.getClass());
+		batchCreateReader = json.readerFor(MtBatchTextSmsCreate.class);
+		batchResultReader = json.readerFor(MtBatchTextSmsResult.class);
+		batchPageReader = json.readerFor(PagedBatchResult.class);
+		deliveryReportReader = json.readerFor(BatchDeliveryReport.class);
+	}
+
+	@Benchmark
+	public byte[] writeBatchCreate() throws IOException {
+		return batchCreateWriter.writeValueAsBytes(batchCreate);
+	}
+
+	@Benchmark
+	public byte[] writeBatchResult() throws IOException {
+		return batchResultWriter.writeValueAsBytes(batchResult);
+	}
+
+	@Benchmark
+	public MtBatchTextSmsCreate readBatchCreate() throws IOException {
+		return batchCreateReader.readValue(batchCreateBytes);
+	}
+
+	@Benchmark
+	public MtBatchTextSmsResult readBatchResult() throws IOException {
+		return batchResultReader.readValue(batchResultBytes);
+	}
+
+	@Benchmark
+	public PagedBatchResult readBatchPage() throws IOException {
+		return batchPageReader.readValue(batchPageBytes);
+	}
+
+	@Benchmark
+	public BatchDeliveryReport readDeliveryReport() throws IOException {
+		return deliveryReportReader.readValue(deliveryReportBytes);
+	}
+
+}
@@ -0,0 +1,158 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.benchmarks;
+
+import org.threeten.bp.OffsetDateTime;
+import org.threeten.bp.ZoneOffset;
+
+import com.clxcommunications.xms.ClxApi;
+import com.clxcommunications.xms.api.BatchDeliveryReport;
+import com.clxcommunications.xms.api.BatchId;
+import com.clxcommunications.xms.api.DeliveryStatus;
+import com.clxcommunications.xms.api.MoTextSms;
+import com.clxcommunications.xms.api.MtBatchTextSmsCreate;
+import com.clxcommunications.xms.api.MtBatchTextSmsResult;
+import com.clxcommunications.xms.api.PagedBatchResult;
+import com.clxcommunications.xms.api.PagedInboundsResult;
+import com.clxcommunications.xms.api.ParameterValues;
+
+/**
+ * Realistic objects used as payloads in the benchmarks.
+ */
+final class BenchmarkPayloads {
+
+	private static final OffsetDateTime TIME =
+	        OffsetDateTime.of(2016, 12, 1, 10, 20, 30, 0, ZoneOffset.UTC);
+
+	private BenchmarkPayloads() {
+	}
+
+	/**
+	 * A text batch with the given number of recipients, each having a
+	 * personalized parameter value.
+	 */
+	static MtBatchTextSmsCreate batchCreate(int recipients) {
+		MtBatchTextSmsCreate.Builder builder = ClxApi.batchTextSms()
+		        .sender("12345")
+		        .body("Hello, ${name}! Your code is ${code}.");
+
+		ParameterValues.Builder name = ClxApi.parameterValues();
+		ParameterValues.Builder code = ClxApi.parameterValues();
+
+		for (int i = 0; i < recipients; i++) {
+			String msisdn = String.valueOf(46700000000L + i);
+			builder.addRecipient(msisdn);
+			name.putSubstitution(msisdn, "Recipient " + i);
+			code.putSubstitution(msisdn, String.valueOf(100000 + i));
+		}
+
+		return builder
+		        .putParameter("name", name.build())
+		        .putParameter("code", code.build())
+		        .build();
+	}
+
+	/**
+	 * A batch result as found in pages and single batch fetches.
+	 */
+	static MtBatchTextSmsResult batchResult(int i) {
+		return MtBatchTextSmsResult.builder()
+		        .id(BatchId.of("batch" + i))
+		        .sender("12345")
+		        .addRecipient(String.valueOf(46700000000L + i))
+		        .body("Hello, world! This is message " + i + ".")
+		        .canceled(false)
+		        .createdAt(TIME)
+		        .modifiedAt(TIME)
+		        .build();
+	}
+
+	/**
+	 * A page of batch results having the given number of batches.
+	 */
+	static PagedBatchResult batchPage(int batches) {
+		PagedBatchResult.Builder builder = PagedBatchResult.builder()
+		        .page(0)
+		        .size(batches)
+		        .totalSize(batches * 10);
+
+		for (int i = 0; i < batches; i++) {
+			builder.addContent(batchResult(i));
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * A page of inbound text messages having the given number of messages.
+	 */
+	static PagedInboundsResult inboundsPage(int messages) {
+		PagedInboundsResult.Builder builder = PagedInboundsResult.builder()
+		        .page(0)
+		        .size(messages)
+		        .totalSize(messages * 10);
+
+		for (int i = 0; i < messages; i++) {
+			builder.addContent(MoTextSms.builder()
+			        .id("inbound" + i)
+			        .sender(String.valueOf(46700000000L + i))
+			        .recipient("12345")
+			        .operator("24001")
+			        .sentAt(TIME)
+			        .receivedAt(TIME)
+			        .body("STOP Please unsubscribe me from message " + i)
+			        .keyword("STOP")
+			        .build());
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * A full delivery report having the given number of recipients.
+	 */
+	static BatchDeliveryReport deliveryReport(int recipients) {
+		BatchDeliveryReport.Status.Builder queued =
+		        BatchDeliveryReport.Status.builder()
+		                .code(400)
+		                .status(DeliveryStatus.QUEUED);
+		BatchDeliveryReport.Status.Builder dispatched =
+		        BatchDeliveryReport.Status.builder()
+		                .code(401)
+		                .status(DeliveryStatus.DISPATCHED);
+
+		for (int i = 0; i < recipients; i++) {
+			String msisdn = String.valueOf(46700000000L + i);
+			if (i % 2 == 0) {
+				queued.addRecipient(msisdn);
+			} else {
+				dispatched.addRecipient(msisdn);
+			}
+		}
+
+		return BatchDeliveryReport.builder()
+		        .batchId(BatchId.of("batch"))
+		        .totalMessageCount(recipients)
+		        .addStatus(queued.count(recipients - recipients / 2).build())
+		        .addStatus(dispatched.count(recipients / 2).build())
+		        .build();
+	}
+
+}
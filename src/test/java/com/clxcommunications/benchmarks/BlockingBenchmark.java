@@ -0,0 +1,129 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.benchmarks;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.clxcommunications.xms.ApiConnection;
+import com.clxcommunications.xms.ApiException;
+import com.clxcommunications.xms.ApiObjectMapper;
+import com.clxcommunications.xms.BlockingApiConnection;
+import com.clxcommunications.xms.HttpClientConfig;
+import com.clxcommunications.xms.api.BatchId;
+import com.clxcommunications.xms.api.MtBatchSmsResult;
+import com.clxcommunications.xms.api.MtBatchTextSmsResult;
+import com.github.tomakehurst.wiremock.WireMockServer;
+
+/**
+ * Compares the throughput of fetching a batch through the blocking methods of
+ * {@link ApiConnection}, which wait for the asynchronous HTTP client, with
+ * that of {@link BlockingApiConnection}, which performs blocking I/O on the
+ * calling thread. The requests are served by a local WireMock server.
+ * <p>
+ * Many caller threads are used to mimic a thread-per-request server. The
+ * number is set by {@link Threads} and may be changed using the
+ * <code>-t</code> option of the JMH runner.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1000)
+@State(Scope.Benchmark)
+public class BlockingBenchmark {
+
+	@Param({ "50", "200" })
+	public int maxConnections;
+
+	private WireMockServer server;
+	private ApiConnection conn;
+	private BlockingApiConnection blocking;
+	private BatchId batchId;
+
+	@Setup
+	public void setup() throws IOException {
+		MtBatchTextSmsResult batch = BenchmarkPayloads.batchResult(0);
+		byte[] body = new ApiObjectMapper().writeValueAsBytes(batch);
+
+		batchId = batch.id();
+
+		server = new WireMockServer(options()
+		        .dynamicPort()
+		        .containerThreads(maxConnections + 20));
+		server.start();
+		server.stubFor(get(urlEqualTo("/v1/bench/batches/" + batchId))
+		        .willReturn(aResponse()
+		                .withStatus(200)
+		                .withHeader("Content-Type", "application/json")
+		                .withBody(body)));
+
+		conn = ApiConnection.builder()
+		        .servicePlanId("bench")
+		        .token("tok")
+		        .endpoint("http://localhost:" + server.port())
+		        .httpClientConfig(HttpClientConfig.builder()
+		                .maxConnections(maxConnections)
+		                .build())
+		        .start();
+
+		blocking = BlockingApiConnection.of(conn);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		blocking.close();
+		conn.close();
+		server.stop();
+	}
+
+	@Benchmark
+	public MtBatchSmsResult syncOverAsync()
+	        throws InterruptedException, ApiException {
+		return conn.fetchBatch(batchId);
+	}
+
+	@Benchmark
+	public MtBatchSmsResult blocking()
+	        throws InterruptedException, ApiException {
+		return blocking.fetchBatch(batchId);
+	}
+
+}
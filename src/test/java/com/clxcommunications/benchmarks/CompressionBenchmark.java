@@ -0,0 +1,177 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.benchmarks;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.clxcommunications.xms.ApiConnection;
+import com.clxcommunications.xms.ApiException;
+import com.clxcommunications.xms.ApiObjectMapper;
+import com.clxcommunications.xms.ClxApi;
+import com.clxcommunications.xms.CompressionPolicy;
+import com.clxcommunications.xms.PageElementListener;
+import com.clxcommunications.xms.PagedFetcher;
+import com.clxcommunications.xms.api.MoSms;
+import com.clxcommunications.xms.api.MtBatchSmsResult;
+import com.clxcommunications.xms.api.MtBatchTextSmsCreate;
+import com.clxcommunications.xms.api.Page;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+
+/**
+ * Compares creating large batches and streaming large pages of inbound
+ * messages with and without gzip compression. The requests are served by a
+ * local WireMock server, which sends the page compressed when compression is
+ * enabled.
+ * <p>
+ * Over the loopback interface the benchmark mainly shows the CPU cost of
+ * compression, the gain is in the bytes saved on real networks.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompressionBenchmark {
+
+	@Param({ "false", "true" })
+	public boolean compress;
+
+	@Param({ "1000", "10000" })
+	public int recipients;
+
+	private final ApiObjectMapper json = new ApiObjectMapper(false);
+
+	private final PageElementListener<MoSms> listener =
+	        new PageElementListener<MoSms>() {
+
+		        @Override
+		        public void onElement(MoSms element) {
+			        // Intentionally left empty.
+		        }
+
+	        };
+
+	private WireMockServer server;
+	private ApiConnection conn;
+	private MtBatchTextSmsCreate batchCreate;
+	private PagedFetcher<MoSms> inbounds;
+
+	@Setup
+	public void setup() throws IOException {
+		// Each recipient appears in the recipient list and in both parameter
+		// maps, roughly 70 bytes of JSON per recipient. The page holds 100
+		// messages that only differ in a counter. Both bodies are highly
+		// repetitive, so gzip shrinks them to a small fraction of their size.
+		batchCreate = BenchmarkPayloads.batchCreate(recipients);
+
+		byte[] batchBody =
+		        json.writeValueAsBytes(BenchmarkPayloads.batchResult(0));
+		byte[] pageBody =
+		        json.writeValueAsBytes(BenchmarkPayloads.inboundsPage(100));
+
+		ResponseDefinitionBuilder pageResponse = aResponse()
+		        .withStatus(200)
+		        .withHeader("Content-Type", "application/json");
+
+		if (compress) {
+			pageResponse = pageResponse
+			        .withHeader("Content-Encoding", "gzip")
+			        .withBody(gzip(pageBody));
+		} else {
+			pageResponse = pageResponse.withBody(pageBody);
+		}
+
+		server = new WireMockServer(options().dynamicPort());
+		server.start();
+		server.stubFor(post(urlEqualTo("/v1/bench/batches"))
+		        .willReturn(aResponse()
+		                .withStatus(201)
+		                .withHeader("Content-Type", "application/json")
+		                .withBody(batchBody)));
+		server.stubFor(get(urlEqualTo("/v1/bench/inbounds?page=0"))
+		        .willReturn(pageResponse));
+
+		ApiConnection.Builder builder = ApiConnection.builder()
+		        .servicePlanId("bench")
+		        .token("tok")
+		        .endpoint("http://localhost:" + server.port());
+
+		if (compress) {
+			builder.compressionPolicy(CompressionPolicy.builder().build());
+		}
+
+		conn = builder.start();
+		inbounds = conn.fetchInbounds(ClxApi.inboundsFilter().build());
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		conn.close();
+		server.stop();
+	}
+
+	@Benchmark
+	public MtBatchSmsResult createBatch()
+	        throws InterruptedException, ApiException {
+		return conn.createBatch(batchCreate);
+	}
+
+	@Benchmark
+	public Page<MoSms> streamInbounds()
+	        throws InterruptedException, ExecutionException {
+		return inbounds.streamAsync(0, listener, null).get();
+	}
+
+	private static byte[] gzip(byte[] content) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		GZIPOutputStream gos = new GZIPOutputStream(bos);
+
+		gos.write(content);
+		gos.close();
+
+		return bos.toByteArray();
+	}
+
+}
@@ -0,0 +1,111 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.clxcommunications.xms.ApiObjectMapper;
+import com.clxcommunications.xms.api.BatchDeliveryReport;
+import com.clxcommunications.xms.api.MtBatchTextSmsCreate;
+import com.clxcommunications.xms.api.PagedBatchResult;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Compares serialization and deserialization through the object mapper, as
+ * done before, with serialization and deserialization through precompiled
+ * typed readers and writers, as now done by the API connection.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonCodecBenchmark {
+
+	private final ApiObjectMapper json = new ApiObjectMapper(false);
+
+	private MtBatchTextSmsCreate batchCreate;
+	private byte[] batchPageBytes;
+	private byte[] deliveryReportBytes;
+
+	private ObjectWriter batchCreateWriter;
+	private ObjectReader batchPageReader;
+	private ObjectReader deliveryReportReader;
+
+	@Setup
+	public void setup() throws IOException {
+		batchCreate = BenchmarkPayloads.batchCreate(100);
+		batchPageBytes =
+		        json.writeValueAsBytes(BenchmarkPayloads.batchPage(30));
+		deliveryReportBytes = json.writeValueAsBytes(
+		        BenchmarkPayloads.deliveryReport(100));
+
+		batchCreateWriter = json.writerFor(batchCreate.getClass());
+		batchPageReader = json.readerFor(PagedBatchResult.class);
+		deliveryReportReader = json.readerFor(BatchDeliveryReport.class);
+	}
+
+	@Benchmark
+	public byte[] writeBatchCreateWithMapper() throws IOException {
+		return json.writeValueAsBytes(batchCreate);
+	}
+
+	@Benchmark
+	public byte[] writeBatchCreateWithWriter() throws IOException {
+		return batchCreateWriter.writeValueAsBytes(batchCreate);
+	}
+
+	@Benchmark
+	public PagedBatchResult readBatchPageWithMapper() throws IOException {
+		return json.readValue(batchPageBytes, PagedBatchResult.class);
+	}
+
+	@Benchmark
+	public PagedBatchResult readBatchPageWithReader() throws IOException {
+		return batchPageReader.readValue(batchPageBytes);
+	}
+
+	@Benchmark
+	public BatchDeliveryReport readDeliveryReportWithMapper()
+	        throws IOException {
+		return json.readValue(deliveryReportBytes, BatchDeliveryReport.class);
+	}
+
+	@Benchmark
+	public BatchDeliveryReport readDeliveryReportWithReader()
+	        throws IOException {
+		return deliveryReportReader.readValue(deliveryReportBytes);
+	}
+
+}
@@ -40,8 +40,12 @@ import static org.hamcrest.CoreMatchers.theInstance;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -49,11 +53,33 @@ import java.util.List;
 import java.util.Queue;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
-
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.http.impl.bootstrap.HttpAsyncServer;
+import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler.ResponseTrigger;
+import org.apache.hc.core5.http.nio.entity.StringAsyncEntityConsumer;
+import org.apache.hc.core5.http.nio.support.AsyncResponseBuilder;
+import org.apache.hc.core5.http.nio.support.BasicRequestConsumer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2ServerBootstrap;
+import org.apache.hc.core5.io.CloseMode;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.concurrent.FutureCallback;
@@ -62,6 +88,7 @@ import org.eclipse.jetty.util.ConcurrentArrayQueue;
 import org.junit.Rule;
 import org.junit.Test;
 import org.threeten.bp.Clock;
+import org.threeten.bp.Duration;
 import org.threeten.bp.OffsetDateTime;
 import org.threeten.bp.ZoneOffset;
 
@@ -97,6 +124,8 @@ import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
 
 public class ApiConnectionIT {
 
@@ -228,6 +257,175 @@ public class ApiConnectionIT {
 		verifyPostRequest(path, request);
 	}
 
+	@Test
+	public void canCreateTextBatchAndFetchTagsCompletably() throws Exception {
+		String spid = TestUtils.freshServicePlanId();
+		BatchId batchId = TestUtils.freshBatchId();
+		OffsetDateTime time = OffsetDateTime.of(2016, 10, 2, 9, 34, 28,
+		        542000000, ZoneOffset.UTC);
+
+		MtBatchTextSmsCreate request =
+		        ClxApi.batchTextSms()
+		                .sender("12345")
+		                .addRecipient("123456789")
+		                .body("Hello, world!")
+		                .build();
+
+		MtBatchTextSmsResult created =
+		        MtBatchTextSmsResult.builder()
+		                .sender(request.sender())
+		                .recipients(request.recipients())
+		                .body(request.body())
+		                .canceled(false)
+		                .id(batchId)
+		                .createdAt(time)
+		                .modifiedAt(time)
+		                .build();
+
+		Tags expected = Tags.of("tag1", "tag2");
+
+		String path = "/v1/" + spid + "/batches";
+		String tagsPath = "/v1/" + spid + "/batches/" + batchId + "/tags";
+
+		stubPostResponse(created, path, 201);
+		stubGetResponse(expected, tagsPath);
+
+		ApiConnection conn = ApiConnection.builder()
+		        .servicePlanId(spid)
+		        .token("toktok")
+		        .endpoint("http://localhost:" + wm.port())
+		        .start();
+
+		CompletableApiConnection completable =
+		        CompletableApiConnection.of(conn);
+
+		try {
+			Tags actual = completable.createBatch(request)
+			        .thenCompose(batch -> completable.fetchTags(batch.id()))
+			        .get();
+
+			assertThat(actual, is(expected));
+		} finally {
+			conn.close();
+		}
+
+		verifyPostRequest(path, request);
+		verifyGetRequest(tagsPath);
+	}
+
+	@Test
+	public void completableFetchBatchFailsWithNotFound() throws Exception {
+		String spid = TestUtils.freshServicePlanId();
+		BatchId batchId = TestUtils.freshBatchId();
+
+		String path = "/v1/" + spid + "/batches/" + batchId;
+
+		wm.stubFor(get(
+		        urlEqualTo(path))
+		                .willReturn(aResponse()
+		                        .withStatus(404)
+		                        .withHeader("Content-Type",
+		                                ContentType.TEXT_PLAIN.toString())
+		                        .withBody("BAD")));
+
+		ApiConnection conn = ApiConnection.builder()
+		        .servicePlanId(spid)
+		        .token("toktok")
+		        .endpoint("http://localhost:" + wm.port())
+		        .start();
+
+		try {
+			CompletableApiConnection.of(conn).fetchBatch(batchId).get();
+			fail("expected exception");
+		} catch (ExecutionException e) {
+			assertThat(e.getCause(), is(instanceOf(NotFoundException.class)));
+		} finally {
+			conn.close();
+		}
+	}
+
+	@Test
+	public void cancellingCompletableFetchBatchCancelsCall() throws Exception {
+		String spid = TestUtils.freshServicePlanId();
+		BatchId batchId = TestUtils.freshBatchId();
+
+		String path = "/v1/" + spid + "/batches/" + batchId;
+
+		wm.stubFor(get(
+		        urlEqualTo(path))
+		                .willReturn(aResponse()
+		                        .withStatus(200)
+		                        .withFixedDelay(5000)
+		                        .withHeader("Content-Type", "application/json")
+		                        .withBody("{}")));
+
+		ConcurrencyLimiter limiter = ConcurrencyLimiter.builder().build();
+
+		ApiConnection conn = ApiConnection.builder()
+		        .servicePlanId(spid)
+		        .token("toktok")
+		        .endpoint("http://localhost:" + wm.port())
+		        .concurrencyLimiter(limiter)
+		        .start();
+
+		try {
+			Future<MtBatchSmsResult> future =
+			        CompletableApiConnection.of(conn).fetchBatch(batchId);
+
+			assertThat(future.cancel(true), is(true));
+			assertThat(limiter.inFlight(), is(0));
+		} finally {
+			conn.close();
+		}
+	}
+
+	@Test
+	public void canCreateTextBatchWithAfterburner() throws Exception {
+		String spid = TestUtils.freshServicePlanId();
+		BatchId batchId = TestUtils.freshBatchId();
+		OffsetDateTime time = OffsetDateTime.of(2016, 10, 2, 9, 34, 28,
+		        542000000, ZoneOffset.UTC);
+
+		MtBatchTextSmsCreate request =
+		        ClxApi.batchTextSms()
+		                .sender("12345")
+		                .addRecipient("123456789")
+		                .addRecipient("987654321")
+		                .body("Hello, world!")
+		                .build();
+
+		MtBatchTextSmsResult expected =
+		        MtBatchTextSmsResult.builder()
+		                .sender(request.sender())
+		                .recipients(request.recipients())
+		                .body(request.body())
+		                .canceled(false)
+		                .id(batchId)
+		                .createdAt(time)
+		                .modifiedAt(time)
+		                .build();
+
+		String path = "/v1/" + spid + "/batches";
+
+		stubPostResponse(expected, path, 201);
+
+		ApiConnection conn = ApiConnection.builder()
+		        .servicePlanId(spid)
+		        .token("toktok")
+		        .endpoint("http://localhost:" + wm.port())
+		        .afterburnerJson(true)
+		        .start();
+
+		try {
+			MtBatchTextSmsResult actual = conn.createBatch(request);
+			assertThat(actual, is(expected));
+		} finally {
+			conn.close();
+		}
+
+		verifyPostRequest(path, request);
+	}
+
 	@Test
 	public void canCreateTextBatchWithSubstitutions() throws Exception {
 		String spid = TestUtils.freshServicePlanId();
@@ -508,197 +706,1217 @@ public class ApiConnectionIT {
 	}
 
 	@Test
-	public void canReplaceBinaryBatch() throws Exception {
+	public void canReplaceBinaryBatch() throws Exception {
+		String spid = TestUtils.freshServicePlanId();
+		BatchId batchId = TestUtils.freshBatchId();
+		OffsetDateTime time = OffsetDateTime.now(Clock.systemUTC());
+
+		MtBatchBinarySmsCreate request =
+		        ClxApi.batchBinarySms()
+		                .sender("12345")
+		                .addRecipient("123456789")
+		                .addRecipient("987654321")
+		                .body("body".getBytes(TestUtils.US_ASCII))
+		                .udh("udh".getBytes(TestUtils.US_ASCII))
+		                .build();
+
+		MtBatchBinarySmsResult expected =
+		        MtBatchBinarySmsResult.builder()
+		                .sender(request.sender())
+		                .recipients(request.recipients())
+		                .body(request.body())
+		                .udh(request.udh())
+		                .canceled(false)
+		                .id(batchId)
+		                .createdAt(time)
+		                .modifiedAt(time)
+		                .build();
+
+		String path = "/v1/" + spid + "/batches/" + batchId;
+
+		stubPutResponse(expected, path, 201);
+
+		ApiConnection conn = ApiConnection.builder()
+		        .servicePlanId(spid)
+		        .token("toktok")
+		        .endpoint("http://localhost:" + wm.port())
+		        .start();
+
+		try {
+			MtBatchBinarySmsResult actual =
+			        conn.replaceBatch(batchId, request);
+			assertThat(actual, is(expected));
+		} finally {
+			conn.close();
+		}
+
+		verifyPutRequest(path, request);
+	}
+
+	@Test
+	public void canReplaceTextBatch() throws Exception {
+		String spid = TestUtils.freshServicePlanId();
+		BatchId batchId = TestUtils.freshBatchId();
+		OffsetDateTime time = OffsetDateTime.of(2016, 10, 2, 9, 34, 28,
+		        542000000, ZoneOffset.UTC);
+
+		MtBatchTextSmsCreate request =
+		        ClxApi.batchTextSms()
+		                .sender("12345")
+		                .addRecipient("123456789")
+		                .addRecipient("987654321")
+		                .body("Hello, world!")
+		                .build();
+
+		MtBatchTextSmsResult expected =
+		        MtBatchTextSmsResult.builder()
+		                .sender(request.sender())
+		                .recipients(request.recipients())
+		                .body(request.body())
+		                .canceled(false)
+		                .id(batchId)
+		                .createdAt(time)
+		                .modifiedAt(time)
+		                .build();
+
+		String path = "/v1/" + spid + "/batches/" + batchId;
+
+		stubPutResponse(expected, path, 201);
+
+		ApiConnection conn = ApiConnection.builder()
+		        .servicePlanId(spid)
+		        .token("toktok")
+		        .endpoint("http://localhost:" + wm.port())
+		        .start();
+
+		try {
+			MtBatchTextSmsResult actual = conn.replaceBatch(batchId, request);
+			assertThat(actual, is(expected));
+		} finally {
+			conn.close();
+		}
+
+		verifyPutRequest(path, request);
+	}
+
+	@Test
+	public void canUpdateSimpleTextBatch() throws Exception {
+		String spid = TestUtils.freshServicePlanId();
+		BatchId batchId = TestUtils.freshBatchId();
+		OffsetDateTime time = OffsetDateTime.of(2016, 10, 2, 9, 34, 28,
+		        542000000, ZoneOffset.UTC);
+
+		MtBatchTextSmsUpdate request =
+		        ClxApi.batchTextSmsUpdate()
+		                .sender("12345")
+		                .body("Hello, world!")
+		                .unsetDeliveryReport()
+		                .unsetExpireAt()
+		                .build();
+
+		MtBatchTextSmsResult expected =
+		        MtBatchTextSmsResult.builder()
+		                .sender(request.sender())
+		                .addRecipient("123")
+		                .body(request.body())
+		                .canceled(false)
+		                .id(batchId)
+		                .createdAt(time)
+		                .modifiedAt(time)
+		                .build();
+
+		String path = "/v1/" + spid + "/batches/" + batchId;
+
+		stubPostResponse(expected, path, 201);
+
+		ApiConnection conn = ApiConnection.builder()
+		        .servicePlanId(spid)
+		        .token("toktok")
+		        .endpoint("http://localhost:" + wm.port())
+		        .start();
+
+		try {
+			MtBatchTextSmsResult actual = conn.updateBatch(batchId, request);
+			assertThat(actual, is(expected));
+		} finally {
+			conn.close();
+		}
+
+		verifyPostRequest(path, request);
+	}
+
+	@Test
+	public void canUpdateSimpleBinaryBatch() throws Exception {
+		String spid = TestUtils.freshServicePlanId();
+		BatchId batchId = TestUtils.freshBatchId();
+		OffsetDateTime time = OffsetDateTime.of(2016, 10, 2, 9, 34, 28,
+		        542000000, ZoneOffset.UTC);
+
+		Set<String> tags = new TreeSet<String>();
+		tags.add("tag1");
+		tags.add("tag2");
+
+		MtBatchBinarySmsUpdate request =
+		        ClxApi.batchBinarySmsUpdate()
+		                .sender("12345")
+		                .body("howdy".getBytes(TestUtils.US_ASCII))
+		                .unsetExpireAt()
+		                .build();
+
+		MtBatchBinarySmsResult expected =
+		        MtBatchBinarySmsResult.builder()
+		                .sender(request.sender())
+		                .addRecipient("123")
+		                .body(request.body())
+		                .udh((byte) 1, (byte) 0xff)
+		                .canceled(false)
+		                .id(batchId)
+		                .createdAt(time)
+		                .modifiedAt(time)
+		                .build();
+
+		String path = "/v1/" + spid + "/batches/" + batchId;
+
+		stubPostResponse(expected, path, 201);
+
+		ApiConnection conn = ApiConnection.builder()
+		        .servicePlanId(spid)
+		        .token("toktok")
+		        .endpoint("http://localhost:" + wm.port())
+		        .start();
+
+		try {
+			MtBatchBinarySmsResult actual = conn.updateBatch(batchId, request);
+			assertThat(actual, is(expected));
+		} finally {
+			conn.close();
+		}
+
+		verifyPostRequest(path, request);
+	}
+
+	@Test
+	public void canFetchTextBatch() throws Exception {
+		String spid = TestUtils.freshServicePlanId();
+		BatchId batchId = TestUtils.freshBatchId();
+		OffsetDateTime time = OffsetDateTime.of(2016, 10, 2, 9, 34, 28,
+		        542000000, ZoneOffset.UTC);
+
+		String path = "/v1/" + spid + "/batches/" + batchId;
+
+		final MtBatchSmsResult expected =
+		        MtBatchTextSmsResult.builder()
+		                .sender("12345")
+		                .addRecipient("123456789", "987654321")
+		                .body("Hello, world!")
+		                .canceled(false)
+		                .id(batchId)
+		                .createdAt(time)
+		                .modifiedAt(time)
+		                .build();
+
+		stubGetResponse(expected, path);
+
+		ApiConnection conn = ApiConnection.builder()
+		        .servicePlanId(spid)
+		        .token("tok")
+		        .endpoint("http://localhost:" + wm.port())
+		        .start();
+
+		try {
+			MtBatchSmsResult actual = conn.fetchBatch(batchId);
+			assertThat(actual, is(expected));
+		} finally {
+			conn.close();
+		}
+
+		verifyGetRequest(path);
+	}
+
+	@Test
+	public void canFetchTextBatchBlocking() throws Exception {
+		String spid = TestUtils.freshServicePlanId();
+		BatchId batchId = TestUtils.freshBatchId();
+		OffsetDateTime time = OffsetDateTime.of(2016, 10, 2, 9, 34, 28,
+		        542000000, ZoneOffset.UTC);
+
+		String path = "/v1/" + spid + "/batches/" + batchId;
+
+		final MtBatchSmsResult expected =
+		        MtBatchTextSmsResult.builder()
+		                .sender("12345")
+		                .addRecipient("123456789", "987654321")
+		                .body("Hello, world!")
+		                .canceled(false)
+		                .id(batchId)
+		                .createdAt(time)
+		                .modifiedAt(time)
+		                .build();
+
+		stubGetResponse(expected, path);
+
+		ApiConnection conn = ApiConnection.builder()
+		        .servicePlanId(spid)
+		        .token("tok")
+		        .endpoint("http://localhost:" + wm.port())
+		        .build();
+
+		BlockingApiConnection blocking = BlockingApiConnection.of(conn);
+
+		try {
+			MtBatchSmsResult actual = blocking.fetchBatch(batchId);
+			assertThat(actual, is(expected));
+		} finally {
+			blocking.close();
+		}
+
+		verifyGetRequest(path);
+	}
+
+	@Test(expected = NotFoundException.class)
+	public void blockingFetchBatchFailsWithNotFound() throws Exception {
+		String spid = TestUtils.freshServicePlanId();
+		BatchId batchId = TestUtils.freshBatchId();
+
+		String path = "/v1/" + spid + "/batches/" + batchId;
+
+		wm.stubFor(get(
+		        urlEqualTo(path))
+		                .willReturn(aResponse()
+		                        .withStatus(404)
+		                        .withHeader("Content-Type",
+		                                ContentType.TEXT_PLAIN.toString())
+		                        .withBody("BAD")));
+
+		ApiConnection conn = ApiConnection.builder()
+		        .servicePlanId(spid)
+		        .token("tok")
+		        .endpoint("http://localhost:" + wm.port())
+		        .build();
+
+		BlockingApiConnection blocking = BlockingApiConnection.of(conn);
+
+		try {
+			blocking.fetchBatch(batchId);
+		} finally {
+			blocking.close();
+		}
+	}
+
+	@Test
+	public void blockingRetriesFetchBatchAfterServiceUnavailable()
+	        throws Exception {
+		String spid = TestUtils.freshServicePlanId();
+		BatchId batchId = TestUtils.freshBatchId();
+		OffsetDateTime time = OffsetDateTime.of(2016, 10, 2, 9, 34, 28,
+		        542000000, ZoneOffset.UTC);
+
+		String path = "/v1/" + spid + "/batches/" + batchId;
+
+		final MtBatchSmsResult expected =
+		        MtBatchTextSmsResult.builder()
+		                .sender("12345")
+		                .addRecipient("123456789", "987654321")
+		                .body("Hello, world!")
+		                .canceled(false)
+		                .id(batchId)
+		                .createdAt(time)
+		                .modifiedAt(time)
+		                .build();
+
+		wm.stubFor(get(urlEqualTo(path))
+		        .inScenario("retry")
+		        .whenScenarioStateIs(Scenario.STARTED)
+		        .willReturn(aResponse().withStatus(503))
+		        .willSetStateTo("recovered"));
+
+		wm.stubFor(get(urlEqualTo(path))
+		        .inScenario("retry")
+		        .whenScenarioStateIs("recovered")
+		        .willReturn(aResponse()
+		                .withStatus(200)
+		                .withHeader("Content-Type", "application/json")
+		                .withBody(json.writeValueAsBytes(expected))));
+
+		ApiConnection conn = ApiConnection.builder()
+		        .servicePlanId(spid)
+		        .token("tok")
+		        .endpoint("http://localhost:" + wm.port())
+		        .retryPolicy(ExponentialBackoff.builder()
+		                .initialDelay(Duration.ofMillis(10))
+		                .build())
+		        .build();
+
+		BlockingApiConnection blocking = BlockingApiConnection.of(conn);
+
+		try {
+			MtBatchSmsResult actual = blocking.fetchBatch(batchId);
+			assertThat(actual, is(expected));
+		} finally {
+			blocking.close();
+		}
+
+		wm.verify(2, getRequestedFor(urlEqualTo(path)));
+	}
+
+	@Test
+	public void canDeleteGroupBlocking() throws Exception {
+		String spid = TestUtils.freshServicePlanId();
+		GroupId groupId = TestUtils.freshGroupId();
+
+		String path = "/v1/" + spid + "/groups/" + groupId;
+
+		wm.stubFor(delete(
+		        urlEqualTo(path))
+		                .willReturn(aResponse()
+		                        .withStatus(204)));
+
+		ApiConnection conn = ApiConnection.builder()
+		        .servicePlanId(spid)
+		        .token("tok")
+		        .endpoint("http://localhost:" + wm.port())
+		        .build();
+
+		BlockingApiConnection blocking = BlockingApiConnection.of(conn);
+
+		try {
+			blocking.deleteGroup(groupId);
+		} finally {
+			blocking.close();
+		}
+
+		verifyDeleteRequest(path);
+	}
+
+	@Test
+	public void canCreateTextBatchWithCompressedBody() throws Exception {
+		String spid = TestUtils.freshServicePlanId();
+		BatchId batchId = TestUtils.freshBatchId();
+		OffsetDateTime time = OffsetDateTime.of(2016, 10, 2, 9, 34, 28,
+		        542000000, ZoneOffset.UTC);
+
+		MtBatchTextSmsCreate.Builder builder =
+		        ClxApi.batchTextSms()
+		                .sender("12345")
+		                .body("Hello, world!");
+
+		for (int i = 0; i < 1000; i++) {
+			builder.addRecipient(String.valueOf(46700000000L + i));
+		}
+
+		MtBatchTextSmsCreate request = builder.build();
+
+		MtBatchTextSmsResult expected =
+		        MtBatchTextSmsResult.builder()
+		                .sender(request.sender())
+		                .recipients(request.recipients())
+		                .body(request.body())
+		                .canceled(false)
+		                .id(batchId)
+		                .createdAt(time)
+		                .modifiedAt(time)
+		                .build();
+
+		String path = "/v1/" + spid + "/batches";
+
+		stubPostResponse(expected, path, 201);
+
+		ApiConnection conn = ApiConnection.builder()
+		        .servicePlanId(spid)
+		        .token("toktok")
+		        .endpoint("http://localhost:" + wm.port())
+		        .compressionPolicy(CompressionPolicy.builder()
+		                .requestThreshold(1024)
+		                .build())
+		        .start();
+
+		try {
+			MtBatchTextSmsResult actual = conn.createBatch(request);
+			assertThat(actual, is(expected));
+		} finally {
+			conn.close();
+		}
+
+		List<LoggedRequest> requests = wm.findAll(postRequestedFor(
+		        urlEqualTo(path))
+		                .withHeader("Content-Encoding", equalTo("gzip"))
+		                .withHeader("Accept-Encoding", equalTo("gzip")));
+
+		assertThat(requests.size(), is(1));
+
+		byte[] body = gunzip(requests.get(0).getBody());
+
+		assertThat(json.readTree(body),
+		        is(json.readTree(json.writeValueAsBytes(request))));
+	}
+
+	@Test
+	public void canFetchCompressedInboundsPage() throws Exception {
+		String spid = TestUtils.freshServicePlanId();
+		OffsetDateTime time = OffsetDateTime.now(Clock.systemUTC());
+
+		PagedInboundsResult.Builder builder =
+		        PagedInboundsResult.builder()
+		                .page(0)
+		                .size(100)
+		                .totalSize(100);
+
+		for (int i = 0; i < 100; i++) {
+			builder.addContent(MoTextSms.builder()
+			        .sender(String.valueOf(46700000000L + i))
+			        .recipient("54321")
+			        .id(TestUtils.freshSmsId())
+			        .receivedAt(time)
+			        .body("body" + i)
+			        .build());
+		}
+
+		final Page<MoSms> expected = builder.build();
+
+		String path = "/v1/" + spid + "/inbounds?page=0";
+
+		wm.stubFor(get(
+		        urlEqualTo(path))
+		                .withHeader("Accept-Encoding", equalTo("gzip"))
+		                .willReturn(aResponse()
+		                        .withStatus(200)
+		                        .withHeader("Content-Type", "application/json")
+		                        .withHeader("Content-Encoding", "gzip")
+		                        .withBody(gzip(
+		                                json.writeValueAsBytes(expected)))));
+
+		ApiConnection conn = ApiConnection.builder()
+		        .servicePlanId(spid)
+		        .token("tok")
+		        .endpoint("http://localhost:" + wm.port())
+		        .compressionPolicy(CompressionPolicy.builder().build())
+		        .start();
+
+		try {
+			PagedFetcher<MoSms> fetcher =
+			        conn.fetchInbounds(ClxApi.inboundsFilter().build());
+
+			assertThat(fetcher.fetchAsync(0, null).get(), is(expected));
+
+			final List<MoSms> streamed = new ArrayList<MoSms>();
+			fetcher.streamAsync(0, new PageElementListener<MoSms>() {
+
+				@Override
+				public void onElement(MoSms element) {
+					streamed.add(element);
+				}
+
+			}, null).get();
+
+			assertThat(streamed, is(expected.content()));
+		} finally {
+			conn.close();
+		}
+	}
+
+	@Test
+	public void canPrewarmConnectionsAtStart() throws Exception {
+		String spid = TestUtils.freshServicePlanId();
+		BatchId batchId = TestUtils.freshBatchId();
+		OffsetDateTime time = OffsetDateTime.of(2016, 10, 2, 9, 34, 28,
+		        542000000, ZoneOffset.UTC);
+
+		String path = "/v1/" + spid + "/batches/" + batchId;
+
+		final MtBatchSmsResult expected =
+		        MtBatchTextSmsResult.builder()
+		                .sender("12345")
+		                .addRecipient("123456789")
+		                .body("Hello, world!")
+		                .canceled(false)
+		                .id(batchId)
+		                .createdAt(time)
+		                .modifiedAt(time)
+		                .build();
+
+		stubGetResponse(expected, path);
+
+		ApiHttpAsyncClient client = ApiHttpAsyncClient.of(
+		        HttpClientConfig.builder()
+		                .maxConnections(4)
+		                .prewarmConnections(4)
+		                .build());
+
+		ApiConnection conn = ApiConnection.builder()
+		        .servicePlanId(spid)
+		        .token("tok")
+		        .endpoint("http://localhost:" + wm.port())
+		        .httpClient(client)
+		        .start();
+
+		try {
+			// No more than the maximum number of connections are opened.
+			assertThat(client.prewarm(conn.endpointHost(), 10).get(), is(4));
+
+			MtBatchSmsResult actual = conn.fetchBatch(batchId);
+			assertThat(actual, is(expected));
+		} finally {
+			conn.close();
+			client.close();
+		}
+
+		verifyGetRequest(path);
+	}
+
+	@Test
+	public void canCreateTextBatchOverUrlConnectionTransport()
+	        throws Exception {
+		String spid = TestUtils.freshServicePlanId();
+		BatchId batchId = TestUtils.freshBatchId();
+		OffsetDateTime time = OffsetDateTime.of(2016, 10, 2, 9, 34, 28,
+		        542000000, ZoneOffset.UTC);
+
+		MtBatchTextSmsCreate request =
+		        ClxApi.batchTextSms()
+		                .sender("12345")
+		                .addRecipient("123456789")
+		                .addRecipient("987654321")
+		                .body("Hello, world! Здравей свят!")
+		                .build();
+
+		MtBatchTextSmsResult expected =
+		        MtBatchTextSmsResult.builder()
+		                .sender(request.sender())
+		                .recipients(request.recipients())
+		                .body(request.body())
+		                .canceled(false)
+		                .id(batchId)
+		                .createdAt(time)
+		                .modifiedAt(time)
+		                .build();
+
+		String path = "/v1/" + spid + "/batches";
+
+		stubPostResponse(expected, path, 201);
+
+		ExecutorService executor = Executors.newCachedThreadPool();
+
+		ApiConnection conn = ApiConnection.builder()
+		        .servicePlanId(spid)
+		        .token("toktok")
+		        .endpoint("http://localhost:" + wm.port())
+		        .transport(UrlConnectionTransport.of(executor))
+		        .start();
+
+		try {
+			MtBatchTextSmsResult actual = conn.createBatch(request);
+			assertThat(actual, is(expected));
+		} finally {
+			conn.close();
+			executor.shutdown();
+		}
+
+		verifyPostRequest(path, request);
+	}
+
+	@Test(expected = NotFoundException.class)
+	public void urlConnectionTransportFetchBatchFailsWithNotFound()
+	        throws Exception {
+		String spid = TestUtils.freshServicePlanId();
+		BatchId batchId = TestUtils.freshBatchId();
+
+		String path = "/v1/" + spid + "/batches/" + batchId;
+
+		wm.stubFor(get(
+		        urlEqualTo(path))
+		                .willReturn(aResponse()
+		                        .withStatus(404)
+		                        .withHeader("Content-Type",
+		                                ContentType.TEXT_PLAIN.toString())
+		                        .withBody("BAD")));
+
+		ExecutorService executor = Executors.newCachedThreadPool();
+
+		ApiConnection conn = ApiConnection.builder()
+		        .servicePlanId(spid)
+		        .token("tok")
+		        .endpoint("http://localhost:" + wm.port())
+		        .transport(UrlConnectionTransport.of(executor))
+		        .start();
+
+		try {
+			conn.fetchBatch(batchId);
+		} finally {
+			conn.close();
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void canFetchBatchesConcurrentlyOverHttp2Transport()
+	        throws Exception {
+		String spid = TestUtils.freshServicePlanId();
+		BatchId batchId = TestUtils.freshBatchId();
+		OffsetDateTime time = OffsetDateTime.of(2016, 10, 2, 9, 34, 28,
+		        542000000, ZoneOffset.UTC);
+
+		final MtBatchSmsResult expected =
+		        MtBatchTextSmsResult.builder()
+		                .sender("12345")
+		                .addRecipient("123456789", "987654321")
+		                .body("Hello, world!")
+		                .canceled(false)
+		                .id(batchId)
+		                .createdAt(time)
+		                .modifiedAt(time)
+		                .build();
+
+		final String body = json.writeValueAsString(expected);
+		final org.apache.hc.core5.http.ContentType contentType =
+		        org.apache.hc.core5.http.ContentType.APPLICATION_JSON;
+
+		// WireMock does not speak cleartext HTTP/2 so use a minimal server.
+		HttpAsyncServer server = H2ServerBootstrap.bootstrap()
+		        .setVersionPolicy(HttpVersionPolicy.FORCE_HTTP_2)
+		        .register("*",
+		                new AsyncServerRequestHandler<Message<HttpRequest, String>>() {
+
+			                @Override
+			                public AsyncRequestConsumer<Message<HttpRequest, String>> prepare(
+			                        HttpRequest request,
+			                        EntityDetails entityDetails,
+			                        HttpContext context) {
+				                return new BasicRequestConsumer<String>(
+				                        new StringAsyncEntityConsumer());
+			                }
+
+			                @Override
+			                public void handle(
+			                        Message<HttpRequest, String> message,
+			                        ResponseTrigger responseTrigger,
+			                        HttpContext context)
+			                        throws HttpException, IOException {
+				                responseTrigger.submitResponse(
+				                        AsyncResponseBuilder.create(200)
+				                                .setEntity(body, contentType)
+				                                .build(),
+				                        context);
+			                }
+
+		                })
+		        .create();
+
+		server.start();
+
+		int port = ((InetSocketAddress) server
+		        .listen(new InetSocketAddress(0), URIScheme.HTTP)
+		        .get().getAddress()).getPort();
+
+		Http2Transport transport = Http2Transport.of(
+		        Http2Config.builder().maxConcurrentStreams(50).build());
+		transport.start();
+
+		ApiConnection conn = ApiConnection.builder()
+		        .servicePlanId(spid)
+		        .token("tok")
+		        .endpoint("http://localhost:" + port)
+		        .transport(transport)
+		        .start();
+
+		try {
+			List<Future<MtBatchSmsResult>> futures =
+			        new ArrayList<Future<MtBatchSmsResult>>();
+
+			for (int i = 0; i < 200; i++) {
+				futures.add(conn.fetchBatchAsync(batchId, null));
+			}
+
+			for (Future<MtBatchSmsResult> future : futures) {
+				assertThat(future.get(), is(expected));
+			}
+		} finally {
+			conn.close();
+			transport.close();
+			server.close(CloseMode.GRACEFUL);
+		}
+	}
+
+	@Test(expected = CancellationException.class)
+	public void cancelsFetchBatchAfterOperationTimeout() throws Exception {
+		String spid = TestUtils.freshServicePlanId();
+		BatchId batchId = TestUtils.freshBatchId();
+
+		String path = "/v1/" + spid + "/batches/" + batchId;
+
+		wm.stubFor(get(
+		        urlEqualTo(path))
+		                .willReturn(aResponse()
+		                        .withStatus(200)
+		                        .withFixedDelay(5000)
+		                        .withHeader("Content-Type", "application/json")
+		                        .withBody("{}")));
+
+		ApiConnection conn = ApiConnection.builder()
+		        .servicePlanId(spid)
+		        .token("tok")
+		        .endpoint("http://localhost:" + wm.port())
+		        .timeoutPolicy(TimeoutPolicy.builder()
+		                .defaultTimeout(Duration.ofSeconds(30))
+		                .putOperationTimeout(ApiOperation.FETCH_BATCH,
+		                        Duration.ofMillis(200))
+		                .build())
+		        .start();
+
+		try {
+			conn.fetchBatch(batchId);
+		} finally {
+			conn.close();
+		}
+	}
+
+	@Test
+	public void cancelsFetchBatchAsyncAfterDeadline() throws Exception {
+		String spid = TestUtils.freshServicePlanId();
+		BatchId batchId = TestUtils.freshBatchId();
+
+		String path = "/v1/" + spid + "/batches/" + batchId;
+
+		wm.stubFor(get(
+		        urlEqualTo(path))
+		                .willReturn(aResponse()
+		                        .withStatus(200)
+		                        .withFixedDelay(5000)
+		                        .withHeader("Content-Type", "application/json")
+		                        .withBody("{}")));
+
+		ApiConnection conn = ApiConnection.builder()
+		        .servicePlanId(spid)
+		        .token("tok")
+		        .endpoint("http://localhost:" + wm.port())
+		        .start();
+
+		final CountDownLatch latch = new CountDownLatch(1);
+
+		try {
+			FutureCallback<MtBatchSmsResult> callback =
+			        new TestCallback<MtBatchSmsResult>() {
+
+				        @Override
+				        public void cancelled() {
+					        latch.countDown();
+				        }
+
+			        };
+
+			Future<MtBatchSmsResult> future = conn
+			        .withDeadline(Deadline.after(200, TimeUnit.MILLISECONDS))
+			        .fetchBatchAsync(batchId, callback);
+
+			assertThat(latch.await(2, TimeUnit.SECONDS), is(true));
+			assertThat(future.isCancelled(), is(true));
+		} finally {
+			conn.close();
+		}
+	}
+
+	@Test
+	public void retriesFetchBatchAfterServiceUnavailable() throws Exception {
+		String spid = TestUtils.freshServicePlanId();
+		BatchId batchId = TestUtils.freshBatchId();
+		OffsetDateTime time = OffsetDateTime.of(2016, 10, 2, 9, 34, 28,
+		        542000000, ZoneOffset.UTC);
+
+		String path = "/v1/" + spid + "/batches/" + batchId;
+
+		final MtBatchSmsResult expected =
+		        MtBatchTextSmsResult.builder()
+		                .sender("12345")
+		                .addRecipient("123456789", "987654321")
+		                .body("Hello, world!")
+		                .canceled(false)
+		                .id(batchId)
+		                .createdAt(time)
+		                .modifiedAt(time)
+		                .build();
+
+		wm.stubFor(get(urlEqualTo(path))
+		        .inScenario("retry")
+		        .whenScenarioStateIs(Scenario.STARTED)
+		        .willReturn(aResponse().withStatus(503))
+		        .willSetStateTo("recovered"));
+
+		wm.stubFor(get(urlEqualTo(path))
+		        .inScenario("retry")
+		        .whenScenarioStateIs("recovered")
+		        .willReturn(aResponse()
+		                .withStatus(200)
+		                .withHeader("Content-Type", "application/json")
+		                .withBody(json.writeValueAsBytes(expected))));
+
+		ApiConnection conn = ApiConnection.builder()
+		        .servicePlanId(spid)
+		        .token("tok")
+		        .endpoint("http://localhost:" + wm.port())
+		        .retryPolicy(ExponentialBackoff.builder()
+		                .initialDelay(Duration.ofMillis(10))
+		                .build())
+		        .start();
+
+		try {
+			MtBatchSmsResult actual = conn.fetchBatch(batchId);
+			assertThat(actual, is(expected));
+		} finally {
+			conn.close();
+		}
+
+		wm.verify(2, getRequestedFor(urlEqualTo(path)));
+	}
+
+	@Test
+	public void hedgesSlowFetchBatch() throws Exception {
+		String spid = TestUtils.freshServicePlanId();
+		BatchId warmupId = TestUtils.freshBatchId();
+		BatchId batchId = TestUtils.freshBatchId();
+		OffsetDateTime time = OffsetDateTime.of(2016, 10, 2, 9, 34, 28,
+		        542000000, ZoneOffset.UTC);
+
+		String warmupPath = "/v1/" + spid + "/batches/" + warmupId;
+		String path = "/v1/" + spid + "/batches/" + batchId;
+
+		final MtBatchSmsResult expected =
+		        MtBatchTextSmsResult.builder()
+		                .sender("12345")
+		                .addRecipient("123456789", "987654321")
+		                .body("Hello, world!")
+		                .canceled(false)
+		                .id(batchId)
+		                .createdAt(time)
+		                .modifiedAt(time)
+		                .build();
+
+		stubGetResponse(expected, warmupPath);
+
+		wm.stubFor(get(urlEqualTo(path))
+		        .inScenario("hedge")
+		        .whenScenarioStateIs(Scenario.STARTED)
+		        .willReturn(aResponse()
+		                .withStatus(200)
+		                .withFixedDelay(5000)
+		                .withHeader("Content-Type", "application/json")
+		                .withBody(json.writeValueAsBytes(expected)))
+		        .willSetStateTo("hedged"));
+
+		wm.stubFor(get(urlEqualTo(path))
+		        .inScenario("hedge")
+		        .whenScenarioStateIs("hedged")
+		        .willReturn(aResponse()
+		                .withStatus(200)
+		                .withHeader("Content-Type", "application/json")
+		                .withBody(json.writeValueAsBytes(expected))));
+
+		ApiConnection conn = ApiConnection.builder()
+		        .servicePlanId(spid)
+		        .token("tok")
+		        .endpoint("http://localhost:" + wm.port())
+		        .hedgingPolicy(HedgingPolicy.builder()
+		                .windowSize(1)
+		                .minimumSamples(1)
+		                .build())
+		        .start();
+
+		try {
+			conn.fetchBatch(warmupId);
+
+			long before = System.nanoTime();
+			MtBatchSmsResult actual = conn.fetchBatch(batchId);
+			long elapsed = System.nanoTime() - before;
+
+			assertThat(actual, is(expected));
+			assertThat(elapsed < TimeUnit.SECONDS.toNanos(4), is(true));
+		} finally {
+			conn.close();
+		}
+
+		wm.verify(2, getRequestedFor(urlEqualTo(path)));
+	}
+
+	@Test
+	public void failsOverFetchBatchToHealthyEndpoint() throws Exception {
+		String spid = TestUtils.freshServicePlanId();
+		BatchId batchId = TestUtils.freshBatchId();
+		OffsetDateTime time = OffsetDateTime.of(2016, 10, 2, 9, 34, 28,
+		        542000000, ZoneOffset.UTC);
+
+		String path = "/v1/" + spid + "/batches/" + batchId;
+
+		final MtBatchSmsResult expected =
+		        MtBatchTextSmsResult.builder()
+		                .sender("12345")
+		                .addRecipient("123456789", "987654321")
+		                .body("Hello, world!")
+		                .canceled(false)
+		                .id(batchId)
+		                .createdAt(time)
+		                .modifiedAt(time)
+		                .build();
+
+		stubGetResponse(expected, path);
+
+		// Nothing listens on port 1 so the first endpoint refuses connections.
+		URI broken = URI.create("http://localhost:1");
+		URI healthy = URI.create("http://localhost:" + wm.port());
+
+		LoadBalancer balancer = LoadBalancer.builder()
+		        .addEndpoint(broken, healthy)
+		        .ejectionThreshold(1)
+		        .build();
+
+		ApiConnection conn = ApiConnection.builder()
+		        .servicePlanId(spid)
+		        .token("tok")
+		        .endpoint(healthy)
+		        .loadBalancer(balancer)
+		        .retryPolicy(ExponentialBackoff.builder()
+		                .initialDelay(Duration.ofMillis(10))
+		                .build())
+		        .start();
+
+		try {
+			assertThat(conn.fetchBatch(batchId), is(expected));
+			assertThat(conn.fetchBatch(batchId), is(expected));
+		} finally {
+			conn.close();
+		}
+
+		assertThat(balancer.isEjected(broken), is(true));
+
+		wm.verify(2, getRequestedFor(urlEqualTo(path)));
+	}
+
+	@Test
+	public void doesNotRetryBatchCreateByDefault() throws Exception {
 		String spid = TestUtils.freshServicePlanId();
-		BatchId batchId = TestUtils.freshBatchId();
-		OffsetDateTime time = OffsetDateTime.now(Clock.systemUTC());
 
-		MtBatchBinarySmsCreate request =
-		        ClxApi.batchBinarySms()
+		MtBatchTextSmsCreate request =
+		        ClxApi.batchTextSms()
 		                .sender("12345")
 		                .addRecipient("123456789")
-		                .addRecipient("987654321")
-		                .body("body".getBytes(TestUtils.US_ASCII))
-		                .udh("udh".getBytes(TestUtils.US_ASCII))
-		                .build();
-
-		MtBatchBinarySmsResult expected =
-		        MtBatchBinarySmsResult.builder()
-		                .sender(request.sender())
-		                .recipients(request.recipients())
-		                .body(request.body())
-		                .udh(request.udh())
-		                .canceled(false)
-		                .id(batchId)
-		                .createdAt(time)
-		                .modifiedAt(time)
+		                .body("Hello, world!")
 		                .build();
 
-		String path = "/v1/" + spid + "/batches/" + batchId;
+		String path = "/v1/" + spid + "/batches";
 
-		stubPutResponse(expected, path, 201);
+		wm.stubFor(post(urlEqualTo(path))
+		        .willReturn(aResponse().withStatus(503)));
 
 		ApiConnection conn = ApiConnection.builder()
 		        .servicePlanId(spid)
 		        .token("toktok")
 		        .endpoint("http://localhost:" + wm.port())
+		        .retryPolicy(ExponentialBackoff.builder()
+		                .initialDelay(Duration.ofMillis(10))
+		                .build())
 		        .start();
 
 		try {
-			MtBatchBinarySmsResult actual =
-			        conn.replaceBatch(batchId, request);
-			assertThat(actual, is(expected));
+			conn.createBatch(request);
+			fail("expected exception");
+		} catch (UnexpectedResponseException e) {
+			assertThat(e.getResponse().getStatusLine().getStatusCode(),
+			        is(503));
 		} finally {
 			conn.close();
 		}
 
-		verifyPutRequest(path, request);
+		wm.verify(1, postRequestedFor(urlEqualTo(path)));
 	}
 
 	@Test
-	public void canReplaceTextBatch() throws Exception {
+	public void delaysFetchBatchWhenRateLimited() throws Exception {
 		String spid = TestUtils.freshServicePlanId();
 		BatchId batchId = TestUtils.freshBatchId();
 		OffsetDateTime time = OffsetDateTime.of(2016, 10, 2, 9, 34, 28,
 		        542000000, ZoneOffset.UTC);
 
-		MtBatchTextSmsCreate request =
-		        ClxApi.batchTextSms()
-		                .sender("12345")
-		                .addRecipient("123456789")
-		                .addRecipient("987654321")
-		                .body("Hello, world!")
-		                .build();
+		String path = "/v1/" + spid + "/batches/" + batchId;
 
-		MtBatchTextSmsResult expected =
+		final MtBatchSmsResult expected =
 		        MtBatchTextSmsResult.builder()
-		                .sender(request.sender())
-		                .recipients(request.recipients())
-		                .body(request.body())
+		                .sender("12345")
+		                .addRecipient("123456789", "987654321")
+		                .body("Hello, world!")
 		                .canceled(false)
 		                .id(batchId)
 		                .createdAt(time)
 		                .modifiedAt(time)
 		                .build();
 
-		String path = "/v1/" + spid + "/batches/" + batchId;
+		stubGetResponse(expected, path);
 
-		stubPutResponse(expected, path, 201);
+		RateLimiter limiter = RateLimiter.builder()
+		        .permitsPerSecond(20)
+		        .burst(1)
+		        .build();
 
 		ApiConnection conn = ApiConnection.builder()
 		        .servicePlanId(spid)
-		        .token("toktok")
+		        .token("tok")
 		        .endpoint("http://localhost:" + wm.port())
+		        .rateLimiter(limiter)
 		        .start();
 
 		try {
-			MtBatchTextSmsResult actual = conn.replaceBatch(batchId, request);
-			assertThat(actual, is(expected));
+			Future<MtBatchSmsResult> first = conn.fetchBatchAsync(batchId, null);
+			Future<MtBatchSmsResult> second =
+			        conn.fetchBatchAsync(batchId, null);
+
+			assertThat(first.get(), is(expected));
+			assertThat(second.get(), is(expected));
 		} finally {
 			conn.close();
 		}
 
-		verifyPutRequest(path, request);
+		assertThat(limiter.permittedCalls(), is(2L));
+		assertThat(limiter.totalWait(TimeUnit.NANOSECONDS) > 0, is(true));
+
+		wm.verify(2, getRequestedFor(urlEqualTo(path)));
 	}
 
 	@Test
-	public void canUpdateSimpleTextBatch() throws Exception {
+	public void rejectsFetchBatchWhenRateLimitExceeded() throws Exception {
 		String spid = TestUtils.freshServicePlanId();
 		BatchId batchId = TestUtils.freshBatchId();
 		OffsetDateTime time = OffsetDateTime.of(2016, 10, 2, 9, 34, 28,
 		        542000000, ZoneOffset.UTC);
 
-		MtBatchTextSmsUpdate request =
-		        ClxApi.batchTextSmsUpdate()
-		                .sender("12345")
-		                .body("Hello, world!")
-		                .unsetDeliveryReport()
-		                .unsetExpireAt()
-		                .build();
+		String path = "/v1/" + spid + "/batches/" + batchId;
 
-		MtBatchTextSmsResult expected =
+		final MtBatchSmsResult expected =
 		        MtBatchTextSmsResult.builder()
-		                .sender(request.sender())
-		                .addRecipient("123")
-		                .body(request.body())
+		                .sender("12345")
+		                .addRecipient("123456789", "987654321")
+		                .body("Hello, world!")
 		                .canceled(false)
 		                .id(batchId)
 		                .createdAt(time)
 		                .modifiedAt(time)
 		                .build();
 
-		String path = "/v1/" + spid + "/batches/" + batchId;
-
-		stubPostResponse(expected, path, 201);
+		stubGetResponse(expected, path);
 
 		ApiConnection conn = ApiConnection.builder()
 		        .servicePlanId(spid)
-		        .token("toktok")
+		        .token("tok")
 		        .endpoint("http://localhost:" + wm.port())
+		        .rateLimiter(RateLimiter.builder()
+		                .permitsPerSecond(0.1)
+		                .maxWait(Duration.ZERO)
+		                .build())
 		        .start();
 
 		try {
-			MtBatchTextSmsResult actual = conn.updateBatch(batchId, request);
-			assertThat(actual, is(expected));
+			assertThat(conn.fetchBatch(batchId), is(expected));
+			conn.fetchBatch(batchId);
+			fail("expected exception");
+		} catch (RateLimitExceededException e) {
+			assertThat(e.getOperation(), is(ApiOperation.FETCH_BATCH));
 		} finally {
 			conn.close();
 		}
 
-		verifyPostRequest(path, request);
+		wm.verify(1, getRequestedFor(urlEqualTo(path)));
 	}
 
 	@Test
-	public void canUpdateSimpleBinaryBatch() throws Exception {
+	public void rejectsFetchBatchWhenConcurrencyLimitReached()
+	        throws Exception {
 		String spid = TestUtils.freshServicePlanId();
 		BatchId batchId = TestUtils.freshBatchId();
-		OffsetDateTime time = OffsetDateTime.of(2016, 10, 2, 9, 34, 28,
-		        542000000, ZoneOffset.UTC);
 
-		Set<String> tags = new TreeSet<String>();
-		tags.add("tag1");
-		tags.add("tag2");
+		String path = "/v1/" + spid + "/batches/" + batchId;
 
-		MtBatchBinarySmsUpdate request =
-		        ClxApi.batchBinarySmsUpdate()
-		                .sender("12345")
-		                .body("howdy".getBytes(TestUtils.US_ASCII))
-		                .unsetExpireAt()
-		                .build();
+		wm.stubFor(get(
+		        urlEqualTo(path))
+		                .willReturn(aResponse()
+		                        .withStatus(200)
+		                        .withFixedDelay(5000)
+		                        .withHeader("Content-Type", "application/json")
+		                        .withBody("{}")));
 
-		MtBatchBinarySmsResult expected =
-		        MtBatchBinarySmsResult.builder()
-		                .sender(request.sender())
-		                .addRecipient("123")
-		                .body(request.body())
-		                .udh((byte) 1, (byte) 0xff)
-		                .canceled(false)
-		                .id(batchId)
-		                .createdAt(time)
-		                .modifiedAt(time)
-		                .build();
+		ConcurrencyLimiter limiter = ConcurrencyLimiter.builder()
+		        .initialLimit(1)
+		        .build();
+
+		ApiConnection conn = ApiConnection.builder()
+		        .servicePlanId(spid)
+		        .token("tok")
+		        .endpoint("http://localhost:" + wm.port())
+		        .concurrencyLimiter(limiter)
+		        .start();
+
+		try {
+			Future<MtBatchSmsResult> first = conn.fetchBatchAsync(batchId, null);
+
+			try {
+				conn.fetchBatch(batchId);
+				fail("expected exception");
+			} catch (ConcurrencyLimitExceededException e) {
+				assertThat(e.getOperation(), is(ApiOperation.FETCH_BATCH));
+			}
+
+			first.cancel(true);
+		} finally {
+			conn.close();
+		}
+
+		assertThat(limiter.inFlight(), is(0));
+		assertThat(limiter.rejectedCalls(), is(1L));
+	}
+
+	@Test
+	public void failsFastWhenCircuitBreakerOpen() throws Exception {
+		String spid = TestUtils.freshServicePlanId();
+		BatchId batchId = TestUtils.freshBatchId();
 
 		String path = "/v1/" + spid + "/batches/" + batchId;
 
-		stubPostResponse(expected, path, 201);
+		wm.stubFor(get(urlEqualTo(path))
+		        .willReturn(aResponse().withStatus(503)));
+
+		CircuitBreaker breaker = CircuitBreaker.builder()
+		        .windowSize(2)
+		        .minimumCalls(2)
+		        .build();
 
 		ApiConnection conn = ApiConnection.builder()
 		        .servicePlanId(spid)
-		        .token("toktok")
+		        .token("tok")
 		        .endpoint("http://localhost:" + wm.port())
+		        .circuitBreaker(breaker)
 		        .start();
 
 		try {
-			MtBatchBinarySmsResult actual = conn.updateBatch(batchId, request);
-			assertThat(actual, is(expected));
+			for (int i = 0; i < 2; i++) {
+				try {
+					conn.fetchBatch(batchId);
+					fail("expected exception");
+				} catch (UnexpectedResponseException e) {
+					assertThat(e.getResponse().getStatusLine().getStatusCode(),
+					        is(503));
+				}
+			}
+
+			assertThat(breaker.state(conn.endpoint()),
+			        is(CircuitBreaker.State.OPEN));
+
+			conn.fetchBatch(batchId);
+			fail("expected exception");
+		} catch (CircuitBreakerOpenException e) {
+			assertThat(e.getEndpoint(), is(conn.endpoint()));
 		} finally {
 			conn.close();
 		}
 
-		verifyPostRequest(path, request);
+		wm.verify(2, getRequestedFor(urlEqualTo(path)));
 	}
 
 	@Test
-	public void canFetchTextBatch() throws Exception {
+	public void canFetchTextBatchAsync() throws Exception {
 		String spid = TestUtils.freshServicePlanId();
 		BatchId batchId = TestUtils.freshBatchId();
 		OffsetDateTime time = OffsetDateTime.of(2016, 10, 2, 9, 34, 28,
@@ -726,7 +1944,18 @@ public class ApiConnectionIT {
 		        .start();
 
 		try {
-			MtBatchSmsResult actual = conn.fetchBatch(batchId);
+			FutureCallback<MtBatchSmsResult> testCallback =
+			        new TestCallback<MtBatchSmsResult>() {
+
+				        @Override
+				        public void completed(MtBatchSmsResult result) {
+					        assertThat(result, is(expected));
+				        }
+
+			        };
+
+			MtBatchSmsResult actual =
+			        conn.fetchBatchAsync(batchId, testCallback).get();
 			assertThat(actual, is(expected));
 		} finally {
 			conn.close();
@@ -736,7 +1965,7 @@ public class ApiConnectionIT {
 	}
 
 	@Test
-	public void canFetchTextBatchAsync() throws Exception {
+	public void runsFetchBatchCallbackInCallbackExecutor() throws Exception {
 		String spid = TestUtils.freshServicePlanId();
 		BatchId batchId = TestUtils.freshBatchId();
 		OffsetDateTime time = OffsetDateTime.of(2016, 10, 2, 9, 34, 28,
@@ -757,31 +1986,37 @@ public class ApiConnectionIT {
 
 		stubGetResponse(expected, path);
 
+		ExecutorService executor = Executors.newSingleThreadExecutor(
+		        r -> new Thread(r, "test-callback-executor"));
+
 		ApiConnection conn = ApiConnection.builder()
 		        .servicePlanId(spid)
 		        .token("tok")
 		        .endpoint("http://localhost:" + wm.port())
+		        .callbackExecutor(executor)
 		        .start();
 
+		final AtomicReference<String> threadName = new AtomicReference<>();
+		final CountDownLatch latch = new CountDownLatch(1);
+
 		try {
-			FutureCallback<MtBatchSmsResult> testCallback =
+			conn.fetchBatchAsync(batchId,
 			        new TestCallback<MtBatchSmsResult>() {
 
 				        @Override
 				        public void completed(MtBatchSmsResult result) {
-					        assertThat(result, is(expected));
+					        threadName.set(Thread.currentThread().getName());
+					        latch.countDown();
 				        }
 
-			        };
+			        });
 
-			MtBatchSmsResult actual =
-			        conn.fetchBatchAsync(batchId, testCallback).get();
-			assertThat(actual, is(expected));
+			assertThat(latch.await(10, TimeUnit.SECONDS), is(true));
+			assertThat(threadName.get(), is("test-callback-executor"));
 		} finally {
 			conn.close();
+			executor.shutdown();
 		}
-
-		verifyGetRequest(path);
 	}
 
 	@Test
@@ -2606,6 +3841,33 @@ public class ApiConnectionIT {
 		verifyDeleteRequest(path);
 	}
 
+	@Test
+	public void canDeleteGroupWithNoContentResponse() throws Exception {
+		String spid = TestUtils.freshServicePlanId();
+		GroupId groupId = TestUtils.freshGroupId();
+
+		String path = "/v1/" + spid + "/groups/" + groupId;
+
+		wm.stubFor(delete(
+		        urlEqualTo(path))
+		                .willReturn(aResponse()
+		                        .withStatus(204)));
+
+		ApiConnection conn = ApiConnection.builder()
+		        .servicePlanId(spid)
+		        .token("tok")
+		        .endpoint("http://localhost:" + wm.port())
+		        .start();
+
+		try {
+			conn.deleteGroup(groupId);
+		} finally {
+			conn.close();
+		}
+
+		verifyDeleteRequest(path);
+	}
+
 	@Test
 	public void canHandle400WhenDeletingGroupSync() throws Exception {
 		String spid = TestUtils.freshServicePlanId();
@@ -2899,6 +4161,54 @@ public class ApiConnectionIT {
 		verifyDeleteRequest(path);
 	}
 
+	@Test
+	public void keepsBodyOfUnexpectedSuccessWhenDeletingGroup()
+	        throws Exception {
+		String spid = TestUtils.freshServicePlanId();
+		GroupId groupId = TestUtils.freshGroupId();
+
+		String path = "/v1/" + spid + "/groups/" + groupId;
+
+		wm.stubFor(delete(
+		        urlEqualTo(path))
+		                .willReturn(aResponse()
+		                        .withStatus(202)
+		                        .withHeader("Content-Type",
+		                                ContentType.TEXT_PLAIN.toString())
+		                        .withBody("PENDING")));
+
+		ApiConnection conn = ApiConnection.builder()
+		        .servicePlanId(spid)
+		        .token("tok")
+		        .endpoint("http://localhost:" + wm.port())
+		        .start();
+
+		try {
+			conn.deleteGroupAsync(groupId, null).get();
+			fail("Expected exception, got none");
+		} catch (ExecutionException ee) {
+			assertThat(ee.getCause(),
+			        is(instanceOf(UnexpectedResponseException.class)));
+
+			HttpResponse response =
+			        ((UnexpectedResponseException) ee.getCause())
+			                .getResponse();
+
+			assertThat(response.getStatusLine().getStatusCode(), is(202));
+
+			byte[] buf = new byte[100];
+			InputStream contentStream = response.getEntity().getContent();
+			int read = contentStream.read(buf);
+			contentStream.close();
+
+			assertThat(new String(buf, 0, read, "UTF-8"), is("PENDING"));
+		} finally {
+			conn.close();
+		}
+
+		verifyDeleteRequest(path);
+	}
+
 	@Test
 	public void canUpdateGroupTagsSync() throws Exception {
 		String spid = TestUtils.freshServicePlanId();
@@ -3507,4 +4817,46 @@ public class ApiConnectionIT {
 		                        equalTo("Bearer toktok")));
 	}
 
+	/**
+	 * Helper that compresses the given bytes using gzip.
+	 * 
+	 * @param content
+	 *            the bytes to compress
+	 * @return the compressed bytes
+	 * @throws IOException
+	 *             if compression failed
+	 */
+	private static byte[] gzip(byte[] content) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		GZIPOutputStream gos = new GZIPOutputStream(bos);
+
+		gos.write(content);
+		gos.close();
+
+		return bos.toByteArray();
+	}
+
+	/**
+	 * Helper that decompresses the given gzip compressed bytes.
+	 * 
+	 * @param content
+	 *            the bytes to decompress
+	 * @return the decompressed bytes
+	 * @throws IOException
+	 *             if decompression failed
+	 */
+	private static byte[] gunzip(byte[] content) throws IOException {
+		GZIPInputStream gis =
+		        new GZIPInputStream(new ByteArrayInputStream(content));
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		byte[] buf = new byte[4096];
+		int n;
+
+		while ((n = gis.read(buf)) > 0) {
+			bos.write(buf, 0, n);
+		}
+
+		return bos.toByteArray();
+	}
+
 }
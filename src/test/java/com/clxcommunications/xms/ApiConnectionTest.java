@@ -28,6 +28,7 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.net.URI;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.http.HttpHost;
@@ -104,6 +105,7 @@ public class ApiConnectionTest {
 		        .endpoint(url)
 		        .callbackWrapper(CallbackWrapper.identity)
 		        .prettyPrintJson(false)
+		        .afterburnerJson(true)
 		        .httpClient(client)
 		        .build();
 
@@ -113,6 +115,7 @@ public class ApiConnectionTest {
 		assertThat(conn.callbackWrapper(),
 		        is(sameInstance(CallbackWrapper.identity)));
 		assertThat(conn.prettyPrintJson(), is(false));
+		assertThat(conn.afterburnerJson(), is(true));
 		assertThat(conn.httpClient(),
 		        is(sameInstance((HttpAsyncClient) client)));
 	}
@@ -158,6 +161,78 @@ public class ApiConnectionTest {
 		assertThat(client.isRunning(), is(false));
 	}
 
+	@Test
+	public void configuresInternalHttpClient() throws Exception {
+		HttpClientConfig config = HttpClientConfig.builder()
+		        .maxConnections(50)
+		        .build();
+
+		ApiConnection conn = ApiConnection.builder()
+		        .token("token")
+		        .servicePlanId("spid")
+		        .httpClientConfig(config)
+		        .build();
+
+		assertThat(conn.httpClient(),
+		        is(instanceOf(ApiHttpAsyncClient.class)));
+		assertThat(((ApiHttpAsyncClient) conn.httpClient()).config(),
+		        is(config));
+	}
+
+	@Test
+	public void doesNotStartHttpClientWhenTransportGiven() throws Exception {
+		CloseableHttpAsyncClient other = HttpAsyncClients.createMinimal();
+		ApiTransport transport = HttpAsyncClientTransport.of(other);
+
+		ApiConnection conn = ApiConnection.builder()
+		        .token("token")
+		        .servicePlanId("spid")
+		        .transport(transport)
+		        .build();
+
+		assertThat(conn.transport(), is(sameInstance(transport)));
+
+		ApiHttpAsyncClient client = (ApiHttpAsyncClient) conn.httpClient();
+
+		conn.start();
+
+		assertThat(client.isRunning(), is(false));
+
+		conn.close();
+		other.close();
+	}
+
+	@Test
+	public void deadlineViewSharesStateWithParent() throws Exception {
+		ApiConnection conn = ApiConnection.builder()
+		        .token("token")
+		        .servicePlanId("spid")
+		        .endpoint("https://localhost:3000/basepath")
+		        .build();
+
+		ApiConnection view =
+		        conn.withDeadline(Deadline.after(1, TimeUnit.MINUTES));
+
+		assertThat(view.token(), is(conn.token()));
+		assertThat(view.servicePlanId(), is(conn.servicePlanId()));
+		assertThat(view.endpoint(), is(conn.endpoint()));
+		assertThat(view.endpointHost(), is(conn.endpointHost()));
+		assertThat(view.httpClient(), is(sameInstance(conn.httpClient())));
+		assertThat(view.timeoutPolicy(),
+		        is(sameInstance(conn.timeoutPolicy())));
+
+		ApiHttpAsyncClient client = (ApiHttpAsyncClient) conn.httpClient();
+
+		view.start();
+		assertThat(client.isRunning(), is(false));
+
+		conn.start();
+		view.close();
+		assertThat(client.isRunning(), is(true));
+
+		conn.close();
+	}
+
 	@Test
 	public void leavesExternalHttpClientAlone() throws Exception {
 		final AtomicBoolean clientClosed = new AtomicBoolean();
@@ -198,4 +273,14 @@ public class ApiConnectionTest {
 		assertThat(client.isRunning(), is(true));
 	}
 
+	@Test
+	public void splitsPrewarmConnectionsEvenlyOverHosts() throws Exception {
+		assertThat(ApiConnection.prewarmShare(5, 2, 0), is(3));
+		assertThat(ApiConnection.prewarmShare(5, 2, 1), is(2));
+		assertThat(ApiConnection.prewarmShare(6, 3, 2), is(2));
+		assertThat(ApiConnection.prewarmShare(1, 3, 0), is(1));
+		assertThat(ApiConnection.prewarmShare(1, 3, 1), is(0));
+		assertThat(ApiConnection.prewarmShare(4, 1, 0), is(4));
+	}
+
 }
@@ -0,0 +1,53 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.net.URI;
+
+import org.junit.Test;
+
+public class AttemptsTest {
+
+	@Test
+	public void rebaseMovesPathBelowEndpoint() throws Exception {
+		URI actual = Attempts.rebase(
+		        URI.create("https://eu.example.com/xms/v1/spid/batches?page=2"),
+		        URI.create("https://eu.example.com/xms"),
+		        URI.create("http://us.example.com:8080/api/xms"));
+
+		assertThat(actual, is(URI.create(
+		        "http://us.example.com:8080/api/xms/v1/spid/batches?page=2")));
+	}
+
+	@Test
+	public void rebaseKeepsEncoding() throws Exception {
+		URI actual = Attempts.rebase(
+		        URI.create("https://eu.example.com/v1/sp%2Fid/groups"),
+		        URI.create("https://eu.example.com"),
+		        URI.create("https://us.example.com"));
+
+		assertThat(actual,
+		        is(URI.create("https://us.example.com/v1/sp%2Fid/groups")));
+	}
+
+}
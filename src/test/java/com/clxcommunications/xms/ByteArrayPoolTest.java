@@ -0,0 +1,130 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class ByteArrayPoolTest {
+
+	@Test
+	public void reusesReleasedArray() throws Exception {
+		ByteArrayPool pool = new ByteArrayPool(2, 4096);
+
+		byte[] array = pool.borrow(-1);
+		pool.release(array);
+
+		assertThat(pool.size(), is(1));
+		assertThat(pool.borrow(-1), is(sameInstance(array)));
+		assertThat(pool.size(), is(0));
+	}
+
+	@Test
+	public void borrowsArrayOfRequestedSize() throws Exception {
+		ByteArrayPool pool = new ByteArrayPool(2, 4096);
+
+		pool.release(new byte[ByteArrayPool.DEFAULT_ARRAY_SIZE]);
+
+		byte[] array = pool.borrow(3000);
+
+		assertThat(array.length, is(greaterThanOrEqualTo(3000)));
+	}
+
+	@Test
+	public void dropsPooledArraySmallerThanSizeHint() throws Exception {
+		ByteArrayPool pool = new ByteArrayPool(2, 4096);
+
+		pool.release(new byte[ByteArrayPool.DEFAULT_ARRAY_SIZE]);
+		pool.borrow(3000);
+
+		assertThat(pool.size(), is(0));
+	}
+
+	@Test
+	public void unpooledHonorsSizeHint() throws Exception {
+		byte[] array = ByteArrayPool.NONE.borrow(100000);
+
+		assertThat(array.length, is(100000));
+
+		ByteArrayPool.NONE.release(array);
+
+		assertThat(ByteArrayPool.NONE.size(), is(0));
+	}
+
+	@Test
+	public void ignoresTooLargeSizeHint() throws Exception {
+		ByteArrayPool pool = new ByteArrayPool(2, 4096);
+
+		assertThat(pool.borrow(1L << 40).length,
+		        is(ByteArrayPool.DEFAULT_ARRAY_SIZE));
+	}
+
+	@Test
+	public void ignoresSizeHintAbovePoolMaxArraySize() throws Exception {
+		ByteArrayPool pool = new ByteArrayPool(2, 4096);
+
+		assertThat(pool.borrow(8192).length,
+		        is(ByteArrayPool.DEFAULT_ARRAY_SIZE));
+	}
+
+	@Test
+	public void keepsAtMostMaxArrays() throws Exception {
+		ByteArrayPool pool = new ByteArrayPool(2, 4096);
+
+		pool.release(new byte[10]);
+		pool.release(new byte[10]);
+		pool.release(new byte[10]);
+
+		assertThat(pool.size(), is(2));
+	}
+
+	@Test
+	public void dropsTooLargeArrays() throws Exception {
+		ByteArrayPool pool = new ByteArrayPool(2, 4096);
+
+		byte[] array = new byte[4097];
+		pool.release(array);
+
+		assertThat(pool.size(), is(0));
+		assertThat(pool.borrow(-1), is(not(sameInstance(array))));
+	}
+
+	@Test
+	public void streamReturnsAllSegmentsOnRelease() throws Exception {
+		ByteArrayPool pool = new ByteArrayPool(8, 4096);
+		byte[] bytes = new byte[3000];
+
+		ByteInOutStream bios = new ByteInOutStream(pool, 1000);
+		bios.write(bytes);
+
+		assertThat(bios.toByteArray(), is(bytes));
+
+		bios.release();
+		bios.close();
+
+		assertThat(pool.size(), is(greaterThanOrEqualTo(2)));
+	}
+
+}
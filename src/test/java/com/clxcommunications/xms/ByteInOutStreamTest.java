@@ -27,6 +27,7 @@ import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 
+import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import com.pholser.junit.quickcheck.Property;
@@ -77,6 +78,32 @@ public class ByteInOutStreamTest {
 		bios.close();
 	}
 
+	@Test
+	public void canReadJsonFromSingleSegment() throws Exception {
+		ByteInOutStream bios = new ByteInOutStream(100);
+
+		bios.write("[1,2,3]".getBytes("UTF-8"));
+
+		assertThat(bios.<int[]> readJson(
+		        new ApiObjectMapper().readerFor(int[].class)),
+		        is(new int[] { 1, 2, 3 }));
+
+		bios.close();
+	}
+
+	@Test
+	public void canReadJsonFromMultipleSegments() throws Exception {
+		ByteInOutStream bios = new ByteInOutStream(2);
+
+		bios.write("[1,2,3]".getBytes("UTF-8"));
+
+		assertThat(bios.<int[]> readJson(
+		        new ApiObjectMapper().readerFor(int[].class)),
+		        is(new int[] { 1, 2, 3 }));
+
+		bios.close();
+	}
+
 	private void doWriteByteBufferTest(ByteBuffer buf, byte[] bytes)
 	        throws IOException {
 		buf.put(bytes);
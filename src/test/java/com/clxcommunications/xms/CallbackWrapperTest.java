@@ -23,6 +23,12 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.CoreMatchers.theInstance;
 import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
 import org.apache.http.concurrent.FutureCallback;
 import org.junit.Test;
 
@@ -74,4 +80,96 @@ public class CallbackWrapperTest {
 		assertThat(CallbackWrapper.exceptionDropper.wrap(null),
 		        is(nullValue()));
 	}
+
+	@Test
+	public void executorCanWrapNull() throws Exception {
+		ExecutorCallbackWrapper wrapper =
+		        ExecutorCallbackWrapper.of(Runnable::run);
+
+		assertThat(wrapper.wrap(null), is(nullValue()));
+	}
+
+	@Test
+	public void executorRunsCallbacksInExecutor() throws Exception {
+		List<Runnable> tasks = new ArrayList<>();
+		List<String> calls = new ArrayList<>();
+
+		FutureCallback<Integer> callback =
+		        ExecutorCallbackWrapper.of(tasks::add).wrap(
+		                new FutureCallback<Integer>() {
+
+			                @Override
+			                public void completed(Integer result) {
+				                calls.add("completed " + result);
+			                }
+
+			                @Override
+			                public void failed(Exception ex) {
+				                calls.add("failed " + ex.getMessage());
+			                }
+
+			                @Override
+			                public void cancelled() {
+				                calls.add("cancelled");
+			                }
+
+		                });
+
+		callback.completed(42);
+		callback.failed(new Exception("oops"));
+		callback.cancelled();
+
+		assertThat(calls.isEmpty(), is(true));
+		assertThat(tasks.size(), is(3));
+
+		for (Runnable task : tasks) {
+			task.run();
+		}
+
+		assertThat(calls.get(0), is("completed 42"));
+		assertThat(calls.get(1), is("failed oops"));
+		assertThat(calls.get(2), is("cancelled"));
+	}
+
+	@Test
+	public void executorDropsCallbackExceptions() throws Exception {
+		FutureCallback<Integer> callback =
+		        ExecutorCallbackWrapper.of(Runnable::run)
+		                .wrap(exceptionalCallback);
+
+		callback.completed(42);
+		callback.failed(new Exception());
+		callback.cancelled();
+	}
+
+	@Test
+	public void executorRunsRejectedCallbackDirectly() throws Exception {
+		List<Integer> results = new ArrayList<>();
+
+		Executor rejecting = task -> {
+			throw new RejectedExecutionException();
+		};
+
+		ExecutorCallbackWrapper.of(rejecting)
+		        .wrap(new FutureCallback<Integer>() {
+
+			        @Override
+			        public void completed(Integer result) {
+				        results.add(result);
+			        }
+
+			        @Override
+			        public void failed(Exception ex) {
+			        }
+
+			        @Override
+			        public void cancelled() {
+			        }
+
+		        })
+		        .completed(42);
+
+		assertThat(results.size(), is(1));
+	}
+
 }
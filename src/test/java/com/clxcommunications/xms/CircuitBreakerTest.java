@@ -0,0 +1,233 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+import org.threeten.bp.Duration;
+
+import com.clxcommunications.xms.CircuitBreaker.State;
+
+public class CircuitBreakerTest {
+
+	private static final URI ENDPOINT = URI.create("https://api.example.com");
+
+	private static final URI OTHER = URI.create("https://api2.example.com");
+
+	private static UnexpectedResponseException response(int status) {
+		return new UnexpectedResponseException(
+		        new BasicHttpResponse(HttpVersion.HTTP_1_1, status, "Reason"));
+	}
+
+	private static void fail(CircuitBreaker breaker, URI endpoint) {
+		assertThat(breaker.tryAcquire(endpoint), is(true));
+		breaker.failure(endpoint, new IOException(), 0);
+	}
+
+	private static void succeed(CircuitBreaker breaker, URI endpoint) {
+		assertThat(breaker.tryAcquire(endpoint), is(true));
+		breaker.success(endpoint, 0);
+	}
+
+	@Test
+	public void opensAtFailureRate() throws Exception {
+		CircuitBreaker breaker = CircuitBreaker.builder()
+		        .windowSize(4)
+		        .minimumCalls(4)
+		        .build();
+
+		succeed(breaker, ENDPOINT);
+		succeed(breaker, ENDPOINT);
+		fail(breaker, ENDPOINT);
+
+		assertThat(breaker.state(ENDPOINT), is(State.CLOSED));
+
+		fail(breaker, ENDPOINT);
+
+		assertThat(breaker.state(ENDPOINT), is(State.OPEN));
+		assertThat(breaker.tryAcquire(ENDPOINT), is(false));
+	}
+
+	@Test
+	public void slidesWindow() throws Exception {
+		CircuitBreaker breaker = CircuitBreaker.builder()
+		        .windowSize(2)
+		        .minimumCalls(2)
+		        .failureRateThreshold(1.0)
+		        .build();
+
+		fail(breaker, ENDPOINT);
+		succeed(breaker, ENDPOINT);
+		fail(breaker, ENDPOINT);
+
+		assertThat(breaker.state(ENDPOINT), is(State.CLOSED));
+
+		fail(breaker, ENDPOINT);
+
+		assertThat(breaker.state(ENDPOINT), is(State.OPEN));
+	}
+
+	@Test
+	public void opensAtSlowCallRate() throws Exception {
+		CircuitBreaker breaker = CircuitBreaker.builder()
+		        .windowSize(2)
+		        .minimumCalls(2)
+		        .slowCallDuration(Duration.ofMillis(100))
+		        .build();
+
+		for (int i = 0; i < 2; i++) {
+			breaker.tryAcquire(ENDPOINT);
+			breaker.success(ENDPOINT, TimeUnit.MILLISECONDS.toNanos(200));
+		}
+
+		assertThat(breaker.state(ENDPOINT), is(State.OPEN));
+	}
+
+	@Test
+	public void ignoresClientErrors() throws Exception {
+		CircuitBreaker breaker = CircuitBreaker.builder()
+		        .windowSize(2)
+		        .minimumCalls(2)
+		        .build();
+
+		for (int i = 0; i < 2; i++) {
+			breaker.tryAcquire(ENDPOINT);
+			breaker.failure(ENDPOINT, response(400), 0);
+			breaker.tryAcquire(ENDPOINT);
+			breaker.failure(ENDPOINT, new NotFoundException("/"), 0);
+		}
+
+		assertThat(breaker.state(ENDPOINT), is(State.CLOSED));
+	}
+
+	@Test
+	public void countsServerErrors() throws Exception {
+		CircuitBreaker breaker = CircuitBreaker.builder()
+		        .windowSize(2)
+		        .minimumCalls(2)
+		        .build();
+
+		breaker.tryAcquire(ENDPOINT);
+		breaker.failure(ENDPOINT, response(500), 0);
+		breaker.tryAcquire(ENDPOINT);
+		breaker.failure(ENDPOINT, response(503), 0);
+
+		assertThat(breaker.state(ENDPOINT), is(State.OPEN));
+	}
+
+	@Test
+	public void keepsCircuitPerEndpoint() throws Exception {
+		CircuitBreaker breaker = CircuitBreaker.builder()
+		        .windowSize(1)
+		        .minimumCalls(1)
+		        .build();
+
+		fail(breaker, ENDPOINT);
+
+		assertThat(breaker.state(ENDPOINT), is(State.OPEN));
+		assertThat(breaker.state(OTHER), is(State.CLOSED));
+	}
+
+	@Test
+	public void closesAfterSuccessfulProbes() throws Exception {
+		CircuitBreaker breaker = CircuitBreaker.builder()
+		        .windowSize(1)
+		        .minimumCalls(1)
+		        .openDuration(Duration.ZERO)
+		        .halfOpenCalls(2)
+		        .build();
+
+		fail(breaker, ENDPOINT);
+
+		assertThat(breaker.state(ENDPOINT), is(State.HALF_OPEN));
+		assertThat(breaker.tryAcquire(ENDPOINT), is(true));
+		assertThat(breaker.tryAcquire(ENDPOINT), is(true));
+		assertThat(breaker.tryAcquire(ENDPOINT), is(false));
+
+		breaker.success(ENDPOINT, 0);
+		breaker.success(ENDPOINT, 0);
+
+		assertThat(breaker.state(ENDPOINT), is(State.CLOSED));
+	}
+
+	@Test
+	public void reopensAfterFailedProbe() throws Exception {
+		List<String> changes = new ArrayList<String>();
+
+		CircuitBreaker breaker = CircuitBreaker.builder()
+		        .windowSize(1)
+		        .minimumCalls(1)
+		        .openDuration(Duration.ZERO)
+		        .listener((endpoint, from, to) -> changes.add(from + "->" + to))
+		        .build();
+
+		fail(breaker, ENDPOINT);
+		fail(breaker, ENDPOINT);
+
+		assertThat(changes.size(), is(3));
+		assertThat(changes.get(0), is("CLOSED->OPEN"));
+		assertThat(changes.get(1), is("OPEN->HALF_OPEN"));
+		assertThat(changes.get(2), is("HALF_OPEN->OPEN"));
+	}
+
+	@Test
+	public void returnsIgnoredProbe() throws Exception {
+		CircuitBreaker breaker = CircuitBreaker.builder()
+		        .windowSize(1)
+		        .minimumCalls(1)
+		        .openDuration(Duration.ZERO)
+		        .halfOpenCalls(1)
+		        .build();
+
+		fail(breaker, ENDPOINT);
+
+		assertThat(breaker.tryAcquire(ENDPOINT), is(true));
+		assertThat(breaker.tryAcquire(ENDPOINT), is(false));
+
+		breaker.ignored(ENDPOINT);
+
+		assertThat(breaker.tryAcquire(ENDPOINT), is(true));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsMinimumCallsAboveWindowSize() throws Exception {
+		CircuitBreaker.builder().windowSize(5).minimumCalls(6).build();
+	}
+
+	@Test
+	public void equalConfigurationsAreDistinctBreakers() throws Exception {
+		CircuitBreaker a = CircuitBreaker.builder().build();
+		CircuitBreaker b = CircuitBreaker.builder().build();
+
+		assertThat(a.equals(b), is(false));
+		assertThat(a.equals(a), is(true));
+	}
+
+}
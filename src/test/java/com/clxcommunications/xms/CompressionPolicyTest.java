@@ -0,0 +1,61 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.zip.Deflater;
+
+import org.junit.Test;
+
+public class CompressionPolicyTest {
+
+	@Test
+	public void hasReasonableDefaults() throws Exception {
+		CompressionPolicy policy = CompressionPolicy.builder().build();
+
+		assertThat(policy.requestThreshold(), is(16384));
+		assertThat(policy.compressionLevel(),
+		        is(Deflater.DEFAULT_COMPRESSION));
+		assertThat(policy.compressResponses(), is(true));
+	}
+
+	@Test
+	public void compressesRequestsFromThreshold() throws Exception {
+		CompressionPolicy policy = CompressionPolicy.builder()
+		        .requestThreshold(1000)
+		        .build();
+
+		assertThat(policy.compressRequest(999), is(false));
+		assertThat(policy.compressRequest(1000), is(true));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsNegativeRequestThreshold() throws Exception {
+		CompressionPolicy.builder().requestThreshold(-1).build();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsInvalidCompressionLevel() throws Exception {
+		CompressionPolicy.builder().compressionLevel(10).build();
+	}
+
+}
@@ -0,0 +1,141 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.threeten.bp.Duration;
+
+public class ConcurrencyLimiterTest {
+
+	@Test
+	public void rejectsWhenLimitReached() throws Exception {
+		ConcurrencyLimiter limiter = ConcurrencyLimiter.builder()
+		        .initialLimit(2)
+		        .build();
+
+		assertThat(limiter.tryAcquire(), is(true));
+		assertThat(limiter.tryAcquire(), is(true));
+		assertThat(limiter.tryAcquire(), is(false));
+		assertThat(limiter.inFlight(), is(2));
+		assertThat(limiter.rejectedCalls(), is(1L));
+
+		limiter.ignored();
+
+		assertThat(limiter.tryAcquire(), is(true));
+	}
+
+	@Test
+	public void growsAdditivelyWhenUtilized() throws Exception {
+		ConcurrencyLimiter limiter = ConcurrencyLimiter.builder()
+		        .initialLimit(2)
+		        .build();
+
+		for (int i = 0; i < 10; i++) {
+			limiter.tryAcquire();
+			limiter.tryAcquire();
+			limiter.success(TimeUnit.MILLISECONDS.toNanos(10));
+			limiter.success(TimeUnit.MILLISECONDS.toNanos(10));
+		}
+
+		assertThat(limiter.limit() > 2, is(true));
+		assertThat(limiter.inFlight(), is(0));
+	}
+
+	@Test
+	public void doesNotGrowWhenUnderutilized() throws Exception {
+		ConcurrencyLimiter limiter = ConcurrencyLimiter.builder()
+		        .initialLimit(10)
+		        .build();
+
+		for (int i = 0; i < 100; i++) {
+			limiter.tryAcquire();
+			limiter.success(TimeUnit.MILLISECONDS.toNanos(10));
+		}
+
+		assertThat(limiter.limit(), is(10));
+	}
+
+	@Test
+	public void shrinksMultiplicativelyOnOverload() throws Exception {
+		ConcurrencyLimiter limiter = ConcurrencyLimiter.builder()
+		        .initialLimit(100)
+		        .backoffRatio(0.5)
+		        .build();
+
+		limiter.tryAcquire();
+		limiter.dropped();
+
+		assertThat(limiter.limit(), is(50));
+	}
+
+	@Test
+	public void shrinksOnSlowResponse() throws Exception {
+		ConcurrencyLimiter limiter = ConcurrencyLimiter.builder()
+		        .initialLimit(100)
+		        .backoffRatio(0.5)
+		        .latencyThreshold(Duration.ofMillis(100))
+		        .build();
+
+		limiter.tryAcquire();
+		limiter.success(TimeUnit.MILLISECONDS.toNanos(200));
+
+		assertThat(limiter.limit(), is(50));
+		assertThat(limiter.inFlight(), is(0));
+	}
+
+	@Test
+	public void neverShrinksBelowMinimum() throws Exception {
+		ConcurrencyLimiter limiter = ConcurrencyLimiter.builder()
+		        .initialLimit(4)
+		        .minLimit(2)
+		        .backoffRatio(0.1)
+		        .build();
+
+		limiter.tryAcquire();
+		limiter.dropped();
+
+		assertThat(limiter.limit(), is(2));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsInitialLimitAboveMaximum() throws Exception {
+		ConcurrencyLimiter.builder().initialLimit(10).maxLimit(5).build();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsBackoffRatioOfOne() throws Exception {
+		ConcurrencyLimiter.builder().backoffRatio(1.0).build();
+	}
+
+	@Test
+	public void equalConfigurationsAreDistinctLimiters() throws Exception {
+		ConcurrencyLimiter a = ConcurrencyLimiter.builder().build();
+		ConcurrencyLimiter b = ConcurrencyLimiter.builder().build();
+
+		assertThat(a.equals(b), is(false));
+		assertThat(a.equals(a), is(true));
+	}
+
+}
@@ -0,0 +1,80 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.threeten.bp.Duration;
+
+public class DeadlineTest {
+
+	@Test
+	public void futureDeadlineIsNotExpired() throws Exception {
+		Deadline deadline = Deadline.after(1, TimeUnit.HOURS);
+
+		assertThat(deadline.isExpired(), is(false));
+		assertThat(deadline.remaining(TimeUnit.MINUTES), is(59L));
+		assertThat(deadline.remaining(TimeUnit.MILLISECONDS),
+		        is(lessThanOrEqualTo(TimeUnit.HOURS.toMillis(1))));
+	}
+
+	@Test
+	public void zeroDeadlineIsExpired() throws Exception {
+		Deadline deadline = Deadline.after(Duration.ZERO);
+
+		assertThat(deadline.isExpired(), is(true));
+		assertThat(deadline.remaining(TimeUnit.NANOSECONDS), is(0L));
+	}
+
+	@Test
+	public void negativeDeadlineIsExpired() throws Exception {
+		Deadline deadline = Deadline.after(-5, TimeUnit.SECONDS);
+
+		assertThat(deadline.isExpired(), is(true));
+		assertThat(deadline.remaining(TimeUnit.NANOSECONDS), is(0L));
+	}
+
+	@Test
+	public void handlesHugeDuration() throws Exception {
+		Deadline deadline = Deadline.after(Duration.ofSeconds(Long.MAX_VALUE));
+
+		assertThat(deadline.isExpired(), is(false));
+		assertThat(deadline.remaining(TimeUnit.DAYS), is(greaterThan(365L)));
+	}
+
+	@Test
+	public void earliestPicksEarliest() throws Exception {
+		Deadline early = Deadline.after(1, TimeUnit.SECONDS);
+		Deadline late = Deadline.after(1, TimeUnit.HOURS);
+
+		assertThat(early.earliest(late), is(sameInstance(early)));
+		assertThat(late.earliest(early), is(sameInstance(early)));
+		assertThat(early.compareTo(late), is(-1));
+		assertThat(late.compareTo(early), is(1));
+	}
+
+}
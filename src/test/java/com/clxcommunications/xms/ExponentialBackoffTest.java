@@ -0,0 +1,145 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.threeten.bp.Duration;
+
+import com.clxcommunications.xms.api.ApiError;
+import com.pholser.junit.quickcheck.Property;
+import com.pholser.junit.quickcheck.generator.InRange;
+import com.pholser.junit.quickcheck.runner.JUnitQuickcheck;
+
+@RunWith(JUnitQuickcheck.class)
+public class ExponentialBackoffTest {
+
+	private final ExponentialBackoff policy = ExponentialBackoff.builder()
+	        .maxAttempts(5)
+	        .initialDelay(Duration.ofMillis(100))
+	        .maxDelay(Duration.ofSeconds(1))
+	        .build();
+
+	private static UnexpectedResponseException response(int status) {
+		return new UnexpectedResponseException(
+		        new BasicHttpResponse(HttpVersion.HTTP_1_1, status, "Reason"));
+	}
+
+	@Test
+	public void retriesIoErrors() throws Exception {
+		long delay = policy.retryDelay(ApiOperation.FETCH_BATCH, 1,
+		        new SocketTimeoutException());
+
+		assertThat(delay, is(greaterThanOrEqualTo(0L)));
+	}
+
+	@Test
+	public void retriesServiceUnavailable() throws Exception {
+		long delay =
+		        policy.retryDelay(ApiOperation.FETCH_BATCH, 1, response(503));
+
+		assertThat(delay, is(greaterThanOrEqualTo(0L)));
+	}
+
+	@Test
+	public void doesNotRetryClientErrors() throws Exception {
+		ApiError error = ApiError.of("syntax_invalid_json", "bad json");
+
+		assertThat(policy.retryDelay(ApiOperation.FETCH_BATCH, 1,
+		        new ErrorResponseException(error)), is(-1L));
+		assertThat(policy.retryDelay(ApiOperation.FETCH_BATCH, 1,
+		        response(409)), is(-1L));
+	}
+
+	@Test
+	public void doesNotRetryPostByDefault() throws Exception {
+		assertThat(policy.retryDelay(ApiOperation.CREATE_BATCH, 1,
+		        new IOException()), is(-1L));
+	}
+
+	@Test
+	public void retriesPostWhenAllowed() throws Exception {
+		ExponentialBackoff p = ExponentialBackoff.builder()
+		        .retryNonIdempotent(true)
+		        .build();
+
+		assertThat(p.retryDelay(ApiOperation.CREATE_BATCH, 1,
+		        new IOException()), is(greaterThanOrEqualTo(0L)));
+	}
+
+	@Test
+	public void stopsAfterMaxAttempts() throws Exception {
+		assertThat(policy.retryDelay(ApiOperation.FETCH_BATCH, 5,
+		        new IOException()), is(-1L));
+	}
+
+	@Test
+	public void honorsRetryAfter() throws Exception {
+		UnexpectedResponseException e = response(429);
+		e.getResponse().setHeader("Retry-After", "1");
+
+		assertThat(policy.retryDelay(ApiOperation.FETCH_BATCH, 1, e),
+		        is(1000L));
+	}
+
+	@Property
+	public void delayIsBoundedByExponentialCap(
+	        @InRange(minInt = 1, maxInt = 4) int attempt) throws Exception {
+		long cap = Math.min(1000, 100L << (attempt - 1));
+		long delay = policy.retryDelay(ApiOperation.FETCH_BATCH, attempt,
+		        new IOException());
+
+		assertThat(delay, is(greaterThanOrEqualTo(0L)));
+		assertThat(delay, is(lessThanOrEqualTo(cap)));
+	}
+
+	@Test
+	public void firstDelayIsBelowInitialDelay() throws Exception {
+		for (int i = 0; i < 100; i++) {
+			assertThat(policy.retryDelay(ApiOperation.FETCH_BATCH, 1,
+			        new IOException()), is(lessThan(100L)));
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsNonPositiveMaxAttempts() throws Exception {
+		ExponentialBackoff.builder().maxAttempts(0).build();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsMaxDelayBelowInitialDelay() throws Exception {
+		ExponentialBackoff.builder()
+		        .initialDelay(Duration.ofSeconds(2))
+		        .maxDelay(Duration.ofSeconds(1))
+		        .build();
+	}
+
+}
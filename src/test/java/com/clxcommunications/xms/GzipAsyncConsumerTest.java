@@ -0,0 +1,231 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.protocol.BasicHttpContext;
+import org.junit.Test;
+import org.threeten.bp.Clock;
+import org.threeten.bp.OffsetDateTime;
+
+import com.clxcommunications.testsupport.TestUtils;
+import com.clxcommunications.xms.api.GroupResult;
+import com.clxcommunications.xms.api.PagedGroupResult;
+
+public class GzipAsyncConsumerTest {
+
+	/**
+	 * A decoder that hands out the given content a few bytes per read.
+	 */
+	private static class ChunkedDecoder implements ContentDecoder {
+
+		private final byte[] content;
+		private final int chunkSize;
+		private int position;
+
+		ChunkedDecoder(byte[] content, int chunkSize) {
+			this.content = content;
+			this.chunkSize = chunkSize;
+		}
+
+		@Override
+		public int read(ByteBuffer dst) throws IOException {
+			if (position == content.length) {
+				return -1;
+			}
+
+			int n = Math.min(chunkSize,
+			        Math.min(dst.remaining(), content.length - position));
+			dst.put(content, position, n);
+			position += n;
+
+			return n;
+		}
+
+		@Override
+		public boolean isCompleted() {
+			return position == content.length;
+		}
+
+	}
+
+	private final ApiObjectMapper json = new ApiObjectMapper();
+
+	@Test
+	public void canDecompressChunkedContent() throws Exception {
+		PagedGroupResult expected = groupPage(50);
+		byte[] body = json.writeValueAsBytes(expected);
+
+		assertThat(consume(gzip(body), "gzip", 7), is(expected));
+	}
+
+	@Test
+	public void canDecompressConcatenatedMembers() throws Exception {
+		PagedGroupResult expected = groupPage(10);
+		byte[] body = json.writeValueAsBytes(expected);
+		int half = body.length / 2;
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		bos.write(gzip(Arrays.copyOfRange(body, 0, half)));
+		bos.write(gzip(Arrays.copyOfRange(body, half, body.length)));
+
+		assertThat(consume(bos.toByteArray(), "gzip", 13), is(expected));
+	}
+
+	@Test
+	public void passesUncompressedContentThrough() throws Exception {
+		PagedGroupResult expected = groupPage(3);
+		byte[] body = json.writeValueAsBytes(expected);
+
+		assertThat(consume(body, null, 5), is(expected));
+	}
+
+	@Test
+	public void removesContentEncodingFromResponse() throws Exception {
+		JsonApiAsyncConsumer<PagedGroupResult> inner =
+		        new JsonApiAsyncConsumer<PagedGroupResult>(json,
+		                PagedGroupResult.class);
+		GzipAsyncConsumer<PagedGroupResult> consumer =
+		        new GzipAsyncConsumer<PagedGroupResult>(inner);
+
+		HttpResponse response = response("gzip", 123);
+		consumer.responseReceived(response);
+
+		assertThat(response.getFirstHeader("Content-Encoding"),
+		        is(nullValue()));
+		assertThat(response.getEntity().getContentEncoding(),
+		        is(nullValue()));
+		assertThat(response.getEntity().getContentLength(), is(-1L));
+
+		consumer.close();
+	}
+
+	@Test(expected = ZipException.class)
+	public void failsOnCorruptContent() throws Exception {
+		byte[] content = gzip(json.writeValueAsBytes(groupPage(3)));
+
+		// Corrupt the CRC of the trailer.
+		content[content.length - 8] ^= 0xff;
+
+		consume(content, "gzip", 100);
+	}
+
+	@Test(expected = EOFException.class)
+	public void failsOnTruncatedContent() throws Exception {
+		byte[] content = gzip(json.writeValueAsBytes(groupPage(3)));
+
+		consume(Arrays.copyOf(content, content.length - 4), "gzip",
+		        100);
+	}
+
+	private PagedGroupResult consume(byte[] content, String encoding,
+	        int chunkSize) throws Exception {
+		JsonApiAsyncConsumer<PagedGroupResult> inner =
+		        new JsonApiAsyncConsumer<PagedGroupResult>(json,
+		                PagedGroupResult.class);
+		GzipAsyncConsumer<PagedGroupResult> consumer =
+		        new GzipAsyncConsumer<PagedGroupResult>(inner);
+
+		try {
+			consumer.responseReceived(response(encoding, content.length));
+
+			ChunkedDecoder decoder = new ChunkedDecoder(content, chunkSize);
+			while (!decoder.isCompleted()) {
+				consumer.consumeContent(decoder, NoopIOControl.INSTANCE);
+			}
+
+			consumer.responseCompleted(new BasicHttpContext());
+
+			if (consumer.getException() != null) {
+				throw consumer.getException();
+			}
+
+			return consumer.getResult();
+		} finally {
+			consumer.close();
+		}
+	}
+
+	private static HttpResponse response(String encoding, long length) {
+		HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1,
+		        HttpStatus.SC_OK, "OK");
+
+		BasicHttpEntity entity = new BasicHttpEntity();
+		entity.setContentType("application/json");
+		entity.setContentLength(length);
+
+		if (encoding != null) {
+			entity.setContentEncoding(encoding);
+			response.setHeader("Content-Encoding", encoding);
+		}
+
+		response.setEntity(entity);
+
+		return response;
+	}
+
+	private static PagedGroupResult groupPage(int groups) {
+		OffsetDateTime time = OffsetDateTime.now(Clock.systemUTC());
+		PagedGroupResult.Builder builder = new PagedGroupResult.Builder()
+		        .page(0)
+		        .size(groups)
+		        .totalSize(groups);
+
+		for (int i = 0; i < groups; i++) {
+			builder.addContent(new GroupResult.Builder()
+			        .size(i)
+			        .id(TestUtils.freshGroupId())
+			        .createdAt(time)
+			        .modifiedAt(time)
+			        .name("group " + i)
+			        .build());
+		}
+
+		return builder.build();
+	}
+
+	private static byte[] gzip(byte[] content) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		GZIPOutputStream gos = new GZIPOutputStream(bos);
+
+		gos.write(content);
+		gos.close();
+
+		return bos.toByteArray();
+	}
+
+}
@@ -0,0 +1,135 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.threeten.bp.Duration;
+
+public class HedgingPolicyTest {
+
+	private static long millis(long value) {
+		return TimeUnit.MILLISECONDS.toNanos(value);
+	}
+
+	@Test
+	public void doesNotHedgeWithoutEnoughSamples() throws Exception {
+		HedgingPolicy policy = HedgingPolicy.builder()
+		        .minimumSamples(3)
+		        .build();
+
+		assertThat(policy.hedgeDelay(ApiOperation.FETCH_BATCH), is(-1L));
+
+		policy.record(ApiOperation.FETCH_BATCH, millis(100));
+		policy.record(ApiOperation.FETCH_BATCH, millis(100));
+
+		assertThat(policy.hedgeDelay(ApiOperation.FETCH_BATCH), is(-1L));
+
+		policy.record(ApiOperation.FETCH_BATCH, millis(100));
+
+		assertThat(policy.hedgeDelay(ApiOperation.FETCH_BATCH),
+		        is(millis(100)));
+	}
+
+	@Test
+	public void usesPercentileOfWindow() throws Exception {
+		HedgingPolicy policy = HedgingPolicy.builder()
+		        .percentile(0.9)
+		        .windowSize(10)
+		        .minimumSamples(10)
+		        .build();
+
+		for (int i = 1; i <= 10; i++) {
+			policy.record(ApiOperation.FETCH_GROUP, millis(i * 100));
+		}
+
+		assertThat(policy.hedgeDelay(ApiOperation.FETCH_GROUP),
+		        is(millis(900)));
+
+		// Slide the window so that only the slow samples remain.
+		for (int i = 0; i < 10; i++) {
+			policy.record(ApiOperation.FETCH_GROUP, millis(2000));
+		}
+
+		assertThat(policy.hedgeDelay(ApiOperation.FETCH_GROUP),
+		        is(millis(2000)));
+	}
+
+	@Test
+	public void tracksOperationsSeparately() throws Exception {
+		HedgingPolicy policy = HedgingPolicy.builder()
+		        .minimumSamples(1)
+		        .build();
+
+		policy.record(ApiOperation.FETCH_BATCH, millis(100));
+
+		assertThat(policy.hedgeDelay(ApiOperation.FETCH_GROUP), is(-1L));
+	}
+
+	@Test
+	public void delayIsAtLeastMinDelay() throws Exception {
+		HedgingPolicy policy = HedgingPolicy.builder()
+		        .minimumSamples(1)
+		        .minDelay(Duration.ofMillis(50))
+		        .build();
+
+		policy.record(ApiOperation.FETCH_BATCH, millis(1));
+
+		assertThat(policy.hedgeDelay(ApiOperation.FETCH_BATCH),
+		        is(millis(50)));
+	}
+
+	@Test
+	public void hedgesAllOperationsByDefault() throws Exception {
+		HedgingPolicy policy = HedgingPolicy.builder().build();
+
+		assertThat(policy.hedges(ApiOperation.FETCH_DELIVERY_REPORT),
+		        is(true));
+	}
+
+	@Test
+	public void hedgesOnlyGivenOperations() throws Exception {
+		HedgingPolicy policy = HedgingPolicy.builder()
+		        .addOperation(ApiOperation.FETCH_BATCH)
+		        .build();
+
+		assertThat(policy.hedges(ApiOperation.FETCH_BATCH), is(true));
+		assertThat(policy.hedges(ApiOperation.FETCH_GROUP), is(false));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsZeroPercentile() throws Exception {
+		HedgingPolicy.builder().percentile(0).build();
+	}
+
+	@Test
+	public void equalConfigurationsAreDistinctPolicies() throws Exception {
+		HedgingPolicy a = HedgingPolicy.builder().build();
+		HedgingPolicy b = HedgingPolicy.builder().build();
+
+		assertThat(a.equals(b), is(false));
+		assertThat(a.equals(a), is(true));
+	}
+
+}
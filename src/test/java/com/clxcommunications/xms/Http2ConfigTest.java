@@ -0,0 +1,73 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class Http2ConfigTest {
+
+	@Test
+	public void hasProtocolDefaults() throws Exception {
+		Http2Config config = Http2Config.builder().build();
+
+		assertThat(config.maxConcurrentStreams(), is(100));
+		assertThat(config.initialWindowSize(), is(65535));
+		assertThat(config.maxFrameSize(), is(16384));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsNonPositiveMaxConcurrentStreams() throws Exception {
+		Http2Config.builder().maxConcurrentStreams(0).build();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsNonPositiveInitialWindowSize() throws Exception {
+		Http2Config.builder().initialWindowSize(0).build();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsTooSmallMaxFrameSize() throws Exception {
+		Http2Config.builder().maxFrameSize(16383).build();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsTooLargeMaxFrameSize() throws Exception {
+		Http2Config.builder().maxFrameSize(16777216).build();
+	}
+
+	@Test
+	public void canStartAndCloseTransport() throws Exception {
+		Http2Config http2Config = Http2Config.builder()
+		        .maxConcurrentStreams(200)
+		        .initialWindowSize(1024 * 1024)
+		        .build();
+
+		Http2Transport transport = Http2Transport.of(http2Config);
+
+		assertThat(transport.http2Config(), is(http2Config));
+
+		transport.start();
+		transport.close();
+	}
+
+}
@@ -0,0 +1,150 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import javax.net.ssl.SSLSessionContext;
+
+import org.apache.http.ssl.SSLInitializationException;
+import org.junit.Test;
+import org.threeten.bp.Duration;
+
+public class HttpClientConfigTest {
+
+	@Test
+	public void hasReasonableDefaults() throws Exception {
+		HttpClientConfig config = HttpClientConfig.builder().build();
+
+		assertThat(config.maxConnections(), is(10));
+		assertThat(config.ioThreadCount(),
+		        is(Runtime.getRuntime().availableProcessors()));
+		assertThat(config.connectTimeout(), is(Duration.ofSeconds(30)));
+		assertThat(config.socketTimeout(), is(Duration.ofSeconds(30)));
+		assertThat(config.connectionTimeToLive(), is(nullValue()));
+		assertThat(config.maxIdleTime(), is(nullValue()));
+		assertThat(config.sendBufferSize(), is(0));
+		assertThat(config.receiveBufferSize(), is(0));
+		assertThat(config.tcpNoDelay(), is(true));
+		assertThat(config.prewarmConnections(), is(0));
+		assertThat(config.tlsSessionCacheSize(), is(100));
+		assertThat(config.tlsSessionTimeout(), is(Duration.ofHours(24)));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsNonPositiveMaxConnections() throws Exception {
+		HttpClientConfig.builder().maxConnections(0).build();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsNonPositiveIoThreadCount() throws Exception {
+		HttpClientConfig.builder().ioThreadCount(0).build();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsZeroMaxIdleTime() throws Exception {
+		HttpClientConfig.builder().maxIdleTime(Duration.ZERO).build();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsNegativeSendBufferSize() throws Exception {
+		HttpClientConfig.builder().sendBufferSize(-1).build();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsMorePrewarmConnectionsThanMaxConnections()
+	        throws Exception {
+		HttpClientConfig.builder()
+		        .maxConnections(4)
+		        .prewarmConnections(5)
+		        .build();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsNegativeTlsSessionCacheSize() throws Exception {
+		HttpClientConfig.builder().tlsSessionCacheSize(-1).build();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsZeroTlsSessionTimeout() throws Exception {
+		HttpClientConfig.builder().tlsSessionTimeout(Duration.ZERO).build();
+	}
+
+	@Test
+	public void configuresTlsSessionCache() throws Exception {
+		HttpClientConfig config = HttpClientConfig.builder()
+		        .tlsSessionCacheSize(10)
+		        .tlsSessionTimeout(Duration.ofMinutes(30))
+		        .build();
+
+		SSLSessionContext sessions = ApiHttpAsyncClient
+		        .createSslContext(config).getClientSessionContext();
+
+		assertThat(sessions.getSessionCacheSize(), is(10));
+		assertThat(sessions.getSessionTimeout(), is(30 * 60));
+	}
+
+	@Test(expected = SSLInitializationException.class)
+	public void loadsKeyStoreOfSystemProperties() throws Exception {
+		String keyStore = System.getProperty("javax.net.ssl.keyStore");
+
+		System.setProperty("javax.net.ssl.keyStore",
+		        "/nonexistent/keystore.jks");
+
+		try {
+			ApiHttpAsyncClient.createSslContext(
+			        HttpClientConfig.builder().build());
+		} finally {
+			if (keyStore == null) {
+				System.clearProperty("javax.net.ssl.keyStore");
+			} else {
+				System.setProperty("javax.net.ssl.keyStore", keyStore);
+			}
+		}
+	}
+
+	@Test
+	public void canStartAndCloseTunedClient() throws Exception {
+		HttpClientConfig config = HttpClientConfig.builder()
+		        .maxConnections(64)
+		        .ioThreadCount(2)
+		        .connectionTimeToLive(Duration.ofMinutes(5))
+		        .maxIdleTime(Duration.ofSeconds(30))
+		        .sendBufferSize(64 * 1024)
+		        .receiveBufferSize(64 * 1024)
+		        .tcpNoDelay(false)
+		        .prewarmConnections(8)
+		        .tlsSessionCacheSize(0)
+		        .build();
+
+		ApiHttpAsyncClient client = ApiHttpAsyncClient.of(config);
+
+		assertThat(client.config(), is(config));
+
+		client.start();
+		assertThat(client.isRunning(), is(true));
+
+		client.close();
+		assertThat(client.isRunning(), is(false));
+	}
+
+}
@@ -0,0 +1,262 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.threeten.bp.Duration;
+
+import com.clxcommunications.xms.LoadBalancer.Strategy;
+
+public class LoadBalancerTest {
+
+	private static final URI EU = URI.create("https://eu.example.com/xms");
+
+	private static final URI US = URI.create("https://us.example.com/xms");
+
+	private static final URI AP = URI.create("https://ap.example.com/xms");
+
+	@Test
+	public void roundRobinCyclesEndpoints() throws Exception {
+		LoadBalancer balancer = LoadBalancer.builder()
+		        .addEndpoint(EU, US, AP)
+		        .build();
+
+		assertThat(balancer.select(null), is(EU));
+		assertThat(balancer.select(null), is(US));
+		assertThat(balancer.select(null), is(AP));
+		assertThat(balancer.select(null), is(EU));
+	}
+
+	@Test
+	public void avoidsGivenEndpoint() throws Exception {
+		LoadBalancer balancer = LoadBalancer.builder()
+		        .addEndpoint(EU, US)
+		        .build();
+
+		for (int i = 0; i < 10; i++) {
+			URI endpoint = balancer.select(EU);
+			assertThat(endpoint, is(US));
+			balancer.ignored(endpoint);
+		}
+	}
+
+	@Test
+	public void usesAvoidedEndpointIfOnlyOne() throws Exception {
+		LoadBalancer balancer = LoadBalancer.builder()
+		        .addEndpoint(EU)
+		        .build();
+
+		assertThat(balancer.select(EU), is(EU));
+	}
+
+	@Test
+	public void skipsEndpointWithOpenCircuit() throws Exception {
+		LoadBalancer balancer = LoadBalancer.builder()
+		        .addEndpoint(EU, US, AP)
+		        .build();
+		CircuitBreaker breaker = openCircuit(EU);
+
+		for (int i = 0; i < 10; i++) {
+			URI endpoint = balancer.select(null, breaker);
+			assertThat(endpoint, is(not(EU)));
+			breaker.ignored(endpoint);
+			balancer.ignored(endpoint);
+		}
+
+		assertThat(balancer.outstanding(EU), is(0));
+	}
+
+	@Test
+	public void rejectsWhenAllCircuitsAreOpen() throws Exception {
+		LoadBalancer balancer = LoadBalancer.builder()
+		        .addEndpoint(EU)
+		        .build();
+		CircuitBreaker breaker = openCircuit(EU);
+
+		try {
+			balancer.select(null, breaker);
+			fail("expected circuit breaker open exception");
+		} catch (CircuitBreakerOpenException e) {
+			assertThat(e.getEndpoint(), is(EU));
+		}
+
+		assertThat(balancer.outstanding(EU), is(0));
+	}
+
+	@Test
+	public void leastOutstandingPicksIdleEndpoint() throws Exception {
+		LoadBalancer balancer = LoadBalancer.builder()
+		        .addEndpoint(EU, US)
+		        .strategy(Strategy.LEAST_OUTSTANDING)
+		        .build();
+
+		assertThat(balancer.select(null), is(EU));
+		assertThat(balancer.select(null), is(US));
+		assertThat(balancer.outstanding(EU), is(1));
+
+		balancer.success(US, 0);
+
+		assertThat(balancer.select(null), is(US));
+	}
+
+	@Test
+	public void latencyWeightedPrefersFastEndpoint() throws Exception {
+		LoadBalancer balancer = LoadBalancer.builder()
+		        .addEndpoint(EU, US)
+		        .strategy(Strategy.LATENCY_WEIGHTED)
+		        .build();
+
+		assertThat(balancer.select(US), is(EU));
+		balancer.success(EU, TimeUnit.MILLISECONDS.toNanos(1000));
+		assertThat(balancer.select(EU), is(US));
+		balancer.success(US, TimeUnit.MILLISECONDS.toNanos(10));
+
+		int us = 0;
+		for (int i = 0; i < 1000; i++) {
+			URI endpoint = balancer.select(null);
+			if (endpoint.equals(US)) {
+				us++;
+			}
+			balancer.ignored(endpoint);
+		}
+
+		assertThat(us > 900, is(true));
+	}
+
+	@Test
+	public void ejectsFailingEndpoint() throws Exception {
+		LoadBalancer balancer = LoadBalancer.builder()
+		        .addEndpoint(EU, US)
+		        .ejectionThreshold(2)
+		        .build();
+
+		for (int i = 0; i < 2; i++) {
+			balancer.select(US);
+			balancer.failure(EU, new IOException(), 0);
+		}
+
+		assertThat(balancer.isEjected(EU), is(true));
+
+		for (int i = 0; i < 4; i++) {
+			URI endpoint = balancer.select(null);
+			assertThat(endpoint, is(US));
+			balancer.ignored(endpoint);
+		}
+	}
+
+	@Test
+	public void ejectsSlowEndpoint() throws Exception {
+		LoadBalancer balancer = LoadBalancer.builder()
+		        .addEndpoint(EU, US)
+		        .ejectionThreshold(1)
+		        .slowCallDuration(Duration.ofMillis(100))
+		        .build();
+
+		balancer.select(US);
+		balancer.success(EU, TimeUnit.MILLISECONDS.toNanos(200));
+
+		assertThat(balancer.isEjected(EU), is(true));
+	}
+
+	@Test
+	public void doesNotEjectOnClientError() throws Exception {
+		LoadBalancer balancer = LoadBalancer.builder()
+		        .addEndpoint(EU, US)
+		        .ejectionThreshold(1)
+		        .build();
+
+		balancer.select(US);
+		balancer.failure(EU, new NotFoundException("/"), 0);
+
+		assertThat(balancer.isEjected(EU), is(false));
+	}
+
+	@Test
+	public void readmitsEndpointAfterEjectionDuration() throws Exception {
+		LoadBalancer balancer = LoadBalancer.builder()
+		        .addEndpoint(EU, US)
+		        .ejectionThreshold(1)
+		        .ejectionDuration(Duration.ZERO)
+		        .build();
+
+		balancer.select(US);
+		balancer.failure(EU, new IOException(), 0);
+
+		assertThat(balancer.isEjected(EU), is(false));
+	}
+
+	@Test
+	public void usesEjectedEndpointsIfAllEjected() throws Exception {
+		LoadBalancer balancer = LoadBalancer.builder()
+		        .addEndpoint(EU)
+		        .ejectionThreshold(1)
+		        .build();
+
+		balancer.select(null);
+		balancer.failure(EU, new IOException(), 0);
+
+		assertThat(balancer.isEjected(EU), is(true));
+		assertThat(balancer.select(null), is(EU));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsNoEndpoints() throws Exception {
+		LoadBalancer.builder().build();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsEndpointWithQuery() throws Exception {
+		LoadBalancer.builder()
+		        .addEndpoint(URI.create("https://eu.example.com/xms?a=b"))
+		        .build();
+	}
+
+	@Test
+	public void equalConfigurationsAreDistinctBalancers() throws Exception {
+		LoadBalancer a = LoadBalancer.builder().addEndpoint(EU, US).build();
+		LoadBalancer b = LoadBalancer.builder().addEndpoint(EU, US).build();
+
+		assertThat(a.equals(b), is(false));
+		assertThat(a.equals(a), is(true));
+		assertThat(a.endpoints(), is(b.endpoints()));
+	}
+
+	private static CircuitBreaker openCircuit(URI endpoint) {
+		CircuitBreaker breaker = CircuitBreaker.builder()
+		        .windowSize(1)
+		        .minimumCalls(1)
+		        .build();
+
+		breaker.tryAcquire(endpoint);
+		breaker.failure(endpoint, new IOException(), 0);
+
+		return breaker;
+	}
+
+}
@@ -25,19 +25,29 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assume.assumeThat;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
+import org.apache.http.concurrent.BasicFuture;
 import org.apache.http.concurrent.FutureCallback;
+import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import com.clxcommunications.xms.api.Page;
 import com.pholser.junit.quickcheck.Property;
+import com.pholser.junit.quickcheck.generator.InRange;
 import com.pholser.junit.quickcheck.runner.JUnitQuickcheck;
 
 @RunWith(JUnitQuickcheck.class)
@@ -99,29 +109,283 @@ public class PagedFetcherTest {
 		assertThat(actual, is(expected));
 	}
 
+	@Property
+	public void canDoReadAheadIterationOverPages(
+	        final List<List<Integer>> pages,
+	        @InRange(minInt = 0, maxInt = 5) int readAhead) throws Exception {
+		// We are always able to fetch at least one page from XMS.
+		assumeThat(pages, hasSize(greaterThanOrEqualTo(1)));
+
+		PagedFetcher<Integer> fetcher = mockedFetcher(pages);
+
+		List<List<Integer>> actual = new ArrayList<List<Integer>>();
+		for (Page<Integer> p : fetcher.pages(readAhead)) {
+			actual.add(new ArrayList<Integer>(p.content()));
+		}
+
+		assertThat(actual, is(pages));
+	}
+
+	@Property
+	public void canDoReadAheadIterationOverElements(
+	        final List<List<Integer>> pages,
+	        @InRange(minInt = 0, maxInt = 5) int readAhead) throws Exception {
+		// We are always able to fetch at least one page from XMS.
+		assumeThat(pages, hasSize(greaterThanOrEqualTo(1)));
+
+		PagedFetcher<Integer> fetcher = mockedFetcher(pages);
+
+		// Need to flatten the input for the equality test.
+		List<Integer> expected = new ArrayList<Integer>();
+		for (List<Integer> p : pages) {
+			expected.addAll(p);
+		}
+
+		List<Integer> actual = new ArrayList<Integer>();
+		for (int a : fetcher.elements(readAhead)) {
+			actual.add(a);
+		}
+
+		assertThat(actual, is(expected));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsNegativeReadAhead() throws Exception {
+		mockedFetcher(Collections.<List<Integer>> emptyList()).pages(-1);
+	}
+
+	@Property
+	public void canDoUnorderedParallelIterationOverPages(
+	        final List<Integer> elements,
+	        @InRange(minInt = 1, maxInt = 5) int pageSize,
+	        @InRange(minInt = 1, maxInt = 5) int concurrency)
+	        throws Exception {
+		List<List<Integer>> pages = chunked(elements, pageSize);
+
+		PagedFetcher<Integer> fetcher = mockedFetcher(pages);
+
+		List<Page<Integer>> fetched = new ArrayList<Page<Integer>>();
+		for (Page<Integer> p : fetcher.parallelPages(concurrency, false)) {
+			fetched.add(p);
+		}
+
+		// The pages may arrive in any order so sort them before comparing.
+		Collections.sort(fetched, new Comparator<Page<Integer>>() {
+
+			@Override
+			public int compare(Page<Integer> o1, Page<Integer> o2) {
+				return Integer.compare(o1.page(), o2.page());
+			}
+
+		});
+
+		List<List<Integer>> actual = new ArrayList<List<Integer>>();
+		for (Page<Integer> p : fetched) {
+			actual.add(new ArrayList<Integer>(p.content()));
+		}
+
+		assertThat(actual, is(pages));
+	}
+
+	@Property
+	public void canDoOrderedParallelIterationOverElements(
+	        final List<Integer> elements,
+	        @InRange(minInt = 1, maxInt = 5) int pageSize,
+	        @InRange(minInt = 1, maxInt = 5) int concurrency)
+	        throws Exception {
+		PagedFetcher<Integer> fetcher =
+		        mockedFetcher(chunked(elements, pageSize));
+
+		List<Integer> actual = new ArrayList<Integer>();
+		for (int a : fetcher.parallelElements(concurrency, true)) {
+			actual.add(a);
+		}
+
+		assertThat(actual, is(elements));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsNonPositiveConcurrency() throws Exception {
+		mockedFetcher(Collections.<List<Integer>> emptyList())
+		        .parallelPages(0, false);
+	}
+
+	@Test
+	public void stopsRequestingPagesAfterFailure() throws Exception {
+		List<List<Integer>> pages = new ArrayList<List<Integer>>();
+		for (int i = 0; i < 10; i++) {
+			pages.add(Collections.singletonList(i));
+		}
+
+		final PagedFetcher<Integer> delegate = mockedFetcher(pages);
+		final AtomicInteger requested = new AtomicInteger();
+
+		PagedFetcher<Integer> fetcher = new PagedFetcher<Integer>() {
+
+			@Override
+			Future<Page<Integer>> fetchAsync(int page,
+			        FutureCallback<Page<Integer>> callback) {
+				requested.incrementAndGet();
+
+				if (page == 1) {
+					BasicFuture<Page<Integer>> f =
+					        new BasicFuture<Page<Integer>>(callback);
+					f.failed(new IOException("page 1 failed"));
+					return f;
+				}
+
+				return delegate.fetchAsync(page, callback);
+			}
+
+		};
+
+		Iterator<Page<Integer>> it =
+		        fetcher.parallelPages(1, false).iterator();
+
+		assertThat(it.next().page(), is(0));
+
+		try {
+			it.next();
+		} catch (RuntimeApiException e) {
+			assertThat(requested.get(), is(2));
+			assertThat(it.hasNext(), is(false));
+			return;
+		}
+
+		throw new AssertionError("expected failure");
+	}
+
+	@Property
+	public void canStreamElementsInParallel(final List<Integer> elements,
+	        @InRange(minInt = 1, maxInt = 5) int pageSize)
+	        throws Exception {
+		PagedFetcher<Integer> fetcher =
+		        mockedFetcher(chunked(elements, pageSize));
+
+		List<Integer> actual =
+		        fetcher.stream().parallel().collect(Collectors.toList());
+
+		assertThat(actual, is(elements));
+	}
+
+	@Property
+	public void streamIsEstimatedByTotalSize(final List<Integer> elements,
+	        @InRange(minInt = 1, maxInt = 5) int pageSize)
+	        throws Exception {
+		PagedFetcher<Integer> fetcher =
+		        mockedFetcher(chunked(elements, pageSize));
+
+		Spliterator<Integer> spliterator = fetcher.stream().spliterator();
+
+		assertThat(spliterator.hasCharacteristics(Spliterator.SIZED),
+		        is(false));
+		assertThat(spliterator.estimateSize(), is((long) elements.size()));
+
+		Spliterator<Integer> prefix = spliterator.trySplit();
+		if (prefix != null) {
+			assertThat(prefix.estimateSize() + spliterator.estimateSize(),
+			        is((long) elements.size()));
+		}
+	}
+
+	@Test
+	public void parallelStreamToleratesInaccurateTotalSize() throws Exception {
+		// Five pages of two elements each, except possibly the last.
+		for (int actualSize = 9; actualSize <= 10; actualSize++) {
+			List<Integer> elements = new ArrayList<Integer>();
+			for (int i = 0; i < actualSize; i++) {
+				elements.add(i);
+			}
+
+			// Report 10 elements when there are 9 and vice versa.
+			int totalSize = 19 - actualSize;
+
+			PagedFetcher<Integer> fetcher =
+			        mockedFetcher(chunked(elements, 2), totalSize);
+
+			Object[] actual = fetcher.stream().parallel().toArray();
+
+			assertThat(Arrays.asList(actual), is((Object) elements));
+		}
+	}
+
+	/**
+	 * Splits the given elements into pages of the given size. Like XMS this
+	 * always produces at least one page, which may be empty.
+	 */
+	private static List<List<Integer>> chunked(List<Integer> elements,
+	        int pageSize) {
+		List<List<Integer>> pages = new ArrayList<List<Integer>>();
+
+		for (int i = 0; i < elements.size(); i += pageSize) {
+			pages.add(elements.subList(i,
+			        Math.min(i + pageSize, elements.size())));
+		}
+
+		if (pages.isEmpty()) {
+			pages.add(Collections.<Integer> emptyList());
+		}
+
+		return pages;
+	}
+
 	private static PagedFetcher<Integer> mockedFetcher(
 	        final List<List<Integer>> pages) {
+		int totalSize = 0;
+		for (List<Integer> page : pages) {
+			totalSize += page.size();
+		}
+
+		return mockedFetcher(pages, totalSize);
+	}
+
+	/**
+	 * Like {@link #mockedFetcher(List)} but the pages report the given total
+	 * size, which need not match the actual number of elements.
+	 */
+	private static PagedFetcher<Integer> mockedFetcher(
+	        final List<List<Integer>> pages, final int totalSize) {
 		final ExecutorService executor = Executors.newSingleThreadExecutor();
 
 		return new PagedFetcher<Integer>() {
 
 			@Override
 			Future<Page<Integer>> fetchAsync(final int page,
-			        FutureCallback<Page<Integer>> callback) {
-				return executor.submit(mockedFetchCallable(pages, page));
+			        final FutureCallback<Page<Integer>> callback) {
+				final Callable<Page<Integer>> fetch =
+				        mockedFetchCallable(pages, page, totalSize);
+
+				return executor.submit(new Callable<Page<Integer>>() {
+
+					@Override
+					public Page<Integer> call() throws Exception {
+						Page<Integer> result;
+
+						try {
+							result = fetch.call();
+						} catch (Exception e) {
+							if (callback != null) {
+								callback.failed(e);
+							}
+							throw e;
+						}
+
+						if (callback != null) {
+							callback.completed(result);
+						}
+
+						return result;
+					}
+
+				});
 			}
 
 		};
 	}
 
 	private static Callable<Page<Integer>> mockedFetchCallable(
-	        final List<List<Integer>> pages, final int pageNum) {
-		int sizeAcc = 0;
-		for (List<Integer> page : pages) {
-			sizeAcc += page.size();
-		}
-		final int totalSize = sizeAcc;
-
+	        final List<List<Integer>> pages, final int pageNum,
+	        final int totalSize) {
 		return new Callable<Page<Integer>>() {
 
 			@Override
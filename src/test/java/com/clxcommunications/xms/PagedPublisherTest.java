@@ -0,0 +1,203 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import org.apache.http.concurrent.BasicFuture;
+import org.apache.http.concurrent.FutureCallback;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import com.clxcommunications.xms.api.Page;
+
+public class PagedPublisherTest {
+
+	/**
+	 * A subscriber that records all signals and requests more elements only
+	 * when asked to.
+	 */
+	private static class RecordingSubscriber implements Subscriber<Integer> {
+
+		final List<Integer> elements = new ArrayList<Integer>();
+		Subscription subscription;
+		Throwable error;
+		boolean completed;
+
+		@Override
+		public void onSubscribe(Subscription s) {
+			this.subscription = s;
+		}
+
+		@Override
+		public void onNext(Integer t) {
+			elements.add(t);
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			this.error = t;
+		}
+
+		@Override
+		public void onComplete() {
+			this.completed = true;
+		}
+
+	}
+
+	@Test
+	public void emitsOnlyRequestedElements() throws Exception {
+		List<Integer> fetched = new ArrayList<Integer>();
+		PagedFetcher<Integer> fetcher = syncFetcher(fetched,
+		        Arrays.asList(1, 2), Arrays.asList(3, 4), Arrays.asList(5));
+
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		PagedPublisher.of(fetcher).subscribe(subscriber);
+
+		assertThat(fetched, is(Collections.<Integer> emptyList()));
+
+		subscriber.subscription.request(3);
+
+		assertThat(subscriber.elements, is(Arrays.asList(1, 2, 3)));
+		assertThat(fetched, is(Arrays.asList(0, 1)));
+		assertThat(subscriber.completed, is(false));
+
+		subscriber.subscription.request(10);
+
+		assertThat(subscriber.elements, is(Arrays.asList(1, 2, 3, 4, 5)));
+		assertThat(fetched, is(Arrays.asList(0, 1, 2)));
+		assertThat(subscriber.completed, is(true));
+		assertThat(subscriber.error, is(nullValue()));
+	}
+
+	@Test
+	public void completesOnEmptyResult() throws Exception {
+		List<Integer> fetched = new ArrayList<Integer>();
+		PagedFetcher<Integer> fetcher =
+		        syncFetcher(fetched, Collections.<Integer> emptyList());
+
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		PagedPublisher.of(fetcher).subscribe(subscriber);
+		subscriber.subscription.request(1);
+
+		assertThat(subscriber.elements, is(Collections.<Integer> emptyList()));
+		assertThat(subscriber.completed, is(true));
+	}
+
+	@Test
+	public void signalsErrorOnNonPositiveRequest() throws Exception {
+		PagedFetcher<Integer> fetcher = syncFetcher(
+		        new ArrayList<Integer>(), Arrays.asList(1));
+
+		RecordingSubscriber subscriber = new RecordingSubscriber();
+		PagedPublisher.of(fetcher).subscribe(subscriber);
+		subscriber.subscription.request(0);
+
+		assertThat(subscriber.error,
+		        is(instanceOf(IllegalArgumentException.class)));
+		assertThat(subscriber.completed, is(false));
+	}
+
+	@Test
+	public void stopsEmittingWhenCancelled() throws Exception {
+		PagedFetcher<Integer> fetcher = syncFetcher(
+		        new ArrayList<Integer>(), Arrays.asList(1, 2, 3));
+
+		RecordingSubscriber subscriber = new RecordingSubscriber() {
+
+			@Override
+			public void onNext(Integer t) {
+				super.onNext(t);
+				subscription.cancel();
+			}
+
+		};
+		PagedPublisher.of(fetcher).subscribe(subscriber);
+		subscriber.subscription.request(Long.MAX_VALUE);
+
+		assertThat(subscriber.elements, is(Arrays.asList(1)));
+		assertThat(subscriber.completed, is(false));
+	}
+
+	/**
+	 * Builds a fetcher that synchronously completes each fetch and records
+	 * which pages were requested.
+	 */
+	@SafeVarargs
+	private static PagedFetcher<Integer> syncFetcher(
+	        final List<Integer> fetched, final List<Integer>... pages) {
+		int sizeAcc = 0;
+		for (List<Integer> page : pages) {
+			sizeAcc += page.size();
+		}
+		final int totalSize = sizeAcc;
+
+		return new PagedFetcher<Integer>() {
+
+			@Override
+			Future<Page<Integer>> fetchAsync(final int pageNum,
+			        FutureCallback<Page<Integer>> callback) {
+				fetched.add(pageNum);
+
+				BasicFuture<Page<Integer>> future =
+				        new BasicFuture<Page<Integer>>(callback);
+
+				future.completed(new Page<Integer>() {
+
+					@Override
+					public int page() {
+						return pageNum;
+					}
+
+					@Override
+					public int size() {
+						return pages[pageNum].size();
+					}
+
+					@Override
+					public int totalSize() {
+						return totalSize;
+					}
+
+					@Override
+					public List<Integer> content() {
+						return pages[pageNum];
+					}
+
+				});
+
+				return future;
+			}
+
+		};
+	}
+
+}
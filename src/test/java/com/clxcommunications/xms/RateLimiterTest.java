@@ -0,0 +1,214 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.threeten.bp.Duration;
+
+public class RateLimiterTest {
+
+	private static final long FOREVER = Long.MAX_VALUE;
+
+	@Test
+	public void permitsBurstWithoutWait() throws Exception {
+		RateLimiter limiter = RateLimiter.builder()
+		        .permitsPerSecond(1)
+		        .burst(3)
+		        .build();
+
+		for (int i = 0; i < 3; i++) {
+			assertThat(limiter.reserve("spid", ApiOperation.CREATE_BATCH,
+			        FOREVER), is(0L));
+		}
+
+		long wait = limiter.reserve("spid", ApiOperation.CREATE_BATCH, FOREVER);
+
+		assertThat(wait, is(greaterThan(0L)));
+		assertThat(wait, is(lessThanOrEqualTo(TimeUnit.SECONDS.toNanos(1))));
+		assertThat(limiter.permittedCalls(), is(4L));
+		assertThat(limiter.totalWait(TimeUnit.NANOSECONDS), is(wait));
+	}
+
+	@Test
+	public void queuedCallsWaitSuccessivelyLonger() throws Exception {
+		RateLimiter limiter = RateLimiter.builder()
+		        .permitsPerSecond(1)
+		        .burst(1)
+		        .build();
+
+		limiter.reserve("spid", ApiOperation.FETCH_BATCH, FOREVER);
+		long first = limiter.reserve("spid", ApiOperation.FETCH_BATCH, FOREVER);
+		long second =
+		        limiter.reserve("spid", ApiOperation.FETCH_BATCH, FOREVER);
+
+		assertThat(second, is(greaterThan(first)));
+	}
+
+	@Test
+	public void rejectsWhenWaitExceedsMaxWait() throws Exception {
+		RateLimiter limiter = RateLimiter.builder()
+		        .permitsPerSecond(1)
+		        .burst(1)
+		        .maxWait(Duration.ZERO)
+		        .build();
+
+		assertThat(limiter.reserve("spid", ApiOperation.FETCH_BATCH, FOREVER),
+		        is(0L));
+		assertThat(limiter.reserve("spid", ApiOperation.FETCH_BATCH, FOREVER),
+		        is(-1L));
+		assertThat(limiter.rejectedCalls(), is(1L));
+	}
+
+	@Test
+	public void rejectsWhenWaitExceedsCallLimit() throws Exception {
+		RateLimiter limiter = RateLimiter.builder()
+		        .permitsPerSecond(1)
+		        .burst(1)
+		        .build();
+
+		limiter.reserve("spid", ApiOperation.FETCH_BATCH, FOREVER);
+
+		assertThat(limiter.reserve("spid", ApiOperation.FETCH_BATCH,
+		        TimeUnit.MILLISECONDS.toNanos(10)), is(-1L));
+	}
+
+	@Test
+	public void limitsServicePlansSeparately() throws Exception {
+		RateLimiter limiter = RateLimiter.builder()
+		        .permitsPerSecond(1)
+		        .burst(1)
+		        .maxWait(Duration.ZERO)
+		        .build();
+
+		assertThat(limiter.reserve("spid1", ApiOperation.FETCH_BATCH, FOREVER),
+		        is(0L));
+		assertThat(limiter.reserve("spid2", ApiOperation.FETCH_BATCH, FOREVER),
+		        is(0L));
+	}
+
+	@Test
+	public void limitsOperationsTogetherByDefault() throws Exception {
+		RateLimiter limiter = RateLimiter.builder()
+		        .permitsPerSecond(1)
+		        .burst(1)
+		        .maxWait(Duration.ZERO)
+		        .build();
+
+		assertThat(limiter.reserve("spid", ApiOperation.FETCH_BATCH, FOREVER),
+		        is(0L));
+		assertThat(limiter.reserve("spid", ApiOperation.CREATE_BATCH, FOREVER),
+		        is(-1L));
+	}
+
+	@Test
+	public void canLimitOperationsSeparately() throws Exception {
+		RateLimiter limiter = RateLimiter.builder()
+		        .permitsPerSecond(1)
+		        .burst(1)
+		        .perOperation(true)
+		        .maxWait(Duration.ZERO)
+		        .build();
+
+		assertThat(limiter.reserve("spid", ApiOperation.FETCH_BATCH, FOREVER),
+		        is(0L));
+		assertThat(limiter.reserve("spid", ApiOperation.CREATE_BATCH, FOREVER),
+		        is(0L));
+	}
+
+	@Test
+	public void notifiesListener() throws Exception {
+		final List<String> events = new ArrayList<String>();
+
+		RateLimiter limiter = RateLimiter.builder()
+		        .permitsPerSecond(1)
+		        .burst(1)
+		        .maxWait(Duration.ZERO)
+		        .listener(new RateLimiterListener() {
+
+			        @Override
+			        public void permitted(String servicePlanId,
+			                ApiOperation operation, long waitNanos) {
+				        events.add("permitted " + servicePlanId + " "
+				                + operation + " " + waitNanos);
+			        }
+
+			        @Override
+			        public void rejected(String servicePlanId,
+			                ApiOperation operation) {
+				        events.add("rejected " + servicePlanId + " "
+				                + operation);
+			        }
+
+		        })
+		        .build();
+
+		limiter.reserve("spid", ApiOperation.FETCH_GROUP, FOREVER);
+		limiter.reserve("spid", ApiOperation.FETCH_GROUP, FOREVER);
+
+		assertThat(events.size(), is(2));
+		assertThat(events.get(0), is("permitted spid FETCH_GROUP 0"));
+		assertThat(events.get(1), is("rejected spid FETCH_GROUP"));
+	}
+
+	@Test
+	public void defaultBurstIsOneSecondOfPermits() throws Exception {
+		assertThat(RateLimiter.builder().permitsPerSecond(2.5).build().burst(),
+		        is(3));
+		assertThat(RateLimiter.builder().permitsPerSecond(0.1).build().burst(),
+		        is(1));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsNonPositiveRate() throws Exception {
+		RateLimiter.builder().permitsPerSecond(0).build();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsNegativeMaxWait() throws Exception {
+		RateLimiter.builder()
+		        .permitsPerSecond(1)
+		        .maxWait(Duration.ofSeconds(-1))
+		        .build();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsMissingRate() throws Exception {
+		RateLimiter.builder().burst(1).build();
+	}
+
+	@Test
+	public void equalConfigurationsAreDistinctLimiters() throws Exception {
+		RateLimiter a = RateLimiter.builder().permitsPerSecond(1).build();
+		RateLimiter b = RateLimiter.builder().permitsPerSecond(1).build();
+
+		assertThat(a.equals(b), is(false));
+		assertThat(a.equals(a), is(true));
+	}
+
+}
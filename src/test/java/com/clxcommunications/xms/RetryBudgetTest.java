@@ -0,0 +1,74 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class RetryBudgetTest {
+
+	@Test
+	public void startsWithReserve() throws Exception {
+		RetryBudget budget = RetryBudget.of(0.1, 3);
+
+		assertThat(budget.availableRetries(), is(3));
+		assertThat(budget.tryWithdraw(), is(true));
+		assertThat(budget.tryWithdraw(), is(true));
+		assertThat(budget.tryWithdraw(), is(true));
+		assertThat(budget.tryWithdraw(), is(false));
+	}
+
+	@Test
+	public void depositsRatioPerCall() throws Exception {
+		RetryBudget budget = RetryBudget.of(0.25, 0);
+
+		assertThat(budget.tryWithdraw(), is(false));
+
+		for (int i = 0; i < 3; i++) {
+			budget.deposit();
+		}
+
+		assertThat(budget.tryWithdraw(), is(false));
+
+		budget.deposit();
+
+		assertThat(budget.tryWithdraw(), is(true));
+		assertThat(budget.tryWithdraw(), is(false));
+	}
+
+	@Test
+	public void isCappedAtReserve() throws Exception {
+		RetryBudget budget = RetryBudget.of(1.0, 2);
+
+		for (int i = 0; i < 100; i++) {
+			budget.deposit();
+		}
+
+		assertThat(budget.availableRetries(), is(2));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsNegativeRatio() throws Exception {
+		RetryBudget.of(-0.1);
+	}
+
+}
@@ -0,0 +1,145 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+import org.threeten.bp.Clock;
+import org.threeten.bp.OffsetDateTime;
+
+import com.clxcommunications.testsupport.TestUtils;
+import com.clxcommunications.xms.api.GroupResult;
+import com.clxcommunications.xms.api.Page;
+import com.clxcommunications.xms.api.PagedGroupResult;
+
+public class StreamingPageAsyncConsumerTest {
+
+	private final ApiObjectMapper json = new ApiObjectMapper();
+
+	@Test
+	public void canStreamElementsFromChunkedInput() throws Exception {
+		OffsetDateTime time = OffsetDateTime.now(Clock.systemUTC());
+
+		GroupResult group1 = new GroupResult.Builder()
+		        .size(72)
+		        .id(TestUtils.freshGroupId())
+		        .createdAt(time)
+		        .modifiedAt(time)
+		        .name("groupname")
+		        .build();
+
+		GroupResult group2 = new GroupResult.Builder()
+		        .size(20)
+		        .id(TestUtils.freshGroupId())
+		        .createdAt(time)
+		        .modifiedAt(time)
+		        .addChildGroup(group1.id())
+		        .build();
+
+		PagedGroupResult input = new PagedGroupResult.Builder()
+		        .page(3)
+		        .size(2)
+		        .totalSize(14)
+		        .addContent(group1, group2)
+		        .build();
+
+		byte[] body = json.writeValueAsBytes(input);
+
+		final List<GroupResult> received = new ArrayList<GroupResult>();
+		StreamingPageAsyncConsumer<GroupResult> consumer =
+		        new StreamingPageAsyncConsumer<GroupResult>(json,
+		                json.readerFor(GroupResult.class), "groups",
+		                new PageElementListener<GroupResult>() {
+
+			                @Override
+			                public void onElement(GroupResult element) {
+				                received.add(element);
+			                }
+
+		                });
+
+		consumer.onResponseReceived(okResponse());
+
+		// Feed the body a few bytes at a time to split tokens across chunks.
+		for (int i = 0; i < body.length; i += 7) {
+			int length = Math.min(7, body.length - i);
+			consumer.onByteReceived(ByteBuffer.wrap(body, i, length), null);
+		}
+
+		Page<GroupResult> page = consumer.buildResult(null);
+
+		assertThat(received, is(Arrays.asList(group1, group2)));
+		assertThat(page.page(), is(3));
+		assertThat(page.size(), is(2));
+		assertThat(page.totalSize(), is(14));
+		assertThat(page.content().isEmpty(), is(true));
+	}
+
+	@Test
+	public void canStreamFromDirectBuffer() throws Exception {
+		byte[] body = Utils.join("\n",
+		        "{",
+		        "  'page' : 0,",
+		        "  'page_size' : 0,",
+		        "  'count' : 0,",
+		        "  'groups' : []",
+		        "}").replace('\'', '"').getBytes("UTF-8");
+
+		StreamingPageAsyncConsumer<GroupResult> consumer =
+		        new StreamingPageAsyncConsumer<GroupResult>(json,
+		                json.readerFor(GroupResult.class), "groups",
+		                new PageElementListener<GroupResult>() {
+
+			                @Override
+			                public void onElement(GroupResult element) {
+				                throw new AssertionError("unexpected element");
+			                }
+
+		                });
+
+		ByteBuffer buf = ByteBuffer.allocateDirect(body.length);
+		buf.put(body).flip();
+
+		consumer.onResponseReceived(okResponse());
+		consumer.onByteReceived(buf, null);
+
+		Page<GroupResult> page = consumer.buildResult(null);
+
+		assertThat(page.isEmpty(), is(true));
+		assertThat(page.totalSize(), is(0));
+	}
+
+	private static HttpResponse okResponse() {
+		return new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK,
+		        "OK");
+	}
+
+}
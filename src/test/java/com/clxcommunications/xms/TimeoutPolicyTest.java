@@ -0,0 +1,69 @@
+/*-
+ * #%L
+ * SDK for CLX XMS
+ * %%
+ * Copyright (C) 2016 CLX Communications
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package com.clxcommunications.xms;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+import org.threeten.bp.Duration;
+
+public class TimeoutPolicyTest {
+
+	@Test
+	public void hasNoTimeoutsByDefault() throws Exception {
+		TimeoutPolicy policy = TimeoutPolicy.builder().build();
+
+		for (ApiOperation op : ApiOperation.values()) {
+			assertThat(policy.timeout(op), is(nullValue()));
+		}
+	}
+
+	@Test
+	public void operationTimeoutOverridesDefault() throws Exception {
+		TimeoutPolicy policy = TimeoutPolicy.builder()
+		        .defaultTimeout(Duration.ofSeconds(5))
+		        .putOperationTimeout(ApiOperation.FETCH_DELIVERY_REPORT,
+		                Duration.ofSeconds(60))
+		        .build();
+
+		assertThat(policy.timeout(ApiOperation.FETCH_DELIVERY_REPORT),
+		        is(Duration.ofSeconds(60)));
+		assertThat(policy.timeout(ApiOperation.CREATE_BATCH),
+		        is(Duration.ofSeconds(5)));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsNegativeDefaultTimeout() throws Exception {
+		TimeoutPolicy.builder()
+		        .defaultTimeout(Duration.ofSeconds(-1))
+		        .build();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rejectsNegativeOperationTimeout() throws Exception {
+		TimeoutPolicy.builder()
+		        .putOperationTimeout(ApiOperation.FETCH_BATCH,
+		                Duration.ofSeconds(-1))
+		        .build();
+	}
+
+}
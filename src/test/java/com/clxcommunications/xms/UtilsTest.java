@@ -19,14 +19,21 @@
  */
 package com.clxcommunications.xms;
 
+import static org.hamcrest.CoreMatchers.both;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.isEmptyString;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.junit.Assert.assertThat;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.http.client.config.RequestConfig;
 import org.junit.Test;
+import org.threeten.bp.Duration;
 
 public class UtilsTest {
 
@@ -77,4 +84,68 @@ public class UtilsTest {
 		}
 	}
 
+	@Test
+	public void limitTimeoutsKeepsShorterConfiguredTimeouts() throws Exception {
+		RequestConfig config = RequestConfig.custom()
+		        .setConnectTimeout(500)
+		        .setSocketTimeout(0)
+		        .setRedirectsEnabled(false)
+		        .build();
+
+		RequestConfig limited = Utils.limitTimeouts(config,
+		        Deadline.after(1, TimeUnit.HOURS));
+
+		assertThat(limited.getConnectTimeout(), is(500));
+		assertThat(limited.getSocketTimeout(),
+		        is(both(greaterThan(0)).and(lessThanOrEqualTo(3600000))));
+		assertThat(limited.getConnectionRequestTimeout(),
+		        is(both(greaterThan(0)).and(lessThanOrEqualTo(3600000))));
+		assertThat(limited.isRedirectsEnabled(), is(false));
+	}
+
+	@Test
+	public void limitTimeoutsShortensLongerConfiguredTimeouts()
+	        throws Exception {
+		RequestConfig config = RequestConfig.custom()
+		        .setConnectTimeout(3600000)
+		        .setSocketTimeout(3600000)
+		        .build();
+
+		RequestConfig limited = Utils.limitTimeouts(config,
+		        Deadline.after(1, TimeUnit.SECONDS));
+
+		assertThat(limited.getConnectTimeout(), is(lessThanOrEqualTo(1000)));
+		assertThat(limited.getSocketTimeout(), is(lessThanOrEqualTo(1000)));
+	}
+
+	@Test
+	public void ioErrorIsOverload() throws Exception {
+		assertThat(Utils.isOverload(new IOException()), is(true));
+	}
+
+	@Test
+	public void notFoundIsNotOverload() throws Exception {
+		assertThat(Utils.isOverload(new NotFoundException("/")), is(false));
+	}
+
+	@Test
+	public void ioErrorIsEndpointFailure() throws Exception {
+		assertThat(Utils.isEndpointFailure(new IOException()), is(true));
+	}
+
+	@Test
+	public void notFoundIsNotEndpointFailure() throws Exception {
+		assertThat(Utils.isEndpointFailure(new NotFoundException("/")),
+		        is(false));
+	}
+
+	@Test
+	public void toNanosSaturatesLongDurations() throws Exception {
+		assertThat(Utils.toNanos(Duration.ofSeconds(Long.MAX_VALUE)),
+		        is(Long.MAX_VALUE));
+		assertThat(Utils.toNanos(Duration.ofSeconds(Long.MIN_VALUE)),
+		        is(Long.MIN_VALUE));
+		assertThat(Utils.toNanos(Duration.ofMillis(3)), is(3000000L));
+	}
+
 }